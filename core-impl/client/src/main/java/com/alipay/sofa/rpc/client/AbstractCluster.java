@@ -99,6 +99,11 @@ public abstract class AbstractCluster extends Cluster {
      * 负载均衡接口
      */
     protected LoadBalancer     loadBalancer;
+
+    /**
+     * 负载均衡是否需要调用统计，不需要时调用前后不统计
+     */
+    protected boolean          invokeStatsEnabled;
     /**
      * 地址保持器
      */
@@ -111,6 +116,10 @@ public abstract class AbstractCluster extends Cluster {
      * 过滤器链
      */
     protected FilterChain      filterChain;
+    /**
+     * JVM内部调用，没有开启inJVM时为null
+     */
+    protected InJvmInvoker     inJvmInvoker;
 
     @Override
     public synchronized void init() {
@@ -121,6 +130,7 @@ public abstract class AbstractCluster extends Cluster {
         routerChain = RouterChain.buildConsumerChain(consumerBootstrap);
         // 负载均衡策略 考虑是否可动态替换？
         loadBalancer = LoadBalancerFactory.getLoadBalancer(consumerBootstrap);
+        invokeStatsEnabled = loadBalancer.isInvokeStatsRequired();
         // 地址管理器
         addressHolder = AddressHolderFactory.getAddressHolder(consumerBootstrap);
         // 连接管理器
@@ -128,6 +138,9 @@ public abstract class AbstractCluster extends Cluster {
         // 构造Filter链,最底层是调用过滤器
         this.filterChain = FilterChain.buildConsumerChain(this.consumerConfig,
             new ConsumerInvoker(consumerBootstrap));
+        if (consumerConfig.isInJVM()) {
+            inJvmInvoker = new InJvmInvoker(consumerConfig);
+        }
 
         if (consumerConfig.isLazy()) { // 延迟连接
             if (LOGGER.isInfoEnabled(consumerConfig.getAppName())) {
@@ -283,7 +296,12 @@ public abstract class AbstractCluster extends Cluster {
             checkClusterState();
             // 开始调用
             countOfInvoke.incrementAndGet(); // 计数+1         
-            response = doInvoke(request);
+            if (inJvmInvoker != null && inJvmInvoker.isAvailable(request)) {
+                // 同一个JVM内发布了服务，直接调用，不走负载均衡和重试
+                response = filterChain(inJvmInvoker.getProviderInfo(), request);
+            } else {
+                response = doInvoke(request);
+            }
             return response;
         } catch (SofaRpcException e) {
             // 客户端收到异常（客户端自己的异常）
@@ -293,6 +311,41 @@ public abstract class AbstractCluster extends Cluster {
         }
     }
 
+    @Override
+    public BatchResult invokeBatch(List<SofaRequest> requests, int timeout) throws SofaRpcException {
+        try {
+            checkClusterState();
+            countOfInvoke.incrementAndGet(); // 计数+1
+            List<ProviderInfo> providerInfos = new ArrayList<ProviderInfo>(requests.size());
+            for (SofaRequest request : requests) {
+                providerInfos.add(select(request));
+            }
+            return invokeAll(providerInfos, requests, timeout);
+        } finally {
+            countOfInvoke.decrementAndGet(); // 计数-1
+        }
+    }
+
+    /**
+     * 把请求异步发给对应的服务提供者，等待全部返回或者超时
+     *
+     * @param providerInfos 每个请求的服务提供者
+     * @param requests      请求
+     * @param timeout       整个批量调用的超时时间（毫秒）
+     * @return 调用结果
+     * @throws SofaRpcException 等待时被中断
+     */
+    protected BatchResult invokeAll(List<ProviderInfo> providerInfos, List<SofaRequest> requests, int timeout)
+        throws SofaRpcException {
+        BatchInvocation invocation = new BatchInvocation(providerInfos, requests, consumerConfig.getBatchPolicy());
+        try {
+            return invocation.invoke(this, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR, "Interrupted when wait batch results", e);
+        }
+    }
+
     /**
      * 子类实现各自逻辑的调用，例如重试等
      *
@@ -349,13 +402,16 @@ public abstract class AbstractCluster extends Cluster {
                 }
             }
         }
-        // 原始服务列表数据 --> 路由结果
+        // 原始服务列表数据 --> 路由结果（可能是地址的只读快照，需要剔除时再复制）
         List<ProviderInfo> providerInfos = routerChain.route(message, null);
         if (CommonUtils.isEmpty(providerInfos)) {
             throw noAvailableProviderException(message.getTargetServiceUniqueName());
         }
+        boolean copied = false;
         if (CommonUtils.isNotEmpty(invokedProviderInfos) && providerInfos.size() > invokedProviderInfos.size()) { // 总数大于已调用数
+            providerInfos = new ArrayList<ProviderInfo>(providerInfos);
             providerInfos.removeAll(invokedProviderInfos);// 已经调用异常的本次不再重试
+            copied = true;
         }
 
         String targetIP = null;
@@ -385,6 +441,10 @@ public abstract class AbstractCluster extends Cluster {
                 if (transport != null) {
                     return providerInfo;
                 }
+                if (!copied) {
+                    providerInfos = new ArrayList<ProviderInfo>(providerInfos);
+                    copied = true;
+                }
                 providerInfos.remove(providerInfo);
             } while (!providerInfos.isEmpty());
         }
@@ -475,6 +535,15 @@ public abstract class AbstractCluster extends Cluster {
 
     @Override
     public SofaResponse sendMsg(ProviderInfo providerInfo, SofaRequest request) throws SofaRpcException {
+        if (inJvmInvoker != null && providerInfo == inJvmInvoker.getProviderInfo()) {
+            SofaResponse response = inJvmInvoker.invoke(request);
+            if (response != null) {
+                return response;
+            }
+            // 本地服务已经取消发布，改为远程调用
+            providerInfo = select(request);
+            RpcInternalContext.getContext().setProviderInfo(providerInfo);
+        }
         ClientTransport clientTransport = connectionHolder.getAvailableClientTransport(providerInfo);
         if (clientTransport != null && clientTransport.isAvailable()) {
             return doSendMsg(providerInfo, clientTransport, request);
@@ -505,14 +574,24 @@ public abstract class AbstractCluster extends Cluster {
             // 同步调用
             if (RpcConstants.INVOKER_TYPE_SYNC.equals(invokeType)) {
                 long start = RpcRuntimeContext.now();
+                ProviderInvokeStats stats = invokeStatsEnabled ? providerInfo.getInvokeStats() : null;
+                long begin = stats == null ? 0 : stats.begin();
                 try {
                     response = transport.syncSend(request, timeout);
                 } finally {
+                    if (stats != null) {
+                        stats.end(begin);
+                    }
                     if (RpcInternalContext.isAttachmentEnable()) {
                         long elapsed = RpcRuntimeContext.now() - start;
                         context.setAttachment(RpcConstants.INTERNAL_KEY_CLIENT_ELAPSE, elapsed);
                     }
                 }
+                // 服务端繁忙（例如并发超限）转为异常，集群策略可以重试其它节点
+                if (response != null && response.isError() && String.valueOf(RpcErrorType.SERVER_BUSY).equals(
+                    response.getResponseProp(RpcConstants.RESPONSE_PROP_ERROR_TYPE))) {
+                    throw new SofaRpcException(RpcErrorType.SERVER_BUSY, response.getErrorMsg());
+                }
             }
             // 单向调用
             else if (RpcConstants.INVOKER_TYPE_ONEWAY.equals(invokeType)) {
@@ -538,13 +617,28 @@ public abstract class AbstractCluster extends Cluster {
                         request.setSofaResponseCallback(methodResponseCallback);
                     }
                 }
-                transport.asyncSend(request, timeout);
+                // 没有回调的情况下不会通知响应，不统计
+                ProviderInvokeStats.AsyncInvocation invocation = request.getSofaResponseCallback() == null ? null
+                    : beginAsyncInvocation(context, providerInfo);
+                boolean sent = false;
+                try {
+                    transport.asyncSend(request, timeout);
+                    sent = true;
+                } finally {
+                    afterAsyncSend(context, invocation, sent);
+                }
                 response = new SofaResponse();
             }
             // Future调用
             else if (RpcConstants.INVOKER_TYPE_FUTURE.equals(invokeType)) {
                 // 开始调用
-                ResponseFuture future = transport.asyncSend(request, timeout);
+                ProviderInvokeStats.AsyncInvocation invocation = beginAsyncInvocation(context, providerInfo);
+                ResponseFuture future = null;
+                try {
+                    future = transport.asyncSend(request, timeout);
+                } finally {
+                    afterAsyncSend(context, invocation, future != null);
+                }
                 // 放入线程上下文
                 RpcInternalContext.getContext().setFuture(future);
                 response = new SofaResponse();
@@ -559,6 +653,40 @@ public abstract class AbstractCluster extends Cluster {
         }
     }
 
+    /**
+     * 开始统计异步调用，放入上下文，由响应回调结束
+     *
+     * @param context      RPC上下文
+     * @param providerInfo 服务提供者
+     * @return 异步调用，负载均衡不需要调用统计时为null
+     */
+    private ProviderInvokeStats.AsyncInvocation beginAsyncInvocation(RpcInternalContext context,
+                                                                     ProviderInfo providerInfo) {
+        if (!invokeStatsEnabled) {
+            return null;
+        }
+        ProviderInvokeStats.AsyncInvocation invocation = providerInfo.getInvokeStats().beginAsync();
+        context.setAttachment(RpcConstants.HIDDEN_KEY_INVOKE_STATS, invocation);
+        return invocation;
+    }
+
+    /**
+     * 发送后从上下文中移除异步调用（传输层已复制上下文），发送失败时直接结束统计
+     *
+     * @param context    RPC上下文
+     * @param invocation 异步调用
+     * @param sent       是否发送成功
+     */
+    private void afterAsyncSend(RpcInternalContext context, ProviderInvokeStats.AsyncInvocation invocation,
+                                boolean sent) {
+        if (invocation != null) {
+            context.removeAttachment(RpcConstants.HIDDEN_KEY_INVOKE_STATS);
+            if (!sent) {
+                invocation.end();
+            }
+        }
+    }
+
     /**
      * 决定超时时间
      *
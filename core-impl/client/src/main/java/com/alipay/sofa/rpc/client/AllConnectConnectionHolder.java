@@ -543,6 +543,8 @@ public class AllConnectConnectionHolder extends ConnectionHolder {
             .setInvokeTimeout(consumerConfig.getTimeout())
             .setDisconnectTimeout(consumerConfig.getDisconnectTimeout())
             .setConnectionNum(consumerConfig.getConnectionNum())
+            .setConnectionWarmup(consumerConfig.isConnectionWarmup())
+            .setConnectionSelector(consumerConfig.getConnectionSelector())
             .setChannelListeners(consumerConfig.getOnConnect());
     }
 
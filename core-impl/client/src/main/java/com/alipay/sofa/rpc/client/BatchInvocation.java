@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.exception.SofaTimeOutException;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+import com.alipay.sofa.rpc.core.request.RequestBase;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.message.ResponseFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 一次广播或者批量调用：所有请求都以Future方式经过过滤器链异步发出，通过响应监听器收集结果，
+ * 调用线程只在全部返回、截止时间到了或者按策略提前结束（all 策略下有一个失败）时醒来一次。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class BatchInvocation {
+
+    /**
+     * 每个调用的服务提供者
+     */
+    private final List<ProviderInfo>           providerInfos;
+
+    /**
+     * 每个调用的请求
+     */
+    private final List<SofaRequest>            requests;
+
+    /**
+     * 有一个失败就立即结束
+     */
+    private final boolean                      failFast;
+
+    /**
+     * 每个调用的结果，还没有返回的为null
+     */
+    private final AtomicReferenceArray<Result> results;
+
+    /**
+     * 还没有返回的调用个数
+     */
+    private final AtomicInteger                remaining;
+
+    /**
+     * 可以结束等待
+     */
+    private final CountDownLatch               latch = new CountDownLatch(1);
+
+    /**
+     * 构造函数
+     *
+     * @param providerInfos 每个调用的服务提供者
+     * @param requests      每个调用的请求
+     * @param policy        部分失败策略
+     */
+    BatchInvocation(List<ProviderInfo> providerInfos, List<SofaRequest> requests, String policy) {
+        this.providerInfos = providerInfos;
+        this.requests = requests;
+        this.failFast = !RpcConstants.BATCH_POLICY_ANY.equals(policy)
+            && !RpcConstants.BATCH_POLICY_IGNORE.equals(policy);
+        this.results = new AtomicReferenceArray<Result>(requests.size());
+        this.remaining = new AtomicInteger(requests.size());
+        if (requests.isEmpty()) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * 发出全部调用并等待结果
+     *
+     * @param cluster 集群
+     * @param timeout 整个批量调用的超时时间（毫秒）
+     * @return 调用结果
+     * @throws InterruptedException 等待时被中断
+     */
+    BatchResult invoke(AbstractCluster cluster, int timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        RpcInternalContext context = RpcInternalContext.getContext();
+        for (int i = 0; i < requests.size() && latch.getCount() > 0; i++) {
+            SofaRequest request = requests.get(i);
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+                break;
+            }
+            request.setInvokeType(RpcConstants.INVOKER_TYPE_FUTURE);
+            request.setSofaResponseCallback(null);
+            if (request.getTimeout() == null || request.getTimeout() > left) {
+                request.setTimeout((int) left);
+            }
+            try {
+                cluster.filterChain(providerInfos.get(i), request);
+                ResponseFuture future = context.getFuture();
+                context.setFuture(null);
+                if (future == null) {
+                    complete(i, null, new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR,
+                        "No future returned when send request to " + providerInfos.get(i)));
+                } else {
+                    future.addListener(new ResultListener(i));
+                }
+            } catch (Throwable e) {
+                complete(i, null, e);
+            }
+        }
+        long wait = deadline - System.nanoTime();
+        if (wait > 0) {
+            latch.await(wait, TimeUnit.NANOSECONDS);
+        }
+        return snapshot(timeout, System.nanoTime() - deadline >= 0);
+    }
+
+    private void complete(int index, Object result, Throwable throwable) {
+        if (!results.compareAndSet(index, null, new Result(result, throwable))) {
+            return;
+        }
+        if (throwable != null && failFast) {
+            latch.countDown(); // 有一个失败就不用再等了
+        }
+        if (remaining.decrementAndGet() == 0) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * 生成结果，还没有返回的调用为超时或者放弃
+     *
+     * @param timeout  超时时间
+     * @param timedOut 是否到了截止时间
+     * @return 调用结果
+     */
+    private BatchResult snapshot(int timeout, boolean timedOut) {
+        int size = requests.size();
+        List<Object> resultList = new ArrayList<Object>(size);
+        List<Throwable> exceptionList = new ArrayList<Throwable>(size);
+        for (int i = 0; i < size; i++) {
+            Result result = results.get(i);
+            if (result == null) {
+                if (timedOut) {
+                    exceptionList.add(new SofaTimeOutException("Batch invoke timeout after " + timeout
+                        + "ms, provider: " + providerInfos.get(i)));
+                } else {
+                    exceptionList.add(new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR,
+                        "Batch invoke is aborted by other failed request, provider: " + providerInfos.get(i)));
+                }
+                resultList.add(null);
+            } else {
+                resultList.add(result.value);
+                exceptionList.add(result.throwable);
+            }
+        }
+        return new BatchResult(providerInfos, resultList, exceptionList);
+    }
+
+    /**
+     * 单个调用的结果
+     */
+    private static class Result {
+        final Object    value;
+        final Throwable throwable;
+
+        Result(Object value, Throwable throwable) {
+            this.value = value;
+            this.throwable = throwable;
+        }
+    }
+
+    /**
+     * 收集一个调用的结果
+     */
+    private class ResultListener implements SofaResponseCallback {
+
+        private final int index;
+
+        ResultListener(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void onAppResponse(Object appResponse, String methodName, RequestBase request) {
+            complete(index, appResponse, null);
+        }
+
+        @Override
+        public void onAppException(Throwable throwable, String methodName, RequestBase request) {
+            complete(index, null, throwable);
+        }
+
+        @Override
+        public void onSofaException(SofaRpcException sofaException, String methodName, RequestBase request) {
+            complete(index, null, sofaException);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.utils.CommonUtils;
+import com.alipay.sofa.rpc.context.RpcInvokeContext;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.ext.Extension;
+import com.alipay.sofa.rpc.transport.ClientTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 广播调用，把请求同时发给路由后所有可用的服务提供者。<br>
+ * 同步调用时全部异步发出并在一个超时时间内收集结果，按部分失败策略（consumer.batch.policy）判断成功与否，
+ * 返回第一个成功的结果；全部结果放在调用上下文 {@link RpcConstants#INVOKE_CTX_BATCH_RESULT} 中。
+ * 单向调用时逐个发出。不支持Future和Callback调用。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension("broadcast")
+public class BroadcastCluster extends AbstractCluster {
+
+    /**
+     * 构造函数
+     *
+     * @param consumerBootstrap 服务端消费者启动器
+     */
+    public BroadcastCluster(ConsumerBootstrap consumerBootstrap) {
+        super(consumerBootstrap);
+    }
+
+    @Override
+    protected SofaResponse doInvoke(SofaRequest request) throws SofaRpcException {
+        List<ProviderInfo> providerInfos = selectAll(request);
+        String invokeType = request.getInvokeType();
+        if (RpcConstants.INVOKER_TYPE_ONEWAY.equals(invokeType)) {
+            SofaRpcException throwable = null;
+            for (ProviderInfo providerInfo : providerInfos) {
+                try {
+                    filterChain(providerInfo, copyRequest(request));
+                } catch (SofaRpcException e) {
+                    throwable = throwable == null ? e : throwable;
+                }
+            }
+            if (throwable != null) {
+                throw throwable;
+            }
+            return new SofaResponse();
+        } else if (!RpcConstants.INVOKER_TYPE_SYNC.equals(invokeType)) {
+            throw new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR,
+                "Broadcast cluster only supports sync and oneway invoke type, but got " + invokeType);
+        }
+
+        List<SofaRequest> requests = new ArrayList<SofaRequest>(providerInfos.size());
+        for (int i = 0; i < providerInfos.size(); i++) {
+            requests.add(copyRequest(request));
+        }
+        Integer timeout = request.getTimeout();
+        if (timeout == null) {
+            timeout = consumerConfig.getMethodTimeout(request.getMethodName());
+        }
+        BatchResult result = invokeAll(providerInfos, requests, timeout);
+        RpcInvokeContext.getContext().put(RpcConstants.INVOKE_CTX_BATCH_RESULT, result);
+
+        SofaResponse response = new SofaResponse();
+        Throwable failure = result.getFailure(consumerConfig.getBatchPolicy());
+        if (failure instanceof SofaRpcException) {
+            throw (SofaRpcException) failure;
+        } else if (failure != null) { // 业务异常
+            response.setAppResponse(failure);
+            return response;
+        }
+        for (int i = 0; i < result.size(); i++) {
+            if (result.isSuccess(i)) {
+                response.setAppResponse(result.getResult(i));
+                break;
+            }
+        }
+        return response;
+    }
+
+    /**
+     * 路由后所有可用的服务提供者
+     *
+     * @param request 请求
+     * @return 服务提供者列表
+     * @throws SofaRpcException 没有可用的服务提供者
+     */
+    protected List<ProviderInfo> selectAll(SofaRequest request) throws SofaRpcException {
+        List<ProviderInfo> providerInfos = routerChain.route(request, null);
+        List<ProviderInfo> availables = new ArrayList<ProviderInfo>(providerInfos == null ? 0 : providerInfos.size());
+        if (CommonUtils.isNotEmpty(providerInfos)) {
+            for (ProviderInfo providerInfo : providerInfos) {
+                ClientTransport transport = selectByProvider(request, providerInfo);
+                if (transport != null) {
+                    availables.add(providerInfo);
+                }
+            }
+        }
+        if (availables.isEmpty()) {
+            throw noAvailableProviderException(request.getTargetServiceUniqueName());
+        }
+        return availables;
+    }
+
+    /**
+     * 复制请求，每个服务提供者一个，发送过程中会各自修改调用方式、超时时间和请求属性
+     *
+     * @param request 原始请求
+     * @return 新请求
+     */
+    protected SofaRequest copyRequest(SofaRequest request) {
+        SofaRequest copy = new SofaRequest();
+        copy.setTargetAppName(request.getTargetAppName());
+        copy.setTargetServiceUniqueName(request.getTargetServiceUniqueName());
+        copy.setInterfaceName(request.getInterfaceName());
+        copy.setMethod(request.getMethod());
+        copy.setMethodName(request.getMethodName());
+        copy.setMethodArgSigs(request.getMethodArgSigs());
+        copy.setMethodArgs(request.getMethodArgs());
+        copy.setInvokeType(request.getInvokeType());
+        copy.setSerializeType(request.getSerializeType());
+        copy.setSerializeFactoryType(request.getSerializeFactoryType());
+        copy.setCompressType(request.getCompressType());
+        copy.setTimeout(request.getTimeout());
+        copy.addRequestProps(request.getRequestProps());
+        return copy;
+    }
+}
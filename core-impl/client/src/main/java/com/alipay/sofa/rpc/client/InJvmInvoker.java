@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.SystemInfo;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.context.RpcInvokeContext;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.server.InJvmInvokerRegistry;
+import com.alipay.sofa.rpc.server.ProviderProxyInvoker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 同一个JVM内的服务调用：直接找到本地发布的服务端调用链入口执行，不经过序列化和网络。<br>
+ * 只处理同步调用，并且服务端和服务消费者的接口必须是同一个类（例如不是泛化调用，也不是不同ClassLoader加载的）；
+ * 参数和返回值默认直接传引用，开启 inJVMCopy 后按Java序列化深拷贝。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see InJvmInvokerRegistry
+ */
+public class InJvmInvoker {
+
+    /**
+     * 服务消费者配置
+     */
+    private final ConsumerConfig consumerConfig;
+
+    /**
+     * 代表本地服务的服务提供者，放入上下文中
+     */
+    private final ProviderInfo   providerInfo;
+
+    /**
+     * 是否深拷贝参数和返回值
+     */
+    private final boolean        copy;
+
+    /**
+     * 构造函数
+     *
+     * @param consumerConfig 服务消费者配置
+     */
+    public InJvmInvoker(ConsumerConfig consumerConfig) {
+        this.consumerConfig = consumerConfig;
+        this.copy = consumerConfig.isInJVMCopy();
+        this.providerInfo = new ProviderInfo(SystemInfo.getLocalHost(), 0)
+            .setProtocolType(RpcConstants.PROTOCOL_TYPE_INJVM);
+    }
+
+    /**
+     * 代表本地服务的服务提供者
+     *
+     * @return 服务提供者
+     */
+    public ProviderInfo getProviderInfo() {
+        return providerInfo;
+    }
+
+    /**
+     * 这个请求能否在JVM内部调用
+     *
+     * @param request 请求
+     * @return 是否可以
+     */
+    public boolean isAvailable(SofaRequest request) {
+        return RpcConstants.INVOKER_TYPE_SYNC.equals(request.getInvokeType()) && getLocalInvoker(request) != null;
+    }
+
+    /**
+     * 调用本地服务
+     *
+     * @param request 请求
+     * @return 响应，本地服务已经取消发布时返回null
+     * @throws SofaRpcException rpc异常
+     */
+    public SofaResponse invoke(SofaRequest request) throws SofaRpcException {
+        ProviderProxyInvoker invoker = getLocalInvoker(request);
+        if (invoker == null) {
+            return null;
+        }
+        ClassLoader classLoader = consumerConfig.getProxyClass().getClassLoader();
+        SofaRequest providerRequest = buildProviderRequest(request, classLoader);
+
+        SofaResponse response;
+        // 服务端使用单独的上下文，调用完恢复调用端的上下文
+        RpcInvokeContext invokeContext = RpcInvokeContext.peekContext();
+        RpcInternalContext.pushContext();
+        RpcInvokeContext.removeContext();
+        try {
+            RpcInternalContext context = RpcInternalContext.getContext();
+            context.setProviderSide(true);
+            context.setRemoteAddress(providerInfo.getHost(), 0);
+            response = invoker.invoke(providerRequest);
+        } finally {
+            RpcInternalContext.removeContext();
+            RpcInternalContext.popContext();
+            RpcInvokeContext.setContext(invokeContext);
+        }
+
+        if (response == null) {
+            return null;
+        }
+        // 服务端繁忙（例如并发超限）转为异常，和远程调用保持一致
+        if (response.isError() && String.valueOf(RpcErrorType.SERVER_BUSY).equals(
+            response.getResponseProp(RpcConstants.RESPONSE_PROP_ERROR_TYPE))) {
+            throw new SofaRpcException(RpcErrorType.SERVER_BUSY, response.getErrorMsg());
+        }
+        if (copy && !isImmutable(response.getAppResponse())) {
+            response.setAppResponse(deepCopy(response.getAppResponse(), classLoader,
+                RpcErrorType.CLIENT_DESERIALIZE));
+        }
+        return response;
+    }
+
+    /**
+     * 查找本地发布的同一个接口类的服务
+     *
+     * @param request 请求
+     * @return 服务端调用链入口，没有时返回null
+     */
+    private ProviderProxyInvoker getLocalInvoker(SofaRequest request) {
+        ProviderProxyInvoker invoker = InJvmInvokerRegistry.getInvoker(request.getTargetServiceUniqueName());
+        if (invoker == null || invoker.getProviderConfig().getProxyClass() != consumerConfig.getProxyClass()) {
+            return null;
+        }
+        return invoker;
+    }
+
+    /**
+     * 服务端使用的请求，服务端过滤器对请求的修改不影响调用端
+     *
+     * @param request     调用端请求
+     * @param classLoader 接口的ClassLoader
+     * @return 服务端请求
+     */
+    private SofaRequest buildProviderRequest(SofaRequest request, ClassLoader classLoader) {
+        SofaRequest providerRequest = new SofaRequest();
+        providerRequest.setTargetAppName(request.getTargetAppName());
+        providerRequest.setTargetServiceUniqueName(request.getTargetServiceUniqueName());
+        providerRequest.setInterfaceName(request.getInterfaceName());
+        providerRequest.setMethod(request.getMethod());
+        providerRequest.setMethodName(request.getMethodName());
+        providerRequest.setMethodArgSigs(request.getMethodArgSigs());
+        providerRequest.setInvokeType(request.getInvokeType());
+        providerRequest.setSerializeType(request.getSerializeType());
+        providerRequest.setTimeout(request.getTimeout());
+        providerRequest.addRequestProps(request.getRequestProps());
+        Object[] args = request.getMethodArgs();
+        if (copy && !isImmutable(args)) {
+            args = (Object[]) deepCopy(args, classLoader, RpcErrorType.CLIENT_SERIALIZE);
+        }
+        providerRequest.setMethodArgs(args);
+        return providerRequest;
+    }
+
+    /**
+     * 是否不需要拷贝
+     *
+     * @param object 对象
+     * @return 是否不可变
+     */
+    private static boolean isImmutable(Object object) {
+        if (object == null || object instanceof String || object instanceof Integer || object instanceof Long
+            || object instanceof Boolean || object instanceof Double || object instanceof Float
+            || object instanceof Short || object instanceof Byte || object instanceof Character
+            || object instanceof BigDecimal || object instanceof BigInteger || object instanceof Enum) {
+            return true;
+        }
+        if (object instanceof Object[]) {
+            for (Object o : (Object[]) object) {
+                if (!isImmutable(o)) {
+                    return false;
+                }
+            }
+            return object.getClass() == Object[].class;
+        }
+        return false;
+    }
+
+    /**
+     * 按Java序列化深拷贝，一次拷贝整个对象图，对象间的引用关系保持不变
+     *
+     * @param object      对象
+     * @param classLoader 反序列化时优先使用的ClassLoader
+     * @param errorType   失败时的异常类型
+     * @return 拷贝的对象
+     */
+    private static Object deepCopy(Object object, ClassLoader classLoader, int errorType) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(object);
+            oos.close();
+            ObjectInputStream ois = new ClassLoaderObjectInputStream(
+                new ByteArrayInputStream(bos.toByteArray()), classLoader);
+            return ois.readObject();
+        } catch (Exception e) {
+            throw new SofaRpcException(errorType, "Failed to copy object of in-jvm invocation: "
+                + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按指定ClassLoader加载类的对象输入流
+     */
+    private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException ignore) { // NOPMD
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
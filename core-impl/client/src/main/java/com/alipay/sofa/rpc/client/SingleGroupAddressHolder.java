@@ -22,12 +22,17 @@ import com.alipay.sofa.rpc.common.struct.ConcurrentHashSet;
 import com.alipay.sofa.rpc.ext.Extension;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * 只支持单个分组的地址选择器（额外存一个直连分组）
+ * 只支持单个分组的地址选择器（额外存一个直连分组）<br>
+ * 地址变化时只重建变化的分组并发布只读的地址快照，调用时读取快照无需加锁和复制<br>
+ * 注意：{@link #getProviderInfos(String)} 返回的是带版本号的 {@link ProviderInfoSnapshot}，不可修改，
+ * 自定义的 Router 等扩展如果直接修改该列表会抛出 {@link UnsupportedOperationException}，需要修改时请先复制一份
  *
  * @author <a href="mailto:zhanggeng.zg@antfin.com">GengZhang</a>
  */
@@ -37,20 +42,33 @@ public class SingleGroupAddressHolder extends AddressHolder {
     /**
      * 配置的直连地址列表
      */
-    protected ProviderGroup        directUrlGroup;
+    protected ProviderGroup               directUrlGroup;
     /**
      * 注册中心来的地址列表
      */
-    protected ProviderGroup        registryGroup;
+    protected ProviderGroup               registryGroup;
+
+    /**
+     * 直连地址列表的只读快照
+     */
+    protected volatile List<ProviderInfo> directUrlSnapshot = Collections.emptyList();
+    /**
+     * 注册中心地址列表的只读快照
+     */
+    protected volatile List<ProviderInfo> registrySnapshot  = Collections.emptyList();
+    /**
+     * 快照版本号，每发布一次新快照加一，两个分组共用，负载均衡据此判断服务列表是否变化
+     */
+    private final AtomicLong              snapshotVersion   = new AtomicLong();
 
     /**
      * 地址变化的锁
      */
-    private ReentrantReadWriteLock lock  = new ReentrantReadWriteLock();
+    private ReentrantReadWriteLock        lock              = new ReentrantReadWriteLock();
     // 读锁，允许并发读
-    private Lock                   rLock = lock.readLock();
+    private Lock                          rLock             = lock.readLock();
     // 写锁，写的时候不允许读
-    private Lock                   wLock = lock.writeLock();
+    private Lock                          wLock             = lock.writeLock();
 
     /**
      * 构造函数
@@ -63,17 +81,45 @@ public class SingleGroupAddressHolder extends AddressHolder {
         registryGroup = new ProviderGroup();
     }
 
+    /**
+     * 得到某分组的服务列表，返回的是只读快照，地址变化时快照对象会被整体替换<br>
+     * 快照不可修改，调用 add/remove 等方法会抛出 {@link UnsupportedOperationException}
+     *
+     * @param groupName 服务列表的标签
+     * @return 当前分组下的服务列表（只读）
+     */
     @Override
     public List<ProviderInfo> getProviderInfos(String groupName) {
-        rLock.lock();
-        try {
-            // 复制一份
-            return new ArrayList<ProviderInfo>(getProviderGroup(groupName).getProviderInfos());
-        } finally {
-            rLock.unlock();
+        return RpcConstants.ADDRESS_DIRECT_GROUP.equals(groupName) ? directUrlSnapshot : registrySnapshot;
+    }
+
+    /**
+     * 重建某个分组的地址快照并发布，需要在写锁内调用
+     *
+     * @param groupName 发生变化的分组
+     */
+    protected void publishSnapshot(String groupName) {
+        if (RpcConstants.ADDRESS_DIRECT_GROUP.equals(groupName)) {
+            directUrlSnapshot = buildSnapshot(directUrlGroup);
+        } else {
+            registrySnapshot = buildSnapshot(registryGroup);
         }
     }
 
+    /**
+     * 重建全部分组的地址快照并发布，需要在写锁内调用
+     */
+    protected void publishSnapshots() {
+        directUrlSnapshot = buildSnapshot(directUrlGroup);
+        registrySnapshot = buildSnapshot(registryGroup);
+    }
+
+    private List<ProviderInfo> buildSnapshot(ProviderGroup providerGroup) {
+        List<ProviderInfo> providerInfos = providerGroup.getProviderInfos();
+        return providerInfos == null || providerInfos.isEmpty() ? Collections.<ProviderInfo> emptyList()
+            : new ProviderInfoSnapshot(providerInfos, snapshotVersion.incrementAndGet());
+    }
+
     @Override
     public ProviderGroup getProviderGroup(String groupName) {
         rLock.lock();
@@ -110,6 +156,7 @@ public class SingleGroupAddressHolder extends AddressHolder {
         wLock.lock();
         try {
             getProviderGroup(providerGroup.getName()).addAll(providerGroup.getProviderInfos());
+            publishSnapshot(providerGroup.getName());
         } finally {
             wLock.unlock();
         }
@@ -123,6 +170,7 @@ public class SingleGroupAddressHolder extends AddressHolder {
         wLock.lock();
         try {
             getProviderGroup(providerGroup.getName()).removeAll(providerGroup.getProviderInfos());
+            publishSnapshot(providerGroup.getName());
         } finally {
             wLock.unlock();
         }
@@ -133,6 +181,7 @@ public class SingleGroupAddressHolder extends AddressHolder {
         wLock.lock();
         try {
             getProviderGroup(providerGroup.getName()).setProviderInfos(new ArrayList(providerGroup.getProviderInfos()));
+            publishSnapshot(providerGroup.getName());
         } finally {
             wLock.unlock();
         }
@@ -155,6 +204,7 @@ public class SingleGroupAddressHolder extends AddressHolder {
         try {
             this.directUrlGroup.setProviderInfos(new ArrayList<ProviderInfo>(tmpDirectUrl));
             this.registryGroup.setProviderInfos(new ArrayList<ProviderInfo>(tmpRegistry));
+            publishSnapshots();
         } finally {
             wLock.unlock();
         }
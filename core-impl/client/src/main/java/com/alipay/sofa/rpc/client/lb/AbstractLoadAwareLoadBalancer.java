@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 感知服务端负载的负载均衡，采用两次随机选择（Power of Two Choices）：<br>
+ * 先按权重随机选出两个服务端，再选负载较低的一个。不需要遍历全部列表，也避免所有请求同时涌向同一个"最空闲"的服务端。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see com.alipay.sofa.rpc.client.ProviderInvokeStats
+ */
+public abstract class AbstractLoadAwareLoadBalancer extends AbstractWeightedLoadBalancer {
+
+    /**
+     * 随机
+     */
+    private final Random random = new Random();
+
+    /**
+     * 构造函数
+     *
+     * @param consumerBootstrap 服务消费者配置
+     */
+    public AbstractLoadAwareLoadBalancer(ConsumerBootstrap consumerBootstrap) {
+        super(consumerBootstrap);
+    }
+
+    @Override
+    public boolean isInvokeStatsRequired() {
+        return true;
+    }
+
+    @Override
+    public ProviderInfo doSelect(SofaRequest invocation, List<ProviderInfo> providerInfos) {
+        ProviderWeightTable weightTable = getWeightTable(providerInfos);
+        ProviderInfo first = randomSelect(weightTable, providerInfos);
+        ProviderInfo second = randomSelect(weightTable, providerInfos);
+        if (second == first) {
+            // 选到同一个再选一次，权重集中时仍可能相同
+            second = randomSelect(weightTable, providerInfos);
+            if (second == first) {
+                return first;
+            }
+        }
+        return getLoad(second) < getLoad(first) ? second : first;
+    }
+
+    private ProviderInfo randomSelect(ProviderWeightTable weightTable, List<ProviderInfo> providerInfos) {
+        return weightTable != null ? weightTable.randomSelect(random) : randomSelect(providerInfos, random);
+    }
+
+    /**
+     * 得到服务端的负载，越小越好
+     *
+     * @param providerInfo 服务端
+     * @return 负载
+     */
+    protected abstract double getLoad(ProviderInfo providerInfo);
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.client.AbstractLoadBalancer;
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoSnapshot;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基于预计算权重表的负载均衡，服务列表快照和权重不变时复用同一张权重表
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see ProviderWeightTable
+ */
+public abstract class AbstractWeightedLoadBalancer extends AbstractLoadBalancer {
+
+    /**
+     * 当前的权重表
+     */
+    private volatile ProviderWeightTable weightTable;
+
+    /**
+     * 上一次未命中权重表的非快照服务列表
+     */
+    private volatile List<ProviderInfo>  missedProviderInfos;
+
+    /**
+     * 构造函数
+     *
+     * @param consumerBootstrap 服务消费者配置
+     */
+    public AbstractWeightedLoadBalancer(ConsumerBootstrap consumerBootstrap) {
+        super(consumerBootstrap);
+    }
+
+    /**
+     * 得到服务列表对应的权重表，只做 O(1) 的检查。<br>
+     * 新的地址快照直接构建并缓存；不是快照的列表（例如重试时剔除了已调用过的节点）第一次出现时返回null，
+     * 由调用方按原始列表计算，避免临时列表反复重建并替换掉快照的权重表，同一个列表对象再次出现时才构建并缓存。
+     *
+     * @param providerInfos 服务列表
+     * @return 权重表，可能为null
+     */
+    protected ProviderWeightTable getWeightTable(List<ProviderInfo> providerInfos) {
+        ProviderWeightTable table = weightTable;
+        if (table != null) {
+            if (table.matches(providerInfos)) {
+                if (!table.isExpired()) {
+                    return table;
+                }
+                // 列表没变，只是权重变了，直接重建
+            } else if (ProviderInfoSnapshot.versionOf(providerInfos) == ProviderInfoSnapshot.NO_VERSION
+                && missedProviderInfos != providerInfos) {
+                missedProviderInfos = providerInfos;
+                return null;
+            }
+        }
+        table = new ProviderWeightTable(providerInfos);
+        weightTable = table;
+        missedProviderInfos = null;
+        return table;
+    }
+
+    /**
+     * 不使用权重表，直接按权重随机选择
+     *
+     * @param providerInfos 服务列表
+     * @param random        随机数
+     * @return 服务提供者
+     */
+    protected ProviderInfo randomSelect(List<ProviderInfo> providerInfos, Random random) {
+        ProviderInfo providerInfo = null;
+        int size = providerInfos.size(); // 总个数
+        int totalWeight = 0; // 总权重
+        boolean isWeightSame = true; // 权重是否都一样
+        for (int i = 0; i < size; i++) {
+            int weight = getWeight(providerInfos.get(i));
+            totalWeight += weight; // 累计总权重
+            if (isWeightSame && i > 0 && weight != getWeight(providerInfos.get(i - 1))) {
+                isWeightSame = false; // 计算所有权重是否一样
+            }
+        }
+        if (totalWeight > 0 && !isWeightSame) {
+            // 如果权重不相同且权重大于0则按总权重数随机
+            int offset = random.nextInt(totalWeight);
+            // 并确定随机值落在哪个片断上
+            for (int i = 0; i < size; i++) {
+                offset -= getWeight(providerInfos.get(i));
+                if (offset < 0) {
+                    providerInfo = providerInfos.get(i);
+                    break;
+                }
+            }
+        } else {
+            // 如果权重相同或权重为0则均等随机
+            providerInfo = providerInfos.get(random.nextInt(size));
+        }
+        return providerInfo;
+    }
+}
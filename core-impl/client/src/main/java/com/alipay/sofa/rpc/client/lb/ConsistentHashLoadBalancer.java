@@ -19,22 +19,27 @@ package com.alipay.sofa.rpc.client.lb;
 import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
 import com.alipay.sofa.rpc.client.AbstractLoadBalancer;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoSnapshot;
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
+import com.alipay.sofa.rpc.common.utils.HashUtils;
 import com.alipay.sofa.rpc.common.utils.StringUtils;
-import com.alipay.sofa.rpc.core.exception.SofaRpcRuntimeException;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
 import com.alipay.sofa.rpc.core.request.SofaRequest;
 import com.alipay.sofa.rpc.ext.Extension;
 
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * 一致性hash算法，同样的请求（第一参数）会打到同样的节点
+ * 一致性hash算法，同样的请求（默认第一参数）会打到同样的节点<br>
+ * 虚拟节点环按服务列表快照的版本号构建，存放在排好序的数组中，快照不变时复用；选择时只做一次hash和二分查找，不创建对象。<br>
+ * 重试等场景下被过滤过的临时列表使用临时的虚拟节点环，不替换缓存。<br>
+ * 虚拟节点数和参与hash的参数下标可以通过接口级或者方法级参数配置：
+ * {@link RpcConstants#CONFIG_KEY_HASH_NODES}、{@link RpcConstants#CONFIG_KEY_HASH_ARGUMENTS}
  *
  * @author <a href=mailto:zhanggeng.zg@antfin.com>GengZhang</a>
  */
@@ -42,10 +47,15 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ConsistentHashLoadBalancer extends AbstractLoadBalancer {
 
     /**
-     * {interface#method : selector}
+     * {method : selector}，负载均衡是服务消费者级别的，方法名即可区分
      */
     private ConcurrentHashMap<String, Selector> selectorCache = new ConcurrentHashMap<String, Selector>();
 
+    /**
+     * 上一次未命中缓存的非快照服务列表
+     */
+    private volatile List<ProviderInfo>         missedProviderInfos;
+
     /**
      * 构造函数
      *
@@ -57,80 +67,146 @@ public class ConsistentHashLoadBalancer extends AbstractLoadBalancer {
 
     @Override
     public ProviderInfo doSelect(SofaRequest request, List<ProviderInfo> providerInfos) {
-        String interfaceId = request.getInterfaceName();
         String method = request.getMethodName();
-        String key = interfaceId + "#" + method;
-        int hashcode = providerInfos.hashCode(); // 判断是否同样的服务列表
-        Selector selector = selectorCache.get(key);
+        if (method == null) {
+            method = StringUtils.EMPTY;
+        }
+        Selector selector = selectorCache.get(method);
         if (selector == null // 原来没有
             ||
-            selector.getHashCode() != hashcode) { // 或者服务列表已经变化
-            selector = new Selector(interfaceId, method, providerInfos, hashcode);
-            selectorCache.put(key, selector);
+            !selector.matches(providerInfos)) { // 或者服务列表已经变化
+            boolean cacheable = selector == null
+                || ProviderInfoSnapshot.versionOf(providerInfos) != ProviderInfoSnapshot.NO_VERSION
+                || missedProviderInfos == providerInfos;
+            selector = new Selector(providerInfos, getVirtualNodes(method), getHashArguments(method));
+            if (cacheable) {
+                selectorCache.put(method, selector);
+            } else {
+                // 不是快照的列表第一次出现，例如重试时剔除了已调用过的节点，只用一次，不替换缓存的虚拟节点环
+                missedProviderInfos = providerInfos;
+            }
         }
         return selector.select(request);
     }
 
+    /**
+     * 得到虚拟节点数，方法级 &gt; 接口级 &gt; 全局配置
+     *
+     * @param method 方法名
+     * @return 虚拟节点数
+     */
+    private int getVirtualNodes(String method) {
+        String nodes = getConfigValue(method, RpcConstants.CONFIG_KEY_HASH_NODES);
+        int num = nodes == null ? RpcConfigs.getIntValue(RpcOptions.CONSUMER_HASH_VIRTUAL_NODES)
+            : CommonUtils.parseInt(nodes, RpcConfigs.getIntValue(RpcOptions.CONSUMER_HASH_VIRTUAL_NODES));
+        return Math.max(1, num);
+    }
+
+    /**
+     * 得到参与hash的参数下标，方法级 &gt; 接口级 &gt; 全局配置
+     *
+     * @param method 方法名
+     * @return 参数下标
+     */
+    private int[] getHashArguments(String method) {
+        String arguments = getConfigValue(method, RpcConstants.CONFIG_KEY_HASH_ARGUMENTS);
+        if (arguments == null) {
+            arguments = RpcConfigs.getStringValue(RpcOptions.CONSUMER_HASH_ARGUMENTS);
+        }
+        String[] indexes = StringUtils.splitWithCommaOrSemicolon(arguments);
+        int[] result = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            result[i] = CommonUtils.parseInt(indexes[i].trim(), 0);
+        }
+        return result;
+    }
+
+    private String getConfigValue(String method, String key) {
+        ConsumerConfig config = getConsumerConfig();
+        if (config == null) {
+            return null;
+        }
+        Object value = config.getMethodConfigValue(method, key);
+        if (value == null) {
+            value = config.getParameter(key);
+        }
+        return value == null ? null : value.toString();
+    }
+
     /**
      * 选择器
      */
     private static class Selector {
 
         /**
-         * The Hashcode.
+         * 构建时的服务列表
          */
-        private final int                         hashcode;
+        private final List<ProviderInfo> source;
 
         /**
-         * The Interface id.
+         * 构建时服务列表快照的版本号，不是快照时为 {@link ProviderInfoSnapshot#NO_VERSION}
          */
-        private final String                      interfaceId;
+        private final long               snapshotVersion;
 
         /**
-         * The Method name.
+         * 虚拟节点的hash值，从小到大排列
          */
-        private final String                      method;
+        private final long[]             virtualHashes;
 
         /**
-         * 虚拟节点
+         * 虚拟节点对应的服务提供者，和virtualHashes一一对应
          */
-        private final TreeMap<Long, ProviderInfo> virtualNodes;
+        private final ProviderInfo[]     virtualNodes;
 
         /**
-         * Instantiates a new Selector.
-         *
-         * @param interfaceId the interface id
-         * @param method      the method
-         * @param actualNodes the actual nodes
+         * 参与hash的参数下标
          */
-        public Selector(String interfaceId, String method, List<ProviderInfo> actualNodes) {
-            this(interfaceId, method, actualNodes, actualNodes.hashCode());
-        }
+        private final int[]              hashArguments;
 
         /**
          * Instantiates a new Selector.
          *
-         * @param interfaceId the interface id
-         * @param method      the method
-         * @param actualNodes the actual nodes
-         * @param hashcode    the hashcode
+         * @param actualNodes   the actual nodes
+         * @param num           the number of virtual nodes per actual node
+         * @param hashArguments the index of arguments to hash
          */
-        public Selector(String interfaceId, String method, List<ProviderInfo> actualNodes, int hashcode) {
-            this.interfaceId = interfaceId;
-            this.method = method;
-            this.hashcode = hashcode;
+        public Selector(List<ProviderInfo> actualNodes, int num, int[] hashArguments) {
+            this.source = actualNodes;
+            this.snapshotVersion = ProviderInfoSnapshot.versionOf(actualNodes);
+            this.hashArguments = hashArguments;
+            ProviderInfo[] nodes = actualNodes.toArray(new ProviderInfo[actualNodes.size()]);
             // 创建虚拟节点环 （默认一个provider共创建128个虚拟节点，较多比较均匀）
-            this.virtualNodes = new TreeMap<Long, ProviderInfo>();
-            int num = 128;
-            for (ProviderInfo providerInfo : actualNodes) {
-                for (int i = 0; i < num / 4; i++) {
-                    byte[] digest = messageDigest(providerInfo.getHost() + providerInfo.getPort() + i);
-                    for (int h = 0; h < 4; h++) {
-                        long m = hash(digest, h);
-                        virtualNodes.put(m, providerInfo);
-                    }
+            // 高位为32位无符号hash值，低31位为实际节点下标，排序后即为环上的顺序
+            long[] ring = new long[nodes.length * num];
+            int n = 0;
+            for (int index = 0; index < nodes.length; index++) {
+                ProviderInfo providerInfo = nodes[index];
+                String prefix = providerInfo.getHost() + ":" + providerInfo.getPort() + "#";
+                for (int i = 0; i < num; i++) {
+                    long hash = HashUtils.murmurHash3(prefix + i, 0) & 0xFFFFFFFFL;
+                    ring[n++] = (hash << 31) | index;
                 }
             }
+            Arrays.sort(ring);
+            this.virtualHashes = new long[ring.length];
+            this.virtualNodes = new ProviderInfo[ring.length];
+            for (int i = 0; i < ring.length; i++) {
+                virtualHashes[i] = ring[i] >>> 31;
+                virtualNodes[i] = nodes[(int) (ring[i] & 0x7FFFFFFFL)];
+            }
+        }
+
+        /**
+         * 选择器是否由这个服务列表构建，快照比较版本号，其它列表比较对象
+         *
+         * @param providerInfos 服务列表
+         * @return 是否匹配
+         */
+        public boolean matches(List<ProviderInfo> providerInfos) {
+            if (snapshotVersion != ProviderInfoSnapshot.NO_VERSION) {
+                return ProviderInfoSnapshot.versionOf(providerInfos) == snapshotVersion;
+            }
+            return source == providerInfos;
         }
 
         /**
@@ -140,87 +216,58 @@ public class ConsistentHashLoadBalancer extends AbstractLoadBalancer {
          * @return the provider
          */
         public ProviderInfo select(SofaRequest request) {
-            String key = buildKeyOfHash(request.getMethodArgs());
-            byte[] digest = messageDigest(key);
-            return sekectForKey(hash(digest, 0));
+            return selectForKey(hashOfArgs(request.getMethodArgs()) & 0xFFFFFFFFL);
         }
 
         /**
-         * 获取第一参数作为hash的key
+         * 对参与hash的参数做hash，字符串、数字等常见类型直接hash，不创建中间对象
          *
          * @param args the args
-         * @return the string
+         * @return the hash
          */
-        private String buildKeyOfHash(Object[] args) {
-            if (CommonUtils.isEmpty(args)) {
-                return StringUtils.EMPTY;
+        private int hashOfArgs(Object[] args) {
+            int hash = 0;
+            for (int index : hashArguments) {
+                Object arg = args != null && index >= 0 && index < args.length ? args[index] : null;
+                hash = hashOfArg(arg, hash);
+            }
+            return hash;
+        }
+
+        private int hashOfArg(Object arg, int seed) {
+            if (arg == null) {
+                return HashUtils.murmurHash3(StringUtils.EMPTY, seed);
+            } else if (arg instanceof CharSequence) {
+                return HashUtils.murmurHash3((CharSequence) arg, seed);
+            } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+                return HashUtils.murmurHash3(((Number) arg).longValue(), seed);
+            } else if (arg instanceof Character) {
+                return HashUtils.murmurHash3((long) (Character) arg, seed);
+            } else if (arg instanceof Boolean) {
+                return HashUtils.murmurHash3((Boolean) arg ? 1L : 0L, seed);
+            } else if (arg instanceof Enum) {
+                return HashUtils.murmurHash3(((Enum) arg).name(), seed);
             } else {
-                return StringUtils.toString(args[0]);
+                return HashUtils.murmurHash3(StringUtils.toString(arg), seed);
             }
         }
 
         /**
-         * Sekect for key.
+         * Select for key.
          *
          * @param hash the hash
          * @return the provider
          */
-        private ProviderInfo sekectForKey(long hash) {
-            ProviderInfo providerInfo = virtualNodes.get(hash);
-            if (providerInfo == null) {
-                SortedMap<Long, ProviderInfo> tailMap = virtualNodes.tailMap(hash);
-                if (tailMap.isEmpty()) {
-                    hash = virtualNodes.firstKey();
-                } else {
-                    hash = tailMap.firstKey();
+        private ProviderInfo selectForKey(long hash) {
+            int index = Arrays.binarySearch(virtualHashes, hash);
+            if (index < 0) {
+                // 顺时针找到第一个节点，超过最后一个则回到第一个
+                index = -index - 1;
+                if (index == virtualHashes.length) {
+                    index = 0;
                 }
-                providerInfo = virtualNodes.get(hash);
             }
-            return providerInfo;
-        }
-
-        /**
-         * 换算法？ MD5  SHA-1 MurMurHash???
-         *
-         * @param value the value
-         * @return the byte [ ]
-         */
-        private byte[] messageDigest(String value) {
-            MessageDigest md5;
-            try {
-                md5 = MessageDigest.getInstance("MD5");
-                // md5.reset();
-                md5.update(value.getBytes("UTF-8"));
-                return md5.digest();
-            } catch (NoSuchAlgorithmException e) {
-                throw new SofaRpcRuntimeException("No such algorithm named md5", e);
-            } catch (UnsupportedEncodingException e) {
-                throw new SofaRpcRuntimeException("Unsupported encoding of" + value, e);
-            }
-        }
-
-        /**
-         * Hash long.
-         *
-         * @param digest the digest
-         * @param index  the number
-         * @return the long
-         */
-        private long hash(byte[] digest, int index) {
-            long f = ((long) (digest[3 + index * 4] & 0xFF) << 24)
-                | ((long) (digest[2 + index * 4] & 0xFF) << 16)
-                | ((long) (digest[1 + index * 4] & 0xFF) << 8)
-                | (digest[index * 4] & 0xFF);
-            return f & 0xFFFFFFFFL;
-        }
-
-        /**
-         * Gets hash code.
-         *
-         * @return the hash code
-         */
-        public int getHashCode() {
-            return hashcode;
+            return virtualNodes[index];
         }
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.ext.Extension;
+
+/**
+ * 负载均衡响应时间感知算法（Peak EWMA）：两次随机选择中 平均响应时间 * (当前并发数 + 1) 较小的服务端。<br>
+ * 平均响应时间对变慢非常敏感（立即升高），变快后按 consumer.ewma.decay.time 逐渐衰减
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension("peakEwma")
+public class PeakEwmaLoadBalancer extends AbstractLoadAwareLoadBalancer {
+
+    /**
+     * 构造函数
+     *
+     * @param consumerBootstrap 服务消费者配置
+     */
+    public PeakEwmaLoadBalancer(ConsumerBootstrap consumerBootstrap) {
+        super(consumerBootstrap);
+    }
+
+    @Override
+    protected double getLoad(ProviderInfo providerInfo) {
+        return providerInfo.getInvokeStats().getCost();
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoSnapshot;
+import com.alipay.sofa.rpc.client.ProviderStatus;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 预计算的服务提供者权重表，和某个服务列表快照以及权重版本号绑定。<br>
+ * 服务列表、权重（包括容错降级和预热）不变的情况下可以一直复用，随机选择为前缀和二分查找 O(log N)，
+ * 平滑加权轮询为预先生成的一个周期的调度序列 O(1)。<br>
+ * 是否可以复用只做 O(1) 的检查：服务列表快照的版本号（不是快照时比较列表对象）、全局的权重版本号、预热的下次检查时间。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ProviderWeightTable {
+
+    /**
+     * 平滑加权轮询序列的最大长度，超过后按比例缩小权重
+     */
+    static final int                 MAX_SMOOTH_PERIOD = 1 << 16;
+
+    /**
+     * 预热期间权重随时间线性增加，一个预热周期内分多少次重建权重表
+     */
+    static final int                 WARMUP_STEPS      = 20;
+
+    /**
+     * 构建时的服务列表
+     */
+    private final List<ProviderInfo> source;
+
+    /**
+     * 构建时服务列表快照的版本号，不是快照时为 {@link ProviderInfoSnapshot#NO_VERSION}
+     */
+    private final long               snapshotVersion;
+
+    /**
+     * 构建时的全局权重版本号
+     */
+    private final long               weightVersion;
+
+    /**
+     * 最早的预热结束时间或者下一个预热步长，过了这个时间需要检查预热中的节点权重是否变化
+     */
+    private volatile long            expireTime;
+
+    /**
+     * 构建时处于预热中的服务提供者下标，只有它们的权重会随时间变化
+     */
+    private final int[]              warmingIndexes;
+
+    /**
+     * 服务提供者
+     */
+    private final ProviderInfo[]     providers;
+
+    /**
+     * 每个服务提供者的权重
+     */
+    private final int[]              weights;
+
+    /**
+     * 权重的前缀和
+     */
+    private final int[]              prefixWeights;
+
+    /**
+     * 总权重
+     */
+    private final int                totalWeight;
+
+    /**
+     * 权重是否都一样
+     */
+    private final boolean            weightSame;
+
+    /**
+     * 平滑加权轮询的调度序列，第一次使用时生成
+     */
+    private volatile int[]           smoothSequence;
+
+    /**
+     * 构造函数
+     *
+     * @param providerInfos 服务列表
+     */
+    public ProviderWeightTable(List<ProviderInfo> providerInfos) {
+        this.source = providerInfos;
+        this.snapshotVersion = ProviderInfoSnapshot.versionOf(providerInfos);
+        // 先取版本号再读权重，读的过程中权重有变化则下次校验失败重建
+        this.weightVersion = ProviderInfo.getGlobalWeightVersion();
+        int size = providerInfos.size();
+        this.providers = new ProviderInfo[size];
+        this.weights = new int[size];
+        this.prefixWeights = new int[size];
+        int total = 0;
+        boolean same = true;
+        int[] warming = new int[size];
+        int warmingSize = 0;
+        for (int i = 0; i < size; i++) {
+            ProviderInfo providerInfo = providerInfos.get(i);
+            providers[i] = providerInfo;
+            if (providerInfo.getStatus() == ProviderStatus.WARMING_UP && providerInfo.getWarmupEndTime() > 0) {
+                warming[warmingSize++] = i;
+            }
+            int weight = providerInfo.getWeight();
+            weight = weight < 0 ? 0 : weight;
+            weights[i] = weight;
+            total += weight;
+            prefixWeights[i] = total;
+            if (same && i > 0 && weight != weights[i - 1]) {
+                same = false;
+            }
+        }
+        this.warmingIndexes = Arrays.copyOf(warming, warmingSize);
+        this.expireTime = nextWarmupCheckTime(System.currentTimeMillis());
+        this.totalWeight = total;
+        this.weightSame = same;
+    }
+
+    /**
+     * 权重是否已经变化（全局权重版本号变化或者预热中的节点权重增加）
+     *
+     * @return 是否过期
+     */
+    public boolean isExpired() {
+        if (ProviderInfo.getGlobalWeightVersion() != weightVersion) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (expireTime != Long.MAX_VALUE && now > expireTime) {
+            // 只检查预热中的节点，权重没有变化（例如步长内增量不足1）则顺延到下个步长
+            for (int index : warmingIndexes) {
+                int weight = providers[index].getWeight();
+                if ((weight < 0 ? 0 : weight) != weights[index]) {
+                    return true;
+                }
+            }
+            expireTime = nextWarmupCheckTime(now);
+        }
+        return false;
+    }
+
+    /**
+     * 计算下次检查预热中节点权重的时间
+     *
+     * @param now 当前时间
+     * @return 最早的预热结束时间或者下一个预热步长，没有预热中的节点返回 Long.MAX_VALUE
+     */
+    private long nextWarmupCheckTime(long now) {
+        long next = Long.MAX_VALUE;
+        for (int index : warmingIndexes) {
+            ProviderInfo providerInfo = providers[index];
+            next = Math.min(next, providerInfo.getWarmupEndTime());
+            int warmupTime = providerInfo.getWarmupTime();
+            if (warmupTime > 0) {
+                // 预热中的权重会逐渐增加，每过一个步长检查一次
+                next = Math.min(next, now + Math.max(warmupTime / WARMUP_STEPS, 1));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 权重表是否由这个服务列表构建，快照比较版本号，其它列表比较对象
+     *
+     * @param providerInfos 服务列表
+     * @return 是否匹配
+     */
+    public boolean matches(List<ProviderInfo> providerInfos) {
+        if (snapshotVersion != ProviderInfoSnapshot.NO_VERSION) {
+            return ProviderInfoSnapshot.versionOf(providerInfos) == snapshotVersion;
+        }
+        return source == providerInfos;
+    }
+
+    /**
+     * 按权重随机选择
+     *
+     * @param random 随机数
+     * @return 服务提供者
+     */
+    public ProviderInfo randomSelect(Random random) {
+        if (totalWeight > 0 && !weightSame) {
+            // 如果权重不相同且权重大于0则按总权重数随机，二分查找随机值落在哪个片断上
+            int offset = random.nextInt(totalWeight);
+            int low = 0;
+            int high = prefixWeights.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prefixWeights[mid] > offset) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return providers[low];
+        } else {
+            // 如果权重相同或权重为0则均等随机
+            return providers[random.nextInt(providers.length)];
+        }
+    }
+
+    /**
+     * 按平滑加权轮询选择
+     *
+     * @param sequence 当前序号，非负数
+     * @return 服务提供者
+     */
+    public ProviderInfo smoothSelect(int sequence) {
+        int[] smooth = smoothSequence;
+        if (smooth == null) {
+            smooth = buildSmoothSequence();
+            smoothSequence = smooth;
+        }
+        return providers[smooth[sequence % smooth.length]];
+    }
+
+    /**
+     * 生成一个周期的平滑加权轮询序列，例如权重为5、1、1的三个节点，顺序为 AAABCAA 而不是 AAAAABC。<br>
+     * 每个节点第 n 次被选中的期望位置为 (n + 0.5) / weight，按期望位置从小到大排列，
+     * 一个周期内每个节点被选中的次数正好等于其（约分后的）权重。
+     *
+     * @return 调度序列，元素为服务提供者下标
+     */
+    private int[] buildSmoothSequence() {
+        int size = providers.length;
+        final long[] scaled = new long[size];
+        long period = 0;
+        if (totalWeight > 0 && !weightSame) {
+            int gcd = 0;
+            for (int weight : weights) {
+                if (weight > 0) {
+                    gcd = gcd == 0 ? weight : gcd(gcd, weight);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                scaled[i] = weights[i] / gcd;
+                period += scaled[i];
+            }
+            if (period > MAX_SMOOTH_PERIOD) {
+                // 序列太长，按比例缩小权重，非0权重至少保留1
+                long total = period;
+                period = 0;
+                for (int i = 0; i < size; i++) {
+                    if (scaled[i] > 0) {
+                        scaled[i] = Math.max(1, scaled[i] * MAX_SMOOTH_PERIOD / total);
+                        period += scaled[i];
+                    }
+                }
+            }
+        } else {
+            // 如果权重相同或权重为0则均等轮询
+            for (int i = 0; i < size; i++) {
+                scaled[i] = 1;
+            }
+            period = size;
+        }
+
+        final long[] counts = new long[size];
+        PriorityQueue<Integer> queue = new PriorityQueue<Integer>(size, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int i = o1;
+                int j = o2;
+                // 比较 (counts[i] + 0.5) / scaled[i] 和 (counts[j] + 0.5) / scaled[j]
+                long left = (2 * counts[i] + 1) * scaled[j];
+                long right = (2 * counts[j] + 1) * scaled[i];
+                if (left != right) {
+                    return left < right ? -1 : 1;
+                }
+                return i < j ? -1 : (i == j ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < size; i++) {
+            if (scaled[i] > 0) {
+                queue.add(i);
+            }
+        }
+        int[] sequence = new int[(int) period];
+        for (int n = 0; n < sequence.length; n++) {
+            Integer index = queue.poll();
+            sequence[n] = index;
+            counts[index]++;
+            if (counts[index] < scaled[index]) {
+                queue.add(index);
+            }
+        }
+        return sequence;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
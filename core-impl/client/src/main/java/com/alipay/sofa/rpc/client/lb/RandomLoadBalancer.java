@@ -17,7 +17,6 @@
 package com.alipay.sofa.rpc.client.lb;
 
 import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
-import com.alipay.sofa.rpc.client.AbstractLoadBalancer;
 import com.alipay.sofa.rpc.client.ProviderInfo;
 import com.alipay.sofa.rpc.core.request.SofaRequest;
 import com.alipay.sofa.rpc.ext.Extension;
@@ -26,12 +25,12 @@ import java.util.List;
 import java.util.Random;
 
 /**
- * 负载均衡随机算法:全部列表按权重随机选择
+ * 负载均衡随机算法:全部列表按权重随机选择，服务列表和权重不变时复用预计算的权重前缀和
  *
  * @author <a href=mailto:zhanggeng.zg@antfin.com>GengZhang</a>
  */
 @Extension("random")
-public class RandomLoadBalancer extends AbstractLoadBalancer {
+public class RandomLoadBalancer extends AbstractWeightedLoadBalancer {
 
     /**
      * 随机
@@ -49,32 +48,11 @@ public class RandomLoadBalancer extends AbstractLoadBalancer {
 
     @Override
     public ProviderInfo doSelect(SofaRequest invocation, List<ProviderInfo> providerInfos) {
-        ProviderInfo providerInfo = null;
-        int size = providerInfos.size(); // 总个数
-        int totalWeight = 0; // 总权重
-        boolean isWeightSame = true; // 权重是否都一样
-        for (int i = 0; i < size; i++) {
-            int weight = getWeight(providerInfos.get(i));
-            totalWeight += weight; // 累计总权重
-            if (isWeightSame && i > 0 && weight != getWeight(providerInfos.get(i - 1))) {
-                isWeightSame = false; // 计算所有权重是否一样
-            }
+        ProviderWeightTable weightTable = getWeightTable(providerInfos);
+        if (weightTable != null) {
+            // 预计算的前缀和，二分查找
+            return weightTable.randomSelect(random);
         }
-        if (totalWeight > 0 && !isWeightSame) {
-            // 如果权重不相同且权重大于0则按总权重数随机
-            int offset = random.nextInt(totalWeight);
-            // 并确定随机值落在哪个片断上
-            for (int i = 0; i < size; i++) {
-                offset -= getWeight(providerInfos.get(i));
-                if (offset < 0) {
-                    providerInfo = providerInfos.get(i);
-                    break;
-                }
-            }
-        } else {
-            // 如果权重相同或权重为0则均等随机
-            providerInfo = providerInfos.get(random.nextInt(size));
-        }
-        return providerInfo;
+        return randomSelect(providerInfos, random);
     }
 }
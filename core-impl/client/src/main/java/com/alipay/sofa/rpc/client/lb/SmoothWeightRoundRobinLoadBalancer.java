@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.common.struct.PositiveAtomicCounter;
+import com.alipay.sofa.rpc.common.utils.StringUtils;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.ext.Extension;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 平滑的按权重轮询算法（类似 nginx），按方法级进行轮询，互不影响<br>
+ *  例如：权重为5、1、1三个节点，顺序为 AAABCAA，而不是连续选中同一个节点。<br>
+ *  调度序列按服务列表和权重预先生成，每次选择只需要一次计数器自增，服务列表或者权重变化后才重新生成。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension("smoothWeightRoundRobin")
+public class SmoothWeightRoundRobinLoadBalancer extends AbstractWeightedLoadBalancer {
+
+    private final ConcurrentMap<String, PositiveAtomicCounter> sequences = new ConcurrentHashMap<String, PositiveAtomicCounter>();
+
+    /**
+     * 随机，临时列表使用
+     */
+    private final Random                                       random    = new Random();
+
+    /**
+     * 构造函数
+     *
+     * @param consumerBootstrap 服务消费者配置
+     */
+    public SmoothWeightRoundRobinLoadBalancer(ConsumerBootstrap consumerBootstrap) {
+        super(consumerBootstrap);
+    }
+
+    @Override
+    public ProviderInfo doSelect(SofaRequest request, List<ProviderInfo> providerInfos) {
+        ProviderWeightTable weightTable = getWeightTable(providerInfos);
+        if (weightTable == null) {
+            // 临时列表（例如重试时剔除了已调用过的节点），按权重随机
+            return randomSelect(providerInfos, random);
+        }
+        // 每个方法级自己轮询，互不影响；负载均衡实例属于某个服务消费者，方法名即可区分，不用每次拼接key
+        String key = StringUtils.defaultString(request.getMethodName());
+        PositiveAtomicCounter sequence = sequences.get(key);
+        if (sequence == null) {
+            sequences.putIfAbsent(key, new PositiveAtomicCounter());
+            sequence = sequences.get(key);
+        }
+        return weightTable.smoothSelect(sequence.getAndIncrement());
+    }
+}
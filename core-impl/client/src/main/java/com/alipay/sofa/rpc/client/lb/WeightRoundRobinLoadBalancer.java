@@ -33,6 +33,8 @@ import java.util.concurrent.ConcurrentMap;
  * 按权重的负载均衡轮询算法，按方法级进行轮询，性能较差，不推荐<br>
  *  例如：权重为1、2、3、4三个节点，顺序为 1234234344
  *
+ * @see SmoothWeightRoundRobinLoadBalancer 推荐使用平滑的按权重轮询算法
+ *
  * @author <a href=mailto:zhanggeng.zg@antfin.com>GengZhang</a>
  */
 @Extension("weightRoundRobin")
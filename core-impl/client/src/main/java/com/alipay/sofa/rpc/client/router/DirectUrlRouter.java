@@ -26,6 +26,7 @@ import com.alipay.sofa.rpc.core.request.SofaRequest;
 import com.alipay.sofa.rpc.ext.Extension;
 import com.alipay.sofa.rpc.filter.AutoActive;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -75,7 +76,11 @@ public class DirectUrlRouter extends Router {
         if (addressHolder != null) {
             List<ProviderInfo> current = addressHolder.getProviderInfos(RpcConstants.ADDRESS_DIRECT_GROUP);
             if (providerInfos != null) {
-                providerInfos.addAll(current);
+                // 地址列表是只读快照，合并时复制一份
+                List<ProviderInfo> merged = new ArrayList<ProviderInfo>(providerInfos.size() + current.size());
+                merged.addAll(providerInfos);
+                merged.addAll(current);
+                providerInfos = merged;
             } else {
                 providerInfos = current;
             }
@@ -27,6 +27,7 @@ import com.alipay.sofa.rpc.core.request.SofaRequest;
 import com.alipay.sofa.rpc.ext.Extension;
 import com.alipay.sofa.rpc.filter.AutoActive;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -69,7 +70,11 @@ public class RegistryRouter extends Router {
         if (addressHolder != null) {
             List<ProviderInfo> current = addressHolder.getProviderInfos(RpcConstants.ADDRESS_DEFAULT_GROUP);
             if (providerInfos != null) {
-                providerInfos.addAll(current);
+                // 地址列表是只读快照，合并时复制一份
+                List<ProviderInfo> merged = new ArrayList<ProviderInfo>(providerInfos.size() + current.size());
+                merged.addAll(providerInfos);
+                merged.addAll(current);
+                providerInfos = merged;
             } else {
                 providerInfos = current;
             }
@@ -225,6 +225,51 @@ public class SingleGroupAddressHolderTest {
         Assert.assertTrue(addressHolder.getAllProviderSize() == 2);
     }
 
+    @Test
+    public void getProviderInfosSnapshot() throws Exception {
+        SingleGroupAddressHolder addressHolder = new SingleGroupAddressHolder(null);
+        Assert.assertTrue(addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP).isEmpty());
+
+        addressHolder.updateProviders(new ProviderGroup("xxx", Arrays.asList(ProviderInfo.valueOf("127.0.0.1:12200"),
+            ProviderInfo.valueOf("127.0.0.1:12201"))));
+        List<ProviderInfo> snapshot = addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP);
+        Assert.assertEquals(2, snapshot.size());
+        // 地址没有变化时返回同一个快照
+        Assert.assertSame(snapshot, addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP));
+        boolean error = false;
+        try {
+            snapshot.remove(0);
+        } catch (UnsupportedOperationException e) {
+            error = true;
+        }
+        Assert.assertTrue(error);
+
+        // 地址变化后发布新的快照，旧的快照不受影响
+        addressHolder.addProvider(new ProviderGroup("xxx", Arrays.asList(ProviderInfo.valueOf("127.0.0.1:12202"))));
+        Assert.assertNotSame(snapshot, addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP));
+        Assert.assertEquals(3, addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP).size());
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertTrue(addressHolder.getProviderInfos(ADDRESS_DIRECT_GROUP).isEmpty());
+
+        // 只重建变化的分组，版本号递增
+        addressHolder.updateProviders(new ProviderGroup(ADDRESS_DIRECT_GROUP, Arrays.asList(ProviderInfo
+            .valueOf("127.0.0.1:12300"))));
+        List<ProviderInfo> directSnapshot = addressHolder.getProviderInfos(ADDRESS_DIRECT_GROUP);
+        List<ProviderInfo> registrySnapshot = addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP);
+        long version = ProviderInfoSnapshot.versionOf(registrySnapshot);
+        Assert.assertTrue(version > ProviderInfoSnapshot.versionOf(snapshot));
+        Assert.assertTrue(ProviderInfoSnapshot.versionOf(directSnapshot) > version);
+        addressHolder.removeProvider(new ProviderGroup("xxx", Arrays.asList(ProviderInfo.valueOf("127.0.0.1:12202"))));
+        Assert.assertSame(directSnapshot, addressHolder.getProviderInfos(ADDRESS_DIRECT_GROUP));
+        Assert.assertNotSame(registrySnapshot, addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP));
+        long newVersion = ProviderInfoSnapshot.versionOf(addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP));
+        Assert.assertTrue(newVersion > ProviderInfoSnapshot.versionOf(directSnapshot));
+        // 路由过滤后的临时列表不是快照
+        Assert.assertEquals(ProviderInfoSnapshot.NO_VERSION,
+            ProviderInfoSnapshot.versionOf(new ArrayList<ProviderInfo>(registrySnapshot)));
+        Assert.assertEquals(2, addressHolder.getProviderInfos(ADDRESS_DEFAULT_GROUP).size());
+    }
+
     @Test
     public void readAndWriteLock() {
         final SingleGroupAddressHolder addressHolder = new SingleGroupAddressHolder(null);
@@ -16,14 +16,26 @@
  */
 package com.alipay.sofa.rpc.client.lb;
 
+import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.client.Cluster;
+import com.alipay.sofa.rpc.client.ProviderGroup;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoSnapshot;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.MethodConfig;
 import com.alipay.sofa.rpc.core.request.SofaRequest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -66,4 +78,131 @@ public class ConsistentHashLoadBalancerTest extends BaseLoadBalancerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void doSelectByArgument() throws Exception {
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(null);
+        int size = 20;
+        List<ProviderInfo> providers = buildSameWeightProviderList(size);
+
+        Map<String, ProviderInfo> selected = new HashMap<String, ProviderInfo>();
+        Set<Integer> ports = new HashSet<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            String key = "key" + i;
+            ProviderInfo provider = loadBalancer.doSelect(buildRequest(key, null), providers);
+            Assert.assertSame(provider, loadBalancer.doSelect(buildRequest(key, null), providers));
+            selected.put(key, provider);
+            ports.add(provider.getPort());
+        }
+        Assert.assertEquals(size, ports.size()); // 不同的参数分散到所有节点
+
+        // 去掉一个节点，只有原来落在这个节点上的请求会变化
+        ProviderInfo removed = providers.get(5);
+        List<ProviderInfo> newProviders = new ArrayList<ProviderInfo>(providers);
+        newProviders.remove(removed);
+        for (Map.Entry<String, ProviderInfo> entry : selected.entrySet()) {
+            ProviderInfo provider = loadBalancer.doSelect(buildRequest(entry.getKey(), null), newProviders);
+            if (entry.getValue() != removed) {
+                Assert.assertSame(entry.getValue(), provider);
+            } else {
+                Assert.assertNotSame(removed, provider);
+            }
+        }
+    }
+
+    @Test
+    public void doSelectByConfiguredArguments() throws Exception {
+        ConsumerConfig<Object> consumerConfig = new ConsumerConfig<Object>();
+        consumerConfig.setParameter(RpcConstants.CONFIG_KEY_HASH_NODES, "64");
+        MethodConfig methodConfig = new MethodConfig().setName("sayHello");
+        methodConfig.setParameter(RpcConstants.CONFIG_KEY_HASH_ARGUMENTS, "1");
+        consumerConfig.setMethods(Collections.singletonList(methodConfig));
+        consumerConfig.getConfigValueCache(true);
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(new TestConsumerBootstrap(
+            consumerConfig));
+        List<ProviderInfo> providers = buildSameWeightProviderList(20);
+
+        // 只按第二个参数hash
+        Set<Integer> ports = new HashSet<Integer>();
+        for (int i = 0; i < 100; i++) {
+            ports.add(loadBalancer.doSelect(buildRequest("key" + i, 1), providers).getPort());
+        }
+        Assert.assertEquals(1, ports.size());
+        ports.clear();
+        for (int i = 0; i < 100; i++) {
+            ports.add(loadBalancer.doSelect(buildRequest("key", i), providers).getPort());
+        }
+        Assert.assertTrue(ports.size() > 1);
+    }
+
+    @Test
+    public void doSelectWithTemporaryList() throws Exception {
+        ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(null);
+        Field field = ConsistentHashLoadBalancer.class.getDeclaredField("selectorCache");
+        field.setAccessible(true);
+        Map<?, ?> selectorCache = (Map<?, ?>) field.get(loadBalancer);
+
+        List<ProviderInfo> snapshot = new ProviderInfoSnapshot(buildSameWeightProviderList(10), 1);
+        ProviderInfo selected = loadBalancer.doSelect(buildRequest("key", null), snapshot);
+        Object selector = selectorCache.get("sayHello");
+        Assert.assertNotNull(selector);
+
+        // 重试时剔除了已调用过的节点的临时列表，不替换缓存的虚拟节点环
+        List<ProviderInfo> retryProviders = new ArrayList<ProviderInfo>(snapshot);
+        retryProviders.remove(selected);
+        Assert.assertNotSame(selected, loadBalancer.doSelect(buildRequest("key", null), retryProviders));
+        Assert.assertSame(selector, selectorCache.get("sayHello"));
+        Assert.assertSame(selected, loadBalancer.doSelect(buildRequest("key", null), snapshot));
+        Assert.assertSame(selector, selectorCache.get("sayHello"));
+
+        // 同一个快照版本不重建，新的快照版本重建
+        Assert.assertSame(selected,
+            loadBalancer.doSelect(buildRequest("key", null), new ProviderInfoSnapshot(snapshot, 1)));
+        Assert.assertSame(selector, selectorCache.get("sayHello"));
+        loadBalancer.doSelect(buildRequest("key", null), new ProviderInfoSnapshot(snapshot, 2));
+        Assert.assertNotSame(selector, selectorCache.get("sayHello"));
+    }
+
+    private SofaRequest buildRequest(String first, Integer second) {
+        SofaRequest request = new SofaRequest();
+        request.setInterfaceName(ConsistentHashLoadBalancerTest.class.getName());
+        request.setMethodName("sayHello");
+        request.setMethodArgs(new Object[] { first, second });
+        return request;
+    }
+
+    private static class TestConsumerBootstrap extends ConsumerBootstrap<Object> {
+
+        protected TestConsumerBootstrap(ConsumerConfig<Object> consumerConfig) {
+            super(consumerConfig);
+        }
+
+        @Override
+        public Object refer() {
+            return null;
+        }
+
+        @Override
+        public void unRefer() {
+        }
+
+        @Override
+        public Object getProxyIns() {
+            return null;
+        }
+
+        @Override
+        public Cluster getCluster() {
+            return null;
+        }
+
+        @Override
+        public List<ProviderGroup> subscribe() {
+            return null;
+        }
+
+        @Override
+        public boolean isSubscribed() {
+            return false;
+        }
+    }
+}
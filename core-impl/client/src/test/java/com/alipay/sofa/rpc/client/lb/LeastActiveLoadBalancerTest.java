@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LeastActiveLoadBalancerTest extends BaseLoadBalancerTest {
+
+    @Test
+    public void doSelect() throws Exception {
+        LeastActiveLoadBalancer loadBalancer = new LeastActiveLoadBalancer(null);
+        SofaRequest request = new SofaRequest();
+        int size = 5;
+        List<ProviderInfo> providers = buildSameWeightProviderList(size);
+        // 9000 上有很多请求在途
+        ProviderInfo busy = providers.get(0);
+        for (int i = 0; i < 10; i++) {
+            busy.getInvokeStats().begin();
+        }
+
+        Map<Integer, Integer> cnt = new HashMap<Integer, Integer>();
+        int total = 10000;
+        for (int i = 0; i < total; i++) {
+            int port = loadBalancer.doSelect(request, providers).getPort();
+            Integer old = cnt.get(port);
+            cnt.put(port, old == null ? 1 : old + 1);
+        }
+        // 只有两次都选中它才会被选中
+        Assert.assertTrue(cnt.get(9000) == null || cnt.get(9000) < total / size / 2);
+        for (int i = 1; i < size; i++) {
+            Assert.assertTrue(cnt.get(9000 + i) > total / size);
+        }
+    }
+
+    @Test
+    public void doSelectWithZeroWeight() throws Exception {
+        LeastActiveLoadBalancer loadBalancer = new LeastActiveLoadBalancer(null);
+        SofaRequest request = new SofaRequest();
+        List<ProviderInfo> providers = buildDiffWeightProviderList(3);
+        // 9000 的权重为0，即使空闲也不会被选中
+        providers.get(1).getInvokeStats().begin();
+        providers.get(2).getInvokeStats().begin();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(loadBalancer.doSelect(request, providers).getPort() != 9000);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInvokeStats;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class PeakEwmaLoadBalancerTest extends BaseLoadBalancerTest {
+
+    @Test
+    public void doSelect() throws Exception {
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(null);
+        SofaRequest request = new SofaRequest();
+        int size = 5;
+        List<ProviderInfo> providers = buildSameWeightProviderList(size);
+        // 9000 响应慢，其它响应快
+        for (int i = 0; i < size; i++) {
+            ProviderInvokeStats stats = providers.get(i).getInvokeStats();
+            long latency = i == 0 ? TimeUnit.MILLISECONDS.toNanos(500) : TimeUnit.MILLISECONDS.toNanos(1);
+            stats.begin();
+            stats.end(System.nanoTime() - latency);
+        }
+        Assert.assertTrue(providers.get(0).getInvokeStats().getCost() > providers.get(1).getInvokeStats()
+            .getCost());
+
+        Map<Integer, Integer> cnt = new HashMap<Integer, Integer>();
+        int total = 10000;
+        for (int i = 0; i < total; i++) {
+            int port = loadBalancer.doSelect(request, providers).getPort();
+            Integer old = cnt.get(port);
+            cnt.put(port, old == null ? 1 : old + 1);
+        }
+        Assert.assertTrue(cnt.get(9000) == null || cnt.get(9000) < total / size / 2);
+    }
+
+    @Test
+    public void peakEwma() throws Exception {
+        ProviderInvokeStats stats = new ProviderInvokeStats();
+        Assert.assertEquals(0, stats.getCost(), 0);
+        // 有请求在途但还没有响应时间，代价很大
+        long start = stats.begin();
+        Assert.assertEquals(1, stats.getActive());
+        Assert.assertTrue(stats.getCost() > TimeUnit.SECONDS.toNanos(1));
+
+        stats.end(start - TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(0, stats.getActive());
+        double slow = stats.getEwma();
+        Assert.assertTrue(slow >= TimeUnit.MILLISECONDS.toNanos(100));
+        // 变快后逐渐衰减，不会立即降下来
+        stats.end(stats.begin());
+        Assert.assertTrue(stats.getEwma() > TimeUnit.MILLISECONDS.toNanos(50));
+        // 变慢后立即升高
+        stats.end(stats.begin() - TimeUnit.MILLISECONDS.toNanos(300));
+        Assert.assertTrue(stats.getEwma() >= TimeUnit.MILLISECONDS.toNanos(299));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoAttrs;
+import com.alipay.sofa.rpc.client.ProviderInfoSnapshot;
+import com.alipay.sofa.rpc.client.ProviderStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ProviderWeightTableTest {
+
+    @Test
+    public void testExpired() {
+        ProviderInfo p1 = ProviderInfo.valueOf("127.0.0.1:12201?weight=100");
+        ProviderInfo p2 = ProviderInfo.valueOf("127.0.0.1:12202?weight=200");
+        ProviderInfo other = ProviderInfo.valueOf("127.0.0.1:12203?weight=100");
+        List<ProviderInfo> providerInfos = new ArrayList<ProviderInfo>();
+        providerInfos.add(p1);
+        providerInfos.add(p2);
+
+        ProviderWeightTable table = new ProviderWeightTable(providerInfos);
+        Assert.assertFalse(table.isExpired());
+
+        // 列表里的服务提供者权重变化，权重表过期
+        p2.setWeight(50);
+        Assert.assertTrue(table.isExpired());
+        table = new ProviderWeightTable(providerInfos);
+        Assert.assertFalse(table.isExpired());
+
+        // 只比较全局权重版本号，其它服务提供者的权重变化也会重建一次
+        other.setWeight(50);
+        Assert.assertTrue(table.isExpired());
+        Assert.assertFalse(new ProviderWeightTable(providerInfos).isExpired());
+    }
+
+    @Test
+    public void testMatches() {
+        List<ProviderInfo> providerInfos = new ArrayList<ProviderInfo>();
+        providerInfos.add(ProviderInfo.valueOf("127.0.0.1:12201?weight=100"));
+        providerInfos.add(ProviderInfo.valueOf("127.0.0.1:12202?weight=200"));
+
+        // 快照按版本号匹配
+        ProviderInfoSnapshot snapshot = new ProviderInfoSnapshot(providerInfos, 1);
+        ProviderWeightTable table = new ProviderWeightTable(snapshot);
+        Assert.assertTrue(table.matches(snapshot));
+        Assert.assertTrue(table.matches(new ProviderInfoSnapshot(providerInfos, 1)));
+        Assert.assertFalse(table.matches(new ProviderInfoSnapshot(providerInfos, 2)));
+        Assert.assertFalse(table.matches(providerInfos));
+
+        // 其它列表按对象匹配，不逐个比较
+        table = new ProviderWeightTable(providerInfos);
+        Assert.assertTrue(table.matches(providerInfos));
+        Assert.assertFalse(table.matches(new ArrayList<ProviderInfo>(providerInfos)));
+        Assert.assertFalse(table.matches(snapshot));
+    }
+
+    @Test
+    public void testWarmupExpired() throws Exception {
+        long now = System.currentTimeMillis();
+        ProviderInfo warming = ProviderInfo.valueOf("127.0.0.1:12201?weight=100");
+        warming.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME, 400);
+        warming.setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, now + 400);
+        warming.setStatus(ProviderStatus.WARMING_UP);
+        ProviderInfo normal = ProviderInfo.valueOf("127.0.0.1:12202?weight=100");
+        List<ProviderInfo> providerInfos = new ArrayList<ProviderInfo>();
+        providerInfos.add(warming);
+        providerInfos.add(normal);
+
+        ProviderWeightTable table = new ProviderWeightTable(providerInfos);
+        Assert.assertFalse(table.isExpired());
+
+        // 过了一个预热步长，预热中的节点权重增加
+        Thread.sleep(100);
+        Assert.assertTrue(table.isExpired());
+
+        // 预热结束后权重不再变化
+        Thread.sleep(400);
+        Assert.assertEquals(ProviderStatus.AVAILABLE, warming.getStatus());
+        table = new ProviderWeightTable(providerInfos);
+        Thread.sleep(50);
+        Assert.assertFalse(table.isExpired());
+    }
+}
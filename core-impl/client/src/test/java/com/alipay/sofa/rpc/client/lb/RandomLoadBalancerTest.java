@@ -92,4 +92,20 @@ public class RandomLoadBalancerTest extends BaseLoadBalancerTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void doSelectAfterWeightChanged() throws Exception {
+        RandomLoadBalancer loadBalancer = new RandomLoadBalancer(null);
+        SofaRequest request = new SofaRequest();
+        List<ProviderInfo> providers = buildSameWeightProviderList(3);
+        for (int i = 0; i < 100; i++) {
+            loadBalancer.doSelect(request, providers);
+        }
+        // 权重变化后预计算的权重表需要重建
+        providers.get(0).setWeight(0);
+        providers.get(1).setWeight(0);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(9002, loadBalancer.doSelect(request, providers).getPort());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client.lb;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SmoothWeightRoundRobinLoadBalancerTest extends BaseLoadBalancerTest {
+
+    @Test
+    public void doSelect() throws Exception {
+        SmoothWeightRoundRobinLoadBalancer loadBalancer = new SmoothWeightRoundRobinLoadBalancer(null);
+
+        Map<Integer, Integer> cnt = new HashMap<Integer, Integer>();
+        int size = 20;
+        int total = 19000;
+        SofaRequest request = new SofaRequest();
+        {
+            for (int i = 0; i < size; i++) {
+                cnt.put(9000 + i, 0);
+            }
+            List<ProviderInfo> providers = buildSameWeightProviderList(size);
+            for (int i = 0; i < total; i++) {
+                ProviderInfo provider = loadBalancer.doSelect(request, providers);
+                int port = provider.getPort();
+                cnt.put(port, cnt.get(port) + 1);
+            }
+            int avg = total / size;
+            for (int i = 0; i < size; i++) {
+                Assert.assertTrue(avg == cnt.get(9000 + i));
+            }
+        }
+
+        {
+            for (int i = 0; i < size; i++) {
+                cnt.put(9000 + i, 0);
+            }
+            List<ProviderInfo> providers = buildDiffWeightProviderList(size);
+            for (int i = 0; i < total; i++) {
+                ProviderInfo provider = loadBalancer.doSelect(request, providers);
+                int port = provider.getPort();
+                cnt.put(port, cnt.get(port) + 1);
+            }
+            Assert.assertTrue(cnt.get(9000) == 0);
+            int count = 0;
+            int sum = 0;
+            for (int i = 0; i < size; i++) {
+                count += i;
+                sum += cnt.get(9000 + i);
+            }
+            Assert.assertTrue(sum == total);
+
+            // 第一次调用不在缓存中，按权重随机，允许一次偏差
+            int per = total / count;
+            for (int i = 1; i < size; i++) {
+                Assert.assertTrue(Math.abs(per * i - cnt.get(9000 + i)) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void doSelectSmooth() throws Exception {
+        SmoothWeightRoundRobinLoadBalancer loadBalancer = new SmoothWeightRoundRobinLoadBalancer(null);
+        SofaRequest request = new SofaRequest();
+        List<ProviderInfo> providers = buildSameWeightProviderList(3);
+        providers.get(0).setWeight(500);
+
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 0; i < 14; i++) {
+            sequence.append(loadBalancer.doSelect(request, providers).getPort() - 9000);
+        }
+        // 不会连续选中权重大的节点5次
+        Assert.assertEquals("00012000001200", sequence.toString());
+
+        // 权重变化后重新生成调度序列
+        providers.get(0).setWeight(100);
+        Map<Integer, Integer> cnt = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 30; i++) {
+            int port = loadBalancer.doSelect(request, providers).getPort();
+            Integer old = cnt.get(port);
+            cnt.put(port, old == null ? 1 : old + 1);
+        }
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(10, (int) cnt.get(9000 + i));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按方法限制并发数的过滤器，服务端和调用端共用。<br>
+ * 接口级 concurrents 配置为-1时不加载；等于0时只统计当前并发数和峰值，不做限制；方法级配置优先。<br>
+ * 动态配置变更（接口配置缓存重建）后，已有方法的并发限制会在下一次调用时按新配置刷新。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see MethodConcurrents
+ */
+public abstract class AbstractConcurrentsFilter extends Filter {
+
+    /**
+     * 所有接口配置对应的并发过滤器，只在加载过滤器时写入，用于查询
+     */
+    private static final Map<AbstractInterfaceConfig, AbstractConcurrentsFilter> ALL_FILTERS = Collections
+                                                                                                 .synchronizedMap(new WeakHashMap<AbstractInterfaceConfig, AbstractConcurrentsFilter>());
+
+    /**
+     * 方法名：方法级并发统计
+     */
+    protected final ConcurrentMap<String, MethodConcurrents>                     concurrents = new ConcurrentHashMap<String, MethodConcurrents>();
+
+    /**
+     * 过滤器所在的接口配置
+     */
+    protected AbstractInterfaceConfig<?, ?>                                      config;
+
+    /**
+     * 当前的并发限制是按哪一份接口配置缓存计算的，缓存重建后需要刷新
+     */
+    private volatile Map<String, Object>                                         limitSource;
+
+    @Override
+    public boolean needToLoad(FilterInvoker invoker) {
+        AbstractInterfaceConfig<?, ?> config = invoker.getConfig();
+        if (config == null) {
+            return false;
+        }
+        Map<String, Object> context = invoker.getConfigContext();
+        Object limit = context == null ? null : context.get(RpcConstants.CONFIG_KEY_CONCURRENTS);
+        if (limit instanceof Integer && (Integer) limit < 0 && !config.hasConcurrents()) {
+            return false;
+        }
+        this.config = config;
+        this.limitSource = context;
+        ALL_FILTERS.put(config, this);
+        return true;
+    }
+
+    /**
+     * 得到方法的并发统计，第一次调用时按配置创建
+     *
+     * @param methodName 方法名
+     * @return 方法的并发统计
+     */
+    protected MethodConcurrents getMethodConcurrents(String methodName) {
+        refreshLimits();
+        MethodConcurrents methodConcurrents = concurrents.get(methodName);
+        if (methodConcurrents == null) {
+            MethodConcurrents old = concurrents.putIfAbsent(methodName, new MethodConcurrents(getLimit(methodName)));
+            methodConcurrents = old == null ? concurrents.get(methodName) : old;
+        }
+        return methodConcurrents;
+    }
+
+    /**
+     * 接口配置缓存重建后，按新配置刷新已有方法的并发限制，正在执行的调用不受影响
+     */
+    private void refreshLimits() {
+        Map<String, Object> source = config.getConfigValueCache();
+        if (source == null || source == limitSource) {
+            return;
+        }
+        limitSource = source;
+        for (Map.Entry<String, MethodConcurrents> entry : concurrents.entrySet()) {
+            entry.getValue().setLimit(getLimit(entry.getKey()));
+        }
+    }
+
+    /**
+     * 从当前的接口配置中得到方法的并发限制，方法级配置优先
+     *
+     * @param methodName 方法名
+     * @return 并发限制，小于等于0表示不限制
+     */
+    private int getLimit(String methodName) {
+        Integer limit = config.getMethodDescriptor(methodName).getConcurrents();
+        if (limit == null) {
+            Map<String, Object> source = config.getConfigValueCache();
+            Object o = source == null ? null : source.get(RpcConstants.CONFIG_KEY_CONCURRENTS);
+            limit = o instanceof Integer ? (Integer) o : 0;
+        }
+        return limit;
+    }
+
+    /**
+     * 方法的并发是否已经用满，用于在进入业务线程池之前提前拒绝，用满时计入被拒绝次数。<br>
+     * 只是预判，真正占用并发还是在过滤器里。
+     *
+     * @param config     服务提供者或者服务调用者配置
+     * @param methodName 方法名
+     * @return 是否已经用满，没有加载并发过滤器或者方法还没有调用过时为false
+     */
+    public static boolean isExhausted(AbstractInterfaceConfig config, String methodName) {
+        AbstractConcurrentsFilter filter = ALL_FILTERS.get(config);
+        if (filter == null || methodName == null) {
+            return false;
+        }
+        filter.refreshLimits();
+        MethodConcurrents methodConcurrents = filter.concurrents.get(methodName);
+        return methodConcurrents != null && methodConcurrents.rejectIfExhausted();
+    }
+
+    /**
+     * 查询接口配置下各方法的当前并发数和峰值
+     *
+     * @param config 服务提供者或者服务调用者配置
+     * @return 方法名：方法级并发统计，没有加载并发过滤器时为空
+     */
+    public static Map<String, MethodConcurrents> getConcurrents(AbstractInterfaceConfig config) {
+        AbstractConcurrentsFilter filter = ALL_FILTERS.get(config);
+        return filter == null ? Collections.<String, MethodConcurrents> emptyMap() : Collections
+            .unmodifiableMap(filter.concurrents);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.message.AbstractResponseFuture;
+
+/**
+ * 被合并的Future调用拿到的Future，结果来自同一个关键字的第一个请求<br>
+ * 过滤器里拿不到业务返回值的类型，所以结果类型固定为Object
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class CoalescedResponseFuture extends AbstractResponseFuture<Object> implements InFlightCall.Listener {
+
+    /**
+     * 构造函数
+     *
+     * @param request 请求
+     * @param timeout 超时时间（毫秒）
+     */
+    CoalescedResponseFuture(SofaRequest request, int timeout) {
+        super(request, timeout);
+    }
+
+    @Override
+    public void onComplete(SofaResponse response, Throwable throwable) {
+        if (throwable != null) {
+            tryFailure(throwable, false);
+            return;
+        }
+        if (response == null) {
+            trySuccess(null);
+            return;
+        }
+        Object appResp = response.getAppResponse();
+        if (response.isError()) { // rpc层异常
+            tryFailure(new SofaRpcException(RpcErrorType.SERVER_UNDECLARED_ERROR, response.getErrorMsg()), false);
+        } else if (appResp instanceof Throwable) { // 业务层异常
+            tryFailure((Throwable) appResp, true);
+        } else {
+            trySuccess(appResp);
+        }
+    }
+}
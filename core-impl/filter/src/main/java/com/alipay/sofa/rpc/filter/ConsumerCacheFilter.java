@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.struct.Cache;
+import com.alipay.sofa.rpc.common.struct.KeyGenerator;
+import com.alipay.sofa.rpc.common.struct.TinyLfuCache;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.ext.Extension;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调用端的结果缓存，接口或者方法配置了 cache=true 的同步调用才生效。<br>
+ * 没有指定 cacheRef 时使用默认的 {@link TinyLfuCache}；同一个关键字同时只有一个请求发到服务端，其它请求等待它的结果。<br>
+ * 注意：缓存的结果对象会被多个调用方共享，不要修改。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension(value = "consumerCache", order = -19500)
+@AutoActive(consumerSide = true)
+public class ConsumerCacheFilter extends Filter {
+
+    /**
+     * 结果缓存
+     */
+    private Cache                                     cache;
+
+    /**
+     * 正在调用中的请求
+     */
+    private final ConcurrentMap<Object, InFlightCall> inFlights = new ConcurrentHashMap<Object, InFlightCall>();
+
+    /**
+     * 等待其它相同请求结果的次数
+     */
+    private final AtomicLong                          coalesced = new AtomicLong();
+
+    @Override
+    public boolean needToLoad(FilterInvoker invoker) {
+        AbstractInterfaceConfig config = invoker.getConfig();
+        if (!(config instanceof ConsumerConfig) || !config.hasCache()) {
+            return false;
+        }
+        Cache cacheRef = config.getCacheRef();
+        if (cacheRef == null) {
+            // 放回配置，方便查询默认缓存的统计
+            cacheRef = new TinyLfuCache(RpcConfigs.getIntValue(RpcOptions.CONSUMER_CACHE_SIZE),
+                RpcConfigs.getIntValue(RpcOptions.CONSUMER_CACHE_TTL));
+            config.setCacheRef(cacheRef);
+        }
+        this.cache = cacheRef;
+        return true;
+    }
+
+    @Override
+    public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+        String methodName = request.getMethodName();
+        if (!RpcConstants.INVOKER_TYPE_SYNC.equals(request.getInvokeType())) {
+            return invoker.invoke(request);
+        }
+        AbstractInterfaceConfig config = invoker.getConfig();
+        Boolean methodCache = config.getMethodDescriptor(methodName).getCache();
+        if (!(methodCache == null ? config.isCache() : methodCache)) {
+            return invoker.invoke(request);
+        }
+        // 缓存能按参数类型生成关键字时，带上参数类型区分重载方法
+        Object key = cache instanceof KeyGenerator ? ((KeyGenerator) cache).buildKey(request.getInterfaceName(),
+            methodName, request.getMethodArgSigs(), request.getMethodArgs()) : cache.buildKey(
+            request.getInterfaceName(), methodName, request.getMethodArgs());
+        if (key == null) {
+            return invoker.invoke(request);
+        }
+        Object result = cache.get(key);
+        if (result != null) {
+            SofaResponse response = new SofaResponse();
+            response.setAppResponse(result);
+            return response;
+        }
+
+        int timeout = InFlightCall.getTimeout((ConsumerConfig) invoker.getConfig(), request);
+        InFlightCall flight = new InFlightCall(timeout);
+        InFlightCall existing = inFlights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.await(timeout);
+        }
+        try {
+            SofaResponse response = invoker.invoke(request);
+            Object appResponse = response == null ? null : response.getAppResponse();
+            if (appResponse != null && !response.isError() && !(appResponse instanceof Throwable)) {
+                cache.put(key, appResponse);
+            }
+            flight.complete(response, null);
+            return response;
+        } catch (RuntimeException e) {
+            flight.complete(null, e);
+            throw e;
+        } catch (Error e) {
+            flight.complete(null, e);
+            throw e;
+        } finally {
+            inFlights.remove(key, flight);
+        }
+    }
+
+    /**
+     * 等待其它相同请求结果的次数
+     *
+     * @return 次数
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
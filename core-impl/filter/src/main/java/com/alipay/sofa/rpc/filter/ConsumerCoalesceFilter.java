@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.struct.KeyGenerator;
+import com.alipay.sofa.rpc.common.struct.MethodKey;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.exception.SofaTimeOutException;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.ext.Extension;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调用端合并相同的在途请求（single-flight），接口或者方法配置了 coalesce=true 才生效。<br>
+ * 关键字相同（默认按接口名、方法名和参数值，也可以通过 coalesceKeyRef 指定）的请求同时只有一个发到服务端，
+ * 其它请求共享它的结果：同步调用等待结果，Future调用拿到一个共享结果的Future，Callback调用在结果返回时通知各自的回调。<br>
+ * 注意：合并后的结果对象会被多个调用方共享，不要修改；单向调用和没有回调的Callback调用不合并。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension(value = "consumerCoalesce", order = -19400)
+@AutoActive(consumerSide = true)
+public class ConsumerCoalesceFilter extends Filter {
+
+    /**
+     * 默认的关键字生成器
+     */
+    private static final KeyGenerator                             DEFAULT_KEY_GENERATOR = new MethodKeyGenerator();
+
+    /**
+     * 每个服务消费者被合并的调用次数
+     */
+    private static final Map<AbstractInterfaceConfig, AtomicLong> COALESCED_COUNTS      = new WeakHashMap<AbstractInterfaceConfig, AtomicLong>();
+
+    /**
+     * 关键字生成器
+     */
+    private KeyGenerator                                          keyGenerator;
+
+    /**
+     * 被合并的调用次数
+     */
+    private AtomicLong                                            coalesced;
+
+    /**
+     * 正在调用中的请求
+     */
+    private final ConcurrentMap<Object, InFlightCall>             inFlights             = new ConcurrentHashMap<Object, InFlightCall>();
+
+    /**
+     * 正在等待异步响应的请求
+     */
+    private final ConcurrentMap<SofaRequest, AsyncCall>           asyncCalls            = new ConcurrentHashMap<SofaRequest, AsyncCall>();
+
+    @Override
+    public boolean needToLoad(FilterInvoker invoker) {
+        AbstractInterfaceConfig config = invoker.getConfig();
+        if (!(config instanceof ConsumerConfig) || !((ConsumerConfig) config).hasCoalesce()) {
+            return false;
+        }
+        KeyGenerator keyRef = ((ConsumerConfig) config).getCoalesceKeyRef();
+        this.keyGenerator = keyRef == null ? DEFAULT_KEY_GENERATOR : keyRef;
+        synchronized (COALESCED_COUNTS) {
+            AtomicLong count = COALESCED_COUNTS.get(config);
+            if (count == null) {
+                count = new AtomicLong();
+                COALESCED_COUNTS.put(config, count);
+            }
+            this.coalesced = count;
+        }
+        return true;
+    }
+
+    @Override
+    public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+        String methodName = request.getMethodName();
+        String invokeType = request.getInvokeType();
+        if (RpcConstants.INVOKER_TYPE_ONEWAY.equals(invokeType)) {
+            return invoker.invoke(request);
+        }
+        ConsumerConfig config = (ConsumerConfig) invoker.getConfig();
+        Boolean methodCoalesce = config.getMethodDescriptor(methodName).getCoalesce();
+        if (!(methodCoalesce == null ? config.isCoalesce() : methodCoalesce)) {
+            return invoker.invoke(request);
+        }
+        SofaResponseCallback callback = null;
+        if (RpcConstants.INVOKER_TYPE_CALLBACK.equals(invokeType)) {
+            callback = request.getSofaResponseCallback();
+            if (callback == null) {
+                callback = config.getMethodOnreturn(methodName);
+            }
+            if (callback == null) { // 没有回调的情况下不会通知响应，无法把结果分给其它请求
+                return invoker.invoke(request);
+            }
+        }
+        Object key = keyGenerator.buildKey(request.getInterfaceName(), methodName, request.getMethodArgSigs(),
+            request.getMethodArgs());
+        if (key == null) {
+            return invoker.invoke(request);
+        }
+
+        int timeout = InFlightCall.getTimeout(config, request);
+        InFlightCall call = new InFlightCall(timeout);
+        InFlightCall existing = inFlights.putIfAbsent(key, call);
+        while (existing != null && existing.isExpired()) {
+            // 之前的请求超时了还没有结果，不再合并到它上面
+            if (inFlights.replace(key, existing, call)) {
+                existing.complete(null, new SofaTimeOutException("Coalesced in-flight request timeout: "
+                    + timeout + "ms"));
+                existing = null;
+            } else {
+                existing = inFlights.putIfAbsent(key, call);
+            }
+        }
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return follow(config, existing, request, callback, timeout);
+        }
+        return lead(invoker, request, key, call);
+    }
+
+    /**
+     * 第一个请求，发到服务端并把结果分给其它相同的请求
+     */
+    private SofaResponse lead(FilterInvoker invoker, SofaRequest request, Object key, InFlightCall call) {
+        boolean sync = RpcConstants.INVOKER_TYPE_SYNC.equals(request.getInvokeType());
+        if (!sync) {
+            // 异步调用在响应回来时结束
+            asyncCalls.put(request, new AsyncCall(key, call));
+        }
+        try {
+            SofaResponse response = invoker.invoke(request);
+            if (sync) {
+                call.complete(response, null);
+            }
+            return response;
+        } catch (RuntimeException e) {
+            finish(request, key, call, e);
+            throw e;
+        } catch (Error e) {
+            finish(request, key, call, e);
+            throw e;
+        } finally {
+            if (sync) {
+                inFlights.remove(key, call);
+            }
+        }
+    }
+
+    private void finish(SofaRequest request, Object key, InFlightCall call, Throwable throwable) {
+        asyncCalls.remove(request);
+        inFlights.remove(key, call);
+        call.complete(null, throwable);
+    }
+
+    /**
+     * 相同的请求，使用第一个请求的结果
+     */
+    private SofaResponse follow(ConsumerConfig config, InFlightCall call, SofaRequest request,
+                                SofaResponseCallback callback, int timeout) {
+        String invokeType = request.getInvokeType();
+        if (RpcConstants.INVOKER_TYPE_SYNC.equals(invokeType)) {
+            return call.await(timeout);
+        } else if (RpcConstants.INVOKER_TYPE_FUTURE.equals(invokeType)) {
+            CoalescedResponseFuture future = new CoalescedResponseFuture(request, timeout);
+            future.setListenerExecutor(config.getFutureListenerExecutor());
+            call.addListener(future);
+            // 放入线程上下文
+            RpcInternalContext.getContext().setFuture(future);
+        } else {
+            call.addListener(new CallbackListener(callback, request));
+        }
+        return new SofaResponse();
+    }
+
+    @Override
+    public void onAsyncResponse(ConsumerConfig config, SofaRequest request, SofaResponse response, Throwable throwable)
+        throws SofaRpcException {
+        AsyncCall asyncCall = asyncCalls.remove(request);
+        if (asyncCall != null) {
+            inFlights.remove(asyncCall.key, asyncCall.call);
+            asyncCall.call.complete(response, throwable);
+        }
+    }
+
+    /**
+     * 按响应结果通知回调，和Bolt的回调处理一致
+     *
+     * @param callback  回调
+     * @param request   请求
+     * @param response  响应
+     * @param throwable 异常
+     */
+    static void notifyCallback(SofaResponseCallback callback, SofaRequest request, SofaResponse response,
+                               Throwable throwable) {
+        String methodName = request.getMethodName();
+        if (throwable != null) {
+            SofaRpcException sofaRpcException = throwable instanceof SofaRpcException ? (SofaRpcException) throwable
+                : new SofaRpcException(RpcErrorType.SERVER_UNDECLARED_ERROR, throwable.getMessage(), throwable);
+            callback.onSofaException(sofaRpcException, methodName, request);
+            return;
+        }
+        Object appResp = response == null ? null : response.getAppResponse();
+        if (response != null && response.isError()) { // rpc层异常
+            callback.onSofaException(new SofaRpcException(RpcErrorType.SERVER_UNDECLARED_ERROR,
+                response.getErrorMsg()), methodName, request);
+        } else if (appResp instanceof Throwable) { // 业务层异常
+            callback.onAppException((Throwable) appResp, methodName, request);
+        } else {
+            callback.onAppResponse(appResp, methodName, request);
+        }
+    }
+
+    /**
+     * 被合并的调用次数
+     *
+     * @return 次数
+     */
+    public long getCoalescedCount() {
+        return coalesced == null ? 0 : coalesced.get();
+    }
+
+    /**
+     * 服务消费者被合并的调用次数
+     *
+     * @param config 服务消费者配置
+     * @return 次数
+     */
+    public static long getCoalescedCount(AbstractInterfaceConfig config) {
+        synchronized (COALESCED_COUNTS) {
+            AtomicLong count = COALESCED_COUNTS.get(config);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    /**
+     * 等待异步响应的第一个请求
+     */
+    private static class AsyncCall {
+
+        private final Object       key;
+
+        private final InFlightCall call;
+
+        AsyncCall(Object key, InFlightCall call) {
+            this.key = key;
+            this.call = call;
+        }
+    }
+
+    /**
+     * 被合并的Callback调用
+     */
+    private static class CallbackListener implements InFlightCall.Listener {
+
+        private final SofaResponseCallback callback;
+
+        private final SofaRequest          request;
+
+        CallbackListener(SofaResponseCallback callback, SofaRequest request) {
+            this.callback = callback;
+            this.request = request;
+        }
+
+        @Override
+        public void onComplete(SofaResponse response, Throwable throwable) {
+            notifyCallback(callback, request, response, throwable);
+        }
+    }
+
+    /**
+     * 按接口名、方法名、参数类型和参数值生成关键字
+     */
+    private static class MethodKeyGenerator implements KeyGenerator {
+
+        @Override
+        public Object buildKey(String interfaceId, String methodName, String[] argSigs, Object[] args) {
+            return new MethodKey(interfaceId, methodName, argSigs, args);
+        }
+    }
+}
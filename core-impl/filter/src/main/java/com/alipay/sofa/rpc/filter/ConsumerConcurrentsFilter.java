@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.ext.Extension;
+
+/**
+ * 调用端的方法级并发限制，超过 concurrents 时最多排队等待 consumer.concurrents.wait 毫秒，仍然超过则快速失败，不会重试。<br>
+ * 异步调用在请求发出后就释放并发。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension(value = "consumerConcurrents", order = -19000)
+@AutoActive(consumerSide = true)
+public class ConsumerConcurrentsFilter extends AbstractConcurrentsFilter {
+
+    /**
+     * 超过并发限制时的最长等待时间（毫秒）
+     */
+    private static final int WAIT_MILLIS = RpcConfigs.getIntValue(RpcOptions.CONSUMER_CONCURRENTS_WAIT);
+
+    @Override
+    public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+        String methodName = request.getMethodName();
+        MethodConcurrents methodConcurrents = getMethodConcurrents(methodName);
+        if (!methodConcurrents.tryAcquire(WAIT_MILLIS)) {
+            throw new SofaRpcException(RpcErrorType.CLIENT_FILTER, "Concurrents of "
+                + request.getInterfaceName() + "#" + methodName + " exceeds the limit: "
+                + methodConcurrents.getLimit());
+        }
+        try {
+            return invoker.invoke(request);
+        } finally {
+            methodConcurrents.release();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.exception.SofaTimeOutException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 正在调用中的请求，结果由第一个请求设置，其它相同的请求等待或者注册监听器
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class InFlightCall {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(InFlightCall.class);
+
+    /**
+     * 结果监听器
+     */
+    interface Listener {
+
+        /**
+         * 调用结束
+         *
+         * @param response  响应（复制的），异常时为空
+         * @param throwable 异常
+         */
+        void onComplete(SofaResponse response, Throwable throwable);
+    }
+
+    private final CountDownLatch  latch = new CountDownLatch(1);
+
+    /**
+     * 过期时间，超过以后还没有结果的不再合并
+     */
+    private final long            deadline;
+
+    private List<Listener>        listeners;
+
+    private boolean               done;
+
+    private volatile SofaResponse response;
+
+    private volatile Throwable    throwable;
+
+    /**
+     * 构造函数
+     *
+     * @param timeout 超时时间（毫秒）
+     */
+    InFlightCall(int timeout) {
+        this.deadline = System.currentTimeMillis() + timeout;
+    }
+
+    /**
+     * 是否已经超过超时时间
+     *
+     * @return 是否过期
+     */
+    boolean isExpired() {
+        return System.currentTimeMillis() > deadline;
+    }
+
+    /**
+     * 设置结果，只有第一次生效
+     *
+     * @param response  响应
+     * @param throwable 异常
+     * @return 是否生效
+     */
+    boolean complete(SofaResponse response, Throwable throwable) {
+        List<Listener> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.response = response;
+            this.throwable = throwable;
+            done = true;
+            toNotify = listeners;
+            listeners = null;
+        }
+        latch.countDown();
+        if (toNotify != null) {
+            for (Listener listener : toNotify) {
+                try {
+                    listener.onComplete(copy(response), throwable);
+                } catch (Throwable e) {
+                    LOGGER.error("Failed to notify the coalesced in-flight request", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 增加监听器，已经有结果的直接通知
+     *
+     * @param listener 监听器
+     */
+    void addListener(Listener listener) {
+        synchronized (this) {
+            if (!done) {
+                if (listeners == null) {
+                    listeners = new ArrayList<Listener>(4);
+                }
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.onComplete(copy(response), throwable);
+    }
+
+    /**
+     * 等待结果
+     *
+     * @param timeout 超时时间（毫秒）
+     * @return 响应（复制的）
+     */
+    SofaResponse await(int timeout) {
+        try {
+            if (!latch.await(timeout, TimeUnit.MILLISECONDS)) {
+                throw new SofaTimeOutException("Waiting for the same in-flight request timeout: " + timeout + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR, e);
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            throw new SofaRpcException(RpcErrorType.CLIENT_UNDECLARED_ERROR, throwable.getMessage(), throwable);
+        }
+        return copy(response);
+    }
+
+    /**
+     * 等待结果的超时时间：请求、方法、接口、全局默认值依次生效
+     *
+     * @param config  服务消费者配置
+     * @param request 请求
+     * @return 超时时间（毫秒）
+     */
+    static int getTimeout(ConsumerConfig config, SofaRequest request) {
+        Integer timeout = request.getTimeout();
+        if (timeout == null || timeout <= 0) {
+            timeout = config.getMethodTimeout(request.getMethodName());
+        }
+        return timeout > 0 ? timeout : RpcConfigs.getIntValue(RpcOptions.CONSUMER_INVOKE_TIMEOUT);
+    }
+
+    /**
+     * 复制一份，后面的过滤器可能会修改响应的属性
+     *
+     * @param response 响应
+     * @return 复制的响应
+     */
+    private static SofaResponse copy(SofaResponse response) {
+        if (response == null) {
+            return null;
+        }
+        SofaResponse copy = new SofaResponse();
+        copy.setAppResponse(response.getAppResponse());
+        if (response.isError()) {
+            copy.setErrorMsg(response.getErrorMsg());
+        }
+        if (response.getResponseProps() != null) {
+            copy.setResponseProps(new HashMap<String, String>(response.getResponseProps()));
+        }
+        return copy;
+    }
+}
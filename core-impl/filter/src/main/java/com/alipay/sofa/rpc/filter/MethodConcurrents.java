@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 方法级的并发计数器，全部无锁更新。<br>
+ * 限制小于等于0时只统计当前并发数和峰值，不做限制。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MethodConcurrents {
+
+    /**
+     * 排队时每次检查的最长间隔（纳秒）
+     */
+    private static final long   MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 最大并发数，动态配置变更时会修改
+     */
+    private volatile int        limit;
+
+    /**
+     * 当前并发数
+     */
+    private final AtomicInteger active         = new AtomicInteger();
+
+    /**
+     * 并发数峰值
+     */
+    private final AtomicInteger peak           = new AtomicInteger();
+
+    /**
+     * 被拒绝的次数
+     */
+    private final AtomicLong    rejected       = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param limit 最大并发数，小于等于0表示不限制
+     */
+    public MethodConcurrents(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 尝试占用一个并发，不等待
+     *
+     * @return 是否占用成功，成功后必须调用 {@link #release()}
+     */
+    public boolean tryAcquire() {
+        if (!tryIncrement()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 尝试占用一个并发，超过限制时最多等待一段时间
+     *
+     * @param waitMillis 最长等待时间（毫秒），小于等于0表示不等待
+     * @return 是否占用成功，成功后必须调用 {@link #release()}
+     */
+    public boolean tryAcquire(long waitMillis) {
+        if (tryIncrement()) {
+            return true;
+        }
+        if (waitMillis > 0) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            long park = TimeUnit.MICROSECONDS.toNanos(50);
+            for (;;) {
+                long remain = deadline - System.nanoTime();
+                if (remain <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(Math.min(park, remain));
+                if (tryIncrement()) {
+                    return true;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                // 退避，避免排队的线程一直空转
+                park = Math.min(park << 1, MAX_PARK_NANOS);
+            }
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 并发已经用满时直接拒绝，不占用并发
+     *
+     * @return 是否已经用满，用满时计入被拒绝次数
+     */
+    public boolean rejectIfExhausted() {
+        int currentLimit = limit;
+        if (currentLimit > 0 && active.get() >= currentLimit) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean tryIncrement() {
+        int current = active.incrementAndGet();
+        int currentLimit = limit;
+        if (currentLimit > 0 && current > currentLimit) {
+            active.decrementAndGet();
+            return false;
+        }
+        for (;;) {
+            int max = peak.get();
+            if (current <= max || peak.compareAndSet(max, current)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个并发
+     */
+    public void release() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * 最大并发数
+     *
+     * @return 最大并发数，小于等于0表示不限制
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 修改最大并发数，已经占用的并发不受影响
+     *
+     * @param limit 最大并发数，小于等于0表示不限制
+     */
+    void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 当前并发数
+     *
+     * @return 当前并发数
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * 并发数峰值
+     *
+     * @return 并发数峰值
+     */
+    public int getPeak() {
+        return peak.get();
+    }
+
+    /**
+     * 被拒绝的次数
+     *
+     * @return 被拒绝的次数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "MethodConcurrents{limit=" + limit + ", active=" + active.get() + ", peak=" + peak.get()
+            + ", rejected=" + rejected.get() + '}';
+    }
+}
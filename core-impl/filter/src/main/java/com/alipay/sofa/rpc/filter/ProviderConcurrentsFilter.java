@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.ext.Extension;
+import com.alipay.sofa.rpc.message.MessageBuilder;
+
+/**
+ * 服务端的方法级并发限制，超过 concurrents 时直接返回服务端繁忙，不占用业务线程执行，调用端可以重试其它节点。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension(value = "providerConcurrents", order = -19000)
+@AutoActive(providerSide = true)
+public class ProviderConcurrentsFilter extends AbstractConcurrentsFilter {
+
+    @Override
+    public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+        String methodName = request.getMethodName();
+        MethodConcurrents methodConcurrents = getMethodConcurrents(methodName);
+        if (!methodConcurrents.tryAcquire()) {
+            // 不抛异常，避免打印错误日志
+            SofaResponse response = MessageBuilder.buildSofaErrorResponse("Server is busy, concurrents of "
+                + request.getInterfaceName() + "#" + methodName + " exceeds the limit: "
+                + methodConcurrents.getLimit());
+            response.addResponseProp(RpcConstants.RESPONSE_PROP_ERROR_TYPE,
+                String.valueOf(RpcErrorType.SERVER_BUSY));
+            return response;
+        }
+        try {
+            return invoker.invoke(request);
+        } finally {
+            methodConcurrents.release();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.MethodConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConcurrentsFilterTest {
+
+    @Test
+    public void testNeedToLoad() {
+        ProviderConfig disabled = new ProviderConfig().setConcurrents(-1);
+        Assert.assertFalse(new ProviderConcurrentsFilter().needToLoad(new FilterInvoker(null, null, disabled)));
+
+        ProviderConfig unlimited = new ProviderConfig().setConcurrents(0);
+        Assert.assertTrue(new ProviderConcurrentsFilter().needToLoad(new FilterInvoker(null, null, unlimited)));
+
+        ProviderConfig methodLimited = new ProviderConfig().setConcurrents(-1);
+        methodLimited.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello")
+            .setConcurrents(1)));
+        Assert.assertTrue(new ProviderConcurrentsFilter().needToLoad(new FilterInvoker(null, null, methodLimited)));
+    }
+
+    @Test
+    public void testProviderConcurrents() throws Exception {
+        ProviderConfig config = new ProviderConfig().setConcurrents(1);
+        final BlockingInvoker blocking = new BlockingInvoker(config);
+        final ProviderConcurrentsFilter filter = new ProviderConcurrentsFilter();
+        Assert.assertTrue(filter.needToLoad(blocking));
+        final FilterInvoker invoker = new FilterInvoker(filter, blocking, config);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                invoker.invoke(buildRequest());
+            }
+        });
+        thread.start();
+        Assert.assertTrue(blocking.entered.await(3, TimeUnit.SECONDS));
+
+        SofaResponse response = invoker.invoke(buildRequest());
+        Assert.assertTrue(response.isError());
+        Assert.assertEquals(String.valueOf(RpcErrorType.SERVER_BUSY),
+            response.getResponseProp(RpcConstants.RESPONSE_PROP_ERROR_TYPE));
+
+        blocking.release.countDown();
+        thread.join(3000);
+        response = invoker.invoke(buildRequest());
+        Assert.assertFalse(response.isError());
+
+        MethodConcurrents concurrents = AbstractConcurrentsFilter.getConcurrents(config).get("sayHello");
+        Assert.assertEquals(1, concurrents.getLimit());
+        Assert.assertEquals(0, concurrents.getActive());
+        Assert.assertEquals(1, concurrents.getPeak());
+        Assert.assertEquals(1, concurrents.getRejected());
+    }
+
+    @Test
+    public void testDynamicLimit() {
+        ProviderConfig config = new ProviderConfig().setConcurrents(1);
+        final BlockingInvoker blocking = new BlockingInvoker(config);
+        ProviderConcurrentsFilter filter = new ProviderConcurrentsFilter();
+        Assert.assertTrue(filter.needToLoad(blocking));
+        blocking.release.countDown();
+        FilterInvoker invoker = new FilterInvoker(filter, blocking, config);
+        Assert.assertFalse(invoker.invoke(buildRequest()).isError());
+        MethodConcurrents concurrents = AbstractConcurrentsFilter.getConcurrents(config).get("sayHello");
+        Assert.assertEquals(1, concurrents.getLimit());
+
+        // 动态配置变更后重建配置缓存，下一次调用时刷新限制
+        config.setConcurrents(5);
+        config.getConfigValueCache(true);
+        Assert.assertFalse(invoker.invoke(buildRequest()).isError());
+        Assert.assertEquals(5, concurrents.getLimit());
+
+        // 方法级配置优先
+        config.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello").setConcurrents(2)));
+        config.getConfigValueCache(true);
+        Assert.assertFalse(AbstractConcurrentsFilter.isExhausted(config, "sayHello"));
+        Assert.assertEquals(2, concurrents.getLimit());
+    }
+
+    @Test
+    public void testIsExhausted() {
+        ProviderConfig config = new ProviderConfig().setConcurrents(1);
+        ProviderConcurrentsFilter filter = new ProviderConcurrentsFilter();
+        Assert.assertTrue(filter.needToLoad(new FilterInvoker(null, null, config)));
+        // 方法还没有调用过
+        Assert.assertFalse(AbstractConcurrentsFilter.isExhausted(config, "sayHello"));
+
+        MethodConcurrents concurrents = filter.getMethodConcurrents("sayHello");
+        Assert.assertTrue(concurrents.tryAcquire());
+        Assert.assertTrue(AbstractConcurrentsFilter.isExhausted(config, "sayHello"));
+        Assert.assertEquals(1, concurrents.getRejected());
+        concurrents.release();
+        Assert.assertFalse(AbstractConcurrentsFilter.isExhausted(config, "sayHello"));
+    }
+
+    @Test
+    public void testConsumerConcurrents() throws Exception {
+        ConsumerConfig config = new ConsumerConfig().setConcurrents(-1);
+        config.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello")
+            .setConcurrents(1)));
+        final BlockingInvoker blocking = new BlockingInvoker(config);
+        ConsumerConcurrentsFilter filter = new ConsumerConcurrentsFilter();
+        Assert.assertTrue(filter.needToLoad(blocking));
+        final FilterInvoker invoker = new FilterInvoker(filter, blocking, config);
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                invoker.invoke(buildRequest());
+            }
+        });
+        thread.start();
+        Assert.assertTrue(blocking.entered.await(3, TimeUnit.SECONDS));
+        try {
+            invoker.invoke(buildRequest());
+            Assert.fail();
+        } catch (SofaRpcException e) {
+            Assert.assertEquals(RpcErrorType.CLIENT_FILTER, e.getErrorType());
+        }
+        blocking.release.countDown();
+        thread.join(3000);
+        Assert.assertFalse(invoker.invoke(buildRequest()).isError());
+        Assert.assertEquals(1, AbstractConcurrentsFilter.getConcurrents(config).get("sayHello").getPeak());
+    }
+
+    @Test
+    public void testWait() throws Exception {
+        final MethodConcurrents concurrents = new MethodConcurrents(1);
+        Assert.assertTrue(concurrents.tryAcquire());
+        Assert.assertFalse(concurrents.tryAcquire());
+        Assert.assertFalse(concurrents.tryAcquire(10));
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignore) { // NOPMD
+                }
+                concurrents.release();
+            }
+        });
+        thread.start();
+        Assert.assertTrue(concurrents.tryAcquire(3000));
+        Assert.assertEquals(1, concurrents.getActive());
+        Assert.assertEquals(2, concurrents.getRejected());
+        concurrents.release();
+
+        MethodConcurrents unlimited = new MethodConcurrents(0);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(unlimited.tryAcquire());
+        }
+        Assert.assertEquals(5, unlimited.getPeak());
+    }
+
+    private static SofaRequest buildRequest() {
+        SofaRequest request = new SofaRequest();
+        request.setInterfaceName("com.alipay.sofa.rpc.test.HelloService");
+        request.setMethodName("sayHello");
+        return request;
+    }
+
+    private static class BlockingInvoker extends FilterInvoker {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private boolean              first   = true;
+
+        BlockingInvoker(AbstractInterfaceConfig config) {
+            super(config);
+        }
+
+        @Override
+        public SofaResponse invoke(SofaRequest request) {
+            boolean block;
+            synchronized (this) {
+                block = first;
+                first = false;
+            }
+            if (block) {
+                entered.countDown();
+                try {
+                    release.await(3, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) { // NOPMD
+                }
+            }
+            return new SofaResponse();
+        }
+    }
+}
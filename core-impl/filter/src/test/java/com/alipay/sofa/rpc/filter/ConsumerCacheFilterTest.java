@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.struct.TinyLfuCache;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.MethodConfig;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConsumerCacheFilterTest {
+
+    @Test
+    public void testNeedToLoad() {
+        Assert.assertFalse(new ConsumerCacheFilter().needToLoad(new FilterInvoker(null, null, new ConsumerConfig())));
+
+        ConsumerConfig config = new ConsumerConfig();
+        config.setCache(true);
+        Assert.assertTrue(new ConsumerCacheFilter().needToLoad(new FilterInvoker(null, null, config)));
+        Assert.assertTrue(config.getCacheRef() instanceof TinyLfuCache);
+    }
+
+    @Test
+    public void testCache() {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello").setCache(true)));
+        CountingInvoker counting = new CountingInvoker(config);
+        ConsumerCacheFilter filter = new ConsumerCacheFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        Assert.assertEquals("xxx", invoker.invoke(buildRequest("sayHello", "xxx")).getAppResponse());
+        Assert.assertEquals("xxx", invoker.invoke(buildRequest("sayHello", "xxx")).getAppResponse());
+        Assert.assertEquals(1, counting.count.get());
+        Assert.assertEquals("yyy", invoker.invoke(buildRequest("sayHello", "yyy")).getAppResponse());
+        Assert.assertEquals(2, counting.count.get());
+
+        // 没有开启缓存的方法
+        invoker.invoke(buildRequest("echo", "xxx"));
+        invoker.invoke(buildRequest("echo", "xxx"));
+        Assert.assertEquals(4, counting.count.get());
+
+        // 异步调用不缓存
+        invoker.invoke(buildRequest("sayHello", "xxx").setInvokeType(RpcConstants.INVOKER_TYPE_FUTURE));
+        Assert.assertEquals(5, counting.count.get());
+
+        TinyLfuCache cache = (TinyLfuCache) config.getCacheRef();
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setCache(true);
+        final CountingInvoker counting = new CountingInvoker(config);
+        counting.release = new CountDownLatch(1);
+        final ConsumerCacheFilter filter = new ConsumerCacheFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        final FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        int threads = 5;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger success = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if ("xxx".equals(invoker.invoke(buildRequest("sayHello", "xxx")).getAppResponse())) {
+                            success.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long deadline = System.currentTimeMillis() + 3000;
+        while (filter.getCoalescedCount() < threads - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        counting.release.countDown();
+        Assert.assertTrue(done.await(3, TimeUnit.SECONDS));
+        Assert.assertEquals(threads, success.get());
+        Assert.assertEquals(1, counting.count.get());
+        Assert.assertEquals(threads - 1, filter.getCoalescedCount());
+    }
+
+    private static SofaRequest buildRequest(String methodName, String arg) {
+        SofaRequest request = new SofaRequest();
+        request.setInterfaceName("com.alipay.sofa.rpc.test.HelloService");
+        request.setMethodName(methodName);
+        request.setMethodArgs(new Object[] { arg });
+        request.setInvokeType(RpcConstants.INVOKER_TYPE_SYNC);
+        return request;
+    }
+
+    private static class CountingInvoker extends FilterInvoker {
+
+        private final AtomicInteger     count = new AtomicInteger();
+
+        private volatile CountDownLatch release;
+
+        CountingInvoker(AbstractInterfaceConfig config) {
+            super(config);
+        }
+
+        @Override
+        public SofaResponse invoke(SofaRequest request) {
+            count.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(3, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) { // NOPMD
+                }
+            }
+            SofaResponse response = new SofaResponse();
+            response.setAppResponse(request.getMethodArgs()[0]);
+            return response;
+        }
+    }
+}
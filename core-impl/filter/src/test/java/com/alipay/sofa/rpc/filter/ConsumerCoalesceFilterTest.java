@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.filter;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.struct.KeyGenerator;
+import com.alipay.sofa.rpc.config.AbstractInterfaceConfig;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.MethodConfig;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+import com.alipay.sofa.rpc.core.request.RequestBase;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.message.ResponseFuture;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConsumerCoalesceFilterTest {
+
+    @After
+    public void tearDown() {
+        RpcInternalContext.removeAllContext();
+    }
+
+    @Test
+    public void testNeedToLoad() {
+        Assert.assertFalse(new ConsumerCoalesceFilter().needToLoad(new FilterInvoker(null, null,
+            new ConsumerConfig())));
+
+        ConsumerConfig config = new ConsumerConfig();
+        config.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello").setCoalesce(true)));
+        Assert.assertTrue(config.hasCoalesce());
+        Assert.assertTrue(new ConsumerCoalesceFilter().needToLoad(new FilterInvoker(null, null, config)));
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setCoalesce(true);
+        final CountingInvoker counting = new CountingInvoker(config);
+        counting.release = new CountDownLatch(1);
+        final ConsumerCoalesceFilter filter = new ConsumerCoalesceFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        final FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        int threads = 5;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger success = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if ("xxx".equals(invoker.invoke(buildRequest("sayHello", "xxx",
+                            RpcConstants.INVOKER_TYPE_SYNC)).getAppResponse())) {
+                            success.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        long deadline = System.currentTimeMillis() + 3000;
+        while (filter.getCoalescedCount() < threads - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        counting.release.countDown();
+        Assert.assertTrue(done.await(3, TimeUnit.SECONDS));
+        Assert.assertEquals(threads, success.get());
+        Assert.assertEquals(1, counting.count.get());
+        Assert.assertEquals(threads - 1, ConsumerCoalesceFilter.getCoalescedCount(config));
+
+        // 调用结束以后不再合并
+        counting.release = null;
+        invoker.invoke(buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_SYNC));
+        Assert.assertEquals(2, counting.count.get());
+    }
+
+    @Test
+    public void testFutureAndCallback() throws Exception {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setMethods(Collections.singletonList(new MethodConfig().setName("sayHello").setCoalesce(true)));
+        CountingInvoker counting = new CountingInvoker(config);
+        ConsumerCoalesceFilter filter = new ConsumerCoalesceFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        SofaRequest leader = buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_FUTURE);
+        invoker.invoke(leader);
+        RpcInternalContext.getContext().setFuture(null);
+        invoker.invoke(buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_FUTURE));
+        ResponseFuture future = RpcInternalContext.getContext().getFuture();
+        Assert.assertTrue(future instanceof CoalescedResponseFuture);
+        RecordingCallback callback = new RecordingCallback();
+        SofaRequest callbackRequest = buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_CALLBACK);
+        callbackRequest.setSofaResponseCallback(callback);
+        invoker.invoke(callbackRequest);
+        Assert.assertEquals(1, counting.count.get());
+        Assert.assertEquals(2, filter.getCoalescedCount());
+        Assert.assertFalse(future.isDone());
+
+        SofaResponse response = new SofaResponse();
+        response.setAppResponse("xxx");
+        filter.onAsyncResponse(config, leader, response, null);
+        Assert.assertEquals("xxx", future.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals("xxx", callback.result.get());
+
+        // 未开启合并的方法
+        invoker.invoke(buildRequest("echo", "xxx", RpcConstants.INVOKER_TYPE_FUTURE));
+        invoker.invoke(buildRequest("echo", "xxx", RpcConstants.INVOKER_TYPE_FUTURE));
+        Assert.assertEquals(3, counting.count.get());
+
+        // 异常
+        leader = buildRequest("sayHello", "yyy", RpcConstants.INVOKER_TYPE_FUTURE);
+        invoker.invoke(leader);
+        callback = new RecordingCallback();
+        callbackRequest = buildRequest("sayHello", "yyy", RpcConstants.INVOKER_TYPE_CALLBACK);
+        callbackRequest.setSofaResponseCallback(callback);
+        invoker.invoke(callbackRequest);
+        filter.onAsyncResponse(config, leader, null, new RuntimeException("error"));
+        Assert.assertTrue(callback.result.get() instanceof SofaRpcException);
+        Assert.assertEquals(4, counting.count.get());
+    }
+
+    @Test
+    public void testKeyGenerator() {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setCoalesce(true);
+        config.setCoalesceKeyRef(new KeyGenerator() {
+            @Override
+            public Object buildKey(String interfaceId, String methodName, String[] argSigs, Object[] args) {
+                return "yyy".equals(args[0]) ? null : methodName;
+            }
+        });
+        CountingInvoker counting = new CountingInvoker(config);
+        ConsumerCoalesceFilter filter = new ConsumerCoalesceFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        SofaRequest leader = buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_FUTURE);
+        invoker.invoke(leader);
+        // 关键字只有方法名
+        invoker.invoke(buildRequest("sayHello", "zzz", RpcConstants.INVOKER_TYPE_FUTURE));
+        Assert.assertEquals(1, counting.count.get());
+        // 关键字为空不合并
+        invoker.invoke(buildRequest("sayHello", "yyy", RpcConstants.INVOKER_TYPE_FUTURE));
+        Assert.assertEquals(2, counting.count.get());
+        Assert.assertEquals(1, filter.getCoalescedCount());
+    }
+
+    @Test
+    public void testOverload() {
+        ConsumerConfig config = new ConsumerConfig();
+        config.setCoalesce(true);
+        CountingInvoker counting = new CountingInvoker(config);
+        ConsumerCoalesceFilter filter = new ConsumerCoalesceFilter();
+        Assert.assertTrue(filter.needToLoad(counting));
+        FilterInvoker invoker = new FilterInvoker(filter, counting, config);
+
+        SofaRequest leader = buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_FUTURE);
+        leader.setMethodArgSigs(new String[] { "java.lang.String" });
+        invoker.invoke(leader);
+        // 参数值相同，参数类型不同的重载方法不合并
+        SofaRequest overload = buildRequest("sayHello", "xxx", RpcConstants.INVOKER_TYPE_FUTURE);
+        overload.setMethodArgSigs(new String[] { "java.lang.Object" });
+        invoker.invoke(overload);
+        Assert.assertEquals(2, counting.count.get());
+        Assert.assertEquals(0, filter.getCoalescedCount());
+    }
+
+    private static SofaRequest buildRequest(String methodName, String arg, String invokeType) {
+        SofaRequest request = new SofaRequest();
+        request.setInterfaceName("com.alipay.sofa.rpc.test.HelloService");
+        request.setMethodName(methodName);
+        request.setMethodArgs(new Object[] { arg });
+        request.setInvokeType(invokeType);
+        return request;
+    }
+
+    private static class RecordingCallback implements SofaResponseCallback {
+
+        private final AtomicReference<Object> result = new AtomicReference<Object>();
+
+        @Override
+        public void onAppResponse(Object appResponse, String methodName, RequestBase request) {
+            result.set(appResponse);
+        }
+
+        @Override
+        public void onAppException(Throwable throwable, String methodName, RequestBase request) {
+            result.set(throwable);
+        }
+
+        @Override
+        public void onSofaException(SofaRpcException sofaException, String methodName, RequestBase request) {
+            result.set(sofaException);
+        }
+    }
+
+    private static class CountingInvoker extends FilterInvoker {
+
+        private final AtomicInteger     count = new AtomicInteger();
+
+        private volatile CountDownLatch release;
+
+        CountingInvoker(AbstractInterfaceConfig config) {
+            super(config);
+        }
+
+        @Override
+        public SofaResponse invoke(SofaRequest request) {
+            count.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(3, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) { // NOPMD
+                }
+            }
+            SofaResponse response = new SofaResponse();
+            if (RpcConstants.INVOKER_TYPE_SYNC.equals(request.getInvokeType())) {
+                response.setAppResponse(request.getMethodArgs()[0]);
+            }
+            return response;
+        }
+    }
+}
@@ -56,14 +56,24 @@ public class JavassistProxy implements Proxy {
     /**
      * Logger for this class
      */
-    private static final Logger              LOGGER          = LoggerFactory.getLogger(JavassistProxy.class);
+    private static final Logger              LOGGER                = LoggerFactory.getLogger(JavassistProxy.class);
 
-    private static AtomicInteger             counter         = new AtomicInteger();
+    private static AtomicInteger             counter               = new AtomicInteger();
 
     /**
      * 原始类和代理类的映射
      */
-    protected final static Map<Class, Class> PROXY_CLASS_MAP = new ConcurrentHashMap<Class, Class>();
+    protected final static Map<Class, Class> PROXY_CLASS_MAP       = new ConcurrentHashMap<Class, Class>();
+
+    /**
+     * 代理类中保存方法对象的静态字段前缀
+     */
+    private static final String              METHOD_FIELD_PREFIX   = "sofaMethod";
+
+    /**
+     * 代理类中保存参数签名的静态字段前缀
+     */
+    private static final String              ARG_SIGS_FIELD_PREFIX = "sofaArgSigs";
 
     @Override
     @SuppressWarnings("unchecked")
@@ -95,7 +105,14 @@ public class JavassistProxy implements Proxy {
                 if (LOGGER.isDebugEnabled()) {
                     sb = new StringBuilder();
                 }
-                List<String> methodList = createMethod(interfaceClass);
+                List<Method> proxyMethods = new ArrayList<Method>();
+                List<String> methodList = createMethod(interfaceClass, proxyMethods);
+                for (int i = 0; i < proxyMethods.size(); i++) {
+                    mCtc.addField(CtField.make("public static " + Method.class.getName() + " " +
+                        METHOD_FIELD_PREFIX + i + " = null;", mCtc));
+                    mCtc.addField(CtField.make("public static String[] " + ARG_SIGS_FIELD_PREFIX + i + " = null;",
+                        mCtc));
+                }
                 for (String methodStr : methodList) {
                     mCtc.addMethod(CtMethod.make(methodStr, mCtc));
                     if (LOGGER.isDebugEnabled()) {
@@ -107,6 +124,16 @@ public class JavassistProxy implements Proxy {
                         sb != null ? sb.toString() : "");
                 }
                 clazz = mCtc.toClass();
+                // 预先计算好每个方法的参数签名，调用时不再重复生成
+                for (int i = 0; i < proxyMethods.size(); i++) {
+                    Method method = proxyMethods.get(i);
+                    String[] argSigs = ClassTypeUtils.getTypeStrs(method.getParameterTypes(), true);
+                    for (int j = 0; j < argSigs.length; j++) {
+                        argSigs[j] = argSigs[j].intern();
+                    }
+                    clazz.getField(METHOD_FIELD_PREFIX + i).set(null, method);
+                    clazz.getField(ARG_SIGS_FIELD_PREFIX + i).set(null, argSigs);
+                }
                 PROXY_CLASS_MAP.put(interfaceClass, clazz);
             }
             Object instance = clazz.newInstance();
@@ -117,7 +144,7 @@ public class JavassistProxy implements Proxy {
         }
     }
 
-    private List<String> createMethod(Class<?> interfaceClass) {
+    private List<String> createMethod(Class<?> interfaceClass, List<Method> proxyMethods) {
         Method[] methodAry = interfaceClass.getMethods();
         StringBuilder sb = new StringBuilder(512);
         List<String> resultList = new ArrayList<String>();
@@ -125,6 +152,8 @@ public class JavassistProxy implements Proxy {
             if (Modifier.isNative(m.getModifiers()) || Modifier.isFinal(m.getModifiers())) {
                 continue;
             }
+            int index = proxyMethods.size();
+            proxyMethods.add(m);
             Class<?>[] mType = m.getParameterTypes();
             Class<?> returnType = m.getReturnType();
 
@@ -148,18 +177,15 @@ public class JavassistProxy implements Proxy {
             }
             sb.append("{");
 
-            sb.append(" Class clazz = " + interfaceClass.getCanonicalName() + ".class;");
-            sb.append(" String methodName = \"" + m.getName() + "\";");
-            sb.append(" Class[] paramTypes = new Class[" + c + "];");
             sb.append(" Object[] paramValues = new Object[" + c + "];");
             for (int i = 0; i < c; i++) {
                 sb.append("paramValues[" + i + "] = ($w)$" + (i + 1) + ";");
-                sb.append("paramTypes[" + i + "] = " + mType[i].getCanonicalName() + ".class;");
             }
 
             sb.append(SofaRequest.class.getCanonicalName() + " request = " +
                 MessageBuilder.class.getCanonicalName() +
-                ".buildSofaRequest(clazz, methodName, paramTypes, paramValues);");
+                ".buildSofaRequest(\"" + interfaceClass.getName() + "\", " + METHOD_FIELD_PREFIX + index + ", " +
+                ARG_SIGS_FIELD_PREFIX + index + ", paramValues);");
             sb.append(SofaResponse.class.getCanonicalName() + " response = " +
                 "proxyInvoker.invoke(request);");
             sb.append("if(response.isError()){");
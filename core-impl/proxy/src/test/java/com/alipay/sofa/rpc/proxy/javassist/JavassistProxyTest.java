@@ -16,6 +16,10 @@
  */
 package com.alipay.sofa.rpc.proxy.javassist;
 
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.invoke.Invoker;
 import com.alipay.sofa.rpc.proxy.AbstractTestClass;
 import com.alipay.sofa.rpc.proxy.TestInterface;
 import com.alipay.sofa.rpc.proxy.TestInvoker;
@@ -23,6 +27,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -62,4 +68,36 @@ public class JavassistProxyTest {
         Assert.assertEquals(testInterface, another1);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void buildRequest() throws Exception {
+        final List<SofaRequest> requests = new ArrayList<SofaRequest>();
+        Invoker invoker = new Invoker() {
+            @Override
+            public SofaResponse invoke(SofaRequest request) throws SofaRpcException {
+                requests.add(request);
+                SofaResponse response = new SofaResponse();
+                response.setAppResponse("hello");
+                return response;
+            }
+        };
+        TestInterface testInterface = new JavassistProxy().getProxy(TestInterface.class, invoker);
+        Assert.assertEquals("hello", testInterface.sayHello("xxx"));
+        Assert.assertEquals("hello", testInterface.sayHello("yyy"));
+        testInterface.sayNoting();
+
+        SofaRequest request = requests.get(0);
+        Assert.assertEquals(TestInterface.class.getName(), request.getInterfaceName());
+        Assert.assertEquals("sayHello", request.getMethodName());
+        Assert.assertEquals(TestInterface.class.getMethod("sayHello", String.class), request.getMethod());
+        Assert.assertArrayEquals(new String[] { "java.lang.String" }, request.getMethodArgSigs());
+        Assert.assertArrayEquals(new Object[] { "xxx" }, request.getMethodArgs());
+        // 参数签名是预先计算好的
+        Assert.assertSame(request.getMethodArgSigs(), requests.get(1).getMethodArgSigs());
+        Assert.assertArrayEquals(new Object[] { "yyy" }, requests.get(1).getMethodArgs());
+
+        request = requests.get(2);
+        Assert.assertEquals("sayNoting", request.getMethodName());
+        Assert.assertEquals(0, request.getMethodArgSigs().length);
+        Assert.assertEquals(0, request.getMethodArgs().length);
+    }
+}
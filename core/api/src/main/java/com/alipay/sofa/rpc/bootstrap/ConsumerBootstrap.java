@@ -16,6 +16,7 @@
  */
 package com.alipay.sofa.rpc.bootstrap;
 
+import com.alipay.sofa.rpc.client.BatchResult;
 import com.alipay.sofa.rpc.client.Cluster;
 import com.alipay.sofa.rpc.client.ProviderGroup;
 import com.alipay.sofa.rpc.config.ConsumerConfig;
@@ -93,4 +94,16 @@ public abstract class ConsumerBootstrap<T> {
      * @return 是否订阅完毕
      */
     public abstract boolean isSubscribed();
+
+    /**
+     * 批量调用同一个方法，每组参数一个请求，全部异步发出后统一等待结果
+     *
+     * @param methodName 方法名
+     * @param argTypes   方法参数类型
+     * @param argsList   每个请求的方法参数
+     * @return 和参数顺序相同的调用结果
+     */
+    public BatchResult invokeBatch(String methodName, String[] argTypes, List<Object[]> argsList) {
+        throw new UnsupportedOperationException("Batch invoke is not supported by " + getClass().getName());
+    }
 }
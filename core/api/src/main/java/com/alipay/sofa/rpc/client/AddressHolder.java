@@ -45,7 +45,7 @@ public abstract class AddressHolder implements ProviderInfoListener {
     }
 
     /**
-     * 得到某分组的服务列表，注意获取的地址列表最好是只读，不要随便修改
+     * 得到某分组的服务列表，注意获取的地址列表可能是只读的快照，需要修改时请复制一份
      *
      * @param groupName 服务列表的标签
      * @return 当前分组下的服务列表
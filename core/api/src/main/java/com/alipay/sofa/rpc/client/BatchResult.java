@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 广播或者批量调用的结果，和发起的调用一一对应、顺序相同。<br>
+ * 每个调用要么有返回值（可能为null），要么有异常；截止时间到了还没有返回的调用为超时异常。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see RpcConstants#BATCH_POLICY_ALL
+ */
+public class BatchResult {
+
+    /**
+     * 每个调用的服务提供者
+     */
+    private final List<ProviderInfo> providerInfos;
+
+    /**
+     * 每个调用的返回值，失败的为null
+     */
+    private final List<Object>       results;
+
+    /**
+     * 每个调用的异常，成功的为null
+     */
+    private final List<Throwable>    exceptions;
+
+    /**
+     * 构造函数
+     *
+     * @param providerInfos 每个调用的服务提供者
+     * @param results       每个调用的返回值，失败的为null
+     * @param exceptions    每个调用的异常，成功的为null
+     */
+    public BatchResult(List<ProviderInfo> providerInfos, List<Object> results, List<Throwable> exceptions) {
+        if (providerInfos.size() != results.size() || results.size() != exceptions.size()) {
+            throw new IllegalArgumentException("Size of batch results are not equal");
+        }
+        this.providerInfos = Collections.unmodifiableList(new ArrayList<ProviderInfo>(providerInfos));
+        this.results = Collections.unmodifiableList(new ArrayList<Object>(results));
+        this.exceptions = Collections.unmodifiableList(new ArrayList<Throwable>(exceptions));
+    }
+
+    /**
+     * 调用个数
+     *
+     * @return 调用个数
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * 第index个调用的服务提供者
+     *
+     * @param index 序号
+     * @return 服务提供者
+     */
+    public ProviderInfo getProviderInfo(int index) {
+        return providerInfos.get(index);
+    }
+
+    /**
+     * 第index个调用是否成功
+     *
+     * @param index 序号
+     * @return 是否成功
+     */
+    public boolean isSuccess(int index) {
+        return exceptions.get(index) == null;
+    }
+
+    /**
+     * 第index个调用的返回值
+     *
+     * @param index 序号
+     * @return 返回值，失败时为null
+     */
+    public Object getResult(int index) {
+        return results.get(index);
+    }
+
+    /**
+     * 第index个调用的异常
+     *
+     * @param index 序号
+     * @return 异常，成功时为null
+     */
+    public Throwable getException(int index) {
+        return exceptions.get(index);
+    }
+
+    /**
+     * 全部调用的返回值，失败的为null
+     *
+     * @return 返回值列表
+     */
+    public List<Object> getResults() {
+        return results;
+    }
+
+    /**
+     * 成功的调用个数
+     *
+     * @return 成功个数
+     */
+    public int getSuccessCount() {
+        int count = 0;
+        for (Throwable exception : exceptions) {
+            if (exception == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 失败的调用个数
+     *
+     * @return 失败个数
+     */
+    public int getFailureCount() {
+        return size() - getSuccessCount();
+    }
+
+    /**
+     * 按部分失败策略检查结果
+     *
+     * @param policy 部分失败策略，为空等同于 {@link RpcConstants#BATCH_POLICY_ALL}
+     * @return 不满足策略时返回第一个异常，满足策略时返回null
+     */
+    public Throwable getFailure(String policy) {
+        if (RpcConstants.BATCH_POLICY_IGNORE.equals(policy)) {
+            return null;
+        }
+        Throwable first = null;
+        for (Throwable exception : exceptions) {
+            if (exception == null) {
+                if (RpcConstants.BATCH_POLICY_ANY.equals(policy)) {
+                    return null;
+                }
+            } else if (first == null) {
+                first = exception;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{size=" + size() + ", success=" + getSuccessCount() + "}";
+    }
+}
@@ -17,17 +17,23 @@
 package com.alipay.sofa.rpc.client;
 
 import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
+import com.alipay.sofa.rpc.common.utils.ClassTypeUtils;
 import com.alipay.sofa.rpc.config.ConsumerConfig;
 import com.alipay.sofa.rpc.context.RpcInternalContext;
 import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.exception.SofaRpcRuntimeException;
 import com.alipay.sofa.rpc.core.request.SofaRequest;
 import com.alipay.sofa.rpc.core.response.SofaResponse;
 import com.alipay.sofa.rpc.event.ClientEndInvokeEvent;
 import com.alipay.sofa.rpc.event.ClientStartInvokeEvent;
 import com.alipay.sofa.rpc.event.EventBus;
 import com.alipay.sofa.rpc.invoke.Invoker;
+import com.alipay.sofa.rpc.message.MessageBuilder;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 客户端引用代理Invoker，一个引用一个。线程安全
@@ -99,6 +105,112 @@ public class ClientProxyInvoker implements Invoker {
         }
     }
 
+    /**
+     * 批量调用同一个方法，每组参数一个请求，全部异步发出后统一等待结果，按部分失败策略判断是否抛出异常
+     *
+     * @param methodName 方法名
+     * @param argTypes   方法参数类型
+     * @param argsList   每个请求的方法参数
+     * @return 和参数顺序相同的调用结果
+     * @throws SofaRpcException 不满足部分失败策略时抛出第一个RPC异常
+     */
+    public BatchResult invokeBatch(String methodName, String[] argTypes, List<Object[]> argsList)
+        throws SofaRpcException {
+        Class<?> proxyClass = consumerConfig.getProxyClass();
+        Class[] classes = ClassTypeUtils.getClasses(argTypes);
+        Method method;
+        try {
+            method = proxyClass.getMethod(methodName, classes);
+        } catch (NoSuchMethodException e) {
+            throw new SofaRpcRuntimeException("Method " + methodName + " is not found in " + proxyClass.getName(), e);
+        }
+        String[] argSigs = ClassTypeUtils.getTypeStrs(classes, true);
+        List<SofaRequest> requests = new ArrayList<SofaRequest>(argsList.size());
+        for (Object[] args : argsList) {
+            requests.add(MessageBuilder.buildSofaRequest(proxyClass.getName(), method, argSigs, args));
+        }
+        return invokeBatch(requests);
+    }
+
+    /**
+     * 批量调用，全部异步发出后统一等待结果，按部分失败策略判断是否抛出异常。<br>
+     * 和广播调用一样，业务异常算调用结果而不是RPC异常，不会抛出，需要通过 {@link BatchResult#getException(int)} 获取
+     *
+     * @param requests 请求
+     * @return 和请求顺序相同的调用结果
+     * @throws SofaRpcException 不满足部分失败策略时抛出第一个RPC异常
+     */
+    public BatchResult invokeBatch(List<SofaRequest> requests) throws SofaRpcException {
+        BatchResult result = null;
+        SofaRpcException throwable = null;
+        try {
+            RpcInternalContext.pushContext();
+            RpcInternalContext context = RpcInternalContext.getContext();
+            context.setProviderSide(false);
+            // 包装请求，调用级别的超时时间只会设置到第一个请求上，作为整个批量调用的超时时间
+            Integer timeout = null;
+            for (SofaRequest request : requests) {
+                decorateRequest(request);
+                if (timeout == null) {
+                    timeout = request.getTimeout();
+                }
+            }
+            if (timeout == null) {
+                timeout = requests.isEmpty() ? 0 : consumerConfig.getMethodTimeout(requests.get(0).getMethodName());
+            }
+            try {
+                // 产生开始调用事件
+                if (EventBus.isEnable(ClientStartInvokeEvent.class)) {
+                    for (SofaRequest request : requests) {
+                        EventBus.post(new ClientStartInvokeEvent(request));
+                    }
+                }
+                // 得到结果
+                result = cluster.invokeBatch(requests, timeout);
+            } catch (SofaRpcException e) {
+                throwable = e;
+                throw e;
+            } finally {
+                // 产生调用结束事件
+                if (EventBus.isEnable(ClientEndInvokeEvent.class)) {
+                    postEndInvokeEvents(requests, result, throwable);
+                }
+            }
+            Throwable failure = result.getFailure(consumerConfig.getBatchPolicy());
+            if (failure instanceof SofaRpcException) {
+                throw (SofaRpcException) failure;
+            }
+            return result;
+        } finally {
+            RpcInternalContext.removeContext();
+            RpcInternalContext.popContext();
+        }
+    }
+
+    /**
+     * 每个请求产生一个调用结束事件，业务异常和 {@link #invoke(SofaRequest)} 一样放在响应里
+     *
+     * @param requests  请求
+     * @param result    调用结果，整体失败时为null
+     * @param throwable 整体失败时的异常
+     */
+    private void postEndInvokeEvents(List<SofaRequest> requests, BatchResult result, Throwable throwable) {
+        for (int i = 0; i < requests.size(); i++) {
+            SofaResponse response = null;
+            Throwable exception = throwable;
+            if (result != null) {
+                Throwable e = result.getException(i);
+                if (e instanceof SofaRpcException) {
+                    exception = e;
+                } else {
+                    response = new SofaResponse();
+                    response.setAppResponse(e == null ? result.getResult(i) : e);
+                }
+            }
+            EventBus.post(new ClientEndInvokeEvent(requests.get(i), response, exception));
+        }
+    }
+
     /**
      * 包装请求
      *
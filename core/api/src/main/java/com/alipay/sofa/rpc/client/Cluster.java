@@ -29,6 +29,7 @@ import com.alipay.sofa.rpc.invoke.Invoker;
 import com.alipay.sofa.rpc.listener.ProviderInfoListener;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
 
 /**
  * 客户端，封装了集群模式、长连接管理、服务路由、负载均衡等抽象类
@@ -69,6 +70,18 @@ public abstract class Cluster implements Invoker, ProviderInfoListener, Initiali
      */
     public abstract SofaResponse sendMsg(ProviderInfo providerInfo, SofaRequest request) throws SofaRpcException;
 
+    /**
+     * 批量调用：每个请求各自负载均衡选择服务提供者，全部异步发出后统一等待结果
+     *
+     * @param requests 请求，已经包装好
+     * @param timeout  整个批量调用的超时时间（毫秒）
+     * @return 和请求顺序相同的调用结果
+     * @throws SofaRpcException RPC异常，例如没有可用的服务提供者
+     */
+    public BatchResult invokeBatch(List<SofaRequest> requests, int timeout) throws SofaRpcException {
+        throw new UnsupportedOperationException("Batch invoke is not supported by " + getClass().getName());
+    }
+
     /**
      * 是否可用
      *
@@ -63,6 +63,16 @@ public abstract class LoadBalancer {
         return consumerConfig;
     }
 
+    /**
+     * 选择时是否需要服务提供者的调用统计（并发数、响应时间），需要时集群才在调用前后统计
+     *
+     * @return 是否需要调用统计
+     * @see ProviderInfo#getInvokeStats()
+     */
+    public boolean isInvokeStatsRequired() {
+        return false;
+    }
+
     /**
      * 选择服务
      *
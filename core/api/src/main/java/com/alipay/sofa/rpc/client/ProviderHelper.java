@@ -17,6 +17,7 @@
 package com.alipay.sofa.rpc.client;
 
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
+import com.alipay.sofa.rpc.common.utils.StringUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -149,6 +150,36 @@ public class ProviderHelper {
         return map;
     }
 
+    /**
+     * 服务提供者上线时，按它的启动时间和预热时长（静态属性warmupTime）判断是否还需要预热；
+     * 需要的话进入预热状态，预热期间权重从预热权重（静态属性warmupWeight，默认为0）线性增加到原始权重
+     *
+     * @param providerInfo 服务提供者
+     * @return 是否进入预热状态
+     */
+    public static boolean initWarmup(ProviderInfo providerInfo) {
+        int warmupTime = CommonUtils.parseInt(providerInfo.getStaticAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME), 0);
+        if (warmupTime <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        // 启动时间是服务端的时钟，不能晚于本地当前时间
+        long startTime = Math.min(CommonUtils.parseLong(
+            providerInfo.getStaticAttr(ProviderInfoAttrs.ATTR_START_TIME), now), now);
+        long endTime = startTime + warmupTime;
+        if (endTime <= now) {
+            return false;
+        }
+        String warmupWeight = providerInfo.getStaticAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT);
+        if (StringUtils.isNotEmpty(warmupWeight)) {
+            providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT, CommonUtils.parseInt(warmupWeight, 0));
+        }
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME, warmupTime);
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, endTime);
+        providerInfo.setStatus(ProviderStatus.WARMING_UP);
+        return true;
+    }
+
     /**
      * Is empty boolean.
      *
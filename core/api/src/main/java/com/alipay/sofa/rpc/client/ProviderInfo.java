@@ -24,6 +24,7 @@ import com.alipay.sofa.rpc.common.utils.StringUtils;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 抽象的服务提供列表
@@ -35,6 +36,12 @@ public class ProviderInfo implements Serializable {
 
     private static final long                                 serialVersionUID = -6438690329875954051L;
 
+    /**
+     * 全局的权重版本号，任一服务提供者的权重或者状态发生变化时递增，负载均衡据此 O(1) 判断预计算的权重表是否过期。<br>
+     * 权重变化（容错降级恢复、预热结束等）很少发生，不区分服务提供者，变化后各负载均衡各自重建一次即可
+     */
+    private static final AtomicLong                           WEIGHT_VERSION   = new AtomicLong();
+
     /**
      * 原始地址
      */
@@ -84,6 +91,26 @@ public class ProviderInfo implements Serializable {
      */
     private transient volatile ProviderStatus                 status           = ProviderStatus.AVAILABLE;
 
+    /**
+     * 预热时长，预热期间权重随时间线性增加，缓存自动态属性 {@link ProviderInfoAttrs#ATTR_WARMUP_TIME}
+     */
+    private transient volatile int                            warmupTime;
+
+    /**
+     * 预热开始时的权重，小于0表示未设置，缓存自动态属性 {@link ProviderInfoAttrs#ATTR_WARMUP_WEIGHT}
+     */
+    private transient volatile int                            warmupWeight     = -1;
+
+    /**
+     * 预热结束时间，缓存自动态属性 {@link ProviderInfoAttrs#ATTR_WARM_UP_END_TIME}
+     */
+    private transient volatile long                           warmupEndTime;
+
+    /**
+     * 调用统计，例如当前并发数和平均响应时间
+     */
+    private transient volatile ProviderInvokeStats            invokeStats;
+
     /**
      * 静态属性，不会变的
      */
@@ -410,16 +437,21 @@ public class ProviderInfo implements Serializable {
      * @return the weight
      */
     public int getWeight() {
-        ProviderStatus status = getStatus();
-        if (status == ProviderStatus.WARMING_UP) {
-            try {
-                // 还处于预热时间中
-                Integer warmUpWeight = (Integer) getDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT);
-                if (warmUpWeight != null) {
-                    return warmUpWeight;
-                }
-            } catch (Exception e) {
-                return weight;
+        long now = System.currentTimeMillis();
+        if (getStatus(now) == ProviderStatus.WARMING_UP) {
+            // 还处于预热时间中
+            int originWeight = weight;
+            int startWeight = warmupWeight;
+            int duration = warmupTime;
+            if (duration > 0) {
+                // 从预热权重（默认为0）线性增加到原始权重，至少保留1，保证有少量流量
+                startWeight = startWeight < 0 ? 0 : Math.min(startWeight, originWeight);
+                long elapsed = Math.max(duration - (warmupEndTime - now), 0);
+                int rampWeight = startWeight + (int) ((long) (originWeight - startWeight) * elapsed / duration);
+                return originWeight > 0 ? Math.max(rampWeight, 1) : rampWeight;
+            }
+            if (startWeight >= 0) {
+                return startWeight;
             }
         }
         return weight;
@@ -433,6 +465,7 @@ public class ProviderInfo implements Serializable {
      */
     public ProviderInfo setWeight(int weight) {
         this.weight = weight;
+        WEIGHT_VERSION.incrementAndGet();
         return this;
     }
 
@@ -462,11 +495,17 @@ public class ProviderInfo implements Serializable {
      * @return the status
      */
     public ProviderStatus getStatus() {
+        return getStatus(System.currentTimeMillis());
+    }
+
+    private ProviderStatus getStatus(long now) {
         if (status == ProviderStatus.WARMING_UP) {
-            if (System.currentTimeMillis() > (Long) getDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME)) {
+            long endTime = warmupEndTime;
+            if (endTime > 0 && now > endTime) {
                 // 如果已经过了预热时间，恢复为正常
                 status = ProviderStatus.AVAILABLE;
                 setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, null);
+                WEIGHT_VERSION.incrementAndGet();
             }
         }
         return status;
@@ -480,9 +519,56 @@ public class ProviderInfo implements Serializable {
      */
     public ProviderInfo setStatus(ProviderStatus status) {
         this.status = status;
+        WEIGHT_VERSION.incrementAndGet();
         return this;
     }
 
+    /**
+     * Gets warmup time, cached from dynamic attribute {@link ProviderInfoAttrs#ATTR_WARMUP_TIME}.
+     *
+     * @return the warmup time, 0 means not set
+     */
+    public int getWarmupTime() {
+        return warmupTime;
+    }
+
+    /**
+     * Gets warmup end time, cached from dynamic attribute {@link ProviderInfoAttrs#ATTR_WARM_UP_END_TIME}.
+     *
+     * @return the warmup end time, 0 means not set
+     */
+    public long getWarmupEndTime() {
+        return warmupEndTime;
+    }
+
+    /**
+     * Gets global weight version, it will be increased when weight or status of any provider changed.
+     *
+     * @return the global weight version
+     */
+    public static long getGlobalWeightVersion() {
+        return WEIGHT_VERSION.get();
+    }
+
+    /**
+     * Gets invoke stats.
+     *
+     * @return the invoke stats
+     */
+    public ProviderInvokeStats getInvokeStats() {
+        ProviderInvokeStats stats = invokeStats;
+        if (stats == null) {
+            synchronized (this) {
+                stats = invokeStats;
+                if (stats == null) {
+                    stats = new ProviderInvokeStats();
+                    invokeStats = stats;
+                }
+            }
+        }
+        return stats;
+    }
+
     /**
      * Gets static attribute.
      *
@@ -522,6 +608,7 @@ public class ProviderInfo implements Serializable {
     public ProviderInfo setDynamicAttrs(Map<String, Object> dynamicAttrs) {
         this.dynamicAttrs.clear();
         this.dynamicAttrs.putAll(dynamicAttrs);
+        cacheWarmupAttrs();
         return this;
     }
 
@@ -574,9 +661,27 @@ public class ProviderInfo implements Serializable {
         } else {
             dynamicAttrs.put(dynamicAttrKey, dynamicAttrValue);
         }
+        if (ProviderInfoAttrs.ATTR_WARMUP_TIME.equals(dynamicAttrKey)
+            || ProviderInfoAttrs.ATTR_WARMUP_WEIGHT.equals(dynamicAttrKey)
+            || ProviderInfoAttrs.ATTR_WARM_UP_END_TIME.equals(dynamicAttrKey)) {
+            cacheWarmupAttrs();
+        }
         return this;
     }
 
+    /**
+     * 预热相关的动态属性缓存到字段上，读取权重和状态时不用每次查询属性表
+     */
+    private void cacheWarmupAttrs() {
+        Object time = dynamicAttrs.get(ProviderInfoAttrs.ATTR_WARMUP_TIME);
+        Object weight = dynamicAttrs.get(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT);
+        Object endTime = dynamicAttrs.get(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME);
+        warmupTime = time instanceof Number ? ((Number) time).intValue() : 0;
+        warmupWeight = weight instanceof Number ? ((Number) weight).intValue() : -1;
+        warmupEndTime = endTime instanceof Number ? ((Number) endTime).longValue() : 0;
+        WEIGHT_VERSION.incrementAndGet();
+    }
+
     @Override
     public String toString() {
         return originUrl == null ? host + ":" + port : originUrl;
@@ -107,4 +107,9 @@ public final class ProviderInfoAttrs {
      */
     public static final String ATTR_RC_PERIOD_COEFFICIENT = "reconnectCoefficient";
 
+    /**
+     * 静态配置key:acceptCompress 服务端可以解压的压缩算法，多个用逗号分隔，没有的话调用方不压缩请求（直连时按调用方配置压缩）
+     */
+    public static final String ATTR_ACCEPT_COMPRESS       = "acceptCompress";
+
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 地址管理发布的只读服务列表快照，带版本号。<br>
+ * 同一个地址管理里每发布一次快照版本号加一，负载均衡可以按版本号 O(1) 判断预计算的结构是否还能复用；
+ * 路由过滤后的临时列表不是快照，没有版本号。<br>
+ * 快照不可修改，调用 add/remove/set 等方法会抛出 {@link UnsupportedOperationException}，需要修改时请先复制一份。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class ProviderInfoSnapshot extends AbstractList<ProviderInfo> implements RandomAccess {
+
+    /**
+     * 不是快照的列表的版本号
+     */
+    public static final long     NO_VERSION = -1;
+
+    /**
+     * 服务提供者
+     */
+    private final ProviderInfo[] providers;
+
+    /**
+     * 版本号
+     */
+    private final long           version;
+
+    /**
+     * 构造函数
+     *
+     * @param providerInfos 服务列表，会复制一份
+     * @param version       版本号，非负数
+     */
+    public ProviderInfoSnapshot(List<ProviderInfo> providerInfos, long version) {
+        this.providers = providerInfos.toArray(new ProviderInfo[providerInfos.size()]);
+        this.version = version;
+    }
+
+    @Override
+    public ProviderInfo get(int index) {
+        return providers[index];
+    }
+
+    @Override
+    public int size() {
+        return providers.length;
+    }
+
+    /**
+     * 得到快照的版本号
+     *
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 得到服务列表的快照版本号
+     *
+     * @param providerInfos 服务列表
+     * @return 快照的版本号，不是快照时返回 {@link #NO_VERSION}
+     */
+    public static long versionOf(List<ProviderInfo> providerInfos) {
+        return providerInfos instanceof ProviderInfoSnapshot ? ((ProviderInfoSnapshot) providerInfos).version
+            : NO_VERSION;
+    }
+}
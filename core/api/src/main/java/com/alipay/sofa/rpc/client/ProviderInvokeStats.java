@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.client;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务提供者的调用统计：当前并发数和峰值敏感的指数加权平均响应时间（Peak EWMA），全部无锁更新。<br>
+ * 由调用端在发送请求和收到响应时更新，供 leastActive、peakEwma 等负载均衡使用。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ProviderInvokeStats {
+
+    /**
+     * 响应时间的衰减周期（纳秒）
+     */
+    private static final double DECAY_NANOS = TimeUnit.MILLISECONDS.toNanos(RpcConfigs
+                                                .getIntValue(RpcOptions.CONSUMER_EWMA_DECAY_TIME));
+
+    /**
+     * 有请求在途但还没有任何响应时间时的代价，尽量不要把流量都打到新节点上
+     */
+    private static final double PENALTY     = Integer.MAX_VALUE;
+
+    /**
+     * 当前并发数
+     */
+    private final AtomicInteger active      = new AtomicInteger();
+
+    /**
+     * 指数加权平均响应时间（纳秒），存放double的二进制值
+     */
+    private final AtomicLong    ewma        = new AtomicLong(Double.doubleToLongBits(0d));
+
+    /**
+     * 最后一次更新响应时间的时间（纳秒）
+     */
+    private volatile long       stamp       = System.nanoTime();
+
+    /**
+     * 开始一次调用
+     *
+     * @return 开始时间（纳秒）
+     */
+    public long begin() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 结束一次调用
+     *
+     * @param start 开始时间（纳秒），{@link #begin()} 的返回值
+     */
+    public void end(long start) {
+        active.decrementAndGet();
+        long now = System.nanoTime();
+        double rtt = Math.max(now - start, 0);
+        long last = stamp;
+        double weight = Math.exp(-Math.max(now - last, 0) / DECAY_NANOS);
+        for (;;) {
+            long bits = ewma.get();
+            double old = Double.longBitsToDouble(bits);
+            // 比平均值慢则立即升到当前值，比平均值快则按时间衰减
+            double value = rtt > old ? rtt : old * weight + rtt * (1 - weight);
+            if (ewma.compareAndSet(bits, Double.doubleToLongBits(value))) {
+                break;
+            }
+        }
+        stamp = now;
+    }
+
+    /**
+     * 开始一次异步调用，返回的对象只能结束一次
+     *
+     * @return 异步调用
+     */
+    public AsyncInvocation beginAsync() {
+        return new AsyncInvocation(this, begin());
+    }
+
+    /**
+     * 当前并发数
+     *
+     * @return 当前并发数
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * 当前的指数加权平均响应时间，没有新的响应时随时间向0衰减
+     *
+     * @return 响应时间（纳秒）
+     */
+    public double getEwma() {
+        double value = Double.longBitsToDouble(ewma.get());
+        long elapsed = System.nanoTime() - stamp;
+        return elapsed > 0 ? value * Math.exp(-elapsed / DECAY_NANOS) : value;
+    }
+
+    /**
+     * 调用代价：响应时间 * (并发数 + 1)，越小越好
+     *
+     * @return 代价
+     */
+    public double getCost() {
+        int current = active.get();
+        double latency = getEwma();
+        if (latency == 0 && current != 0) {
+            return PENALTY + current;
+        }
+        return latency * (current + 1);
+    }
+
+    /**
+     * 异步调用，在响应回来时结束；发送失败和响应回调可能都会结束，只统计一次
+     */
+    public static class AsyncInvocation {
+
+        private final ProviderInvokeStats stats;
+
+        private final long                start;
+
+        private final AtomicBoolean       done = new AtomicBoolean();
+
+        AsyncInvocation(ProviderInvokeStats stats, long start) {
+            this.stats = stats;
+            this.start = start;
+        }
+
+        /**
+         * 结束异步调用
+         */
+        public void end() {
+            if (done.compareAndSet(false, true)) {
+                stats.end(start);
+            }
+        }
+    }
+}
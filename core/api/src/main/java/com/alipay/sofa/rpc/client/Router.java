@@ -53,7 +53,8 @@ public abstract class Router {
     }
 
     /**
-     * 筛选Provider
+     * 筛选Provider<br>
+     * 注意：传入的列表可能是地址的只读快照，需要剔除节点时请返回一个新的列表，不要直接修改
      *
      * @param request       本次调用（可以得到类名，方法名，方法参数，参数值等）
      * @param providerInfos providers（<b>当前可用</b>的服务Provider列表）
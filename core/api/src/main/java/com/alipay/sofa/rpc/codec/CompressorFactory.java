@@ -21,6 +21,8 @@ import com.alipay.sofa.rpc.ext.ExtensionLoader;
 import com.alipay.sofa.rpc.ext.ExtensionLoaderFactory;
 import com.alipay.sofa.rpc.ext.ExtensionLoaderListener;
 
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -87,4 +89,21 @@ public final class CompressorFactory {
     public static byte getCodeByAlias(String compress) {
         return TYPE_CODE_MAP.get(compress);
     }
+
+    /**
+     * 得到全部压缩算法的名称，用于服务端发布自己可以解压的算法
+     *
+     * @return 压缩算法名称，按字母排序，逗号分隔
+     */
+    public static String getAliases() {
+        Set<String> aliases = new TreeSet<String>(EXTENSION_LOADER.getAllExtensions().keySet());
+        StringBuilder sb = new StringBuilder();
+        for (String alias : aliases) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(alias);
+        }
+        return sb.toString();
+    }
 }
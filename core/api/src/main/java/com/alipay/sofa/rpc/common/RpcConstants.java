@@ -106,6 +106,53 @@ public class RpcConstants {
      */
     public static final String  INVOKER_TYPE_FUTURE                = "future";
 
+    /**
+     * 多长连接选择策略：轮询
+     */
+    public static final String  CONNECTION_SELECTOR_ROUND_ROBIN    = "roundRobin";
+    /**
+     * 多长连接选择策略：最少在途请求
+     */
+    public static final String  CONNECTION_SELECTOR_LEAST_ACTIVE   = "leastActive";
+    /**
+     * 多长连接选择策略：随机
+     */
+    public static final String  CONNECTION_SELECTOR_RANDOM         = "random";
+
+    /**
+     * 批量调用的部分失败策略：全部成功才算成功，有一个失败就立即失败
+     */
+    public static final String  BATCH_POLICY_ALL                   = "all";
+    /**
+     * 批量调用的部分失败策略：至少一个成功就算成功
+     */
+    public static final String  BATCH_POLICY_ANY                   = "any";
+    /**
+     * 批量调用的部分失败策略：忽略失败，由调用方检查每个结果
+     */
+    public static final String  BATCH_POLICY_IGNORE                = "ignore";
+
+    /**
+     * 服务端自定义参数：REST是否开启流式请求和响应
+     */
+    public static final String  SERVER_PARAM_REST_STREAMING        = "rest.streaming";
+    /**
+     * 服务端自定义参数：REST流式模式下，超过多少字节（或者chunked）的请求体按流处理，否则整体聚合
+     */
+    public static final String  SERVER_PARAM_REST_STREAMING_SIZE   = "rest.streaming.threshold";
+    /**
+     * 服务端自定义参数：REST流式模式下，响应体每个分块的字节数
+     */
+    public static final String  SERVER_PARAM_REST_CHUNK_SIZE       = "rest.streaming.chunk.size";
+    /**
+     * 服务端自定义参数：REST是否开启h2c（明文HTTP/2），开启后仍兼容HTTP/1.1
+     */
+    public static final String  SERVER_PARAM_REST_H2C              = "rest.h2c";
+    /**
+     * 客户端自定义参数：REST是否使用h2c（明文HTTP/2）调用，服务端不支持时降级为HTTP/1.1
+     */
+    public static final String  CONSUMER_PARAM_REST_H2C            = "rest.h2c";
+
     /**
      * Hessian序列化 [不推荐]
      *
@@ -160,6 +207,13 @@ public class RpcConstants {
      */
     public static final String  PROTOCOL_TYPE_REST                 = "rest";
 
+    /**
+     * 协议类型：injvm，同一个jvm内部调用
+     *
+     * @since 5.4.0
+     */
+    public static final String  PROTOCOL_TYPE_INJVM                = "injvm";
+
     /*--------Config配置值相关结束---------*/
 
     /*--------上下文KEY相关开始---------*/
@@ -196,6 +250,17 @@ public class RpcConstants {
      * 隐藏属性的key：consumer是否自动销毁（例如Registry和Monitor不需要自动销毁）
      */
     public static final String  HIDDEN_KEY_DESTROY                 = HIDE_KEY_PREFIX + "destroy";
+    /**
+     * 隐藏的key：.invoke_stats 异步调用的服务端调用统计，响应回来时结束
+     */
+    public static final String  HIDDEN_KEY_INVOKE_STATS            = HIDE_KEY_PREFIX + "invoke_stats";
+
+    /**
+     * 调用上下文的key：广播调用时每个服务提供者的结果
+     *
+     * @see com.alipay.sofa.rpc.context.RpcInvokeContext
+     */
+    public static final String  INVOKE_CTX_BATCH_RESULT            = "rpc.batch.result";
 
     /**
      * 内部使用的key：_app_name
@@ -229,6 +294,30 @@ public class RpcConstants {
      * 内部使用的key：_resp_deserialize_time， int
      */
     public static final String  INTERNAL_KEY_RESP_DESERIALIZE_TIME = INTERNAL_KEY_PREFIX + "resp_des_time";
+    /**
+     * 内部使用的key：_req_compress_ratio 请求体压缩后和压缩前大小的百分比， int
+     *
+     * @since 5.4.0
+     */
+    public static final String  INTERNAL_KEY_REQ_COMPRESS_RATIO    = INTERNAL_KEY_PREFIX + "req_compress_ratio";
+    /**
+     * 内部使用的key：_req_compress_time 请求体压缩（客户端）或解压（服务端）耗时，单位微秒， int
+     *
+     * @since 5.4.0
+     */
+    public static final String  INTERNAL_KEY_REQ_COMPRESS_TIME     = INTERNAL_KEY_PREFIX + "req_compress_time";
+    /**
+     * 内部使用的key：_resp_compress_ratio 响应体压缩后和压缩前大小的百分比， int
+     *
+     * @since 5.4.0
+     */
+    public static final String  INTERNAL_KEY_RESP_COMPRESS_RATIO   = INTERNAL_KEY_PREFIX + "resp_compress_ratio";
+    /**
+     * 内部使用的key：_resp_compress_time 响应体压缩（服务端）或解压（客户端）耗时，单位微秒， int
+     *
+     * @since 5.4.0
+     */
+    public static final String  INTERNAL_KEY_RESP_COMPRESS_TIME    = INTERNAL_KEY_PREFIX + "resp_compress_time";
     /**
      * 内部使用的key：_process_wait_time 在业务线程池里等待时间
      */
@@ -277,6 +366,13 @@ public class RpcConstants {
      */
     public static final String  INTERNAL_KEY_TRACER_SPAN           = INTERNAL_KEY_PREFIX + "tracer_span";
 
+    /**
+     * 响应的扩展属性：服务端错误的类型，值为 RpcErrorType，例如服务端并发超限时为 SERVER_BUSY，调用端据此决定是否重试
+     *
+     * @since 5.4.0
+     */
+    public static final String  RESPONSE_PROP_ERROR_TYPE           = "sofa_resp_error_type";
+
     /*--------上下文KEY相关结束---------*/
 
     /*--------配置项相关开始---------*/
@@ -348,6 +444,11 @@ public class RpcConstants {
      */
     public static final String  CONFIG_KEY_CACHE                   = "cache";
 
+    /**
+     * 配置key:coalesce
+     */
+    public static final String  CONFIG_KEY_COALESCE                = "coalesce";
+
     /**
      * 配置key:compress
      */
@@ -373,6 +474,16 @@ public class RpcConstants {
      */
     public static final String  CONFIG_KEY_APP_NAME                = "appName";
 
+    /**
+     * 配置key:hash.nodes，一致性hash的虚拟节点数，接口级或者方法级参数
+     */
+    public static final String  CONFIG_KEY_HASH_NODES              = "hash.nodes";
+
+    /**
+     * 配置key:hash.arguments，一致性hash参与hash的参数下标，接口级或者方法级参数
+     */
+    public static final String  CONFIG_KEY_HASH_ARGUMENTS          = "hash.arguments";
+
     /*--------配置项相关结束---------*/
 
     /*--------客户端相关开始---------*/
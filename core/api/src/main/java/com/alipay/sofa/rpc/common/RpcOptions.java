@@ -53,6 +53,10 @@ public class RpcOptions {
      * 是否启动事件总线，关闭后，可能tracer等会失效，但是可以提高性能
      */
     public static final String EVENT_BUS_ENABLE                   = "event.bus.enable";
+    /**
+     * 批量接收事件的订阅者的事件队列大小，队列满了之后新事件会被丢弃
+     */
+    public static final String EVENT_BUS_BATCH_QUEUE              = "event.bus.batch.queue";
     /**
      * 是否主动监听JVM关闭事件，默认true
      */
@@ -61,6 +65,10 @@ public class RpcOptions {
      * 是否增加序列化安全黑名单，关闭后可提供性能
      */
     public static final String SERIALIZE_BLACKLIST_ENABLE         = "serialize.blacklist.enable";
+    /**
+     * 序列化时每个线程复用的缓冲区最大保留大小，超过后用完即释放，小于等于0表示不复用
+     */
+    public static final String SERIALIZE_BUFFER_MAX_SIZE          = "serialize.buffer.max.size";
     /**
      * 是否支持多ClassLoader支持，如果是但ClassLoader环境，可以关闭提高性能
      */
@@ -211,6 +219,10 @@ public class RpcOptions {
      * 最大支持长连接
      */
     public static final String SERVER_ACCEPTS                     = "server.accepts";
+    /**
+     * 服务端空闲连接的超时时间（毫秒），小于等于0表示不关闭空闲连接
+     */
+    public static final String SERVER_IDLE_TIMEOUT                = "server.idle.timeout";
     /**
      * 是否启动epoll
      */
@@ -231,6 +243,22 @@ public class RpcOptions {
      * 服务端关闭超时时间
      */
     public static final String SERVER_STOP_TIMEOUT                = "server.stop.timeout";
+    /**
+     * 服务端的自适应并发限制算法，例如 vegas、gradient，为空表示不开启
+     */
+    public static final String SERVER_LIMITER                     = "server.limiter";
+    /**
+     * 自适应并发限制的初始值
+     */
+    public static final String SERVER_LIMITER_INITIAL             = "server.limiter.initial";
+    /**
+     * 自适应并发限制的最小值
+     */
+    public static final String SERVER_LIMITER_MIN                 = "server.limiter.min";
+    /**
+     * 自适应并发限制的最大值
+     */
+    public static final String SERVER_LIMITER_MAX                 = "server.limiter.max";
 
     /**
      * 默认服务是否注册
@@ -295,6 +323,18 @@ public class RpcOptions {
      * 默认负载均衡算法
      */
     public static final String CONSUMER_LOAD_BALANCER             = "consumer.loadBalancer";
+    /**
+     * 一致性hash负载均衡每个服务端的虚拟节点数
+     */
+    public static final String CONSUMER_HASH_VIRTUAL_NODES        = "consumer.hash.virtual.nodes";
+    /**
+     * 一致性hash负载均衡参与hash的参数下标，逗号分隔
+     */
+    public static final String CONSUMER_HASH_ARGUMENTS            = "consumer.hash.arguments";
+    /**
+     * 服务端平均响应时间（EWMA）的衰减周期，单位毫秒
+     */
+    public static final String CONSUMER_EWMA_DECAY_TIME           = "consumer.ewma.decay.time";
     /**
      * 默认失败重试次数
      */
@@ -315,6 +355,14 @@ public class RpcOptions {
      * 是否jvm内部调用（provider和consumer配置在同一个jvm内，则走本地jvm内部，不走远程）
      */
     public static final String CONSUMER_INJVM                     = "consumer.inJVM";
+    /**
+     * jvm内部调用时是否深拷贝参数和返回值（false表示直接传引用）
+     */
+    public static final String CONSUMER_INJVM_COPY                = "consumer.inJVM.copy";
+    /**
+     * 广播和批量调用的部分失败策略：all（全部成功）、any（至少一个成功）、ignore（忽略失败）
+     */
+    public static final String CONSUMER_BATCH_POLICY              = "consumer.batch.policy";
     /**
      * 是否强依赖（即没有服务节点就启动失败）
      */
@@ -323,10 +371,30 @@ public class RpcOptions {
      * 接口下每方法的最大可并行执行请求数
      */
     public static final String CONSUMER_CONCURRENTS               = "consumer.concurrents";
+    /**
+     * 调用端方法并发数超过限制时的最长排队时间，单位毫秒，0表示直接失败
+     */
+    public static final String CONSUMER_CONCURRENTS_WAIT          = "consumer.concurrents.wait";
+    /**
+     * 开启结果缓存且没有指定cacheRef时，默认缓存的最大条数
+     */
+    public static final String CONSUMER_CACHE_SIZE                = "consumer.cache.size";
+    /**
+     * 开启结果缓存且没有指定cacheRef时，默认缓存的过期时间，单位毫秒，0表示不过期
+     */
+    public static final String CONSUMER_CACHE_TTL                 = "consumer.cache.ttl";
     /**
      * 默认一个ip端口建立的长连接数量
      */
     public static final String CONSUMER_CONNECTION_NUM            = "consumer.connection.num";
+    /**
+     * 一个ip端口的多个长连接是否在建立时全部预热（同步建立）
+     */
+    public static final String CONSUMER_CONNECTION_WARMUP         = "consumer.connection.warmup";
+    /**
+     * 一个ip端口的多个长连接之间的选择策略
+     */
+    public static final String CONSUMER_CONNECTION_SELECTOR       = "consumer.connection.selector";
     /**
      * 默认consumer连provider超时时间
      */
@@ -378,6 +446,34 @@ public class RpcOptions {
      * 默认开启epoll？
      */
     public static final String TRANSPORT_USE_EPOLL                = "transport.use.epoll";
+    /**
+     * epoll是否使用边缘触发（ET），否则使用水平触发（LT）
+     */
+    public static final String TRANSPORT_EPOLL_EDGE_TRIGGERED     = "transport.epoll.edge.triggered";
+    /**
+     * epoll下是否开启TCP_QUICKACK
+     */
+    public static final String TRANSPORT_EPOLL_QUICKACK           = "transport.epoll.quickack";
+    /**
+     * epoll下服务端监听的acceptor数量，大于1时开启SO_REUSEPORT并绑定多次
+     */
+    public static final String TRANSPORT_EPOLL_ACCEPTORS          = "transport.epoll.acceptors";
+    /**
+     * HTTP/2下每个连接最大的并发stream数
+     */
+    public static final String TRANSPORT_HTTP2_MAX_STREAMS        = "transport.http2.max.concurrent.streams";
+    /**
+     * HTTP/2下每个stream的初始流控窗口（字节）
+     */
+    public static final String TRANSPORT_HTTP2_STREAM_WINDOW      = "transport.http2.stream.window.size";
+    /**
+     * HTTP/2下每个连接的流控窗口（字节）
+     */
+    public static final String TRANSPORT_HTTP2_CONNECTION_WINDOW  = "transport.http2.connection.window.size";
+    /**
+     * h2c客户端发现对端不支持HTTP/2降级到HTTP/1.1后，多久再探测一次（毫秒）
+     */
+    public static final String TRANSPORT_HTTP2_REPROBE_INTERVAL   = "transport.http2.reprobe.interval";
     /**
      * 默认服务端 数据包限制
      */
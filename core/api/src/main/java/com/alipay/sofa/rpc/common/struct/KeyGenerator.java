@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common.struct;
+
+/**
+ * 根据调用参数生成关键字，例如合并相同的在途请求时用来判断两个请求是否相同
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see MethodKey
+ */
+public interface KeyGenerator {
+
+    /**
+     * 通过调用参数获得唯一的key，返回null表示这次调用不参与
+     *
+     * @param interfaceId 接口名
+     * @param methodName  方法名
+     * @param argSigs     方法参数类型，用来区分重载方法
+     * @param args        方法参数
+     * @return 关键字，可以返回null
+     */
+    public Object buildKey(String interfaceId, String methodName, String[] argSigs, Object[] args);
+}
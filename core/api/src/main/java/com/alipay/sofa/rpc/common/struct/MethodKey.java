@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common.struct;
+
+import java.util.Arrays;
+
+/**
+ * 接口名、方法名、方法参数类型和方法参数组成的关键字，参数按值（{@link Arrays#deepEquals(Object[], Object[])}）比较。<br>
+ * 参数类型用来区分重载方法，例如 get(Integer) 和 get(Long) 传入同样的 null 参数时不是同一个关键字
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class MethodKey {
+
+    private final String   interfaceId;
+
+    private final String   methodName;
+
+    private final String[] argSigs;
+
+    private final Object[] args;
+
+    private final int      hashCode;
+
+    /**
+     * 构造函数
+     *
+     * @param interfaceId 接口名
+     * @param methodName  方法名
+     * @param argSigs     方法参数类型，为null表示不区分重载方法
+     * @param args        方法参数
+     */
+    public MethodKey(String interfaceId, String methodName, String[] argSigs, Object[] args) {
+        this.interfaceId = interfaceId;
+        this.methodName = methodName;
+        this.argSigs = argSigs == null ? null : argSigs.clone();
+        this.args = args == null ? new Object[0] : args.clone();
+        int h = interfaceId == null ? 0 : interfaceId.hashCode();
+        h = 31 * h + (methodName == null ? 0 : methodName.hashCode());
+        h = 31 * h + Arrays.hashCode(this.argSigs);
+        this.hashCode = 31 * h + Arrays.deepHashCode(this.args);
+    }
+
+    public String getInterfaceId() {
+        return interfaceId;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MethodKey)) {
+            return false;
+        }
+        MethodKey that = (MethodKey) o;
+        return hashCode == that.hashCode && equal(interfaceId, that.interfaceId)
+            && equal(methodName, that.methodName) && Arrays.equals(argSigs, that.argSigs)
+            && Arrays.deepEquals(args, that.args);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return interfaceId + "#" + methodName + Arrays.toString(argSigs) + Arrays.deepToString(args);
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common.struct;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量和过期时间限制的调用结果缓存，淘汰策略类似 W-TinyLFU：<br>
+ * 新数据先进入一个很小的LRU窗口，从窗口淘汰出来的数据只有比主区域最久未访问的数据访问频率更高时才能进入主区域，
+ * 访问频率用定期减半的 Count-Min Sketch 近似统计。<br>
+ * 读不加锁，访问顺序在抢不到锁的时候直接放弃调整；写加锁。<br>
+ * 同时实现了 {@link KeyGenerator}，调用端缓存会带上方法参数类型生成关键字，区分重载方法。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TinyLfuCache implements Cache, KeyGenerator {
+
+    /**
+     * 最多缓存的条数
+     */
+    private final int                             maxSize;
+
+    /**
+     * 窗口区域的最大条数
+     */
+    private final int                             windowMax;
+
+    /**
+     * 过期时间（纳秒），小于等于0表示不过期
+     */
+    private final long                            ttlNanos;
+
+    /**
+     * 缓存数据
+     */
+    private final ConcurrentHashMap<Object, Node> data;
+
+    /**
+     * 调整淘汰顺序的锁
+     */
+    private final ReentrantLock                   lock      = new ReentrantLock();
+
+    /**
+     * 窗口区域，按访问顺序排列，head为最久未访问
+     */
+    private final Node                            window    = new Node(null, null, 0);
+
+    /**
+     * 主区域，按访问顺序排列，head为最久未访问
+     */
+    private final Node                            main      = new Node(null, null, 0);
+
+    private int                                   windowSize;
+
+    private int                                   mainSize;
+
+    /**
+     * 访问频率
+     */
+    private final FrequencySketch                 sketch;
+
+    private final AtomicLong                      hits      = new AtomicLong();
+
+    private final AtomicLong                      misses    = new AtomicLong();
+
+    private final AtomicLong                      evictions = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize    最多缓存的条数
+     * @param ttlMillis  过期时间（毫秒），小于等于0表示不过期
+     */
+    public TinyLfuCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.windowMax = Math.max(1, maxSize / 100);
+        this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        this.data = new ConcurrentHashMap<Object, Node>(Math.min(maxSize, 1024));
+        this.sketch = new FrequencySketch(maxSize);
+        window.prev = window.next = window;
+        main.prev = main.next = main;
+    }
+
+    @Override
+    public Object buildKey(String interfaceId, String methodName, Object[] args) {
+        return new MethodKey(interfaceId, methodName, null, args);
+    }
+
+    @Override
+    public Object buildKey(String interfaceId, String methodName, String[] argSigs, Object[] args) {
+        return new MethodKey(interfaceId, methodName, argSigs, args);
+    }
+
+    @Override
+    public void put(Object key, Object result) {
+        if (key == null || result == null) {
+            return;
+        }
+        long expireTime = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+        lock.lock();
+        try {
+            Node node = data.get(key);
+            if (node != null) {
+                node.value = result;
+                node.expireTime = expireTime;
+                moveToTail(node);
+                return;
+            }
+            node = new Node(key, result, expireTime);
+            data.put(key, node);
+            node.inWindow = true;
+            addToTail(window, node);
+            windowSize++;
+            if (windowSize > windowMax) {
+                evictFromWindow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        sketch.increment(key.hashCode());
+        Node node = data.get(key);
+        if (node == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (node.expireTime != 0 && node.expireTime - System.nanoTime() < 0) {
+            lock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    unlink(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        // 调整访问顺序不是必须的，有竞争的时候跳过
+        if (lock.tryLock()) {
+            try {
+                moveToTail(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * 窗口区域满了，最久未访问的数据和主区域最久未访问的数据比较访问频率，频率低的被淘汰
+     */
+    private void evictFromWindow() {
+        Node candidate = window.next;
+        unlink(candidate);
+        if (mainSize < maxSize - windowMax) {
+            candidate.inWindow = false;
+            addToTail(main, candidate);
+            mainSize++;
+            return;
+        }
+        Node victim = main.next;
+        if (victim != main && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            unlink(victim);
+            data.remove(victim.key, victim);
+            candidate.inWindow = false;
+            addToTail(main, candidate);
+            mainSize++;
+        } else {
+            data.remove(candidate.key, candidate);
+        }
+        evictions.incrementAndGet();
+    }
+
+    private void addToTail(Node head, Node node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void moveToTail(Node node) {
+        if (node.prev == null) {
+            // 已经被淘汰
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        addToTail(node.inWindow ? window : main, node);
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = null;
+        if (node.inWindow) {
+            windowSize--;
+        } else {
+            mainSize--;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            data.clear();
+            window.prev = window.next = window;
+            main.prev = main.next = main;
+            windowSize = 0;
+            mainSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前缓存的条数（包括已过期但还没有清理的）
+     *
+     * @return 条数
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * 命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * 未命中次数（包括已过期）
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 因为容量淘汰的次数（包括没有被准入的新数据）
+     *
+     * @return 淘汰次数
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private static class Node {
+
+        private final Object    key;
+
+        private volatile Object value;
+
+        private volatile long   expireTime;
+
+        private boolean         inWindow;
+
+        private Node            prev;
+
+        private Node            next;
+
+        Node(Object key, Object value, long expireTime) {
+            this.key = key;
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+    }
+
+    /**
+     * 4个哈希函数的 Count-Min Sketch，计数上限15，累计增加到容量的10倍后所有计数减半，让旧的热点逐渐冷却。<br>
+     * 更新不加锁，并发时可能丢失少量计数，不影响近似的准入判断。
+     */
+    static class FrequencySketch {
+
+        private static final int MAX_COUNT = 15;
+
+        private final int[]      table;
+
+        private final int        mask;
+
+        private final int        sampleSize;
+
+        private int              additions;
+
+        FrequencySketch(int maxSize) {
+            int size = Integer.highestOneBit(Math.max(16, Math.min(maxSize, 1 << 24)) - 1) << 1;
+            this.table = new int[size];
+            this.mask = size - 1;
+            this.sampleSize = maxSize >= Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : maxSize * 10;
+        }
+
+        void increment(int hashCode) {
+            int hash = spread(hashCode);
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int hashCode) {
+            int hash = spread(hashCode);
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, table[indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            additions = 0;
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>>= 1;
+            }
+        }
+
+        private int indexOf(int hash, int i) {
+            int h = (hash + i) * 0x9E3779B9;
+            h += h >>> 16;
+            return h & mask;
+        }
+
+        private static int spread(int hashCode) {
+            int h = hashCode * 0x85ebca6b;
+            return h ^ (h >>> 13);
+        }
+    }
+}
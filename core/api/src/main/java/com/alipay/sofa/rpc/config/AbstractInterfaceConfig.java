@@ -41,6 +41,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import static com.alipay.sofa.rpc.common.RpcConfigs.getBooleanValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getStringValue;
+import static com.alipay.sofa.rpc.common.RpcOptions.COMPRESS_OPEN;
+import static com.alipay.sofa.rpc.common.RpcOptions.DEFAULT_COMPRESS;
 import static com.alipay.sofa.rpc.common.RpcOptions.DEFAULT_GROUP;
 import static com.alipay.sofa.rpc.common.RpcOptions.DEFAULT_PROXY;
 import static com.alipay.sofa.rpc.common.RpcOptions.DEFAULT_SERIALIZATION;
@@ -197,6 +199,11 @@ public abstract class AbstractInterfaceConfig<T, S extends AbstractInterfaceConf
      */
     protected transient volatile Map<String, Object> configValueCache = null;
 
+    /**
+     * 预编译的方法级配置，和构建时的configValueCache绑定，configValueCache重建后整体替换
+     */
+    private transient volatile MethodDescriptorTable methodDescriptorTable;
+
     /**
      * 代理接口类，和T对应，主要针对泛化调用
      */
@@ -938,6 +945,23 @@ public abstract class AbstractInterfaceConfig<T, S extends AbstractInterfaceConf
         return value == null ? defaultValue : value;
     }
 
+    /**
+     * 得到方法级的压缩算法，没有则取接口级配置；都没有配置且全局开启了压缩（compress.open）时使用默认压缩算法
+     *
+     * @param methodName 方法名
+     * @return 压缩算法，为空则不压缩
+     */
+    public String getMethodCompress(String methodName) {
+        String methodCompress = getMethodDescriptor(methodName).getCompress();
+        if (methodCompress == null) {
+            methodCompress = getCompress();
+        }
+        if (methodCompress == null && getBooleanValue(COMPRESS_OPEN)) {
+            methodCompress = getStringValue(DEFAULT_COMPRESS);
+        }
+        return StringUtils.isEmpty(methodCompress) ? null : methodCompress;
+    }
+
     /**
      * 得到方法级配置，找不到则返回null
      *
@@ -953,6 +977,23 @@ public abstract class AbstractInterfaceConfig<T, S extends AbstractInterfaceConf
         return configValueCache.get(key);
     }
 
+    /**
+     * 得到预编译的方法级配置，每个方法第一次调用时从当前的configValueCache解析，之后只需要一次查表。<br>
+     * configValueCache重建（例如动态配置变更）后会整体重新解析，未构建configValueCache前没有方法级配置。
+     *
+     * @param methodName 方法名
+     * @return 方法级配置，不会为null
+     */
+    public MethodConfigDescriptor getMethodDescriptor(String methodName) {
+        Map<String, Object> cache = configValueCache;
+        MethodDescriptorTable table = methodDescriptorTable;
+        if (table == null || table.source != cache) {
+            table = new MethodDescriptorTable(cache);
+            methodDescriptorTable = table;
+        }
+        return table.get(methodName);
+    }
+
     /**
      * Buildmkey string.
      *
@@ -1001,4 +1042,39 @@ public abstract class AbstractInterfaceConfig<T, S extends AbstractInterfaceConf
     public String getAppName() {
         return application.getAppName();
     }
+
+    /**
+     * 某一份configValueCache对应的方法级配置表
+     */
+    private static class MethodDescriptorTable {
+
+        /**
+         * 构建时的configValueCache
+         */
+        private final Map<String, Object>                               source;
+
+        /**
+         * 方法名：方法级配置
+         */
+        private final ConcurrentHashMap<String, MethodConfigDescriptor> descriptors = new ConcurrentHashMap<String, MethodConfigDescriptor>();
+
+        MethodDescriptorTable(Map<String, Object> source) {
+            this.source = source;
+        }
+
+        MethodConfigDescriptor get(String methodName) {
+            if (source == null || methodName == null) {
+                return MethodConfigDescriptor.EMPTY;
+            }
+            MethodConfigDescriptor descriptor = descriptors.get(methodName);
+            if (descriptor == null) {
+                descriptor = new MethodConfigDescriptor(methodName, source);
+                MethodConfigDescriptor old = descriptors.putIfAbsent(methodName, descriptor);
+                if (old != null) {
+                    descriptor = old;
+                }
+            }
+            return descriptor;
+        }
+    }
 }
@@ -20,8 +20,8 @@ import com.alipay.sofa.rpc.api.GenericService;
 import com.alipay.sofa.rpc.bootstrap.Bootstraps;
 import com.alipay.sofa.rpc.bootstrap.ConsumerBootstrap;
 import com.alipay.sofa.rpc.client.Router;
-import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.annotation.Unstable;
+import com.alipay.sofa.rpc.common.struct.KeyGenerator;
 import com.alipay.sofa.rpc.common.utils.ClassUtils;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.common.utils.ExceptionUtils;
@@ -33,21 +33,26 @@ import com.alipay.sofa.rpc.listener.ProviderInfoListener;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static com.alipay.sofa.rpc.common.RpcConfigs.getBooleanValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getIntValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getStringValue;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_ADDRESS_HOLDER;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_ADDRESS_WAIT;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_BATCH_POLICY;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CHECK;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CLUSTER;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONCURRENTS;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_HOLDER;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_NUM;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_SELECTOR;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_WARMUP;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECT_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_DISCONNECT_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_HEARTBEAT_PERIOD;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_INJVM;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_INJVM_COPY;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_INVOKE_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_INVOKE_TYPE;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_LAZY;
@@ -140,6 +145,18 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      */
     protected boolean                               inJVM              = getBooleanValue(CONSUMER_INJVM);
 
+    /**
+     * jvm内部调用时是否深拷贝参数和返回值（false表示直接传引用）
+     */
+    protected boolean                               inJVMCopy          = getBooleanValue(CONSUMER_INJVM_COPY);
+
+    /**
+     * 广播和批量调用的部分失败策略
+     *
+     * @see com.alipay.sofa.rpc.common.RpcConstants#BATCH_POLICY_ALL
+     */
+    protected String                                batchPolicy        = getStringValue(CONSUMER_BATCH_POLICY);
+
     /**
      * 是否强依赖（即没有服务节点就启动失败，注意此参数可能和lazy冲突，开启check后lazy自动失效)
      *
@@ -152,6 +169,16 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      */
     protected int                                   connectionNum      = getIntValue(CONSUMER_CONNECTION_NUM);
 
+    /**
+     * 多个长连接时，是否在建立时同步预热全部长连接
+     */
+    protected boolean                               connectionWarmup   = getBooleanValue(CONSUMER_CONNECTION_WARMUP);
+
+    /**
+     * 多个长连接时，每次调用选择长连接的策略
+     */
+    protected String                                connectionSelector = getStringValue(CONSUMER_CONNECTION_SELECTOR);
+
     /**
      * Consumer给Provider发心跳的间隔
      */
@@ -177,6 +204,16 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      */
     protected transient SofaResponseCallback        onReturn;
 
+    /**
+     * 合并在途请求时的关键字生成器，为空表示按接口名、方法名和参数值生成
+     */
+    protected transient KeyGenerator                coalesceKeyRef;
+
+    /**
+     * Future调用时通知响应监听器的线程池，为空表示在处理响应的线程中通知
+     */
+    protected transient Executor                    futureListenerExecutor;
+
     /**
      * 连接事件监听器实例，连接或者断开时触发
      */
@@ -222,6 +259,11 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      */
     protected int                                   concurrents        = getIntValue(CONSUMER_CONCURRENTS);
 
+    /**
+     * 是否合并相同的在途请求：相同关键字的请求同时只有一个发到服务端，其它请求共享它的结果
+     */
+    protected boolean                               coalesce;
+
     /*---------- 参数配置项结束 ------------*/
 
     /**
@@ -554,6 +596,46 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
         return this;
     }
 
+    /**
+     * Is in jvm copy boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isInJVMCopy() {
+        return inJVMCopy;
+    }
+
+    /**
+     * Sets in jvm copy.
+     *
+     * @param inJVMCopy the in jvm copy
+     * @return the in jvm copy
+     */
+    public ConsumerConfig<T> setInJVMCopy(boolean inJVMCopy) {
+        this.inJVMCopy = inJVMCopy;
+        return this;
+    }
+
+    /**
+     * Gets batch policy.
+     *
+     * @return the batch policy
+     */
+    public String getBatchPolicy() {
+        return batchPolicy;
+    }
+
+    /**
+     * Sets batch policy.
+     *
+     * @param batchPolicy the batch policy
+     * @return the batch policy
+     */
+    public ConsumerConfig<T> setBatchPolicy(String batchPolicy) {
+        this.batchPolicy = batchPolicy;
+        return this;
+    }
+
     /**
      * Is check boolean.
      *
@@ -594,6 +676,46 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
         return this;
     }
 
+    /**
+     * Is connectionWarmup boolean.
+     *
+     * @return the connectionWarmup
+     */
+    public boolean isConnectionWarmup() {
+        return connectionWarmup;
+    }
+
+    /**
+     * Sets connectionWarmup.
+     *
+     * @param connectionWarmup the connectionWarmup
+     * @return the connectionWarmup
+     */
+    public ConsumerConfig<T> setConnectionWarmup(boolean connectionWarmup) {
+        this.connectionWarmup = connectionWarmup;
+        return this;
+    }
+
+    /**
+     * Gets connectionSelector.
+     *
+     * @return the connectionSelector
+     */
+    public String getConnectionSelector() {
+        return connectionSelector;
+    }
+
+    /**
+     * Sets connectionSelector.
+     *
+     * @param connectionSelector the connectionSelector
+     * @return the connectionSelector
+     */
+    public ConsumerConfig<T> setConnectionSelector(String connectionSelector) {
+        this.connectionSelector = connectionSelector;
+        return this;
+    }
+
     /**
      * Gets heartbeatPeriod.
      *
@@ -774,6 +896,66 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
         return this;
     }
 
+    /**
+     * Is coalesce.
+     *
+     * @return the coalesce
+     */
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Sets coalesce.
+     *
+     * @param coalesce the coalesce
+     * @return the coalesce
+     */
+    public ConsumerConfig<T> setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+        return this;
+    }
+
+    /**
+     * Gets coalesce key ref.
+     *
+     * @return the coalesce key ref
+     */
+    public KeyGenerator getCoalesceKeyRef() {
+        return coalesceKeyRef;
+    }
+
+    /**
+     * Sets coalesce key ref.
+     *
+     * @param coalesceKeyRef the coalesce key ref
+     * @return the coalesce key ref
+     */
+    public ConsumerConfig<T> setCoalesceKeyRef(KeyGenerator coalesceKeyRef) {
+        this.coalesceKeyRef = coalesceKeyRef;
+        return this;
+    }
+
+    /**
+     * Gets future listener executor.
+     *
+     * @return the future listener executor
+     */
+    public Executor getFutureListenerExecutor() {
+        return futureListenerExecutor;
+    }
+
+    /**
+     * Sets future listener executor.
+     *
+     * @param futureListenerExecutor the future listener executor
+     * @return the future listener executor
+     */
+    public ConsumerConfig<T> setFutureListenerExecutor(Executor futureListenerExecutor) {
+        this.futureListenerExecutor = futureListenerExecutor;
+        return this;
+    }
+
     /**
      * Gets bootstrap.
      *
@@ -871,6 +1053,25 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
         return false;
     }
 
+    /**
+     * 是否有合并在途请求的需求，有就打开过滤器
+     *
+     * @return 是否配置了coalesce boolean
+     */
+    public boolean hasCoalesce() {
+        if (coalesce) {
+            return true;
+        }
+        if (CommonUtils.isNotEmpty(methods)) {
+            for (MethodConfig methodConfig : methods.values()) {
+                if (CommonUtils.isTrue(methodConfig.getCoalesce())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * 得到方法的重试次数，默认接口配置
      *
@@ -878,8 +1079,8 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      * @return 方法的重试次数 method retries
      */
     public int getMethodRetries(String methodName) {
-        return (Integer) getMethodConfigValue(methodName, RpcConstants.CONFIG_KEY_RETRIES,
-            getRetries());
+        Integer methodRetries = getMethodDescriptor(methodName).getRetries();
+        return methodRetries == null ? getRetries() : methodRetries;
     }
 
     /**
@@ -889,8 +1090,8 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      * @return the time out
      */
     public int getMethodTimeout(String methodName) {
-        return (Integer) getMethodConfigValue(methodName, RpcConstants.CONFIG_KEY_TIMEOUT,
-            getTimeout());
+        Integer methodTimeout = getMethodDescriptor(methodName).getTimeout();
+        return methodTimeout == null ? getTimeout() : methodTimeout;
     }
 
     /**
@@ -900,8 +1101,8 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      * @return method onReturn
      */
     public SofaResponseCallback getMethodOnreturn(String methodName) {
-        return (SofaResponseCallback) getMethodConfigValue(methodName, RpcConstants.CONFIG_KEY_ONRETURN,
-            getOnReturn());
+        SofaResponseCallback methodOnReturn = getMethodDescriptor(methodName).getOnReturn();
+        return methodOnReturn == null ? getOnReturn() : methodOnReturn;
     }
 
     /**
@@ -911,8 +1112,8 @@ public class ConsumerConfig<T> extends AbstractInterfaceConfig<T, ConsumerConfig
      * @return the time out
      */
     public String getMethodInvokeType(String methodName) {
-        return (String) getMethodConfigValue(methodName, RpcConstants.CONFIG_KEY_INVOKE_TYPE,
-            getInvokeType());
+        String methodInvokeType = getMethodDescriptor(methodName).getInvokeType();
+        return methodInvokeType == null ? getInvokeType() : methodInvokeType;
     }
 
     /**
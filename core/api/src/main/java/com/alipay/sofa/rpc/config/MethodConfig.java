@@ -77,6 +77,11 @@ public class MethodConfig implements Serializable {
      */
     protected Boolean              cache;
 
+    /**
+     * 是否合并相同的在途请求
+     */
+    protected Boolean              coalesce;
+
     /**
      * 是否启动压缩
      */
@@ -224,6 +229,26 @@ public class MethodConfig implements Serializable {
         return this;
     }
 
+    /**
+     * Gets coalesce.
+     *
+     * @return the coalesce
+     */
+    public Boolean getCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Sets coalesce.
+     *
+     * @param coalesce the coalesce
+     * @return the coalesce
+     */
+    public MethodConfig setCoalesce(Boolean coalesce) {
+        this.coalesce = coalesce;
+        return this;
+    }
+
     /**
      * Sets validation.
      *
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.config;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+
+import java.util.Map;
+
+/**
+ * 预编译的方法级配置，从某一份接口配置缓存（configValueCache）中一次性解析出来，不可变。<br>
+ * 调用时直接读字段，不需要每次拼接 ".方法名.配置项" 再查询缓存；没有配置方法级的值时为null，由调用方取接口级配置。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see AbstractInterfaceConfig#getMethodDescriptor(String)
+ */
+public final class MethodConfigDescriptor {
+
+    /**
+     * 没有任何方法级配置
+     */
+    static final MethodConfigDescriptor EMPTY = new MethodConfigDescriptor(null, null);
+
+    /**
+     * 方法名
+     */
+    private final String                methodName;
+
+    /**
+     * 超时时间
+     */
+    private final Integer               timeout;
+
+    /**
+     * 重试次数
+     */
+    private final Integer               retries;
+
+    /**
+     * 调用方式
+     */
+    private final String                invokeType;
+
+    /**
+     * 返回值回调
+     */
+    private final SofaResponseCallback  onReturn;
+
+    /**
+     * 最大并发数
+     */
+    private final Integer               concurrents;
+
+    /**
+     * 是否开启结果缓存
+     */
+    private final Boolean               cache;
+
+    /**
+     * 是否合并相同的在途调用
+     */
+    private final Boolean               coalesce;
+
+    /**
+     * 压缩算法
+     */
+    private final String                compress;
+
+    /**
+     * 构造函数
+     *
+     * @param methodName       方法名
+     * @param configValueCache 接口配置缓存，为空表示没有方法级配置
+     */
+    MethodConfigDescriptor(String methodName, Map<String, Object> configValueCache) {
+        this.methodName = methodName;
+        if (methodName == null || configValueCache == null) {
+            this.timeout = null;
+            this.retries = null;
+            this.invokeType = null;
+            this.onReturn = null;
+            this.concurrents = null;
+            this.cache = null;
+            this.coalesce = null;
+            this.compress = null;
+            return;
+        }
+        String prefix = RpcConstants.HIDE_KEY_PREFIX + methodName + RpcConstants.HIDE_KEY_PREFIX;
+        this.timeout = (Integer) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_TIMEOUT);
+        this.retries = (Integer) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_RETRIES);
+        this.invokeType = (String) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_INVOKE_TYPE);
+        this.onReturn = (SofaResponseCallback) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_ONRETURN);
+        this.concurrents = (Integer) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_CONCURRENTS);
+        this.cache = (Boolean) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_CACHE);
+        this.coalesce = (Boolean) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_COALESCE);
+        this.compress = (String) configValueCache.get(prefix + RpcConstants.CONFIG_KEY_COMPRESS);
+    }
+
+    /**
+     * Gets method name.
+     *
+     * @return the method name
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * 方法级超时时间
+     *
+     * @return 超时时间，未配置为null
+     */
+    public Integer getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * 方法级重试次数
+     *
+     * @return 重试次数，未配置为null
+     */
+    public Integer getRetries() {
+        return retries;
+    }
+
+    /**
+     * 方法级调用方式
+     *
+     * @return 调用方式，未配置为null
+     */
+    public String getInvokeType() {
+        return invokeType;
+    }
+
+    /**
+     * 方法级返回值回调
+     *
+     * @return 返回值回调，未配置为null
+     */
+    public SofaResponseCallback getOnReturn() {
+        return onReturn;
+    }
+
+    /**
+     * 方法级最大并发数
+     *
+     * @return 最大并发数，未配置为null
+     */
+    public Integer getConcurrents() {
+        return concurrents;
+    }
+
+    /**
+     * 方法级是否开启结果缓存
+     *
+     * @return 是否开启结果缓存，未配置为null
+     */
+    public Boolean getCache() {
+        return cache;
+    }
+
+    /**
+     * 方法级是否合并相同的在途调用
+     *
+     * @return 是否合并，未配置为null
+     */
+    public Boolean getCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * 方法级压缩算法
+     *
+     * @return 压缩算法，未配置为null
+     */
+    public String getCompress() {
+        return compress;
+    }
+}
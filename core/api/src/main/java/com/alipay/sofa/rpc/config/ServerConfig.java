@@ -27,6 +27,7 @@ import com.alipay.sofa.rpc.server.ServerFactory;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.alipay.sofa.rpc.common.RpcConfigs.getBooleanValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getIntValue;
@@ -39,6 +40,7 @@ import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_CONTEXT_PATH;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_DAEMON;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_EPOLL;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_HOST;
+import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_IDLE_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_IOTHREADS;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_POOL_ALIVETIME;
 import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_POOL_CORE;
@@ -53,6 +55,7 @@ import static com.alipay.sofa.rpc.common.RpcOptions.SERVER_TELNET;
 import static com.alipay.sofa.rpc.common.RpcOptions.SEVER_ADAPTIVE_PORT;
 import static com.alipay.sofa.rpc.common.RpcOptions.SEVER_AUTO_START;
 import static com.alipay.sofa.rpc.common.RpcOptions.TRANSPORT_PAYLOAD_MAX;
+import static com.alipay.sofa.rpc.common.RpcOptions.TRANSPORT_SERVER_KEEPALIVE;
 
 /**
  * 服务端配置
@@ -136,6 +139,16 @@ public class ServerConfig extends AbstractIdConfig implements Serializable {
      */
     protected int                             accepts          = getIntValue(SERVER_ACCEPTS);
 
+    /**
+     * 空闲连接的超时时间（毫秒），超过这个时间没有读写则关闭连接，小于等于0表示不关闭
+     */
+    protected int                             idleTimeout      = getIntValue(SERVER_IDLE_TIMEOUT);
+
+    /**
+     * 连接是否开启TCP keepAlive
+     */
+    protected boolean                         keepAlive        = getBooleanValue(TRANSPORT_SERVER_KEEPALIVE);
+
     /**
      * 最大数据包大小
      */
@@ -528,6 +541,46 @@ public class ServerConfig extends AbstractIdConfig implements Serializable {
         return this;
     }
 
+    /**
+     * Gets idle timeout.
+     *
+     * @return the idle timeout
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets idle timeout.
+     *
+     * @param idleTimeout the idle timeout
+     * @return the idle timeout
+     */
+    public ServerConfig setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * Is keep alive boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Sets keep alive.
+     *
+     * @param keepAlive the keep alive
+     * @return the keep alive
+     */
+    public ServerConfig setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
     /**
      * Gets payload.
      *
@@ -608,6 +661,35 @@ public class ServerConfig extends AbstractIdConfig implements Serializable {
         return this;
     }
 
+    /**
+     * Sets parameter.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the parameter
+     */
+    public ServerConfig setParameter(String key, String value) {
+        if (parameters == null) {
+            parameters = new ConcurrentHashMap<String, String>();
+        }
+        if (value == null) {
+            parameters.remove(key);
+        } else {
+            parameters.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Gets parameter.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public String getParameter(String key) {
+        return parameters == null ? null : parameters.get(key);
+    }
+
     /**
      * Gets virtualHost.
      *
@@ -161,6 +161,11 @@ public class SofaRequest extends RequestBase {
      */
     private transient Integer              timeout;
 
+    /**
+     * 压缩算法，为空则不压缩（客户端为请求使用的压缩算法，服务端为客户端可以解压的压缩算法）
+     */
+    private transient String               compressType;
+
     /**
      * Gets method.
      *
@@ -297,6 +302,26 @@ public class SofaRequest extends RequestBase {
         return this;
     }
 
+    /**
+     * Gets compress type.
+     *
+     * @return the compress type
+     */
+    public String getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Sets compress type.
+     *
+     * @param compressType the compress type
+     * @return the compress type
+     */
+    public SofaRequest setCompressType(String compressType) {
+        this.compressType = compressType;
+        return this;
+    }
+
     /**
      * 是否异步请求
      *
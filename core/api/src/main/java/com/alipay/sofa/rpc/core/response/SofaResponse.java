@@ -49,6 +49,12 @@ public final class SofaResponse implements Serializable {
      */
     private Map<String, String> responseProps;
 
+    //====================== 下面是非传递属性 ===============
+    /**
+     * 响应使用的压缩算法，为空则不压缩（服务端使用）
+     */
+    private transient String    compressType;
+
     /**
      * Gets app response.
      *
@@ -152,6 +158,24 @@ public final class SofaResponse implements Serializable {
         this.responseProps = responseProps;
     }
 
+    /**
+     * Gets compress type.
+     *
+     * @return the compress type
+     */
+    public String getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Sets compress type.
+     *
+     * @param compressType the compress type
+     */
+    public void setCompressType(String compressType) {
+        this.compressType = compressType;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(128);
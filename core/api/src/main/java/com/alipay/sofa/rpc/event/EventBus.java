@@ -18,13 +18,21 @@ package com.alipay.sofa.rpc.event;
 
 import com.alipay.sofa.rpc.common.RpcConfigs;
 import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.struct.NamedThreadFactory;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.context.AsyncRuntime;
 import com.alipay.sofa.rpc.log.Logger;
 import com.alipay.sofa.rpc.log.LoggerFactory;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Simply event bus for internal event transport.
@@ -65,6 +73,11 @@ public class EventBus {
      */
     private final static ConcurrentHashMap<Class<? extends Event>, CopyOnWriteArraySet<Subscriber>> SUBSCRIBER_MAP = new ConcurrentHashMap<Class<? extends Event>, CopyOnWriteArraySet<Subscriber>>();
 
+    /**
+     * 批量接收事件的订阅者的事件队列
+     */
+    private final static ConcurrentHashMap<Subscriber, EventBatch>                                  EVENT_BATCHES  = new ConcurrentHashMap<Subscriber, EventBatch>();
+
     /**
      * 注册一个订阅者
      *
@@ -96,12 +109,24 @@ public class EventBus {
         CopyOnWriteArraySet<Subscriber> set = SUBSCRIBER_MAP.get(eventClass);
         if (set != null) {
             set.remove(subscriber);
+            if (subscriber.isBatch() && !isRegistered(subscriber)) {
+                EVENT_BATCHES.remove(subscriber);
+            }
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("UnRegister subscriber: {} of event: {}.", subscriber, eventClass);
             }
         }
     }
 
+    private static boolean isRegistered(Subscriber subscriber) {
+        for (CopyOnWriteArraySet<Subscriber> set : SUBSCRIBER_MAP.values()) {
+            if (set.contains(subscriber)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 给事件总线中丢一个事件
      *
@@ -116,6 +141,16 @@ public class EventBus {
             for (final Subscriber subscriber : subscribers) {
                 if (subscriber.isSync()) {
                     handleEvent(subscriber, event);
+                } else if (subscriber.isBatch()) { // 异步批量
+                    EventBatch batch = EVENT_BATCHES.get(subscriber);
+                    if (batch == null) {
+                        batch = new EventBatch(subscriber);
+                        EventBatch old = EVENT_BATCHES.putIfAbsent(subscriber, batch);
+                        if (old != null) {
+                            batch = old;
+                        }
+                    }
+                    batch.offer(event);
                 } else { // 异步
                     AsyncRuntime.getAsyncThreadPool().execute(
                         new Runnable() {
@@ -138,4 +173,129 @@ public class EventBus {
             }
         }
     }
+
+    /**
+     * 批量接收事件的订阅者被丢弃的事件数
+     *
+     * @param subscriber 订阅者
+     * @return 队列满了被丢弃的事件数
+     */
+    public static long getDroppedEvents(Subscriber subscriber) {
+        EventBatch batch = EVENT_BATCHES.get(subscriber);
+        return batch == null ? 0 : batch.dropped.get();
+    }
+
+    /**
+     * 批量接收事件的订阅者的事件队列大小
+     */
+    private static final int                         BATCH_QUEUE_SIZE    = RpcConfigs
+                                                                             .getIntValue(RpcOptions.EVENT_BUS_BATCH_QUEUE);
+
+    /**
+     * 一个异步任务一次最多处理的事件数，处理完就让出线程，避免一个任务长时间占着线程池
+     */
+    private static final int                         BATCH_DRAIN_SIZE    = 256;
+
+    /**
+     * 线程池拒绝后，延迟多久再重新提交（毫秒）
+     */
+    private static final long                        BATCH_RETRY_DELAY   = 100;
+
+    /**
+     * 每丢弃多少个事件打印一次日志
+     */
+    private static final long                        BATCH_DROP_LOG_STEP = 10000;
+
+    /**
+     * 线程池拒绝后延迟重新提交任务用的定时器，线程按需创建
+     */
+    private static final ScheduledThreadPoolExecutor BATCH_RETRY_TIMER   = new ScheduledThreadPoolExecutor(1,
+                                                                             new NamedThreadFactory(
+                                                                                 "SOFA-EVENT-BATCH-RETRY", true));
+
+    /**
+     * 批量接收事件的订阅者的事件队列。队列无锁，按计数限制大小，满了就丢弃并计数；
+     * 同一时间只有一个异步任务在按顺序处理，每次最多处理 {@link #BATCH_DRAIN_SIZE} 个事件后让出线程
+     */
+    private static class EventBatch implements Runnable {
+
+        private final Subscriber                   subscriber;
+
+        private final ConcurrentLinkedQueue<Event> events   = new ConcurrentLinkedQueue<Event>();
+
+        /**
+         * 队列中的事件数，ConcurrentLinkedQueue.size() 需要遍历，单独计数
+         */
+        private final AtomicInteger                size     = new AtomicInteger();
+
+        /**
+         * 是否已经有异步任务在处理
+         */
+        private final AtomicBoolean                running  = new AtomicBoolean();
+
+        /**
+         * 是否已经在等待延迟重新提交
+         */
+        private final AtomicBoolean                retrying = new AtomicBoolean();
+
+        /**
+         * 队列满了被丢弃的事件数
+         */
+        private final AtomicLong                   dropped  = new AtomicLong();
+
+        EventBatch(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(Event event) {
+            if (size.incrementAndGet() > BATCH_QUEUE_SIZE) {
+                size.decrementAndGet();
+                long count = dropped.incrementAndGet();
+                if (count % BATCH_DROP_LOG_STEP == 1 && LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("Event queue of {} is full, {} events dropped so far.", subscriber, count);
+                }
+            } else {
+                events.offer(event);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            // 没有事件或者已经有任务在处理就不用提交
+            if (events.isEmpty() || !running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                AsyncRuntime.getAsyncThreadPool().execute(this);
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+                // 线程池满了，延迟一会再提交，不能等下一个事件进来，否则事件可能一直留在队列里
+                if (retrying.compareAndSet(false, true)) {
+                    if (LOGGER.isWarnEnabled()) {
+                        LOGGER.warn("Schedule event batch of " + subscriber + " rejected, retry after "
+                            + BATCH_RETRY_DELAY + "ms", e);
+                    }
+                    BATCH_RETRY_TIMER.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            retrying.set(false);
+                            schedule();
+                        }
+                    }, BATCH_RETRY_DELAY, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            Event event;
+            for (int i = 0; i < BATCH_DRAIN_SIZE && (event = events.poll()) != null; i++) {
+                size.decrementAndGet();
+                handleEvent(subscriber, event);
+            }
+            running.set(false);
+            // 队列里还有事件（没处理完，或者处理期间又进来了），重新提交，让出线程给其它任务
+            schedule();
+        }
+    }
 }
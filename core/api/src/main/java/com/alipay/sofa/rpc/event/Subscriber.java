@@ -26,7 +26,13 @@ public abstract class Subscriber {
     /**
      * 接到事件是否同步执行
      */
-    protected boolean sync = true;
+    protected boolean sync  = true;
+
+    /**
+     * 异步执行时是否批量接收事件：事件先放入有界的无锁队列，同一时间只有一个异步任务按顺序处理，
+     * 而不是每个事件都提交一次异步任务。队列满了之后新事件会被丢弃
+     */
+    protected boolean batch = false;
 
     /**
      * 事件订阅者
@@ -43,6 +49,17 @@ public abstract class Subscriber {
         this.sync = sync;
     }
 
+    /**
+     * 事件订阅者
+     *
+     * @param sync  是否同步
+     * @param batch 异步时是否批量接收
+     */
+    protected Subscriber(boolean sync, boolean batch) {
+        this.sync = sync;
+        this.batch = batch;
+    }
+
     /**
      * 是否同步
      *
@@ -52,6 +69,15 @@ public abstract class Subscriber {
         return sync;
     }
 
+    /**
+     * 异步时是否批量接收
+     *
+     * @return 是否批量接收
+     */
+    public boolean isBatch() {
+        return batch;
+    }
+
     /**
      * 事件处理，请处理异常
      *
@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.message;
+
+import com.alipay.sofa.rpc.context.RpcRuntimeContext;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁的响应Future，结果只能设置一次（CAS），支持注册响应监听器。<br>
+ * 监听器用无锁栈保存，结果返回后按注册顺序通知；结果返回后再注册的监听器立即通知。
+ * 设置了监听器线程池时在线程池中通知，否则在设置结果的线程中通知。<br>
+ * 通过监听器可以同时发起大量调用而不需要为每个调用阻塞一个线程。
+ *
+ * @param <V> 返回值类型
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public abstract class AbstractResponseFuture<V> implements ResponseFuture<V> {
+
+    /**
+     * slf4j Logger for this class
+     */
+    private final static Logger                 LOGGER      = LoggerFactory.getLogger(AbstractResponseFuture.class);
+
+    /**
+     * 已经通知过的监听器栈，结果返回后替换为此标记
+     */
+    private static final ListenerNode           COMPLETED   = new ListenerNode(null);
+
+    /**
+     * 返回值为null时的占位对象
+     */
+    private static final Object                 NULL_RESULT = new Object();
+
+    /**
+     * sofa请求
+     */
+    protected final SofaRequest                 request;
+
+    /**
+     * 用户设置的超时时间
+     */
+    protected final int                         timeout;
+
+    /**
+     * 返回的结果。如果返回的是异常，那就是个CauseHolder对象
+     *
+     * @see CauseHolder
+     */
+    private final AtomicReference<Object>       result      = new AtomicReference<Object>();
+
+    /**
+     * 还没有通知的监听器，后注册的在栈顶
+     */
+    private final AtomicReference<ListenerNode> listeners   = new AtomicReference<ListenerNode>();
+
+    /**
+     * 等待结果的线程
+     */
+    private final CountDownLatch                latch       = new CountDownLatch(1);
+
+    /**
+     * 通知监听器的线程池，为空则在设置结果的线程中通知
+     */
+    private volatile Executor                   listenerExecutor;
+
+    /**
+     * Future生成时间
+     */
+    protected final long                        genTime     = RpcRuntimeContext.now();
+
+    /**
+     * Future已发送时间
+     */
+    protected volatile long                     sentTime;
+
+    /**
+     * Future完成的时间
+     */
+    protected volatile long                     doneTime;
+
+    /**
+     * 构造函数
+     *
+     * @param request 请求
+     * @param timeout 超时时间（毫秒）
+     */
+    protected AbstractResponseFuture(SofaRequest request, int timeout) {
+        this.request = request;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        throw new UnsupportedOperationException("unsupported cancel method");
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return result.get() != null;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        try {
+            return get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long sent = sentTime;
+        long remainTime = unit.toMillis(timeout) - (sent == 0 ? 0 : sent - genTime); // 剩余时间
+        if (isDone() || (remainTime > 0 && latch.await(remainTime, TimeUnit.MILLISECONDS))) {
+            return getNow();
+        }
+        setDoneTime();
+        throw new TimeoutException();
+    }
+
+    private V getNow() throws ExecutionException {
+        Object value = result.get();
+        if (value instanceof CauseHolder) { // 异常
+            throw new ExecutionException(((CauseHolder) value).cause);
+        }
+        return value == NULL_RESULT ? null : (V) value;
+    }
+
+    /**
+     * 设置正常返回结果
+     *
+     * @param value 正常返回值
+     * @return 是否设置成功，已经有结果时返回false
+     */
+    protected boolean trySuccess(V value) {
+        return complete(value == null ? NULL_RESULT : value);
+    }
+
+    /**
+     * 设置异常
+     *
+     * @param cause        异常
+     * @param appException 是否业务异常，通知监听器时区分 onAppException 和 onSofaException
+     * @return 是否设置成功，已经有结果时返回false
+     */
+    protected boolean tryFailure(Throwable cause, boolean appException) {
+        return complete(new CauseHolder(cause, appException));
+    }
+
+    private boolean complete(Object value) {
+        if (!result.compareAndSet(null, value)) {
+            return false;
+        }
+        setDoneTime();
+        latch.countDown();
+        ListenerNode head = listeners.getAndSet(COMPLETED);
+        // 反转为注册顺序
+        ListenerNode ordered = null;
+        while (head != null && head != COMPLETED) {
+            ListenerNode next = head.next;
+            head.next = ordered;
+            ordered = head;
+            head = next;
+        }
+        for (ListenerNode node = ordered; node != null; node = node.next) {
+            notifyListener(node.listener);
+        }
+        return true;
+    }
+
+    @Override
+    public ResponseFuture addListeners(List<SofaResponseCallback> sofaResponseCallbacks) {
+        for (SofaResponseCallback callback : sofaResponseCallbacks) {
+            addListener(callback);
+        }
+        return this;
+    }
+
+    @Override
+    public ResponseFuture addListener(SofaResponseCallback sofaResponseCallback) {
+        ListenerNode node = new ListenerNode(sofaResponseCallback);
+        for (;;) {
+            ListenerNode head = listeners.get();
+            if (head == COMPLETED) { // 已经有结果，直接通知
+                notifyListener(sofaResponseCallback);
+                return this;
+            }
+            node.next = head;
+            if (listeners.compareAndSet(head, node)) {
+                return this;
+            }
+        }
+    }
+
+    private void notifyListener(final SofaResponseCallback listener) {
+        Executor executor = listenerExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        doNotifyListener(listener);
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Listener executor of response future is busy, notify listener in current thread");
+            }
+        }
+        doNotifyListener(listener);
+    }
+
+    private void doNotifyListener(SofaResponseCallback listener) {
+        String methodName = request.getMethodName();
+        Object value = result.get();
+        try {
+            if (value instanceof CauseHolder) {
+                CauseHolder holder = (CauseHolder) value;
+                Throwable cause = holder.cause;
+                if (holder.appException) { // 业务层异常
+                    listener.onAppException(cause, methodName, request);
+                } else { // rpc层异常
+                    SofaRpcException sofaRpcException = cause instanceof SofaRpcException ?
+                        (SofaRpcException) cause : new SofaRpcException(RpcErrorType.SERVER_UNDECLARED_ERROR,
+                            cause.getMessage(), cause);
+                    listener.onSofaException(sofaRpcException, methodName, request);
+                }
+            } else {
+                listener.onAppResponse(value == NULL_RESULT ? null : value, methodName, request);
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Catch exception when notify listener of response future", e);
+        }
+    }
+
+    /**
+     * 设置通知监听器的线程池，为空则在设置结果的线程中通知
+     *
+     * @param listenerExecutor 线程池
+     * @return 对象本身
+     */
+    public AbstractResponseFuture<V> setListenerExecutor(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+        return this;
+    }
+
+    /**
+     * 通知监听器的线程池
+     *
+     * @return 线程池，可能为空
+     */
+    public Executor getListenerExecutor() {
+        return listenerExecutor;
+    }
+
+    /**
+     * 设置已发送时间
+     */
+    public void setSentTime() {
+        this.sentTime = RpcRuntimeContext.now();
+    }
+
+    /**
+     * 记录结束时间
+     */
+    protected void setDoneTime() {
+        if (doneTime == 0L) {
+            doneTime = RpcRuntimeContext.now();
+        }
+    }
+
+    /**
+     * 查看future耗时
+     *
+     * @return 耗时
+     */
+    public long getElapsedTime() {
+        return doneTime - genTime;
+    }
+
+    /**
+     * 异常包装类
+     */
+    private static final class CauseHolder {
+        final Throwable cause;
+        final boolean   appException;
+
+        private CauseHolder(Throwable cause, boolean appException) {
+            this.cause = cause;
+            this.appException = appException;
+        }
+    }
+
+    /**
+     * 监听器栈的节点
+     */
+    private static final class ListenerNode {
+        final SofaResponseCallback listener;
+        ListenerNode               next;
+
+        private ListenerNode(SofaResponseCallback listener) {
+            this.listener = listener;
+        }
+    }
+}
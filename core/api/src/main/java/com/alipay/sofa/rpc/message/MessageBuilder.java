@@ -66,6 +66,26 @@ public class MessageBuilder {
         return request;
     }
 
+    /**
+     * 构建请求，常用于代理类拦截，方法和参数签名已经预先计算好，只需要复制参数引用
+     *
+     * @param interfaceName 接口名
+     * @param method        方法
+     * @param argSigs       方法参数签名，多个请求共享，不能修改
+     * @param args          方法参数值
+     * @return 远程调用请求
+     */
+    public static SofaRequest buildSofaRequest(String interfaceName, Method method, String[] argSigs,
+                                               Object[] args) {
+        SofaRequest request = new SofaRequest();
+        request.setInterfaceName(interfaceName);
+        request.setMethodName(method.getName());
+        request.setMethod(method);
+        request.setMethodArgs(args == null ? new Object[0] : args);
+        request.setMethodArgSigs(argSigs);
+        return request;
+    }
+
     /**
      * 构建rpc错误结果
      *
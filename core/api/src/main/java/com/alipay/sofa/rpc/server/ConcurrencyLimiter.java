@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.ext.Extensible;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务端的自适应并发限制，根据请求的响应时间（包括在业务线程池里的排队时间）动态调整允许同时处理的请求数。<br>
+ * 请求进入业务线程池之前调用 {@link #tryAcquire()}，失败则直接拒绝；处理完成后调用 {@link #release(long)} 上报响应时间。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extensible(singleton = false)
+public abstract class ConcurrencyLimiter {
+
+    /**
+     * 最小并发限制
+     */
+    protected final int         minLimit = RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_MIN);
+
+    /**
+     * 最大并发限制
+     */
+    protected final int         maxLimit = Math.max(minLimit, RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_MAX));
+
+    /**
+     * 当前处理中的请求数
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * 被拒绝的请求数
+     */
+    private final AtomicLong    rejected = new AtomicLong();
+
+    /**
+     * 当前的并发限制
+     */
+    private volatile int        limit    = clamp(RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_INITIAL));
+
+    /**
+     * 尝试占用一个并发，超过当前限制时返回false
+     *
+     * @return 是否占用成功，成功后必须调用 {@link #release(long)} 或者 {@link #release()}
+     */
+    public boolean tryAcquire() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求处理完成，释放并发并根据响应时间调整限制
+     *
+     * @param rttNanos 从占用到释放的时间（纳秒）
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        if (rttNanos > 0) {
+            int newLimit = clamp(update(limit, current, rttNanos));
+            if (newLimit != limit) {
+                // 并发更新时以最后一次为准，下一个样本会继续修正
+                limit = newLimit;
+            }
+        }
+    }
+
+    /**
+     * 请求没有被处理（例如线程池拒绝），只释放并发，不作为样本
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 根据一个响应时间样本计算新的并发限制
+     *
+     * @param limit    当前的并发限制
+     * @param inflight 这个请求处理时的并发数（包括自己）
+     * @param rttNanos 响应时间（纳秒）
+     * @return 新的并发限制，会被限制在 [minLimit, maxLimit] 之间
+     */
+    protected abstract int update(int limit, int inflight, long rttNanos);
+
+    private int clamp(int value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * 当前的并发限制
+     *
+     * @return 当前的并发限制
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 当前处理中的请求数
+     *
+     * @return 当前处理中的请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 被拒绝的请求数
+     *
+     * @return 被拒绝的请求数
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{limit=" + limit + ", inflight=" + inflight.get() + ", rejected="
+            + rejected.get() + '}';
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同一个JVM内已发布的服务，供开启了 inJVM 的服务消费者直接调用，不走网络
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class InJvmInvokerRegistry {
+
+    /**
+     * 服务唯一名称 : 服务端调用链入口
+     */
+    private final static ConcurrentHashMap<String, ProviderProxyInvoker> INVOKER_MAP = new ConcurrentHashMap<String, ProviderProxyInvoker>();
+
+    /**
+     * 注册服务，同一个服务多次发布的以最后一次为准
+     *
+     * @param serviceUniqueName 服务唯一名称
+     * @param invoker           服务端调用链入口
+     */
+    public static void register(String serviceUniqueName, ProviderProxyInvoker invoker) {
+        INVOKER_MAP.put(serviceUniqueName, invoker);
+    }
+
+    /**
+     * 取消注册服务，只有注册的是同一个调用链入口才会取消
+     *
+     * @param serviceUniqueName 服务唯一名称
+     * @param invoker           服务端调用链入口
+     */
+    public static void unRegister(String serviceUniqueName, ProviderProxyInvoker invoker) {
+        INVOKER_MAP.remove(serviceUniqueName, invoker);
+    }
+
+    /**
+     * 查找服务
+     *
+     * @param serviceUniqueName 服务唯一名称
+     * @return 服务端调用链入口，没有发布时为null
+     */
+    public static ProviderProxyInvoker getInvoker(String serviceUniqueName) {
+        return serviceUniqueName == null ? null : INVOKER_MAP.get(serviceUniqueName);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.limit;
+
+import com.alipay.sofa.rpc.ext.Extension;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于响应时间梯度的并发限制：比较长期平均响应时间和当前响应时间，当前响应时间明显变长时按比例减小限制，
+ * 否则每次增加一个和限制的平方根相当的余量。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension("gradient")
+public class GradientLimiter extends ConcurrencyLimiter {
+
+    /**
+     * 当前响应时间超过长期平均值的多少倍才开始减小限制
+     */
+    private static final double TOLERANCE  = 1.5;
+
+    /**
+     * 新限制的平滑系数
+     */
+    private static final double SMOOTHING  = 0.2;
+
+    /**
+     * 长期平均响应时间的衰减系数，约等于最近600个样本的平均
+     */
+    private static final double LONG_DECAY = 2d / 601;
+
+    /**
+     * 长期平均响应时间（纳秒），存放double的二进制值
+     */
+    private final AtomicLong    longRtt    = new AtomicLong(Double.doubleToLongBits(0d));
+
+    @Override
+    protected int update(int limit, int inflight, long rttNanos) {
+        double shortRtt = rttNanos;
+        double longValue;
+        for (;;) {
+            long bits = longRtt.get();
+            double old = Double.longBitsToDouble(bits);
+            longValue = old == 0 ? shortRtt : old * (1 - LONG_DECAY) + shortRtt * LONG_DECAY;
+            // 长期值远大于当前值（例如从过载中恢复）时加快衰减，尽快恢复限制
+            if (longValue > 2 * shortRtt) {
+                longValue *= 0.95;
+            }
+            if (longRtt.compareAndSet(bits, Double.doubleToLongBits(longValue))) {
+                break;
+            }
+        }
+        // 请求量还用不满限制时，响应时间说明不了什么，保持不变
+        if (inflight * 2 < limit) {
+            return limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longValue / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        return (int) Math.round(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.limit;
+
+import com.alipay.sofa.rpc.ext.Extension;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类似 TCP Vegas 的并发限制：以最小响应时间作为无排队时的响应时间，估算排队的请求数，
+ * 排队少时增加限制，排队多时减小限制。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@Extension("vegas")
+public class VegasLimiter extends ConcurrencyLimiter {
+
+    /**
+     * 每隔多少个样本用这段时间内的最小响应时间重新作为无排队时的响应时间，避免一直使用过时的最小值
+     */
+    private static final int    PROBE_INTERVAL = 1000;
+
+    /**
+     * 无排队时的响应时间（纳秒）
+     */
+    private final AtomicLong    rttNoLoad      = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * 当前这段样本里的最小响应时间（纳秒）
+     */
+    private final AtomicLong    windowMinRtt   = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * 样本数
+     */
+    private final AtomicInteger samples        = new AtomicInteger();
+
+    @Override
+    protected int update(int limit, int inflight, long rttNanos) {
+        long windowMin = updateMin(windowMinRtt, rttNanos);
+        if ((samples.incrementAndGet() & Integer.MAX_VALUE) % PROBE_INTERVAL == 0) {
+            // 一段样本结束，用这段时间内的最小值替换，而不是用当前这一个样本
+            rttNoLoad.set(Math.min(windowMin, windowMinRtt.getAndSet(Long.MAX_VALUE)));
+            return limit;
+        }
+        long base = updateMin(rttNoLoad, rttNanos);
+        // 请求量还用不满限制时，响应时间说明不了什么，保持不变
+        if (inflight * 2 < limit) {
+            return limit;
+        }
+        int queueSize = (int) Math.ceil(limit * (1 - (double) base / rttNanos));
+        double threshold = Math.max(1, Math.log10(limit));
+        double alpha = 3 * threshold;
+        double beta = 6 * threshold;
+        if (queueSize <= threshold) {
+            return (int) (limit + beta);
+        } else if (queueSize < alpha) {
+            return (int) (limit + threshold);
+        } else if (queueSize > beta) {
+            return (int) (limit - threshold);
+        }
+        return limit;
+    }
+
+    /**
+     * 更新最小值
+     *
+     * @param min   最小值
+     * @param value 新的值
+     * @return 更新后的最小值
+     */
+    private static long updateMin(AtomicLong min, long value) {
+        for (;;) {
+            long current = min.get();
+            if (value >= current) {
+                return current;
+            }
+            if (min.compareAndSet(current, value)) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * 无排队时的响应时间
+     *
+     * @return 无排队时的响应时间（纳秒）
+     */
+    long getRttNoLoad() {
+        return rttNoLoad.get();
+    }
+}
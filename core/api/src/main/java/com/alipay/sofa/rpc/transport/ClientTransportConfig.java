@@ -26,6 +26,8 @@ import static com.alipay.sofa.rpc.common.RpcConfigs.getBooleanValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getIntValue;
 import static com.alipay.sofa.rpc.common.RpcConfigs.getStringValue;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_NUM;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_SELECTOR;
+import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECTION_WARMUP;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_CONNECT_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_DISCONNECT_TIMEOUT;
 import static com.alipay.sofa.rpc.common.RpcOptions.CONSUMER_INVOKE_TIMEOUT;
@@ -51,31 +53,39 @@ public class ClientTransportConfig {
     /**
      * 默认传输实现（一般和协议一致）
      */
-    private String                container         = getStringValue(DEFAULT_TRANSPORT);
+    private String                container          = getStringValue(DEFAULT_TRANSPORT);
     /**
      * 默认连接超时时间
      */
-    private int                   connectTimeout    = getIntValue(CONSUMER_CONNECT_TIMEOUT);
+    private int                   connectTimeout     = getIntValue(CONSUMER_CONNECT_TIMEOUT);
     /**
      * 默认断开连接超时时间
      */
-    private int                   disconnectTimeout = getIntValue(CONSUMER_DISCONNECT_TIMEOUT);
+    private int                   disconnectTimeout  = getIntValue(CONSUMER_DISCONNECT_TIMEOUT);
     /**
      * 默认的调用超时时间（长连接调用时会被覆盖）
      */
-    private int                   invokeTimeout     = getIntValue(CONSUMER_INVOKE_TIMEOUT);
+    private int                   invokeTimeout      = getIntValue(CONSUMER_INVOKE_TIMEOUT);
     /**
      * 默认一个地址建立长连接的数量
      */
-    private int                   connectionNum     = getIntValue(CONSUMER_CONNECTION_NUM);
+    private int                   connectionNum      = getIntValue(CONSUMER_CONNECTION_NUM);
+    /**
+     * 多个长连接时是否同步预热全部长连接
+     */
+    private boolean               connectionWarmup   = getBooleanValue(CONSUMER_CONNECTION_WARMUP);
+    /**
+     * 多个长连接时的选择策略
+     */
+    private String                connectionSelector = getStringValue(CONSUMER_CONNECTION_SELECTOR);
     /**
      * 最大数据量
      */
-    private int                   payload           = getIntValue(TRANSPORT_PAYLOAD_MAX);
+    private int                   payload            = getIntValue(TRANSPORT_PAYLOAD_MAX);
     /**
      * 是否使用Epoll
      */
-    private boolean               useEpoll          = getBooleanValue(TRANSPORT_USE_EPOLL);
+    private boolean               useEpoll           = getBooleanValue(TRANSPORT_USE_EPOLL);
     /**
      * 连接事件监听器
      */
@@ -221,6 +231,46 @@ public class ClientTransportConfig {
         return this;
     }
 
+    /**
+     * Is connection warmup boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isConnectionWarmup() {
+        return connectionWarmup;
+    }
+
+    /**
+     * Sets connection warmup.
+     *
+     * @param connectionWarmup the connection warmup
+     * @return the connection warmup
+     */
+    public ClientTransportConfig setConnectionWarmup(boolean connectionWarmup) {
+        this.connectionWarmup = connectionWarmup;
+        return this;
+    }
+
+    /**
+     * Gets connection selector.
+     *
+     * @return the connection selector
+     */
+    public String getConnectionSelector() {
+        return connectionSelector;
+    }
+
+    /**
+     * Sets connection selector.
+     *
+     * @param connectionSelector the connection selector
+     * @return the connection selector
+     */
+    public ClientTransportConfig setConnectionSelector(String connectionSelector) {
+        this.connectionSelector = connectionSelector;
+        return this;
+    }
+
     /**
      * Gets payload.
      *
@@ -209,4 +209,36 @@ public class ProviderHelperTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void initWarmup() throws Exception {
+        long now = System.currentTimeMillis();
+        // 没有预热时长
+        ProviderInfo providerInfo = ProviderInfo.valueOf("127.0.0.1:12200?weight=100&startTime=" + now);
+        Assert.assertFalse(ProviderHelper.initWarmup(providerInfo));
+        Assert.assertEquals(ProviderStatus.AVAILABLE, providerInfo.getStatus());
+
+        // 早就启动了，已经过了预热时间
+        providerInfo = ProviderInfo.valueOf("127.0.0.1:12200?weight=100&warmupTime=10000&startTime="
+            + (now - 20000));
+        Assert.assertFalse(ProviderHelper.initWarmup(providerInfo));
+        Assert.assertEquals(ProviderStatus.AVAILABLE, providerInfo.getStatus());
+        Assert.assertEquals(100, providerInfo.getWeight());
+
+        // 刚启动
+        providerInfo = ProviderInfo.valueOf("127.0.0.1:12200?weight=100&warmupTime=10000&warmupWeight=10&startTime="
+            + (now - 5000));
+        Assert.assertTrue(ProviderHelper.initWarmup(providerInfo));
+        Assert.assertEquals(ProviderStatus.WARMING_UP, providerInfo.getStatus());
+        Assert.assertEquals(now + 5000, providerInfo.getDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME));
+        int weight = providerInfo.getWeight();
+        Assert.assertTrue(weight >= 55 && weight < 65);
+
+        // 服务端时钟比本地快，按本地时间开始预热
+        providerInfo = ProviderInfo.valueOf("127.0.0.1:12200?weight=100&warmupTime=10000&startTime="
+            + (now + 60000));
+        Assert.assertTrue(ProviderHelper.initWarmup(providerInfo));
+        long endTime = (Long) providerInfo.getDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME);
+        Assert.assertTrue(endTime >= now + 10000 && endTime < now + 20000);
+        Assert.assertTrue(providerInfo.getWeight() < 20);
+    }
+}
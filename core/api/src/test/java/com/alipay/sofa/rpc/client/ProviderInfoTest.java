@@ -297,4 +297,38 @@ public class ProviderInfoTest {
         map.remove(p2);
         Assert.assertEquals(map.size(), 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWarmupWeight() throws Exception {
+        long now = System.currentTimeMillis();
+        ProviderInfo providerInfo = ProviderInfo.valueOf("127.0.0.1:12200?weight=100");
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME, 10000);
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, now + 5000);
+        providerInfo.setStatus(ProviderStatus.WARMING_UP);
+        // 预热到一半，权重也增加到一半左右
+        int weight = providerInfo.getWeight();
+        Assert.assertTrue(weight >= 50 && weight < 60);
+
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT, 20);
+        weight = providerInfo.getWeight();
+        Assert.assertTrue(weight >= 60 && weight < 70);
+
+        // 刚开始预热，至少保留1
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT, null);
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, now + 20000);
+        Assert.assertEquals(1, providerInfo.getWeight());
+
+        // 没有预热时长，按固定的预热权重
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME, null);
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT, 10);
+        Assert.assertEquals(10, providerInfo.getWeight());
+
+        // 预热结束，恢复为原始权重
+        long version = ProviderInfo.getGlobalWeightVersion();
+        providerInfo.setDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME, now - 1);
+        Assert.assertEquals(100, providerInfo.getWeight());
+        Assert.assertEquals(ProviderStatus.AVAILABLE, providerInfo.getStatus());
+        Assert.assertNull(providerInfo.getDynamicAttr(ProviderInfoAttrs.ATTR_WARM_UP_END_TIME));
+        Assert.assertTrue(ProviderInfo.getGlobalWeightVersion() > version);
+    }
+}
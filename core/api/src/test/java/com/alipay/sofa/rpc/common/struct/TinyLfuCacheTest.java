@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common.struct;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TinyLfuCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        TinyLfuCache cache = new TinyLfuCache(100, 0);
+        Object key = cache.buildKey("a.b.C", "get", new Object[] { "x", 1, new int[] { 1, 2 } });
+        Assert.assertEquals(key, cache.buildKey("a.b.C", "get", new Object[] { "x", 1, new int[] { 1, 2 } }));
+        Assert.assertFalse(key.equals(cache.buildKey("a.b.C", "get", new Object[] { "x", 2, new int[] { 1, 2 } })));
+        Assert.assertFalse(key.equals(cache.buildKey("a.b.C", "list", new Object[] { "x", 1, new int[] { 1, 2 } })));
+
+        // 重载方法参数值相同，参数类型不同
+        Object intKey = cache.buildKey("a.b.C", "get", new String[] { "java.lang.Integer" }, new Object[] { null });
+        Object longKey = cache.buildKey("a.b.C", "get", new String[] { "java.lang.Long" }, new Object[] { null });
+        Assert.assertFalse(intKey.equals(longKey));
+        Assert.assertEquals(intKey,
+            cache.buildKey("a.b.C", "get", new String[] { "java.lang.Integer" }, new Object[] { null }));
+
+        Assert.assertNull(cache.get(key));
+        cache.put(key, "value");
+        Assert.assertEquals("value", cache.get(key));
+        cache.put(key, "value2");
+        Assert.assertEquals("value2", cache.get(key));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        Assert.assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        TinyLfuCache cache = new TinyLfuCache(100, 50);
+        cache.put("key", "value");
+        Assert.assertEquals("value", cache.get("key"));
+        Thread.sleep(100);
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        int maxSize = 100;
+        TinyLfuCache cache = new TinyLfuCache(maxSize, 0);
+        // 热点数据
+        for (int i = 0; i < maxSize; i++) {
+            cache.put("hot" + i, i);
+            for (int j = 0; j < 5; j++) {
+                cache.get("hot" + i);
+            }
+        }
+        // 只访问一次的数据不应该把热点数据挤出去
+        for (int i = 0; i < maxSize * 10; i++) {
+            cache.get("cold" + i);
+            cache.put("cold" + i, i);
+        }
+        Assert.assertTrue(cache.size() <= maxSize);
+        Assert.assertTrue(cache.getEvictionCount() >= maxSize * 10);
+        int hot = 0;
+        for (int i = 0; i < maxSize; i++) {
+            if (cache.get("hot" + i) != null) {
+                hot++;
+            }
+        }
+        Assert.assertTrue(hot > maxSize * 9 / 10);
+    }
+}
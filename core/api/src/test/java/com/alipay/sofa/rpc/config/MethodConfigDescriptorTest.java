@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.config;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MethodConfigDescriptorTest {
+
+    @Test
+    public void testMethodValues() {
+        ConsumerConfig<Object> consumerConfig = new ConsumerConfig<Object>();
+        consumerConfig.setTimeout(1000);
+        consumerConfig.setRetries(1);
+        consumerConfig.setCache(true);
+        MethodConfig methodConfig = new MethodConfig();
+        methodConfig.setName("echo");
+        methodConfig.setTimeout(2000);
+        methodConfig.setInvokeType(RpcConstants.INVOKER_TYPE_FUTURE);
+        methodConfig.setCache(false);
+        methodConfig.setCoalesce(true);
+        methodConfig.setConcurrents(5);
+        methodConfig.setCompress("snappy");
+        consumerConfig.setMethods(Collections.singletonList(methodConfig));
+
+        // 没有构建配置缓存前没有方法级配置
+        Assert.assertNull(consumerConfig.getMethodDescriptor("echo").getTimeout());
+        Assert.assertEquals(1000, consumerConfig.getMethodTimeout("echo"));
+
+        consumerConfig.getConfigValueCache(false);
+        MethodConfigDescriptor descriptor = consumerConfig.getMethodDescriptor("echo");
+        Assert.assertEquals("echo", descriptor.getMethodName());
+        Assert.assertEquals(Integer.valueOf(2000), descriptor.getTimeout());
+        Assert.assertNull(descriptor.getRetries());
+        Assert.assertEquals(RpcConstants.INVOKER_TYPE_FUTURE, descriptor.getInvokeType());
+        Assert.assertEquals(Boolean.FALSE, descriptor.getCache());
+        Assert.assertEquals(Boolean.TRUE, descriptor.getCoalesce());
+        Assert.assertEquals(Integer.valueOf(5), descriptor.getConcurrents());
+        Assert.assertEquals("snappy", descriptor.getCompress());
+        Assert.assertSame(descriptor, consumerConfig.getMethodDescriptor("echo"));
+
+        Assert.assertEquals(2000, consumerConfig.getMethodTimeout("echo"));
+        Assert.assertEquals(1, consumerConfig.getMethodRetries("echo"));
+        Assert.assertEquals(RpcConstants.INVOKER_TYPE_FUTURE, consumerConfig.getMethodInvokeType("echo"));
+        Assert.assertEquals("snappy", consumerConfig.getMethodCompress("echo"));
+
+        // 没有方法级配置的方法取接口级配置
+        Assert.assertNull(consumerConfig.getMethodDescriptor("other").getTimeout());
+        Assert.assertEquals(1000, consumerConfig.getMethodTimeout("other"));
+        Assert.assertEquals(RpcConstants.INVOKER_TYPE_SYNC, consumerConfig.getMethodInvokeType("other"));
+    }
+
+    @Test
+    public void testRebuild() {
+        ConsumerConfig<Object> consumerConfig = new ConsumerConfig<Object>();
+        consumerConfig.setTimeout(1000);
+        consumerConfig.getConfigValueCache(false);
+        MethodConfigDescriptor descriptor = consumerConfig.getMethodDescriptor("echo");
+        Assert.assertEquals(1000, consumerConfig.getMethodTimeout("echo"));
+
+        // 动态配置变更后重建配置缓存，方法级配置整体替换
+        Assert.assertTrue(consumerConfig.updateAttribute(".echo.timeout", "3000", true));
+        Assert.assertEquals(1000, consumerConfig.getMethodTimeout("echo"));
+        consumerConfig.getConfigValueCache(true);
+        Assert.assertNotSame(descriptor, consumerConfig.getMethodDescriptor("echo"));
+        Assert.assertEquals(3000, consumerConfig.getMethodTimeout("echo"));
+    }
+}
@@ -21,6 +21,12 @@ import com.alipay.sofa.rpc.common.RpcOptions;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  *
  *
@@ -67,4 +73,71 @@ public class EventBusTest {
         Assert.assertEquals(EventBus.isEnable(TestEvent.class), false);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void postBatch() throws Exception {
+        final int count = 1000;
+        final CountDownLatch latch = new CountDownLatch(count);
+        final List<String> names = new ArrayList<String>();
+        Subscriber subscriber = new Subscriber(false, true) {
+            @Override
+            public void onEvent(Event event) {
+                // 同一时间只有一个线程在处理
+                names.add(((TestEvent) event).getName());
+                latch.countDown();
+            }
+        };
+        try {
+            EventBus.register(TestEvent.class, subscriber);
+            for (int i = 0; i < count; i++) {
+                EventBus.post(new TestEvent(String.valueOf(i)));
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(count, names.size());
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(String.valueOf(i), names.get(i));
+            }
+            Assert.assertEquals(0, EventBus.getDroppedEvents(subscriber));
+        } finally {
+            EventBus.unRegister(TestEvent.class, subscriber);
+        }
+        Assert.assertEquals(EventBus.isEnable(TestEvent.class), false);
+    }
+
+    @Test
+    public void postBatchOverflow() throws Exception {
+        final int queueSize = RpcConfigs.getIntValue(RpcOptions.EVENT_BUS_BATCH_QUEUE);
+        final int count = queueSize + 1000;
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final AtomicInteger handled = new AtomicInteger();
+        Subscriber subscriber = new Subscriber(false, true) {
+            @Override
+            public void onEvent(Event event) {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                handled.incrementAndGet();
+            }
+        };
+        try {
+            EventBus.register(TestEvent.class, subscriber);
+            for (int i = 0; i < count; i++) {
+                EventBus.post(new TestEvent(String.valueOf(i)));
+            }
+            long dropped = EventBus.getDroppedEvents(subscriber);
+            Assert.assertTrue(dropped > 0);
+            blocker.countDown();
+
+            long end = System.currentTimeMillis() + 5000;
+            while (handled.get() + dropped < count && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(count, handled.get() + dropped);
+        } finally {
+            blocker.countDown();
+            EventBus.unRegister(TestEvent.class, subscriber);
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.message;
+
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.invoke.SofaResponseCallback;
+import com.alipay.sofa.rpc.core.request.RequestBase;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class AbstractResponseFutureTest {
+
+    @Test
+    public void testListenerOrder() throws Exception {
+        TestFuture future = new TestFuture(buildRequest(), 1000);
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        future.addListener(new RecordCallback("a", events));
+        future.addListeners(Collections.<SofaResponseCallback> singletonList(new RecordCallback("b", events)));
+        Assert.assertFalse(future.isDone());
+        Assert.assertTrue(events.isEmpty());
+
+        Assert.assertTrue(future.trySuccess("ok"));
+        Assert.assertFalse(future.trySuccess("again"));
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals("ok", future.get());
+        Assert.assertEquals("[a:ok, b:ok]", events.toString());
+
+        // 结果返回后注册的监听器立即通知
+        future.addListener(new RecordCallback("c", events));
+        Assert.assertEquals("[a:ok, b:ok, c:ok]", events.toString());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        TestFuture appFuture = new TestFuture(buildRequest(), 1000);
+        appFuture.addListener(new RecordCallback("a", events));
+        appFuture.tryFailure(new IllegalStateException("biz"), true);
+        try {
+            appFuture.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        TestFuture rpcFuture = new TestFuture(buildRequest(), 1000);
+        rpcFuture.addListener(new RecordCallback("b", events));
+        rpcFuture.tryFailure(new IllegalStateException("rpc"), false);
+        Assert.assertEquals("[a:app:biz, b:sofa:rpc]", events.toString());
+
+        TestFuture nullFuture = new TestFuture(buildRequest(), 1000);
+        Assert.assertTrue(nullFuture.trySuccess(null));
+        Assert.assertTrue(nullFuture.isDone());
+        Assert.assertNull(nullFuture.get());
+    }
+
+    @Test
+    public void testTimeoutAndWait() throws Exception {
+        final TestFuture future = new TestFuture(buildRequest(), 50);
+        try {
+            future.get(20, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException e) {
+            // expected
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignore) { // NOPMD
+                }
+                future.trySuccess("late");
+            }
+        }).start();
+        Assert.assertEquals("late", future.get(3000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testListenerExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "future-listener");
+            }
+        });
+        try {
+            TestFuture future = new TestFuture(buildRequest(), 1000);
+            future.setListenerExecutor(executor);
+            final CountDownLatch latch = new CountDownLatch(1);
+            final String[] thread = new String[1];
+            future.addListener(new RecordCallback("a", new ArrayList<String>()) {
+                @Override
+                public void onAppResponse(Object appResponse, String methodName, RequestBase request) {
+                    thread[0] = Thread.currentThread().getName();
+                    latch.countDown();
+                }
+            });
+            future.trySuccess("ok");
+            Assert.assertTrue(latch.await(3000, TimeUnit.MILLISECONDS));
+            Assert.assertEquals("future-listener", thread[0]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SofaRequest buildRequest() {
+        SofaRequest request = new SofaRequest();
+        request.setMethodName("echo");
+        return request;
+    }
+
+    private static class TestFuture extends AbstractResponseFuture<String> {
+        TestFuture(SofaRequest request, int timeout) {
+            super(request, timeout);
+        }
+    }
+
+    private static class RecordCallback implements SofaResponseCallback {
+        private final String       name;
+        private final List<String> events;
+
+        RecordCallback(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void onAppResponse(Object appResponse, String methodName, RequestBase request) {
+            events.add(name + ":" + appResponse);
+        }
+
+        @Override
+        public void onAppException(Throwable throwable, String methodName, RequestBase request) {
+            events.add(name + ":app:" + throwable.getMessage());
+        }
+
+        @Override
+        public void onSofaException(SofaRpcException sofaException, String methodName, RequestBase request) {
+            events.add(name + ":sofa:" + sofaException.getMessage());
+        }
+    }
+}
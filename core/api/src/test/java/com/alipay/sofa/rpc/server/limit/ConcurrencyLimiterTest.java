@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.limit;
+
+import com.alipay.sofa.rpc.ext.ExtensionLoaderFactory;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void testExtension() {
+        Assert.assertTrue(ExtensionLoaderFactory.getExtensionLoader(ConcurrencyLimiter.class)
+            .getExtension("vegas") instanceof VegasLimiter);
+        Assert.assertTrue(ExtensionLoaderFactory.getExtensionLoader(ConcurrencyLimiter.class)
+            .getExtension("gradient") instanceof GradientLimiter);
+    }
+
+    @Test
+    public void testTryAcquire() {
+        ConcurrencyLimiter limiter = new VegasLimiter();
+        int limit = limiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(limit, limiter.getInflight());
+        Assert.assertEquals(1, limiter.getRejected());
+
+        limiter.release();
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testVegas() {
+        testAdaptive(new VegasLimiter());
+    }
+
+    @Test
+    public void testVegasRttNoLoad() {
+        VegasLimiter limiter = new VegasLimiter();
+        int limit = limiter.getLimit();
+        for (int i = 0; i < 1000; i++) {
+            limiter.update(limit, limit, 10);
+        }
+        Assert.assertEquals(10, limiter.getRttNoLoad());
+        // 响应时间整体变长，一段样本结束后用这段时间内的最小值，而不是最后一个样本
+        for (int i = 0; i < 999; i++) {
+            limiter.update(limit, limit, 20);
+        }
+        Assert.assertEquals(10, limiter.getRttNoLoad());
+        limiter.update(limit, limit, 50);
+        Assert.assertEquals(20, limiter.getRttNoLoad());
+    }
+
+    @Test
+    public void testGradient() {
+        testAdaptive(new GradientLimiter());
+    }
+
+    private void testAdaptive(ConcurrencyLimiter limiter) {
+        int initial = limiter.getLimit();
+        // 并发用满并且响应时间稳定，限制增加
+        runFull(limiter, FAST, 2);
+        int grown = limiter.getLimit();
+        Assert.assertTrue(grown > initial);
+
+        // 响应时间明显变长，限制减小
+        runFull(limiter, SLOW, 1);
+        Assert.assertTrue(limiter.getLimit() < grown);
+
+        // 请求量很小时不调整
+        int limit = limiter.getLimit();
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.release(SLOW * 10);
+        Assert.assertEquals(limit, limiter.getLimit());
+    }
+
+    private void runFull(ConcurrencyLimiter limiter, long rtt, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rtt);
+            }
+        }
+    }
+}
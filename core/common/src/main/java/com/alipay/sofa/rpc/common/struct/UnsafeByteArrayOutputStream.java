@@ -78,6 +78,10 @@ public class UnsafeByteArrayOutputStream extends OutputStream {
         mCount = 0;
     }
 
+    public int capacity() {
+        return mBuffer.length;
+    }
+
     public byte[] toByteArray() {
         return Arrays.copyOf(mBuffer, mCount);
     }
@@ -175,6 +175,25 @@ public class CommonUtils {
         }
     }
 
+    /**
+     * 字符串转长整数
+     *
+     * @param num         数字
+     * @param defaultLong 默认值
+     * @return long
+     */
+    public static long parseLong(String num, long defaultLong) {
+        if (num == null) {
+            return defaultLong;
+        } else {
+            try {
+                return Long.parseLong(num);
+            } catch (Exception e) {
+                return defaultLong;
+            }
+        }
+    }
+
     /**
      * 字符串转布尔
      *
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common.utils;
+
+/**
+ * 非加密的快速hash工具类（MurmurHash3 x86_32），计算过程不产生对象
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public final class HashUtils {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    /**
+     * 对字符序列做hash，直接使用char，不需要先转换为byte数组
+     *
+     * @param data 字符序列
+     * @param seed 种子
+     * @return hash值
+     */
+    public static int murmurHash3(CharSequence data, int seed) {
+        int h1 = seed;
+        int length = data.length();
+        // 每两个char组成一个int
+        for (int i = 1; i < length; i += 2) {
+            int k1 = data.charAt(i - 1) | (data.charAt(i) << 16);
+            h1 = mixH1(h1, mixK1(k1));
+        }
+        if ((length & 1) == 1) {
+            h1 ^= mixK1(data.charAt(length - 1));
+        }
+        return fmix(h1, 2 * length);
+    }
+
+    /**
+     * 对long值做hash
+     *
+     * @param data long值
+     * @param seed 种子
+     * @return hash值
+     */
+    public static int murmurHash3(long data, int seed) {
+        int h1 = seed;
+        h1 = mixH1(h1, mixK1((int) data));
+        h1 = mixH1(h1, mixK1((int) (data >>> 32)));
+        return fmix(h1, 8);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        h1 = h1 * 5 + 0xe6546b64;
+        return h1;
+    }
+
+    private static int fmix(int h1, int length) {
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+}
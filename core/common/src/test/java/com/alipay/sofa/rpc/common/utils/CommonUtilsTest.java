@@ -169,6 +169,14 @@ public class CommonUtilsTest {
         Assert.assertEquals(CommonUtils.parseInt("12345", 123), 12345);
     }
 
+    @Test
+    public void testParseLong() {
+        Assert.assertEquals(CommonUtils.parseLong("", 123L), 123L);
+        Assert.assertEquals(CommonUtils.parseLong("xxx", 123L), 123L);
+        Assert.assertEquals(CommonUtils.parseLong(null, 123L), 123L);
+        Assert.assertEquals(CommonUtils.parseLong("1512345678901", 123L), 1512345678901L);
+    }
+
     @Test
     public void testListEquals() throws Exception {
         List left = new ArrayList();
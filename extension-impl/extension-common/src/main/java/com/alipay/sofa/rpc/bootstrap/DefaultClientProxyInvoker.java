@@ -101,6 +101,8 @@ public class DefaultClientProxyInvoker extends ClientProxyInvoker {
             // 找到调用类型， generic的时候类型在filter里进行判断
             request.setInvokeType(consumerConfig.getMethodInvokeType(request.getMethodName()));
         }
+        // 压缩算法，请求体超过压缩基线才会真正压缩
+        request.setCompressType(consumerConfig.getMethodCompress(request.getMethodName()));
 
         RpcInvokeContext invokeCtx = RpcInvokeContext.peekContext();
         RpcInternalContext internalContext = RpcInternalContext.getContext();
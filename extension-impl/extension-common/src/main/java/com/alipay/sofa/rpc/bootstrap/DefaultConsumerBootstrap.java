@@ -16,6 +16,7 @@
  */
 package com.alipay.sofa.rpc.bootstrap;
 
+import com.alipay.sofa.rpc.client.BatchResult;
 import com.alipay.sofa.rpc.client.ClientProxyInvoker;
 import com.alipay.sofa.rpc.client.Cluster;
 import com.alipay.sofa.rpc.client.ClusterFactory;
@@ -494,6 +495,8 @@ public class DefaultConsumerBootstrap<T> extends ConsumerBootstrap<T> {
                     for (Map.Entry<String, String> entry : newValues.entrySet()) { // change attrs
                         consumerConfig.updateAttribute(entry.getKey(), entry.getValue(), true);
                     }
+                    // 重建配置缓存，方法级配置随之整体替换
+                    consumerConfig.getConfigValueCache(true);
                     // 需要重新发布
                     if (LOGGER.isInfoEnabled(appName)) {
                         LOGGER.infoWithApp(appName, "Rerefer consumer {}", consumerConfig.buildKey());
@@ -503,6 +506,7 @@ public class DefaultConsumerBootstrap<T> extends ConsumerBootstrap<T> {
                     for (Map.Entry<String, String> entry : oldValues.entrySet()) { //rollback old attrs
                         consumerConfig.updateAttribute(entry.getKey(), entry.getValue(), true);
                     }
+                    consumerConfig.getConfigValueCache(true);
                     subscribe(); // 重新订阅回滚后的旧的
                     return;
                 }
@@ -514,6 +518,7 @@ public class DefaultConsumerBootstrap<T> extends ConsumerBootstrap<T> {
                     for (Map.Entry<String, String> entry : oldValues.entrySet()) { //rollback old attrs
                         consumerConfig.updateAttribute(entry.getKey(), entry.getValue(), true);
                     }
+                    consumerConfig.getConfigValueCache(true);
                     subscribe(); // 重新订阅回滚后的旧的
                 }
             }
@@ -569,4 +574,12 @@ public class DefaultConsumerBootstrap<T> extends ConsumerBootstrap<T> {
     public Invoker getProxyInvoker() {
         return proxyInvoker;
     }
+
+    @Override
+    public BatchResult invokeBatch(String methodName, String[] argTypes, List<Object[]> argsList) {
+        if (!(proxyInvoker instanceof ClientProxyInvoker)) {
+            throw new SofaRpcRuntimeException("Consumer " + consumerConfig.buildKey() + " is not referred");
+        }
+        return ((ClientProxyInvoker) proxyInvoker).invokeBatch(methodName, argTypes, argsList);
+    }
 }
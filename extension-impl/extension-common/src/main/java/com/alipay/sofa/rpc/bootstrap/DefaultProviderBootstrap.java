@@ -20,6 +20,7 @@ import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.common.utils.ExceptionUtils;
 import com.alipay.sofa.rpc.common.utils.ReflectUtils;
 import com.alipay.sofa.rpc.common.utils.StringUtils;
+import com.alipay.sofa.rpc.config.ConfigUniqueNameGenerator;
 import com.alipay.sofa.rpc.config.ProviderConfig;
 import com.alipay.sofa.rpc.config.RegistryConfig;
 import com.alipay.sofa.rpc.config.ServerConfig;
@@ -31,6 +32,7 @@ import com.alipay.sofa.rpc.log.Logger;
 import com.alipay.sofa.rpc.log.LoggerFactory;
 import com.alipay.sofa.rpc.registry.Registry;
 import com.alipay.sofa.rpc.registry.RegistryFactory;
+import com.alipay.sofa.rpc.server.InJvmInvokerRegistry;
 import com.alipay.sofa.rpc.server.ProviderProxyInvoker;
 import com.alipay.sofa.rpc.server.Server;
 
@@ -176,6 +178,10 @@ public class DefaultProviderBootstrap<T> extends ProviderBootstrap<T> {
             }
         }
 
+        // 同一个JVM内开启了inJVM的服务消费者直接调用
+        InJvmInvokerRegistry.register(ConfigUniqueNameGenerator.getUniqueName(providerConfig),
+            (ProviderProxyInvoker) providerProxyInvoker);
+
         // 记录一些缓存数据
         RpcRuntimeContext.cacheProviderConfig(this);
         exported = true;
@@ -250,6 +256,10 @@ public class DefaultProviderBootstrap<T> extends ProviderBootstrap<T> {
             // 取消注册到注册中心
             unregister();
 
+            if (providerProxyInvoker instanceof ProviderProxyInvoker) {
+                InJvmInvokerRegistry.unRegister(ConfigUniqueNameGenerator.getUniqueName(providerConfig),
+                    (ProviderProxyInvoker) providerProxyInvoker);
+            }
             providerProxyInvoker = null;
 
             // 取消将处理器注册到server
@@ -92,10 +92,10 @@ public class ReflectCache {
     }
 
     /**
-     * 方法对象缓存 {service:{方法名#(参数列表):Method}} <br>
-     * 用于缓存参数列表，不是按接口，是按ServiceUniqueName
+     * 方法描述缓存 {service:{方法名:[各个重载方法的描述]}} <br>
+     * 用于缓存参数列表，不是按接口，是按ServiceUniqueName。查找时只需要两次hash查找和比较参数签名，不需要拼接字符串
      */
-    private final static ConcurrentHashMap<String, Map<String, Method>> METHOD_CACHE = new ConcurrentHashMap<String, Map<String, Method>>();
+    private final static ConcurrentHashMap<String, Map<String, ServiceMethodDescriptor[]>> METHOD_CACHE = new ConcurrentHashMap<String, Map<String, ServiceMethodDescriptor[]>>();
 
     /**
      * 缓存服务的公共方法
@@ -104,15 +104,20 @@ public class ReflectCache {
      * @param clazz             接口类
      */
     public final static void putServiceMethodCache(String serviceUniqueName, Class clazz) {
-        // 分析该POJO的所有公开方法
-        Map<String, Method> publicMethods = new HashMap<String, Method>();
+        // 分析该POJO的所有公开方法，按方法名分组
+        Map<String, ServiceMethodDescriptor[]> publicMethods = new HashMap<String, ServiceMethodDescriptor[]>();
         for (Method m : clazz.getMethods()) {
-            StringBuilder mSigs = new StringBuilder();
-            mSigs.append(m.getName());
-            for (Class<?> paramType : m.getParameterTypes()) {
-                mSigs.append(paramType.getName());
+            ServiceMethodDescriptor[] overloads = publicMethods.get(m.getName());
+            ServiceMethodDescriptor descriptor = new ServiceMethodDescriptor(m);
+            if (overloads == null) {
+                overloads = new ServiceMethodDescriptor[] { descriptor };
+            } else {
+                ServiceMethodDescriptor[] tmp = new ServiceMethodDescriptor[overloads.length + 1];
+                System.arraycopy(overloads, 0, tmp, 0, overloads.length);
+                tmp[overloads.length] = descriptor;
+                overloads = tmp;
             }
-            publicMethods.put(mSigs.toString(), m);
+            publicMethods.put(m.getName(), overloads);
         }
         METHOD_CACHE.put(serviceUniqueName, publicMethods);
     }
@@ -126,6 +131,23 @@ public class ReflectCache {
         METHOD_CACHE.remove(serviceUniqueName);
     }
 
+    /**
+     * 获取服务方法描述缓存
+     *
+     * @param serviceUniqueName 服务唯一名称
+     * @param methodName        方法名
+     * @param methodSigns       方法描述
+     * @return 方法描述，没有缓存或者找不到方法时返回null
+     */
+    public static ServiceMethodDescriptor getServiceMethodDescriptor(String serviceUniqueName, String methodName,
+                                                                     String[] methodSigns) {
+        if (serviceUniqueName == null || methodName == null) {
+            return null;
+        }
+        Map<String, ServiceMethodDescriptor[]> map = METHOD_CACHE.get(serviceUniqueName);
+        return map == null ? null : findDescriptor(map, methodName, methodSigns);
+    }
+
     /**
      * 获取服务方法缓存
      *
@@ -149,7 +171,7 @@ public class ReflectCache {
      */
     public static Method getOrInitServiceMethod(String serviceUniqueName, String methodName,
                                                 String[] methodSigns, boolean init, String interfaceName) {
-        Map<String, Method> map = METHOD_CACHE.get(serviceUniqueName);
+        Map<String, ServiceMethodDescriptor[]> map = METHOD_CACHE.get(serviceUniqueName);
         if (map == null) {
             if (init) {
                 synchronized (ReflectCache.class) {
@@ -163,11 +185,21 @@ public class ReflectCache {
                 return null;
             }
         }
-        StringBuilder methodKeyBuffer = new StringBuilder();
-        methodKeyBuffer.append(methodName);
-        for (String methodSign : methodSigns) {
-            methodKeyBuffer.append(methodSign);
+        ServiceMethodDescriptor descriptor = methodName == null ? null :
+            findDescriptor(map, methodName, methodSigns);
+        return descriptor == null ? null : descriptor.getMethod();
+    }
+
+    private static ServiceMethodDescriptor findDescriptor(Map<String, ServiceMethodDescriptor[]> map,
+                                                          String methodName, String[] methodSigns) {
+        ServiceMethodDescriptor[] overloads = map.get(methodName);
+        if (overloads != null) {
+            for (ServiceMethodDescriptor descriptor : overloads) {
+                if (descriptor.matches(methodSigns)) {
+                    return descriptor;
+                }
+            }
         }
-        return map.get(methodKeyBuffer.toString());
+        return null;
     }
-}
\ No newline at end of file
+}
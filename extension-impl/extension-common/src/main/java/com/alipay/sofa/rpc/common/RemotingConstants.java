@@ -30,7 +30,7 @@ public class RemotingConstants {
      * 协议：tr，老协议
      * // com.taobao.remoting.TRConstants#PROCOCOL_VERSION;
      */
-    public static final byte   PROTOCOL_TR                       = 13;                        // 
+    public static final byte   PROTOCOL_TR                       = 13;                         // 
     /**
      * 协议：bolt
      * // RpcProtocol.PROTOCOL_CODE;
@@ -188,6 +188,20 @@ public class RemotingConstants {
      */
     public static final String HEAD_RESPONSE_ERROR               = "sofa_head_response_error";
 
+    /**
+     * 消息体使用的压缩算法，没有则代表消息体未压缩
+     *
+     * @since 5.4.0
+     */
+    public static final String HEAD_COMPRESS                     = "sofa_head_compress";
+
+    /**
+     * 客户端可以解压的压缩算法，服务端据此决定是否压缩响应，老版本客户端不会带上，因此不会收到压缩的响应
+     *
+     * @since 5.4.0
+     */
+    public static final String HEAD_ACCEPT_COMPRESS              = "sofa_head_accept_compress";
+
     /**
      * RPC透传请求链路数据
      *
@@ -242,4 +256,18 @@ public class RemotingConstants {
      * @since 5.1.0
      */
     public static final String INVOKE_CTX_IS_ASYNC_CHAIN         = "rpc.async.chain";
+
+    /**
+     * bolt InvokeContext的Key：请求使用的压缩算法
+     *
+     * @since 5.4.0
+     */
+    public static final String INVOKE_CTX_COMPRESS               = "rpc.compress";
+
+    /**
+     * bolt InvokeContext的Key：服务端是否可以解压，为true时才压缩请求
+     *
+     * @since 5.4.0
+     */
+    public static final String INVOKE_CTX_REQUEST_COMPRESS       = "rpc.compress.request";
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common;
+
+import java.lang.reflect.Method;
+
+/**
+ * 服务方法描述，服务注册时生成，包含方法对象、参数类型和参数签名，请求解码和分发时不需要再解析
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ServiceMethodDescriptor {
+
+    /**
+     * 方法对象
+     */
+    private final Method     method;
+
+    /**
+     * 参数类型
+     */
+    private final Class<?>[] argTypes;
+
+    /**
+     * 参数签名（已intern），和请求里的 methodArgSigs 格式一致
+     */
+    private final String[]   argSigs;
+
+    /**
+     * 构造函数
+     *
+     * @param method 方法对象
+     */
+    public ServiceMethodDescriptor(Method method) {
+        this.method = method;
+        this.argTypes = method.getParameterTypes();
+        this.argSigs = new String[argTypes.length];
+        for (int i = 0; i < argTypes.length; i++) {
+            argSigs[i] = argTypes[i].getName().intern();
+        }
+    }
+
+    /**
+     * 参数签名是否一致
+     *
+     * @param methodSigns 请求里的参数签名
+     * @return 是否一致
+     */
+    public boolean matches(String[] methodSigns) {
+        if (methodSigns == null) {
+            return argSigs.length == 0;
+        }
+        if (methodSigns.length != argSigs.length) {
+            return false;
+        }
+        for (int i = 0; i < argSigs.length; i++) {
+            String sign = methodSigns[i];
+            if (sign != argSigs[i] && !argSigs[i].equals(sign)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets method.
+     *
+     * @return the method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets arg types.
+     *
+     * @return the arg types
+     */
+    public Class<?>[] getArgTypes() {
+        return argTypes;
+    }
+
+    /**
+     * Gets arg sigs.
+     *
+     * @return the arg sigs
+     */
+    public String[] getArgSigs() {
+        return argSigs;
+    }
+}
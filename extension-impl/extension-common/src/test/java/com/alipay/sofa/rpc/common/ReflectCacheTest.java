@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ReflectCacheTest {
+
+    @Test
+    public void testServiceMethodDescriptor() throws Exception {
+        String service = TestService.class.getName() + ":1.0";
+        Assert
+            .assertNull(ReflectCache.getServiceMethodDescriptor(service, "echo", new String[] { "java.lang.String" }));
+
+        ReflectCache.putServiceMethodCache(service, TestService.class);
+        try {
+            ServiceMethodDescriptor descriptor = ReflectCache.getServiceMethodDescriptor(service, "echo",
+                new String[] { "java.lang.String" });
+            Assert.assertNotNull(descriptor);
+            Assert.assertEquals(TestService.class.getMethod("echo", String.class), descriptor.getMethod());
+            Assert.assertArrayEquals(new Class[] { String.class }, descriptor.getArgTypes());
+
+            // 重载方法
+            descriptor = ReflectCache.getServiceMethodDescriptor(service, "echo",
+                new String[] { "[Ljava.lang.String;", "int" });
+            Assert.assertNotNull(descriptor);
+            Assert.assertArrayEquals(new Class[] { String[].class, int.class }, descriptor.getArgTypes());
+
+            descriptor = ReflectCache.getServiceMethodDescriptor(service, "echo", new String[0]);
+            Assert.assertNotNull(descriptor);
+            Assert.assertEquals(0, descriptor.getArgTypes().length);
+            Assert.assertSame(descriptor, ReflectCache.getServiceMethodDescriptor(service, "echo", null));
+
+            Assert.assertNull(ReflectCache.getServiceMethodDescriptor(service, "echo",
+                new String[] { "java.lang.Object" }));
+            Assert.assertNull(ReflectCache.getServiceMethodDescriptor(service, "echo",
+                new String[] { "java.lang.String[]", "int" }));
+            Assert.assertNull(ReflectCache.getServiceMethodDescriptor(service, "xxx", new String[0]));
+            Assert.assertNull(ReflectCache.getServiceMethodDescriptor(service, null, new String[0]));
+
+            Method method = ReflectCache.getServiceMethod(service, "echo", new String[] { "java.lang.String" });
+            Assert.assertEquals(TestService.class.getMethod("echo", String.class), method);
+        } finally {
+            ReflectCache.invalidateServiceMethodCache(service);
+        }
+        Assert
+            .assertNull(ReflectCache.getServiceMethodDescriptor(service, "echo", new String[] { "java.lang.String" }));
+        Assert.assertNull(ReflectCache.getServiceMethod(service, "echo", new String[] { "java.lang.String" }));
+    }
+
+    interface TestService {
+
+        String echo();
+
+        String echo(String s);
+
+        String echo(String[] s, int times);
+    }
+}
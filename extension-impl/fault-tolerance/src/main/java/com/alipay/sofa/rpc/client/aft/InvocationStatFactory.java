@@ -35,12 +35,17 @@ public class InvocationStatFactory {
     /**
      * 调控统计和结果的映射
      */
-    static final ConcurrentHashMap<InvocationStatDimension, InvocationStat> ALL_STATS = new ConcurrentHashMap<InvocationStatDimension, InvocationStat>();
+    static final ConcurrentHashMap<InvocationStatDimension, InvocationStat> ALL_STATS            = new ConcurrentHashMap<InvocationStatDimension, InvocationStat>();
+
+    /**
+     * 缓存在服务提供者动态属性上的调用统计器，避免每次调用都新建统计维度去查找
+     */
+    static final String                                                     ATTR_INVOCATION_STAT = "aft.invocationStat";
 
     /**
      * Listeners of InvocationStat
      */
-    static final ConcurrentHashSet<InvocationStatListener>                  LISTENERS = new ConcurrentHashSet<InvocationStatListener>();
+    static final ConcurrentHashSet<InvocationStatListener>                  LISTENERS            = new ConcurrentHashSet<InvocationStatListener>();
 
     /**
      * 得到调用统计器
@@ -56,7 +61,24 @@ public class InvocationStatFactory {
         }
         // 应用开启单机故障摘除功能
         if (FaultToleranceConfigManager.isRegulationEffective(appName)) {
-            return getInvocationStat(new InvocationStatDimension(providerInfo, consumerConfig));
+            Object cached = providerInfo.getDynamicAttr(ATTR_INVOCATION_STAT);
+            if (cached instanceof InvocationStat) {
+                InvocationStat invocationStat = (InvocationStat) cached;
+                if (invocationStat.getDimension().getConsumerConfig() == consumerConfig) {
+                    return invocationStat;
+                }
+            }
+            InvocationStat invocationStat = getInvocationStat(new InvocationStatDimension(providerInfo,
+                consumerConfig));
+            // 同一个服务提供者对象可能被多个服务引用共用，只缓存第一个；统计器被移除时一并清除缓存
+            InvocationStatDimension dimension = invocationStat.getDimension();
+            if (cached == null && dimension.getProviderInfo() == providerInfo
+                && providerInfo.getDynamicAttrs().putIfAbsent(ATTR_INVOCATION_STAT, invocationStat) == null
+                && ALL_STATS.get(dimension) != invocationStat) {
+                // 缓存的同时被移除了
+                uncache(invocationStat);
+            }
+            return invocationStat;
         }
         return null;
     }
@@ -91,6 +113,7 @@ public class InvocationStatFactory {
     public static void removeInvocationStat(InvocationStatDimension statDimension) {
         InvocationStat invocationStat = ALL_STATS.remove(statDimension);
         if (invocationStat != null) {
+            uncache(invocationStat);
             for (InvocationStatListener listener : LISTENERS) {
                 listener.onRemoveInvocationStat(invocationStat);
             }
@@ -127,10 +150,20 @@ public class InvocationStatFactory {
         }
     }
 
+    private static void uncache(InvocationStat invocationStat) {
+        ProviderInfo providerInfo = invocationStat.getDimension().getProviderInfo();
+        if (providerInfo != null) {
+            providerInfo.getDynamicAttrs().remove(ATTR_INVOCATION_STAT, invocationStat);
+        }
+    }
+
     /**
      * Destroy 
      */
     public static void destroy() {
+        for (InvocationStat invocationStat : ALL_STATS.values()) {
+            uncache(invocationStat);
+        }
         ALL_STATS.clear();
         LISTENERS.clear();
     }
@@ -38,7 +38,8 @@ public class FaultToleranceSubscriber extends Subscriber {
      * 事件订阅者
      */
     public FaultToleranceSubscriber() {
-        super(false);
+        // 每次调用都会有事件，批量异步处理，避免每个事件都提交一次异步任务
+        super(false, true);
     }
 
     @Override
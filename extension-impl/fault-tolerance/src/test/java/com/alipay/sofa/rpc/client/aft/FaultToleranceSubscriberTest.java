@@ -129,4 +129,30 @@ public class FaultToleranceSubscriberTest extends FaultBaseTest {
         Assert.assertTrue(InvocationStatFactory.ALL_STATS.size() == 1);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void cachedInvocationStat() {
+        FaultToleranceConfig config = new FaultToleranceConfig();
+        config.setRegulationEffective(true);
+        FaultToleranceConfigManager.putAppConfig(APP_NAME1, config);
+
+        ProviderInfo providerInfo = ProviderInfo.valueOf("127.0.0.1");
+        FaultToleranceSubscriber subscriber = new FaultToleranceSubscriber();
+        subscriber.onEvent(new ClientSyncReceiveEvent(consumerConfig, providerInfo,
+            new SofaRequest(), new SofaResponse(), null));
+        InvocationStat stat = InvocationStatFactory.getInvocationStat(consumerConfig, providerInfo);
+        Assert.assertTrue(stat == providerInfo.getDynamicAttr(InvocationStatFactory.ATTR_INVOCATION_STAT));
+        Assert.assertTrue(stat == InvocationStatFactory.getInvocationStat(consumerConfig, providerInfo));
+
+        // 被移除后缓存失效，重新统计
+        subscriber.onEvent(new ProviderInfoRemoveEvent(consumerConfig,
+            new ProviderGroup("x", Arrays.asList(ProviderInfo.valueOf("127.0.0.1")))));
+        Assert.assertNull(providerInfo.getDynamicAttr(InvocationStatFactory.ATTR_INVOCATION_STAT));
+        subscriber.onEvent(new ClientSyncReceiveEvent(consumerConfig, providerInfo,
+            new SofaRequest(), new SofaResponse(), null));
+        InvocationStat stat2 = InvocationStatFactory.getInvocationStat(consumerConfig, providerInfo);
+        Assert.assertFalse(stat == stat2);
+        Assert.assertEquals(1, stat2.getInvokeCount());
+        Assert.assertTrue(stat2 == InvocationStatFactory.ALL_STATS.get(stat2.getDimension()));
+    }
+
+}
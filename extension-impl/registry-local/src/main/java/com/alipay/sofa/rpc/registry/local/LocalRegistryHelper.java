@@ -17,8 +17,10 @@
 package com.alipay.sofa.rpc.registry.local;
 
 import com.alipay.sofa.rpc.client.ProviderGroup;
+import com.alipay.sofa.rpc.client.ProviderHelper;
 import com.alipay.sofa.rpc.client.ProviderInfo;
 import com.alipay.sofa.rpc.client.ProviderInfoAttrs;
+import com.alipay.sofa.rpc.codec.CompressorFactory;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.SystemInfo;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
@@ -90,6 +92,17 @@ public class LocalRegistryHelper {
             host = SystemInfo.getLocalHost();
         }
         providerInfo.setHost(host);
+        providerInfo.setStaticAttr(ProviderInfoAttrs.ATTR_ACCEPT_COMPRESS, CompressorFactory.getAliases());
+        // 预热参数随地址一起发布，订阅方按启动时间判断是否还在预热中
+        String warmupTime = config.getParameter(ProviderInfoAttrs.ATTR_WARMUP_TIME);
+        if (StringUtils.isNotEmpty(warmupTime)) {
+            providerInfo.setStaticAttr(ProviderInfoAttrs.ATTR_WARMUP_TIME, warmupTime);
+            providerInfo.setStaticAttr(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT,
+                config.getParameter(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT));
+            providerInfo.setStaticAttr(ProviderInfoAttrs.ATTR_START_TIME,
+                String.valueOf(RpcRuntimeContext.START_TIME));
+            ProviderHelper.initWarmup(providerInfo);
+        }
         return providerInfo;
     }
 
@@ -243,6 +256,7 @@ public class LocalRegistryHelper {
                     if (StringUtils.isNotEmpty(pstr)) {
                         ProviderInfo providerInfo = ProviderInfo.valueOf(pstr);
                         providerInfo.setStaticAttr(ProviderInfoAttrs.ATTR_SOURCE, "local");
+                        ProviderHelper.initWarmup(providerInfo);
                         values.add(providerInfo);
                     }
                 }
@@ -16,8 +16,10 @@
  */
 package com.alipay.sofa.rpc.registry.zk;
 
+import com.alipay.sofa.rpc.client.ProviderHelper;
 import com.alipay.sofa.rpc.client.ProviderInfo;
 import com.alipay.sofa.rpc.client.ProviderInfoAttrs;
+import com.alipay.sofa.rpc.codec.CompressorFactory;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.SystemInfo;
 import com.alipay.sofa.rpc.common.Version;
@@ -74,6 +76,11 @@ public class ZookeeperRegistryHelper {
                     .append(getKeyPairs("crossLang", providerConfig.getParameter("crossLang")))
                     .append(getKeyPairs("accepts", server.getAccepts()))
                     .append(getKeyPairs(ProviderInfoAttrs.ATTR_START_TIME, RpcRuntimeContext.START_TIME))
+                    .append(getKeyPairs(ProviderInfoAttrs.ATTR_WARMUP_TIME,
+                        providerConfig.getParameter(ProviderInfoAttrs.ATTR_WARMUP_TIME)))
+                    .append(getKeyPairs(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT,
+                        providerConfig.getParameter(ProviderInfoAttrs.ATTR_WARMUP_WEIGHT)))
+                    .append(getKeyPairs(ProviderInfoAttrs.ATTR_ACCEPT_COMPRESS, CompressorFactory.getAliases()))
                     .append(getKeyPairs(RpcConstants.CONFIG_KEY_APP_NAME, providerConfig.getAppName()));
                 addCommonAttrs(sb);
                 urls.add(sb.toString());
@@ -158,7 +165,7 @@ public class ZookeeperRegistryHelper {
             String url = childData.getPath().substring(providerPath.length() + 1); // 去掉头部
             url = URLDecoder.decode(url, "UTF-8");
             // byte[] data = childData.getData();
-            providerInfos.add(ProviderInfo.valueOf(url));
+            providerInfos.add(convertUrlToProvider(url));
         }
         return providerInfos;
     }
@@ -168,7 +175,19 @@ public class ZookeeperRegistryHelper {
         String url = childData.getPath().substring(providerPath.length() + 1); // 去掉头部
         url = URLDecoder.decode(url, "UTF-8");
         // byte[] data = childData.getData();
-        return ProviderInfo.valueOf(url);
+        return convertUrlToProvider(url);
+    }
+
+    /**
+     * 新上线的服务提供者，如果还在预热时间内则按预热权重慢慢增加流量
+     *
+     * @param url 服务提供者地址
+     * @return 服务提供者
+     */
+    private static ProviderInfo convertUrlToProvider(String url) {
+        ProviderInfo providerInfo = ProviderInfo.valueOf(url);
+        ProviderHelper.initWarmup(providerInfo);
+        return providerInfo;
     }
 
     static String buildProviderPath(String rootPath, AbstractInterfaceConfig config) {
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.codec.bolt;
+
+import com.alipay.remoting.exception.DeserializationException;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.utils.StringUtils;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 延迟解析的只读 bolt header，格式同 {@link SimpleMapSerializer}。<br>
+ * 构造时只校验格式，按 key 读取时直接比较 key 的字节，只解码命中的 value；需要遍历时才完整解析一次。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LazyHeaderMap extends AbstractMap<String, String> {
+
+    private static final byte[]          EMPTY = new byte[0];
+
+    /**
+     * 序列化后的 header
+     */
+    private final byte[]                 bytes;
+
+    /**
+     * 键值对个数（包括重复的 key）
+     */
+    private final int                    count;
+
+    /**
+     * 完整解析后的结果，第一次遍历时生成
+     */
+    private volatile Map<String, String> parsed;
+
+    /**
+     * 构造函数
+     *
+     * @param bytes 序列化后的 header，可以为空
+     * @throws DeserializationException 格式错误
+     */
+    public LazyHeaderMap(byte[] bytes) throws DeserializationException {
+        this.bytes = bytes == null ? EMPTY : bytes;
+        int pos = 0;
+        int n = 0;
+        while (pos < this.bytes.length) {
+            pos = skipString(pos);
+            pos = skipString(pos);
+            n++;
+        }
+        this.count = n;
+    }
+
+    private int skipString(int pos) throws DeserializationException {
+        if (pos + 4 > bytes.length) {
+            throw new DeserializationException("Malformed header, unexpected end at " + pos);
+        }
+        int length = readInt(pos);
+        pos += 4;
+        if (length > 0) {
+            if (length > bytes.length - pos) {
+                throw new DeserializationException("Malformed header, length " + length + " out of bound at " + pos);
+            }
+            pos += length;
+        }
+        return pos;
+    }
+
+    @Override
+    public String get(Object key) {
+        Map<String, String> map = parsed;
+        if (map != null) {
+            return map.get(key);
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : readString(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Map<String, String> map = parsed;
+        if (map != null) {
+            return map.containsKey(key);
+        }
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return parse().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return parse().entrySet();
+    }
+
+    /**
+     * 查找 key 对应的 value 的位置，key 重复时和完整解析一样以最后一个为准
+     *
+     * @param key 键
+     * @return value 的位置，找不到返回-1
+     */
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        byte[] keyBytes = SimpleMapSerializer.getKeyBytes((String) key);
+        int found = -1;
+        int pos = 0;
+        while (pos < bytes.length) {
+            int keyLength = readInt(pos);
+            pos += 4;
+            boolean match = keyLength == keyBytes.length && regionMatches(pos, keyBytes);
+            if (keyLength > 0) {
+                pos += keyLength;
+            }
+            if (match) {
+                found = pos;
+            }
+            int valueLength = readInt(pos);
+            pos += 4;
+            if (valueLength > 0) {
+                pos += valueLength;
+            }
+        }
+        return found;
+    }
+
+    private boolean regionMatches(int pos, byte[] keyBytes) {
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (bytes[pos + i] != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, String> parse() {
+        Map<String, String> map = parsed;
+        if (map == null) {
+            map = new HashMap<String, String>(Math.max(count * 4 / 3 + 1, 16));
+            int pos = 0;
+            while (pos < bytes.length) {
+                String key = readString(pos);
+                pos = nextString(pos);
+                map.put(key, readString(pos));
+                pos = nextString(pos);
+            }
+            map = Collections.unmodifiableMap(map);
+            parsed = map;
+        }
+        return map;
+    }
+
+    private String readString(int pos) {
+        int length = readInt(pos);
+        if (length < 0) {
+            return null;
+        } else if (length == 0) {
+            return StringUtils.EMPTY;
+        } else {
+            return new String(bytes, pos + 4, length, RpcConstants.DEFAULT_CHARSET);
+        }
+    }
+
+    private int nextString(int pos) {
+        int length = readInt(pos);
+        return pos + 4 + (length > 0 ? length : 0);
+    }
+
+    private int readInt(int pos) {
+        return (bytes[pos] & 0xff) << 24
+            | (bytes[pos + 1] & 0xff) << 16
+            | (bytes[pos + 2] & 0xff) << 8
+            | bytes[pos + 3] & 0xff;
+    }
+}
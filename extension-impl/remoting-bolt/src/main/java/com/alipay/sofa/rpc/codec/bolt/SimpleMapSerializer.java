@@ -18,6 +18,7 @@ package com.alipay.sofa.rpc.codec.bolt;
 
 import com.alipay.remoting.exception.DeserializationException;
 import com.alipay.remoting.exception.SerializationException;
+import com.alipay.sofa.rpc.common.RemotingConstants;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.struct.UnsafeByteArrayInputStream;
 import com.alipay.sofa.rpc.common.struct.UnsafeByteArrayOutputStream;
@@ -37,6 +38,33 @@ import java.util.Map;
  */
 public class SimpleMapSerializer {
 
+    /**
+     * 常用 key 预先编码好的 UTF-8 字节，写入和按 key 查找时不需要每次编码
+     */
+    private static final Map<String, byte[]> ENCODED_KEYS = new HashMap<String, byte[]>();
+
+    static {
+        String[] keys = new String[] { RemotingConstants.HEAD_SERVICE, RemotingConstants.HEAD_METHOD_NAME,
+            RemotingConstants.HEAD_TARGET_APP, RemotingConstants.HEAD_TARGET_SERVICE,
+            RemotingConstants.HEAD_RESPONSE_ERROR, RemotingConstants.HEAD_COMPRESS,
+            RemotingConstants.HEAD_ACCEPT_COMPRESS, RemotingConstants.HEAD_APP_NAME,
+            RemotingConstants.HEAD_PROTOCOL, RemotingConstants.HEAD_INVOKE_TYPE };
+        for (String key : keys) {
+            ENCODED_KEYS.put(key, key.getBytes(RpcConstants.DEFAULT_CHARSET));
+        }
+    }
+
+    /**
+     * 得到 key 的 UTF-8 字节，常用 key 直接返回预先编码好的字节（不能修改）
+     *
+     * @param key 键
+     * @return UTF-8 字节
+     */
+    static byte[] getKeyBytes(String key) {
+        byte[] bs = ENCODED_KEYS.get(key);
+        return bs != null ? bs : key.getBytes(RpcConstants.DEFAULT_CHARSET);
+    }
+
     /**
      * 简单 map 的序列化过程, 用来序列化 bolt 的 header
      *
@@ -49,17 +77,89 @@ public class SimpleMapSerializer {
             return null;
         }
         UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(64);
-        try {
-            for (Map.Entry<String, String> entry : map.entrySet()) {
-                writeString(out, entry.getKey());
-                writeString(out, entry.getValue());
+        encode(map, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 简单 map 的序列化过程，直接写入指定的输出流（例如复用的缓冲区）
+     *
+     * @param map bolt header，可以为空
+     * @param out 输出流
+     * @throws SerializationException SerializationException
+     */
+    public void encode(Map<String, String> map, UnsafeByteArrayOutputStream out) throws SerializationException {
+        if (map == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            writeEntry(out, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 写入一个键值对，不需要先放到 map 里
+     *
+     * @param out   输出流
+     * @param key   键
+     * @param value 值
+     * @throws SerializationException SerializationException
+     */
+    public void writeEntry(UnsafeByteArrayOutputStream out, String key, String value) throws SerializationException {
+        byte[] bs = key == null ? null : ENCODED_KEYS.get(key);
+        if (bs != null) {
+            writeInt(out, bs.length);
+            out.write(bs, 0, bs.length);
+        } else {
+            writeString(out, null, key);
+        }
+        writeString(out, null, value);
+    }
+
+    /**
+     * 把树状的 map 扁平化后直接写入，效果等同于 {@link ContextMapConverter#flatCopyTo(String, Map, Map)} 之后再序列化，
+     * 但是不需要中间的 map，也不需要拼接每一个 key
+     *
+     * @param out    输出流
+     * @param prefix 前缀
+     * @param map    原始map
+     * @throws SerializationException SerializationException
+     */
+    public void writeFlat(UnsafeByteArrayOutputStream out, String prefix, Map<String, Object> map)
+        throws SerializationException {
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                writeString(out, prefix, entry.getKey());
+                writeString(out, null, (String) value);
+            } else if (value instanceof Number) {
+                writeString(out, prefix, entry.getKey());
+                writeString(out, null, value.toString());
+            } else if (value instanceof Map) {
+                writeFlat(out, prefix + entry.getKey() + ".", (Map<String, Object>) value);
             }
-            return out.toByteArray();
-        } catch (IOException ex) {
-            throw new SerializationException(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * 在已经序列化好的 header 后面追加一个键值对，不需要重新序列化整个 map
+     *
+     * @param bytes 已序列化的 bolt header，可以为空
+     * @param key   键
+     * @param value 值
+     * @return 追加后的 byte 数组
+     * @throws SerializationException SerializationException
+     */
+    public byte[] append(byte[] bytes, String key, String value) throws SerializationException {
+        int length = bytes == null ? 0 : bytes.length;
+        UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(length + 64);
+        if (length > 0) {
+            out.write(bytes, 0, length);
+        }
+        writeEntry(out, key, value);
+        return out.toByteArray();
+    }
+
     /**
      * 简单 map 的反序列化过程, 用来反序列化 bolt 的 header
      * <p>
@@ -88,6 +188,18 @@ public class SimpleMapSerializer {
         }
     }
 
+    /**
+     * 延迟解析的反序列化过程，返回只读的 header，只有读取到的 key 才会解码
+     *
+     * @param bytes bolt header
+     * @return 只读的 header
+     * @throws DeserializationException 格式错误
+     * @see LazyHeaderMap
+     */
+    public Map<String, String> decodeLazily(byte[] bytes) throws DeserializationException {
+        return new LazyHeaderMap(bytes);
+    }
+
     /**
      * 写一个String
      * 
@@ -127,6 +239,55 @@ public class SimpleMapSerializer {
         }
     }
 
+    /**
+     * 写一个字符串（前缀 + 字符串），纯 ASCII 时直接按字符写入，不生成中间的字符串和 byte 数组
+     *
+     * @param out    输出流
+     * @param prefix 前缀，可以为空
+     * @param str    字符串
+     */
+    private void writeString(UnsafeByteArrayOutputStream out, String prefix, String str) {
+        if (str == null) {
+            writeInt(out, -1);
+            return;
+        }
+        if (isAscii(prefix) && isAscii(str)) {
+            writeInt(out, (prefix == null ? 0 : prefix.length()) + str.length());
+            writeAscii(out, prefix);
+            writeAscii(out, str);
+        } else {
+            byte[] bs = (prefix == null ? str : prefix + str).getBytes(RpcConstants.DEFAULT_CHARSET);
+            writeInt(out, bs.length);
+            out.write(bs, 0, bs.length);
+        }
+    }
+
+    private static boolean isAscii(String str) {
+        if (str != null) {
+            for (int i = 0; i < str.length(); i++) {
+                if (str.charAt(i) >= 0x80) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void writeAscii(UnsafeByteArrayOutputStream out, String str) {
+        if (str != null) {
+            for (int i = 0; i < str.length(); i++) {
+                out.write(str.charAt(i));
+            }
+        }
+    }
+
+    private static void writeInt(UnsafeByteArrayOutputStream out, int i) {
+        out.write(i >> 24);
+        out.write(i >> 16);
+        out.write(i >> 8);
+        out.write(i);
+    }
+
     /**
      * OutputStream.write(int) 仅 write 第一个 byte, 而不是整个 int
      * 
@@ -25,6 +25,7 @@ import com.alipay.remoting.exception.DeserializationException;
 import com.alipay.remoting.exception.SerializationException;
 import com.alipay.remoting.rpc.RequestCommand;
 import com.alipay.remoting.rpc.ResponseCommand;
+import com.alipay.remoting.rpc.RpcCommand;
 import com.alipay.remoting.rpc.protocol.RpcProtocol;
 import com.alipay.remoting.rpc.protocol.RpcRequestCommand;
 import com.alipay.remoting.rpc.protocol.RpcResponseCommand;
@@ -33,14 +34,17 @@ import com.alipay.sofa.rpc.codec.anthessian.GenericMultipleClassLoaderSofaSerial
 import com.alipay.sofa.rpc.codec.anthessian.GenericSingleClassLoaderSofaSerializerFactory;
 import com.alipay.sofa.rpc.codec.anthessian.MultipleClassLoaderSofaSerializerFactory;
 import com.alipay.sofa.rpc.codec.anthessian.SingleClassLoaderSofaSerializerFactory;
+import com.alipay.sofa.rpc.codec.CompressorFactory;
 import com.alipay.sofa.rpc.codec.antpb.ProtobufSerializer;
 import com.alipay.sofa.rpc.common.ReflectCache;
 import com.alipay.sofa.rpc.common.RemotingConstants;
 import com.alipay.sofa.rpc.common.RpcConfigs;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.ServiceMethodDescriptor;
 import com.alipay.sofa.rpc.common.SofaConfigs;
 import com.alipay.sofa.rpc.common.SofaOptions;
+import com.alipay.sofa.rpc.common.struct.UnsafeByteArrayOutputStream;
 import com.alipay.sofa.rpc.common.utils.ClassTypeUtils;
 import com.alipay.sofa.rpc.common.utils.StringUtils;
 import com.alipay.sofa.rpc.context.RpcInternalContext;
@@ -55,11 +59,11 @@ import com.caucho.hessian.io.Hessian2Output;
 import com.caucho.hessian.io.SerializerFactory;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Sofa RPC BOLT 协议的对象序列化/反序列化自定义类
@@ -69,15 +73,72 @@ import java.util.Map;
  */
 public class SofaRpcSerialization extends DefaultCustomSerializer {
 
-    private static final Logger   LOGGER = LoggerFactory.getLogger(SofaRpcSerialization.class);
-    protected SerializerFactory   serializerFactory;
-    protected SerializerFactory   genericSerializerFactory;
-    protected SimpleMapSerializer mapSerializer;
+    private static final Logger                                   LOGGER              = LoggerFactory
+                                                                                          .getLogger(SofaRpcSerialization.class);
+
+    /**
+     * 序列化缓冲区的初始大小
+     */
+    private static final int                                      BUFFER_INITIAL_SIZE = 1024;
+
+    /**
+     * 序列化缓冲区的最大保留大小
+     */
+    private static final int                                      BUFFER_MAX_SIZE     = RpcConfigs
+                                                                                          .getIntValue(RpcOptions.SERIALIZE_BUFFER_MAX_SIZE);
+
+    /**
+     * 每个线程复用的序列化缓冲区，借出时置空，避免重入时共用
+     */
+    private static final ThreadLocal<UnsafeByteArrayOutputStream> THREAD_LOCAL_BUFFER = new ThreadLocal<UnsafeByteArrayOutputStream>();
+
+    /**
+     * 压缩基线，消息体小于这个大小不压缩
+     */
+    private static final int                                      COMPRESS_BASELINE   = RpcConfigs
+                                                                                          .getIntValue(RpcOptions.COMPRESS_SIZE_BASELINE);
+
+    /**
+     * protobuf请求头中trace信息的前缀
+     */
+    private static final String                                   TRACE_PREFIX        = RemotingConstants.RPC_TRACE_NAME
+                                                                                          +
+                                                                                          ".";
+
+    protected SerializerFactory                                   serializerFactory;
+    protected SerializerFactory                                   genericSerializerFactory;
+    protected SimpleMapSerializer                                 mapSerializer;
 
     public SofaRpcSerialization() {
         init();
     }
 
+    /**
+     * 借出当前线程的序列化缓冲区，没有（例如正在使用中）则新建
+     *
+     * @return 序列化缓冲区
+     */
+    protected UnsafeByteArrayOutputStream borrowBuffer() {
+        UnsafeByteArrayOutputStream buffer = THREAD_LOCAL_BUFFER.get();
+        if (buffer == null) {
+            return new UnsafeByteArrayOutputStream(BUFFER_INITIAL_SIZE);
+        }
+        THREAD_LOCAL_BUFFER.set(null);
+        return buffer;
+    }
+
+    /**
+     * 归还序列化缓冲区，超过最大保留大小的直接丢弃，避免线程长期持有大数组
+     *
+     * @param buffer 序列化缓冲区
+     */
+    protected void returnBuffer(UnsafeByteArrayOutputStream buffer) {
+        if (buffer.capacity() <= BUFFER_MAX_SIZE) {
+            buffer.reset();
+            THREAD_LOCAL_BUFFER.set(buffer);
+        }
+    }
+
     /**
      * Init this custom serializer
      */
@@ -111,7 +172,7 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                 if (sofaResponse.isError() || sofaResponse.getAppResponse() instanceof Throwable) {
                     sofaResponse.addResponseProp(RemotingConstants.HEAD_RESPONSE_ERROR, "true");
                 }
-                response.setHeader(mapSerializer.encode(sofaResponse.getResponseProps()));
+                response.setHeader(encodeHeader(sofaResponse.getResponseProps()));
             }
             return true;
         }
@@ -128,39 +189,72 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
             Object requestObject = requestCommand.getRequestObject();
             String service = getTargetServiceName(requestObject);
             if (StringUtils.isNotEmpty(service)) {
-                Map<String, String> header = new HashMap<String, String>(16);
-                header.put(RemotingConstants.HEAD_SERVICE, service);
+                // 直接写入复用的缓冲区，不需要中间的map
+                UnsafeByteArrayOutputStream out = borrowBuffer();
+                mapSerializer.writeEntry(out, RemotingConstants.HEAD_SERVICE, service);
                 // 新序列化协议全部采用扁平化头部
                 byte serializer = requestCommand.getSerializer();
                 if (serializer != RemotingConstants.SERIALIZE_CODE_HESSIAN
                     && serializer != RemotingConstants.SERIALIZE_CODE_JAVA) {
-                    putRequestMetadataToHeader(requestObject, header);
+                    putRequestMetadataToHeader(requestObject, out);
+                } else if (requestObject instanceof RequestBase) {
+                    // 服务端在反序列化请求体之前就能按方法做并发限制，老版本服务端会忽略这个key
+                    mapSerializer.writeEntry(out, RemotingConstants.HEAD_METHOD_NAME,
+                        ((RequestBase) requestObject).getMethodName());
+                }
+                // 告诉服务端可以解压的压缩算法，服务端开启了压缩才会压缩响应
+                if (serializer == RemotingConstants.SERIALIZE_CODE_HESSIAN && invokeContext != null) {
+                    String compress = invokeContext.get(RemotingConstants.INVOKE_CTX_COMPRESS);
+                    if (compress != null) {
+                        mapSerializer.writeEntry(out, RemotingConstants.HEAD_ACCEPT_COMPRESS, compress);
+                    }
                 }
-                requestCommand.setHeader(mapSerializer.encode(header));
+                requestCommand.setHeader(out.toByteArray());
+                returnBuffer(out);
             }
             return true;
         }
         return false;
     }
 
-    protected void putRequestMetadataToHeader(Object requestObject, Map<String, String> header) {
+    protected void putRequestMetadataToHeader(Object requestObject, UnsafeByteArrayOutputStream out)
+        throws SerializationException {
         if (requestObject instanceof RequestBase) {
             RequestBase requestBase = (RequestBase) requestObject;
-            header.put(RemotingConstants.HEAD_METHOD_NAME, requestBase.getMethodName());
-            header.put(RemotingConstants.HEAD_TARGET_SERVICE, requestBase.getTargetServiceUniqueName());
+            mapSerializer.writeEntry(out, RemotingConstants.HEAD_METHOD_NAME, requestBase.getMethodName());
+            mapSerializer.writeEntry(out, RemotingConstants.HEAD_TARGET_SERVICE,
+                requestBase.getTargetServiceUniqueName());
 
             if (requestBase instanceof SofaRequest) {
                 SofaRequest sofaRequest = (SofaRequest) requestBase;
-                header.put(RemotingConstants.HEAD_TARGET_APP, sofaRequest.getTargetAppName());
+                mapSerializer.writeEntry(out, RemotingConstants.HEAD_TARGET_APP, sofaRequest.getTargetAppName());
                 Map<String, Object> requestProps = sofaRequest.getRequestProps();
                 if (requestProps != null) {
                     // <String, Object> 转扁平化 <String, String>
-                    ContextMapConverter.flatCopyTo("", requestProps, header);
+                    mapSerializer.writeFlat(out, StringUtils.EMPTY, requestProps);
                 }
             }
         }
     }
 
+    /**
+     * 使用复用的缓冲区序列化header
+     *
+     * @param header header
+     * @return 序列化后的header，为空返回null
+     * @throws SerializationException 序列化异常
+     */
+    private byte[] encodeHeader(Map<String, String> header) throws SerializationException {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        UnsafeByteArrayOutputStream out = borrowBuffer();
+        mapSerializer.encode(header, out);
+        byte[] bytes = out.toByteArray();
+        returnBuffer(out);
+        return bytes;
+    }
+
     /**
      * Get target service name from request
      *
@@ -188,9 +282,8 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                 return true;
             }
             byte[] header = requestCommand.getHeader();
-            // 解析头部
-            Map<String, String> headerMap = mapSerializer.decode(header);
-            requestCommand.setRequestHeader(headerMap);
+            // 解析头部，只读并且延迟解析，只有用到的key才会解码
+            requestCommand.setRequestHeader(mapSerializer.decodeLazily(header));
 
             return true;
         }
@@ -205,7 +298,7 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
 
             RpcResponseCommand responseCommand = (RpcResponseCommand) response;
             byte[] header = responseCommand.getHeader();
-            responseCommand.setResponseHeader(mapSerializer.decode(header));
+            responseCommand.setResponseHeader(mapSerializer.decodeLazily(header));
             return true;
         }
         return false;
@@ -222,7 +315,7 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                 if (serializer == RemotingConstants.SERIALIZE_CODE_HESSIAN) {
                     try {
                         SofaRequest sofaRequest = (SofaRequest) requestObject;
-                        ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+                        UnsafeByteArrayOutputStream byteArray = borrowBuffer();
                         Hessian2Output output = new Hessian2Output(byteArray);
 
                         // 根据SerializeType信息决定序列化器
@@ -241,8 +334,13 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                             }
                         }
                         output.close();
-                        request.setContent(byteArray.toByteArray());
-                        byteArray.close();
+                        byte[] content = byteArray.toByteArray();
+                        returnBuffer(byteArray);
+                        // 服务端没有声明可以解压时不压缩请求，兼容老版本的服务端
+                        String compress = invokeContext != null
+                            && Boolean.TRUE.equals(invokeContext.get(RemotingConstants.INVOKE_CTX_REQUEST_COMPRESS))
+                            ? (String) invokeContext.get(RemotingConstants.INVOKE_CTX_COMPRESS) : null;
+                        setContent(requestCommand, content, compress, invokeContext, true);
 
                         return true;
                     } catch (IOException ex) {
@@ -318,7 +416,8 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                     throw new DeserializationException("Content of request is null");
                 }
                 try {
-                    ByteArrayInputStream input = new ByteArrayInputStream(requestCommand.getContent());
+                    content = getContent(content, headerMap, null, true);
+                    ByteArrayInputStream input = new ByteArrayInputStream(content);
                     Hessian2Input hessianInput = new Hessian2Input(input);
                     hessianInput.setSerializerFactory(serializerFactory);
                     String service = headerMap.get(RemotingConstants.HEAD_SERVICE);
@@ -331,14 +430,23 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                         if (object instanceof SofaRequest) {
                             final SofaRequest sofaRequest = (SofaRequest) object;
                             String[] sig = sofaRequest.getMethodArgSigs();
-                            Class<?>[] classSig = new Class[sig.length];
-                            generateArgTypes(sig, classSig, serviceClassLoader);
+                            // 服务注册时已经解析好参数类型，找不到（例如泛化调用的签名格式不同）再按签名加载
+                            ServiceMethodDescriptor descriptor = ReflectCache.getServiceMethodDescriptor(service,
+                                sofaRequest.getMethodName(), sig);
+                            Class<?>[] classSig;
+                            if (descriptor != null) {
+                                classSig = descriptor.getArgTypes();
+                            } else {
+                                classSig = new Class[sig.length];
+                                generateArgTypes(sig, classSig, serviceClassLoader);
+                            }
 
                             final Object[] args = new Object[sig.length];
                             for (int i = 0; i < sofaRequest.getMethodArgSigs().length; ++i) {
                                 args[i] = hessianInput.readObject(classSig[i]);
                             }
                             sofaRequest.setMethodArgs(args);
+                            sofaRequest.setCompressType(headerMap.get(RemotingConstants.HEAD_ACCEPT_COMPRESS));
                         }
                         requestCommand.setRequestObject(object);
                     } finally {
@@ -364,18 +472,22 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                         Thread.currentThread().setContextClassLoader(serviceClassLoader);
 
                         final SofaRequest sofaRequest = new SofaRequest();
-                        // 解析request信息
-                        sofaRequest.setMethodName(headerMap.remove(RemotingConstants.HEAD_METHOD_NAME));
-                        sofaRequest.setTargetAppName(headerMap.remove(RemotingConstants.HEAD_TARGET_APP));
-                        sofaRequest.setTargetServiceUniqueName(headerMap.remove(RemotingConstants.HEAD_TARGET_SERVICE));
-
-                        // 解析trace信息
+                        // 头部是只读的，遍历一次：取出请求信息和trace信息，其它的作为请求的扩展属性
                         Map<String, String> traceMap = new HashMap<String, String>(16);
-                        ContextMapConverter.treeCopyTo(RemotingConstants.RPC_TRACE_NAME + ".", headerMap,
-                            traceMap, true);
                         sofaRequest.addRequestProp(RemotingConstants.RPC_TRACE_NAME, traceMap);
                         for (Map.Entry<String, String> entry : headerMap.entrySet()) {
-                            sofaRequest.addRequestProp(entry.getKey(), entry.getValue());
+                            String key = entry.getKey();
+                            if (RemotingConstants.HEAD_METHOD_NAME.equals(key)) {
+                                sofaRequest.setMethodName(entry.getValue());
+                            } else if (RemotingConstants.HEAD_TARGET_APP.equals(key)) {
+                                sofaRequest.setTargetAppName(entry.getValue());
+                            } else if (RemotingConstants.HEAD_TARGET_SERVICE.equals(key)) {
+                                sofaRequest.setTargetServiceUniqueName(entry.getValue());
+                            } else if (key.startsWith(TRACE_PREFIX)) {
+                                traceMap.put(key.substring(TRACE_PREFIX.length()), entry.getValue());
+                            } else {
+                                sofaRequest.addRequestProp(key, entry.getValue());
+                            }
                         }
 
                         // 根据接口+方法名找到参数类型 此处要处理byte[]为空的吗
@@ -437,13 +549,17 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
             byte serializer = response.getSerializer();
             if (serializer == RemotingConstants.SERIALIZE_CODE_HESSIAN) {
                 try {
-                    ByteArrayOutputStream byteArray = new ByteArrayOutputStream();
+                    UnsafeByteArrayOutputStream byteArray = borrowBuffer();
                     Hessian2Output output = new Hessian2Output(byteArray);
                     output.setSerializerFactory(serializerFactory);
-                    output.writeObject(responseCommand.getResponseObject());
+                    Object responseObject = responseCommand.getResponseObject();
+                    output.writeObject(responseObject);
                     output.close();
-                    response.setContent(byteArray.toByteArray());
-                    byteArray.close();
+                    byte[] content = byteArray.toByteArray();
+                    returnBuffer(byteArray);
+                    String compress = responseObject instanceof SofaResponse ?
+                        ((SofaResponse) responseObject).getCompressType() : null;
+                    setContent(responseCommand, content, compress, null, false);
 
                     return true;
                 } catch (IOException ex) {
@@ -516,8 +632,9 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
                     return false;
                 }
                 try {
-                    ByteArrayInputStream input = new ByteArrayInputStream(
-                        responseCommand.getContent());
+                    content = getContent(content, (Map<String, String>) responseCommand.getResponseHeader(),
+                        invokeContext, false);
+                    ByteArrayInputStream input = new ByteArrayInputStream(content);
                     Hessian2Input hessianInput = new Hessian2Input(input);
 
                     // 根据SerializeType信息决定序列化器
@@ -553,13 +670,21 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
 
                     boolean isError = false;
                     Map<String, String> header = (Map<String, String>) responseCommand.getResponseHeader();
-                    if (header != null) {
-                        if ("true".equals(header.get(RemotingConstants.HEAD_RESPONSE_ERROR))) {
-                            header.remove(RemotingConstants.HEAD_RESPONSE_ERROR);
-                            isError = true;
+                    if (header != null && !header.isEmpty()) {
+                        // 头部是只读的，错误标记按key读取，其它的作为响应的扩展属性
+                        isError = "true".equals(header.get(RemotingConstants.HEAD_RESPONSE_ERROR));
+                        Map<String, String> props = null;
+                        for (Map.Entry<String, String> entry : header.entrySet()) {
+                            if (isError && RemotingConstants.HEAD_RESPONSE_ERROR.equals(entry.getKey())) {
+                                continue;
+                            }
+                            if (props == null) {
+                                props = new HashMap<String, String>(header.size() * 4 / 3 + 1);
+                            }
+                            props.put(entry.getKey(), entry.getValue());
                         }
-                        if (!header.isEmpty()) {
-                            sofaResponse.setResponseProps(header);
+                        if (props != null) {
+                            sofaResponse.setResponseProps(props);
                         }
                     }
                     if (isError) {
@@ -626,6 +751,102 @@ public class SofaRpcSerialization extends DefaultCustomSerializer {
         context.setAttachment(RpcConstants.INTERNAL_KEY_RESP_DESERIALIZE_TIME, cost);
     }
 
+    /**
+     * 设置消息体，消息体达到压缩基线时按指定的压缩算法压缩，并在头部追加压缩算法，对方据此解压。<br>
+     * 压缩后没有变小则按原样发送。
+     *
+     * @param command       请求或者响应
+     * @param content       序列化后的消息体
+     * @param compress      压缩算法，为空则不压缩
+     * @param invokeContext 调用上下文，客户端使用
+     * @param isRequest     是否请求
+     * @throws SerializationException 压缩失败
+     */
+    protected void setContent(RpcCommand command, byte[] content, String compress, InvokeContext invokeContext,
+                              boolean isRequest) throws SerializationException {
+        if (compress == null || content.length < COMPRESS_BASELINE) {
+            command.setContent(content);
+            return;
+        }
+        long start = System.nanoTime();
+        byte[] compressed;
+        try {
+            compressed = CompressorFactory.getCompressor(compress).compress(content);
+        } catch (Exception e) {
+            throw new SerializationException("Failed to compress content by " + compress + ": " + e.getMessage(), e);
+        }
+        long cost = System.nanoTime() - start;
+        if (compressed.length >= content.length) {
+            command.setContent(content);
+            return;
+        }
+        command.setContent(compressed);
+        // header 已经序列化好了，直接在后面追加
+        command.setHeader(mapSerializer.append(command.getHeader(), RemotingConstants.HEAD_COMPRESS, compress));
+        recordCompress(invokeContext, isRequest, content.length, compressed.length, cost);
+    }
+
+    /**
+     * 得到消息体，头部带了压缩算法的先解压
+     *
+     * @param content       收到的消息体
+     * @param header        头部
+     * @param invokeContext 调用上下文，客户端使用
+     * @param isRequest     是否请求
+     * @return 解压后的消息体
+     * @throws DeserializationException 解压失败
+     */
+    protected byte[] getContent(byte[] content, Map<String, String> header, InvokeContext invokeContext,
+                                boolean isRequest) throws DeserializationException {
+        String compress = header == null ? null : header.get(RemotingConstants.HEAD_COMPRESS);
+        if (compress == null) {
+            return content;
+        }
+        long start = System.nanoTime();
+        byte[] decompressed;
+        try {
+            decompressed = CompressorFactory.getCompressor(compress).deCompress(content);
+        } catch (Exception e) {
+            throw new DeserializationException("Failed to decompress content by " + compress + ": "
+                + e.getMessage(), e);
+        }
+        recordCompress(invokeContext, isRequest, decompressed.length, content.length, System.nanoTime() - start);
+        return decompressed;
+    }
+
+    /**
+     * 记录压缩比和压缩（解压）耗时
+     *
+     * @param invokeContext  调用上下文
+     * @param isRequest      是否请求
+     * @param rawSize        压缩前大小
+     * @param compressedSize 压缩后大小
+     * @param costNanos      耗时（纳秒）
+     */
+    private void recordCompress(InvokeContext invokeContext, boolean isRequest, int rawSize, int compressedSize,
+                                long costNanos) {
+        if (!RpcInternalContext.isAttachmentEnable()) {
+            return;
+        }
+        RpcInternalContext context = null;
+        if (invokeContext != null) {
+            // 客户端异步调用的情况下，上下文会放在InvokeContext中传递
+            context = invokeContext.get(RemotingConstants.INVOKE_CTX_RPC_CTX);
+        }
+        if (context == null) {
+            context = RpcInternalContext.getContext();
+        }
+        int ratio = rawSize == 0 ? 100 : (int) (compressedSize * 100L / rawSize);
+        int cost = (int) TimeUnit.NANOSECONDS.toMicros(costNanos);
+        if (isRequest) {
+            context.setAttachment(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO, ratio);
+            context.setAttachment(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_TIME, cost);
+        } else {
+            context.setAttachment(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_RATIO, ratio);
+            context.setAttachment(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_TIME, cost);
+        }
+    }
+
     protected void generateArgTypes(final String[] sig, final Class[] classSig,
                                     ClassLoader appClassLoader) throws IOException {
         for (int x = 0; x < sig.length; x++) {
@@ -18,6 +18,7 @@ package com.alipay.sofa.rpc.message.bolt;
 
 import com.alipay.remoting.InvokeCallback;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInvokeStats;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.config.ConsumerConfig;
 import com.alipay.sofa.rpc.context.AsyncRuntime;
@@ -100,6 +101,7 @@ public class BoltFutureInvokeCallback implements InvokeCallback {
         try {
             Thread.currentThread().setContextClassLoader(this.classLoader);
             RpcInternalContext.setContext(context);
+            endInvokeStats();
 
             if (EventBus.isEnable(ClientAsyncReceiveEvent.class)) {
                 EventBus.post(new ClientAsyncReceiveEvent(consumerConfig, providerInfo,
@@ -131,7 +133,7 @@ public class BoltFutureInvokeCallback implements InvokeCallback {
                 rpcFuture.setFailure(sofaRpcException);
             } else if (appResp instanceof Throwable) { // 业务层异常
                 throwable = (Throwable) appResp;
-                rpcFuture.setFailure(throwable);
+                rpcFuture.setFailure(throwable, true);
             } else {
                 rpcFuture.setSuccess(appResp);
             }
@@ -155,6 +157,7 @@ public class BoltFutureInvokeCallback implements InvokeCallback {
         try {
             Thread.currentThread().setContextClassLoader(this.classLoader);
             RpcInternalContext.setContext(context);
+            endInvokeStats();
 
             if (EventBus.isEnable(ClientAsyncReceiveEvent.class)) {
                 EventBus.post(new ClientAsyncReceiveEvent(consumerConfig, providerInfo,
@@ -182,4 +185,16 @@ public class BoltFutureInvokeCallback implements InvokeCallback {
     public Executor getExecutor() {
         return AsyncRuntime.getAsyncThreadPool();
     }
+
+    /**
+     * 结束服务端调用统计
+     */
+    protected void endInvokeStats() {
+        if (context != null) {
+            Object invocation = context.getAttachment(RpcConstants.HIDDEN_KEY_INVOKE_STATS);
+            if (invocation instanceof ProviderInvokeStats.AsyncInvocation) {
+                ((ProviderInvokeStats.AsyncInvocation) invocation).end();
+            }
+        }
+    }
 }
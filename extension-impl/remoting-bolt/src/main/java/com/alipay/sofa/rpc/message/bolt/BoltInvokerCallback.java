@@ -18,6 +18,7 @@ package com.alipay.sofa.rpc.message.bolt;
 
 import com.alipay.remoting.InvokeCallback;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInvokeStats;
 import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.config.ConsumerConfig;
 import com.alipay.sofa.rpc.context.AsyncRuntime;
@@ -101,6 +102,7 @@ public class BoltInvokerCallback implements InvokeCallback {
         try {
             Thread.currentThread().setContextClassLoader(this.classLoader);
             RpcInternalContext.setContext(context);
+            endInvokeStats();
 
             if (EventBus.isEnable(ClientAsyncReceiveEvent.class)) {
                 EventBus.post(new ClientAsyncReceiveEvent(consumerConfig, providerInfo,
@@ -157,6 +159,7 @@ public class BoltInvokerCallback implements InvokeCallback {
         try {
             Thread.currentThread().setContextClassLoader(this.classLoader);
             RpcInternalContext.setContext(context);
+            endInvokeStats();
 
             if (EventBus.isEnable(ClientAsyncReceiveEvent.class)) {
                 EventBus.post(new ClientAsyncReceiveEvent(consumerConfig, providerInfo,
@@ -186,4 +189,16 @@ public class BoltInvokerCallback implements InvokeCallback {
     public Executor getExecutor() {
         return AsyncRuntime.getAsyncThreadPool();
     }
+
+    /**
+     * 结束服务端调用统计
+     */
+    protected void endInvokeStats() {
+        if (context != null) {
+            Object invocation = context.getAttachment(RpcConstants.HIDDEN_KEY_INVOKE_STATS);
+            if (invocation instanceof ProviderInvokeStats.AsyncInvocation) {
+                ((ProviderInvokeStats.AsyncInvocation) invocation).end();
+            }
+        }
+    }
 }
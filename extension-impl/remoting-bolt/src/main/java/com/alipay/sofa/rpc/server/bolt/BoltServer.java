@@ -16,9 +16,13 @@
  */
 package com.alipay.sofa.rpc.server.bolt;
 
+import com.alipay.remoting.Connection;
+import com.alipay.remoting.ConnectionEventProcessor;
+import com.alipay.remoting.ConnectionEventType;
 import com.alipay.remoting.RemotingServer;
 import com.alipay.remoting.rpc.RpcServer;
 import com.alipay.sofa.rpc.common.ReflectCache;
+import com.alipay.sofa.rpc.common.RpcOptions;
 import com.alipay.sofa.rpc.common.struct.NamedThreadFactory;
 import com.alipay.sofa.rpc.config.ConfigUniqueNameGenerator;
 import com.alipay.sofa.rpc.config.ProviderConfig;
@@ -30,6 +34,7 @@ import com.alipay.sofa.rpc.invoke.Invoker;
 import com.alipay.sofa.rpc.log.Logger;
 import com.alipay.sofa.rpc.log.LoggerFactory;
 import com.alipay.sofa.rpc.server.BusinessPool;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
 import com.alipay.sofa.rpc.server.Server;
 
 import java.util.Map;
@@ -45,7 +50,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Extension("bolt")
 public class BoltServer implements Server {
 
-    private static final Logger    LOGGER     = LoggerFactory.getLogger(BoltServer.class);
+    private static final Logger    LOGGER      = LoggerFactory.getLogger(BoltServer.class);
 
     /**
      * 是否已经启动
@@ -74,7 +79,12 @@ public class BoltServer implements Server {
     /**
      * Invoker列表，接口--> Invoker
      */
-    protected Map<String, Invoker> invokerMap = new ConcurrentHashMap<String, Invoker>();
+    protected Map<String, Invoker> invokerMap  = new ConcurrentHashMap<String, Invoker>();
+
+    /**
+     * 当前连接数
+     */
+    protected final AtomicInteger  connections = new AtomicInteger();
 
     @Override
     public void init(ServerConfig serverConfig) {
@@ -120,12 +130,45 @@ public class BoltServer implements Server {
     }
 
     protected RemotingServer initRemotingServer() {
+        if (serverConfig.isEpoll() && LOGGER.isWarnEnabled()) {
+            // 当前版本的bolt固定使用nio
+            LOGGER.warn("Epoll is not supported by bolt server, use nio instead.");
+        }
         // 绑定到端口
-        RemotingServer remotingServer = new RpcServer(serverConfig.getPort());
+        RpcServer remotingServer = new RpcServer(serverConfig.getPort());
         remotingServer.registerUserProcessor(boltServerProcessor);
+        // 连接数限制，空闲连接和keepAlive由bolt的全局配置（bolt.tcp.server.idle.interval等）控制
+        final int accepts = serverConfig.getAccepts();
+        remotingServer.addConnectionEventProcessor(ConnectionEventType.CONNECT, new ConnectionEventProcessor() {
+            @Override
+            public void onEvent(String remoteAddr, Connection conn) {
+                if (connections.incrementAndGet() > accepts) {
+                    if (LOGGER.isWarnEnabled()) {
+                        LOGGER.warn("Connection from " + remoteAddr + " is refused, the number of connections exceeds "
+                            + accepts);
+                    }
+                    conn.close(); // 关闭时会触发CLOSE事件，计数在那里减掉
+                }
+            }
+        });
+        remotingServer.addConnectionEventProcessor(ConnectionEventType.CLOSE, new ConnectionEventProcessor() {
+            @Override
+            public void onEvent(String remoteAddr, Connection conn) {
+                connections.decrementAndGet();
+            }
+        });
         return remotingServer;
     }
 
+    /**
+     * 当前的连接数
+     *
+     * @return 连接数
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
     @Override
     public boolean isStarted() {
         return started;
@@ -157,6 +200,9 @@ public class BoltServer implements Server {
         invokerMap.put(key, instance);
         // 缓存接口的方法
         ReflectCache.putServiceMethodCache(key, providerConfig.getProxyClass());
+        if (providerConfig.hasConcurrents()) {
+            boltServerProcessor.enableConcurrentsCheck();
+        }
     }
 
     @Override
@@ -166,6 +212,7 @@ public class BoltServer implements Server {
         invokerMap.remove(key);
         // 取消缓存接口方法
         ReflectCache.invalidateServiceMethodCache(key);
+        boltServerProcessor.removeConcurrencyLimiter(key);
         // 如果最后一个需要关闭，则关闭
         if (closeIfNoEntry && invokerMap.size() == 0) {
             stop();
@@ -227,4 +274,15 @@ public class BoltServer implements Server {
     public Invoker findInvoker(String serviceName) {
         return invokerMap.get(serviceName);
     }
+
+    /**
+     * 得到服务的自适应并发限制，可以查询当前的并发限制和被拒绝的请求数
+     *
+     * @param serviceName 服务名
+     * @return 自适应并发限制，没有开启时为null
+     * @see RpcOptions#SERVER_LIMITER
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter(String serviceName) {
+        return boltServerProcessor == null ? null : boltServerProcessor.getConcurrencyLimiter(serviceName);
+    }
 }
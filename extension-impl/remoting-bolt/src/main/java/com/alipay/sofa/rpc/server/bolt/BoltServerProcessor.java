@@ -24,8 +24,12 @@ import com.alipay.remoting.rpc.protocol.UserProcessor;
 import com.alipay.sofa.rpc.codec.bolt.SofaRpcSerializationRegister;
 import com.alipay.sofa.rpc.common.ReflectCache;
 import com.alipay.sofa.rpc.common.RemotingConstants;
+import com.alipay.sofa.rpc.common.RpcConfigs;
 import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
 import com.alipay.sofa.rpc.common.SystemInfo;
+import com.alipay.sofa.rpc.common.utils.ExceptionUtils;
+import com.alipay.sofa.rpc.common.utils.StringUtils;
 import com.alipay.sofa.rpc.config.ProviderConfig;
 import com.alipay.sofa.rpc.config.UserThreadPoolManager;
 import com.alipay.sofa.rpc.context.RpcInternalContext;
@@ -39,17 +43,24 @@ import com.alipay.sofa.rpc.event.EventBus;
 import com.alipay.sofa.rpc.event.ServerEndHandleEvent;
 import com.alipay.sofa.rpc.event.ServerReceiveEvent;
 import com.alipay.sofa.rpc.event.ServerSendEvent;
+import com.alipay.sofa.rpc.ext.ExtensionClass;
+import com.alipay.sofa.rpc.ext.ExtensionLoaderFactory;
+import com.alipay.sofa.rpc.filter.AbstractConcurrentsFilter;
 import com.alipay.sofa.rpc.invoke.Invoker;
 import com.alipay.sofa.rpc.log.LogCodes;
 import com.alipay.sofa.rpc.log.Logger;
 import com.alipay.sofa.rpc.log.LoggerFactory;
 import com.alipay.sofa.rpc.message.MessageBuilder;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
 import com.alipay.sofa.rpc.server.ProviderProxyInvoker;
 import com.alipay.sofa.rpc.server.UserThreadPool;
 
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -62,7 +73,8 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
     /**
      * Logger for this class
      */
-    private static final Logger LOGGER = LoggerFactory.getLogger(BoltServerProcessor.class);
+    private static final Logger                             LOGGER   = LoggerFactory
+                                                                         .getLogger(BoltServerProcessor.class);
 
     /**
      * 提前注册序列化器
@@ -74,7 +86,22 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
     /**
      * bolt server, which saved invoker map
      */
-    private final BoltServer    boltServer;
+    private final BoltServer                                boltServer;
+
+    /**
+     * 自适应并发限制的实现类，为空表示不开启
+     */
+    private final ExtensionClass<ConcurrencyLimiter>        limiterClass;
+
+    /**
+     * 服务名：自适应并发限制
+     */
+    private final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+    /**
+     * 是否有服务配置了方法级并发限制，有的话在进入业务线程池之前预判
+     */
+    private volatile boolean                                concurrentsLimited;
 
     /**
      * Construct
@@ -84,6 +111,17 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
     public BoltServerProcessor(BoltServer boltServer) {
         this.boltServer = boltServer;
         this.executorSelector = new UserThreadPoolSelector(); // 支持自定义业务线程池
+        String limiter = RpcConfigs.getStringValue(RpcOptions.SERVER_LIMITER);
+        if (StringUtils.isNotEmpty(limiter)) {
+            limiterClass = ExtensionLoaderFactory.getExtensionLoader(ConcurrencyLimiter.class)
+                .getExtensionClass(limiter);
+            if (limiterClass == null) {
+                throw ExceptionUtils.buildRuntime(RpcOptions.SERVER_LIMITER, limiter,
+                    "Unsupported concurrency limiter of server!");
+            }
+        } else {
+            limiterClass = null;
+        }
     }
 
     /**
@@ -180,6 +218,12 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
 
             // Response不为空，代表需要返回给客户端
             if (response != null) {
+                // 客户端声明了可以解压并且服务端也开启了压缩，才压缩响应
+                String compressType = request.getCompressType();
+                if (compressType != null && providerConfig != null
+                    && providerConfig.getMethodCompress(request.getMethodName()) != null) {
+                    response.setCompressType(compressType);
+                }
                 RpcInvokeContext invokeContext = RpcInvokeContext.peekContext();
                 Boolean isAsyncChain = invokeContext != null ?
                     (Boolean) invokeContext.remove(RemotingConstants.INVOKE_CTX_IS_ASYNC_CHAIN) : null;
@@ -224,6 +268,37 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
         }
     }
 
+    /**
+     * 得到服务的自适应并发限制，第一次使用时创建
+     *
+     * @param serviceName 服务名
+     * @return 自适应并发限制，没有开启或者服务没有发布时为null
+     */
+    ConcurrencyLimiter getConcurrencyLimiter(String serviceName) {
+        if (limiterClass == null) {
+            return null;
+        }
+        ConcurrencyLimiter limiter = limiters.get(serviceName);
+        if (limiter == null) {
+            // 没有发布的服务不限制，由后续流程返回找不到服务
+            if (boltServer.findInvoker(serviceName) == null) {
+                return null;
+            }
+            ConcurrencyLimiter old = limiters.putIfAbsent(serviceName, limiterClass.getExtInstance());
+            limiter = old == null ? limiters.get(serviceName) : old;
+        }
+        return limiter;
+    }
+
+    /**
+     * 服务取消发布时删除自适应并发限制
+     *
+     * @param serviceName 服务名
+     */
+    void removeConcurrencyLimiter(String serviceName) {
+        limiters.remove(serviceName);
+    }
+
     private void putToContextIfNotNull(InvokeContext invokeContext, String oldKey,
                                        RpcInternalContext context, String key) {
         Object value = invokeContext.get(oldKey);
@@ -307,7 +382,28 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
 
     @Override
     public ExecutorSelector getExecutorSelector() {
-        return UserThreadPoolManager.hasUserThread() ? executorSelector : null;
+        return UserThreadPoolManager.hasUserThread() || limiterClass != null || concurrentsLimited ?
+            executorSelector : null;
+    }
+
+    /**
+     * 有服务配置了方法级并发限制，开始在进入业务线程池之前预判
+     */
+    void enableConcurrentsCheck() {
+        concurrentsLimited = true;
+    }
+
+    /**
+     * 方法的并发是否已经用满
+     *
+     * @param serviceName 服务名
+     * @param methodName  方法名
+     * @return 是否已经用满
+     */
+    private boolean isConcurrentsExhausted(String serviceName, String methodName) {
+        Invoker invoker = boltServer.findInvoker(serviceName);
+        return invoker instanceof ProviderProxyInvoker
+            && AbstractConcurrentsFilter.isExhausted(((ProviderProxyInvoker) invoker).getProviderConfig(), methodName);
     }
 
     /**
@@ -320,22 +416,23 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
 
         @Override
         public Executor select(String requestClass, Object requestHeader) {
+            String service = null;
+            String methodName = null;
+            Executor executor = null;
             if (SofaRequest.class.getName().equals(requestClass)
                 && requestHeader != null) {
                 Map<String, String> headerMap = (Map<String, String>) requestHeader;
                 try {
-                    String service = headerMap.get(RemotingConstants.HEAD_SERVICE);
+                    service = headerMap.get(RemotingConstants.HEAD_SERVICE);
                     if (service == null) {
                         service = headerMap.get(RemotingConstants.HEAD_TARGET_SERVICE);
                     }
+                    methodName = headerMap.get(RemotingConstants.HEAD_METHOD_NAME);
                     if (service != null) {
                         UserThreadPool threadPool = UserThreadPoolManager.getUserThread(service);
                         if (threadPool != null) {
-                            Executor executor = threadPool.getExecutor();
-                            if (executor != null) {
-                                // 存在自定义线程池，且不为空
-                                return executor;
-                            }
+                            // 存在自定义线程池，且不为空
+                            executor = threadPool.getExecutor();
                         }
                     }
                 } catch (Exception e) {
@@ -344,7 +441,89 @@ public class BoltServerProcessor extends AsyncUserProcessor<SofaRequest> {
                     }
                 }
             }
-            return getExecutor();
+            if (executor == null) {
+                executor = getExecutor();
+            }
+            if (concurrentsLimited && service != null && isConcurrentsExhausted(service, methodName)) {
+                // 方法并发已经用满，不占用业务线程，客户端收到服务端繁忙
+                return REJECTED_EXECUTOR;
+            }
+            ConcurrencyLimiter limiter = service == null ? null : getConcurrencyLimiter(service);
+            if (limiter != null) {
+                if (!limiter.tryAcquire()) {
+                    // 在进入业务线程池之前拒绝，客户端收到服务端繁忙
+                    return REJECTED_EXECUTOR;
+                }
+                return new LimitedExecution(executor, limiter);
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * 超过并发限制时使用的线程池，直接拒绝
+     */
+    private static final Executor REJECTED_EXECUTOR = new Executor() {
+                                                        @Override
+                                                        public void execute(Runnable command) {
+                                                            throw LimitExceededException.INSTANCE;
+                                                        }
+                                                    };
+
+    /**
+     * 超过并发限制，由bolt返回线程池繁忙的响应，不需要堆栈
+     */
+    private static class LimitExceededException extends RejectedExecutionException {
+
+        private static final LimitExceededException INSTANCE = new LimitExceededException();
+
+        private LimitExceededException() {
+            super("Server is busy, concurrency limit exceeded");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * 占用了并发的一次请求处理，从进入线程池开始计时，处理完成后释放并发并上报耗时
+     */
+    private static class LimitedExecution implements Executor, Runnable {
+
+        private final Executor           executor;
+
+        private final ConcurrencyLimiter limiter;
+
+        private Runnable                 task;
+
+        private long                     start;
+
+        LimitedExecution(Executor executor, ConcurrencyLimiter limiter) {
+            this.executor = executor;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            this.task = command;
+            this.start = System.nanoTime();
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                limiter.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                limiter.release(System.nanoTime() - start);
+            }
         }
     }
 
@@ -17,6 +17,7 @@
 package com.alipay.sofa.rpc.transport.bolt;
 
 import com.alipay.remoting.Connection;
+import com.alipay.remoting.ConnectionManager;
 import com.alipay.remoting.InvokeCallback;
 import com.alipay.remoting.InvokeContext;
 import com.alipay.remoting.Url;
@@ -30,11 +31,19 @@ import com.alipay.remoting.rpc.exception.InvokeServerBusyException;
 import com.alipay.remoting.rpc.exception.InvokeServerException;
 import com.alipay.remoting.rpc.exception.InvokeTimeoutException;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.client.ProviderInfoAttrs;
 import com.alipay.sofa.rpc.codec.bolt.SofaRpcSerializationRegister;
 import com.alipay.sofa.rpc.common.RemotingConstants;
+import com.alipay.sofa.rpc.common.RpcConfigs;
 import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.struct.NamedThreadFactory;
 import com.alipay.sofa.rpc.common.utils.ClassLoaderUtils;
+import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.common.utils.NetUtils;
+import com.alipay.sofa.rpc.common.utils.StringUtils;
+import com.alipay.sofa.rpc.common.utils.ThreadPoolUtils;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
 import com.alipay.sofa.rpc.context.RpcInternalContext;
 import com.alipay.sofa.rpc.core.exception.RpcErrorType;
 import com.alipay.sofa.rpc.core.exception.SofaRpcException;
@@ -58,11 +67,23 @@ import com.alipay.sofa.rpc.transport.AbstractChannel;
 import com.alipay.sofa.rpc.transport.ClientTransport;
 import com.alipay.sofa.rpc.transport.ClientTransportConfig;
 
+import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 注意，bolt的实现只支持长连接共享模式。
+ * 注意，bolt的实现只支持长连接共享模式。<br>
+ * 当connectionNum大于1时，一个地址会建立多个长连接（由bolt的连接池统一管理），每次调用按connectionSelector选择其中一个。
  *
  * @author <a href="mailto:zhanggeng.zg@antfin.com">GengZhang</a>
  */
@@ -72,15 +93,42 @@ public class BoltClientTransport extends ClientTransport {
     /**
      * Logger for this class
      */
-    private static final Logger      LOGGER          = LoggerFactory.getLogger(BoltClientTransport.class);
+    private static final Logger               LOGGER             = LoggerFactory.getLogger(BoltClientTransport.class);
 
-    protected static final RpcClient RPC_CLIENT      = new RpcClient();
+    protected static final RpcClient          RPC_CLIENT         = new RpcClient();
 
     static {
         RPC_CLIENT.init();
+        if (RpcConfigs.getBooleanValue(RpcOptions.TRANSPORT_USE_EPOLL) && LOGGER.isWarnEnabled()) {
+            // 当前版本的bolt固定使用nio
+            LOGGER.warn("Epoll is not supported by bolt client, use nio instead.");
+        }
         SofaRpcSerializationRegister.registerCustomSerializer();
     }
 
+    /**
+     * bolt的连接管理器，用于补齐连接池中断开的长连接，当前版本的bolt没有暴露，只能反射获取
+     */
+    protected static final ConnectionManager  CONNECTION_MANAGER = getConnectionManager();
+
+    /**
+     * 补齐长连接的线程，建连可能阻塞，不放在调用线程里做
+     */
+    protected static final ThreadPoolExecutor HEAL_EXECUTOR      = ThreadPoolUtils.newCachedThreadPool(1, 1,
+                                                                     new LinkedBlockingQueue<Runnable>(),
+                                                                     new NamedThreadFactory("BOLT-CONN-HEAL", true));
+
+    private static ConnectionManager getConnectionManager() {
+        try {
+            Field field = RpcClient.class.getDeclaredField("connectionManager");
+            field.setAccessible(true);
+            return (ConnectionManager) field.get(RPC_CLIENT);
+        } catch (Exception e) {
+            LOGGER.warn("Can not get connection manager of bolt client, broken connections will not be healed.", e);
+            return null;
+        }
+    }
+
     /**
      * 服务端提供者信息
      */
@@ -93,7 +141,8 @@ public class BoltClientTransport extends ClientTransport {
 
     /**
      * Connection的实时状态<br>
-     * 因为一个url在bolt里对应多个connect的，但是我们禁用，只保留一个
+     * 一个url在bolt的连接池里可以对应多个长连接，这里保存建连时拿到的一个；
+     * 多个长连接时调用从长连接快照 {@link #connections} 中选择，这个只在快照为空时兜底
      */
     protected volatile Connection    connection;
 
@@ -102,6 +151,52 @@ public class BoltClientTransport extends ClientTransport {
      */
     protected volatile AtomicInteger currentRequests = new AtomicInteger(0);
 
+    /**
+     * 一个地址建立的长连接数量
+     */
+    protected final int              connectionNum;
+
+    /**
+     * 多个长连接时的选择策略
+     */
+    protected final String           connectionSelector;
+
+    /**
+     * 多个长连接时的长连接快照，从bolt的连接池中刷新得到
+     */
+    protected volatile Connection[]  connections     = new Connection[0];
+
+    /**
+     * 上次刷新长连接快照的时间
+     */
+    protected volatile long          lastRefreshTime;
+
+    /**
+     * 选择时发现快照里有断开的长连接，需要刷新快照
+     */
+    protected volatile boolean       connectionBroken;
+
+    /**
+     * 是否正在补齐长连接
+     */
+    protected final AtomicBoolean    healing         = new AtomicBoolean(false);
+
+    /**
+     * 轮询选择长连接的下标
+     */
+    protected final AtomicInteger    connectionIndex = new AtomicInteger(0);
+
+    /**
+     * 随机选择长连接
+     */
+    protected final Random           random          = new Random();
+
+    /**
+     * 服务端可以解压的压缩算法，服务端没有发布时为空，不压缩请求；
+     * 直连且地址上没有声明时为null，按调用方配置的压缩算法压缩请求
+     */
+    protected final Set<String>      acceptCompress;
+
     /**
      * Instant BoltClientTransport
      *
@@ -111,6 +206,37 @@ public class BoltClientTransport extends ClientTransport {
         super(transportConfig);
         providerInfo = transportConfig.getProviderInfo();
         url = convertProviderToUrl(transportConfig, providerInfo);
+        connectionNum = url.getConnNum();
+        connectionSelector = transportConfig.getConnectionSelector();
+        acceptCompress = parseAcceptCompress(transportConfig, providerInfo);
+    }
+
+    /**
+     * 解析服务端发布的可以解压的压缩算法。<br>
+     * 只有注册中心会发布这个属性，直连的地址上一般没有，直连时调用方是显式配置的压缩，按配置压缩请求
+     *
+     * @param transportConfig ClientTransportConfig
+     * @param providerInfo    ProviderInfo
+     * @return 压缩算法集合，null表示按调用方的配置压缩
+     */
+    protected Set<String> parseAcceptCompress(ClientTransportConfig transportConfig, ProviderInfo providerInfo) {
+        String accepts = providerInfo.getStaticAttr(ProviderInfoAttrs.ATTR_ACCEPT_COMPRESS);
+        if (StringUtils.isBlank(accepts)) {
+            ConsumerConfig consumerConfig = transportConfig.getConsumerConfig();
+            if (consumerConfig != null && StringUtils.isNotEmpty(consumerConfig.getDirectUrl())) {
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info("Provider {} does not declare {}, compress requests as configured by direct url.",
+                        providerInfo, ProviderInfoAttrs.ATTR_ACCEPT_COMPRESS);
+                }
+                return null;
+            }
+            return Collections.emptySet();
+        }
+        Set<String> set = new HashSet<String>();
+        for (String alias : StringUtils.splitWithCommaOrSemicolon(accepts)) {
+            set.add(alias);
+        }
+        return set;
     }
 
     /**
@@ -125,10 +251,9 @@ public class BoltClientTransport extends ClientTransport {
         Url boltUrl = new Url(providerInfo.toString(), providerInfo.getHost(), providerInfo.getPort());
 
         boltUrl.setConnectTimeout(transportConfig.getConnectTimeout());
-        // 注意：禁用了connectionNum方法
-        // boltUrl.setConnNum(transportConfig.getConnectionNum());
-        boltUrl.setConnNum(1); // 默认初始化connNum个长连接
-        boltUrl.setConnWarmup(false); // true的话 
+        // 多个长连接时由bolt的连接池统一管理
+        boltUrl.setConnNum(Math.max(1, transportConfig.getConnectionNum())); // 默认初始化connNum个长连接
+        boltUrl.setConnWarmup(transportConfig.isConnectionWarmup()); // true的话第一次就同步建立全部长连接，否则先建一个，剩下的异步建立
         if (RpcConstants.PROTOCOL_TYPE_BOLT.equals(providerInfo.getProtocolType())) {
             boltUrl.setProtocol(RemotingConstants.PROTOCOL_BOLT);
         } else {
@@ -159,6 +284,148 @@ public class BoltClientTransport extends ClientTransport {
                 }
             }
         }
+        if (connectionNum > 1) {
+            refreshConnections();
+            if (connections.length < connectionNum) {
+                healConnections();
+            }
+        }
+    }
+
+    /**
+     * 从bolt的连接池中刷新长连接快照，只保留可用的长连接，断开的长连接关闭后会从连接池中移除
+     */
+    protected void refreshConnections() {
+        lastRefreshTime = System.currentTimeMillis();
+        connectionBroken = false;
+        List<Connection> pooled = RPC_CLIENT.getAllManagedConnections().get(url.getUniqueKey());
+        if (CommonUtils.isEmpty(pooled)) {
+            connections = new Connection[0];
+            return;
+        }
+        List<Connection> fines = new ArrayList<Connection>(pooled.size());
+        for (Connection conn : pooled) {
+            if (conn.isFine()) {
+                fines.add(conn);
+            } else {
+                conn.close();
+            }
+        }
+        connections = fines.toArray(new Connection[fines.size()]);
+    }
+
+    /**
+     * 可用长连接不足时，异步让bolt按connNum补齐连接池，补齐后刷新快照
+     */
+    protected void healConnections() {
+        if (CONNECTION_MANAGER == null || !healing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            HEAL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        CONNECTION_MANAGER.createConnectionAndHealIfNeed(url);
+                        refreshConnections();
+                    } catch (Exception e) {
+                        if (LOGGER.isDebugEnabled()) {
+                            LOGGER.debug("Heal connections of " + url.getOriginUrl() + " failed: " + e.getMessage());
+                        }
+                    } finally {
+                        healing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            healing.set(false);
+        }
+    }
+
+    /**
+     * 是否有可用的长连接
+     *
+     * @return 快照或兜底长连接中有可用的
+     */
+    protected boolean hasFineConnection() {
+        if (connection != null && connection.isFine()) {
+            return true;
+        }
+        for (Connection conn : connections) {
+            if (conn.isFine()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 选择本次调用使用的长连接
+     *
+     * @return 长连接
+     * @throws SofaRpcException 没有可用长连接
+     */
+    protected Connection selectConnection() throws SofaRpcException {
+        Connection[] snapshot = connections;
+        // 不预热时剩余长连接是异步建立的，或者部分长连接已断开，最多每秒从连接池刷新一次，不足时让bolt补齐
+        if ((snapshot.length < connectionNum || connectionBroken)
+            && System.currentTimeMillis() - lastRefreshTime > 1000) {
+            refreshConnections();
+            snapshot = connections;
+            if (snapshot.length < connectionNum) {
+                healConnections();
+            }
+        }
+        int size = snapshot.length;
+        if (size == 0) {
+            return connection;
+        }
+        int start;
+        if (RpcConstants.CONNECTION_SELECTOR_LEAST_ACTIVE.equals(connectionSelector)) {
+            return selectLeastActive(snapshot);
+        } else if (RpcConstants.CONNECTION_SELECTOR_RANDOM.equals(connectionSelector)) {
+            start = random.nextInt(size);
+        } else {
+            start = (connectionIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        }
+        for (int i = 0; i < size; i++) {
+            Connection conn = snapshot[(start + i) % size];
+            if (conn.isFine()) {
+                return conn;
+            }
+            connectionBroken = true;
+        }
+        return connection;
+    }
+
+    /**
+     * 选择在途请求最少的长连接
+     *
+     * @param snapshot 长连接快照
+     * @return 长连接
+     */
+    protected Connection selectLeastActive(Connection[] snapshot) {
+        int size = snapshot.length;
+        // 从轮询位置开始找，在途请求数相同时分散到不同长连接
+        int start = (connectionIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Connection selected = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Connection conn = snapshot[(start + i) % size];
+            if (conn.isFine()) {
+                int active = conn.getInvokeFutureMap().size();
+                if (active < least) {
+                    least = active;
+                    selected = conn;
+                    if (active == 0) {
+                        break;
+                    }
+                }
+            } else {
+                connectionBroken = true;
+            }
+        }
+        return selected == null ? connection : selected;
     }
 
     @Override
@@ -171,6 +438,7 @@ public class BoltClientTransport extends ClientTransport {
                 }
             }
             connection = null;
+            connections = new Connection[0];
             RPC_CLIENT.closeConnection(url);
         } catch (Exception e) {
             throw new SofaRpcRuntimeException("", e);
@@ -184,6 +452,9 @@ public class BoltClientTransport extends ClientTransport {
 
     @Override
     public boolean isAvailable() {
+        if (connectionNum > 1) {
+            return hasFineConnection();
+        }
         return connection != null && connection.isFine();
     }
 
@@ -240,15 +511,24 @@ public class BoltClientTransport extends ClientTransport {
             InvokeCallback callback = new BoltInvokerCallback(transportConfig.getConsumerConfig(), providerInfo,
                 listener, request, rpcContext, ClassLoaderUtils.getCurrentClassLoader());
             // 发起调用
-            RPC_CLIENT.invokeWithCallback(url, request, invokeContext, callback, timeoutMillis);
+            if (connectionNum > 1) {
+                RPC_CLIENT.invokeWithCallback(selectConnection(), request, invokeContext, callback, timeoutMillis);
+            } else {
+                RPC_CLIENT.invokeWithCallback(url, request, invokeContext, callback, timeoutMillis);
+            }
             return null;
         } else {
             // future 转为 callback
             BoltResponseFuture future = new BoltResponseFuture(request, timeoutMillis);
+            future.setListenerExecutor(transportConfig.getConsumerConfig().getFutureListenerExecutor());
             InvokeCallback callback = new BoltFutureInvokeCallback(transportConfig.getConsumerConfig(), providerInfo,
                 future, request, rpcContext, ClassLoaderUtils.getCurrentClassLoader());
             // 发起调用
-            RPC_CLIENT.invokeWithCallback(url, request, invokeContext, callback, timeoutMillis);
+            if (connectionNum > 1) {
+                RPC_CLIENT.invokeWithCallback(selectConnection(), request, invokeContext, callback, timeoutMillis);
+            } else {
+                RPC_CLIENT.invokeWithCallback(url, request, invokeContext, callback, timeoutMillis);
+            }
             // 记录到上下文 传递出去
             RpcInternalContext.getContext().setFuture(future);
             future.setSentTime();
@@ -292,6 +572,9 @@ public class BoltClientTransport extends ClientTransport {
      */
     protected SofaResponse doInvokeSync(SofaRequest request, InvokeContext invokeContext, int timeoutMillis)
         throws RemotingException, InterruptedException {
+        if (connectionNum > 1) {
+            return (SofaResponse) RPC_CLIENT.invokeSync(selectConnection(), request, invokeContext, timeoutMillis);
+        }
         return (SofaResponse) RPC_CLIENT.invokeSync(url, request, invokeContext, timeoutMillis);
     }
 
@@ -328,7 +611,11 @@ public class BoltClientTransport extends ClientTransport {
      */
     protected void doOneWay(SofaRequest request, InvokeContext invokeContext, int timeoutMillis)
         throws RemotingException, InterruptedException {
-        RPC_CLIENT.oneway(url, request, invokeContext);
+        if (connectionNum > 1) {
+            RPC_CLIENT.oneway(selectConnection(), request, invokeContext);
+        } else {
+            RPC_CLIENT.oneway(url, request, invokeContext);
+        }
     }
 
     /**
@@ -384,6 +671,14 @@ public class BoltClientTransport extends ClientTransport {
         invokeContext.put(InvokeContext.BOLT_CUSTOM_SERIALIZER, request.getSerializeType());
         invokeContext.put(RemotingConstants.HEAD_TARGET_SERVICE, request.getTargetServiceUniqueName());
         invokeContext.put(RemotingConstants.HEAD_METHOD_NAME, request.getMethodName());
+        String compressType = request.getCompressType();
+        if (compressType != null) {
+            invokeContext.put(RemotingConstants.INVOKE_CTX_COMPRESS, compressType);
+            // 请求只有服务端声明可以解压（或者直连）时才压缩，响应是否压缩由服务端按请求头判断
+            if (acceptCompress == null || acceptCompress.contains(compressType)) {
+                invokeContext.put(RemotingConstants.INVOKE_CTX_REQUEST_COMPRESS, Boolean.TRUE);
+            }
+        }
         return invokeContext;
     }
 
@@ -443,7 +738,7 @@ public class BoltClientTransport extends ClientTransport {
         if (connection == null) {
             throw new SofaRpcException(RpcErrorType.CLIENT_NETWORK, "connection is null");
         }
-        if (!connection.isFine()) {
+        if (connectionNum > 1 ? !hasFineConnection() : !connection.isFine()) {
             throw new SofaRpcException(RpcErrorType.CLIENT_NETWORK, "connection is not fine");
         }
     }
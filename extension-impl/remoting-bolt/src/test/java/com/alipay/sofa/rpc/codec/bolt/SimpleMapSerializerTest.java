@@ -16,6 +16,9 @@
  */
 package com.alipay.sofa.rpc.codec.bolt;
 
+import com.alipay.remoting.exception.DeserializationException;
+import com.alipay.sofa.rpc.common.RemotingConstants;
+import com.alipay.sofa.rpc.common.struct.UnsafeByteArrayOutputStream;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -94,4 +97,71 @@ public class SimpleMapSerializerTest {
         Assert.assertEquals(map, newmap);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testDecodeLazily() throws Exception {
+        SimpleMapSerializer mapSerializer = new SimpleMapSerializer();
+        Map<String, String> map = new HashMap<String, String>();
+        map.put(RemotingConstants.HEAD_SERVICE, "com.xxx.HelloService:1.0");
+        map.put("11", "");
+        map.put("弄啥呢", "咋弄呢？");
+        map.put("22", null);
+        byte[] bs = mapSerializer.encode(map);
+
+        Map<String, String> header = mapSerializer.decodeLazily(bs);
+        Assert.assertEquals("com.xxx.HelloService:1.0", header.get(RemotingConstants.HEAD_SERVICE));
+        Assert.assertEquals("", header.get("11"));
+        Assert.assertEquals("咋弄呢？", header.get("弄啥呢"));
+        Assert.assertNull(header.get("22"));
+        Assert.assertTrue(header.containsKey("22"));
+        Assert.assertFalse(header.containsKey("33"));
+        Assert.assertNull(header.get(1));
+        Assert.assertEquals(4, header.size());
+        Assert.assertEquals(map, header);
+        Assert.assertEquals(map, new HashMap<String, String>(header));
+
+        // 只读
+        try {
+            header.put("33", "44");
+            Assert.fail();
+        } catch (UnsupportedOperationException ignore) {
+        }
+        try {
+            header.remove("11");
+            Assert.fail();
+        } catch (UnsupportedOperationException ignore) {
+        }
+
+        // 追加重复的key，和完整解析一样以最后一个为准
+        bs = mapSerializer.append(bs, "11", "xx");
+        Assert.assertEquals("xx", mapSerializer.decodeLazily(bs).get("11"));
+        Assert.assertEquals("xx", mapSerializer.decode(bs).get("11"));
+
+        Assert.assertTrue(mapSerializer.decodeLazily(null).isEmpty());
+        Assert.assertTrue(mapSerializer.decodeLazily(new byte[0]).isEmpty());
+        try {
+            mapSerializer.decodeLazily(new byte[] { 0, 0, 0, 5, 1 });
+            Assert.fail();
+        } catch (DeserializationException ignore) {
+        }
+    }
+
+    @Test
+    public void testWriteFlat() throws Exception {
+        SimpleMapSerializer mapSerializer = new SimpleMapSerializer();
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put("a", "1");
+        props.put("b", 2);
+        props.put("c", new Object());
+        Map<String, Object> trace = new HashMap<String, Object>();
+        trace.put("traceId", "xxx");
+        trace.put("中文", "中文值");
+        props.put(RemotingConstants.RPC_TRACE_NAME, trace);
+
+        Map<String, String> expect = new HashMap<String, String>();
+        ContextMapConverter.flatCopyTo("", props, expect);
+
+        UnsafeByteArrayOutputStream out = new UnsafeByteArrayOutputStream(16);
+        mapSerializer.writeFlat(out, "", props);
+        Assert.assertEquals(expect, mapSerializer.decode(out.toByteArray()));
+    }
+}
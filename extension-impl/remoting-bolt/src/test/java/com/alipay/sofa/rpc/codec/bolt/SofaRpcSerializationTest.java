@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.codec.bolt;
+
+import com.alipay.remoting.InvokeContext;
+import com.alipay.remoting.rpc.protocol.RpcRequestCommand;
+import com.alipay.remoting.rpc.protocol.RpcResponseCommand;
+import com.alipay.sofa.rpc.codec.antpb.EchoStrReq;
+import com.alipay.sofa.rpc.codec.antpb.EchoStrRes;
+import com.alipay.sofa.rpc.codec.antpb.ProtoService;
+import com.alipay.sofa.rpc.codec.antpb.ProtobufSerializer;
+import com.alipay.sofa.rpc.common.RemotingConstants;
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.struct.UnsafeByteArrayOutputStream;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SofaRpcSerializationTest {
+
+    @Test
+    public void testBuffer() {
+        SofaRpcSerialization serialization = new SofaRpcSerialization();
+        UnsafeByteArrayOutputStream buffer = serialization.borrowBuffer();
+        buffer.write(new byte[] { 1, 2, 3 }, 0, 3);
+        // 使用中再借出的是新的缓冲区
+        UnsafeByteArrayOutputStream another = serialization.borrowBuffer();
+        Assert.assertNotSame(buffer, another);
+        serialization.returnBuffer(another);
+        serialization.returnBuffer(buffer);
+
+        // 归还后复用，并且已经清空
+        UnsafeByteArrayOutputStream reused = serialization.borrowBuffer();
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.size());
+
+        // 超过最大保留大小的不再复用
+        int maxSize = RpcConfigs.getIntValue(RpcOptions.SERIALIZE_BUFFER_MAX_SIZE);
+        reused.write(new byte[maxSize + 1], 0, maxSize + 1);
+        serialization.returnBuffer(reused);
+        UnsafeByteArrayOutputStream fresh = serialization.borrowBuffer();
+        Assert.assertNotSame(reused, fresh);
+        Assert.assertTrue(fresh.capacity() <= maxSize);
+        serialization.returnBuffer(fresh);
+    }
+
+    @Test
+    public void testProtobufRequestHeader() throws Exception {
+        SofaRpcSerialization serialization = new SofaRpcSerialization();
+        String service = ProtoService.class.getName() + ":1.0";
+        Map<String, String> header = new HashMap<String, String>();
+        header.put(RemotingConstants.HEAD_SERVICE, service);
+        header.put(RemotingConstants.HEAD_METHOD_NAME, "echoStr");
+        header.put(RemotingConstants.HEAD_TARGET_APP, "app");
+        header.put(RemotingConstants.HEAD_TARGET_SERVICE, service);
+        header.put(RemotingConstants.RPC_TRACE_NAME + ".traceId", "123");
+        header.put("biz", "value");
+
+        RpcRequestCommand command = new RpcRequestCommand();
+        command.setSerializer(RemotingConstants.SERIALIZE_CODE_PROTOBUF);
+        command.setRequestHeader(new SimpleMapSerializer().decodeLazily(new SimpleMapSerializer().encode(header)));
+        command.setContent(ProtobufSerializer.getInstance().encode(EchoStrReq.newBuilder().setS("xxx").build()));
+        Assert.assertTrue(serialization.deserializeContent(command));
+
+        // 请求信息和trace信息单独取出，其余的作为扩展属性
+        SofaRequest request = (SofaRequest) command.getRequestObject();
+        Assert.assertEquals("echoStr", request.getMethodName());
+        Assert.assertEquals("app", request.getTargetAppName());
+        Assert.assertEquals(service, request.getTargetServiceUniqueName());
+        Assert.assertEquals("xxx", ((EchoStrReq) request.getMethodArgs()[0]).getS());
+        Assert.assertEquals("123", ((Map) request.getRequestProp(RemotingConstants.RPC_TRACE_NAME)).get("traceId"));
+        Assert.assertEquals("value", request.getRequestProp("biz"));
+        Assert.assertEquals(service, request.getRequestProp(RemotingConstants.HEAD_SERVICE));
+        Assert.assertNull(request.getRequestProp(RemotingConstants.HEAD_METHOD_NAME));
+        Assert.assertNull(request.getRequestProp(RemotingConstants.RPC_TRACE_NAME + ".traceId"));
+    }
+
+    @Test
+    public void testProtobufResponseHeader() throws Exception {
+        SofaRpcSerialization serialization = new SofaRpcSerialization();
+        InvokeContext invokeContext = new InvokeContext();
+        invokeContext.put(RemotingConstants.HEAD_TARGET_SERVICE, ProtoService.class.getName() + ":1.0");
+        invokeContext.put(RemotingConstants.HEAD_METHOD_NAME, "echoStr");
+
+        // 正常响应，头部作为扩展属性
+        Map<String, String> header = new HashMap<String, String>();
+        header.put("biz", "value");
+        RpcResponseCommand command = new RpcResponseCommand();
+        command.setSerializer(RemotingConstants.SERIALIZE_CODE_PROTOBUF);
+        command.setResponseHeader(new SimpleMapSerializer().decodeLazily(new SimpleMapSerializer().encode(header)));
+        command.setContent(ProtobufSerializer.getInstance().encode(EchoStrRes.newBuilder().setS("xxx").build()));
+        Assert.assertTrue(serialization.deserializeContent(command, invokeContext));
+        SofaResponse response = (SofaResponse) command.getResponseObject();
+        Assert.assertFalse(response.isError());
+        Assert.assertEquals("xxx", ((EchoStrRes) response.getAppResponse()).getS());
+        Assert.assertEquals("value", response.getResponseProp("biz"));
+
+        // 错误响应，错误标记不作为扩展属性
+        header.put(RemotingConstants.HEAD_RESPONSE_ERROR, "true");
+        command = new RpcResponseCommand();
+        command.setSerializer(RemotingConstants.SERIALIZE_CODE_PROTOBUF);
+        command.setResponseHeader(new SimpleMapSerializer().decodeLazily(new SimpleMapSerializer().encode(header)));
+        command.setContent(ProtobufSerializer.getInstance().encode("error"));
+        Assert.assertTrue(serialization.deserializeContent(command, invokeContext));
+        response = (SofaResponse) command.getResponseObject();
+        Assert.assertTrue(response.isError());
+        Assert.assertEquals("error", response.getErrorMsg());
+        Assert.assertEquals("value", response.getResponseProp("biz"));
+        Assert.assertNull(response.getResponseProp(RemotingConstants.HEAD_RESPONSE_ERROR));
+    }
+}
@@ -22,6 +22,8 @@ import com.alipay.sofa.rpc.config.ServerConfig;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.Socket;
+
 /**
  *
  *
@@ -75,4 +77,46 @@ public class BoltServerTest {
         server.destroy();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void accepts() throws Exception {
+        String host = "127.0.0.1";
+        int port = 17702;
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setBoundHost(host);
+        serverConfig.setPort(port);
+        serverConfig.setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+        serverConfig.setAccepts(1);
+
+        BoltServer server = new BoltServer();
+        server.init(serverConfig);
+        server.start();
+        Socket first = new Socket(host, port);
+        Socket second = null;
+        try {
+            waitConnectionCount(server, 1);
+            // 超过连接数的连接被服务端关闭
+            second = new Socket(host, port);
+            second.setSoTimeout(3000);
+            Assert.assertEquals(-1, second.getInputStream().read());
+            waitConnectionCount(server, 1);
+
+            // 第一个连接关闭后可以建立新连接
+            first.close();
+            waitConnectionCount(server, 0);
+        } finally {
+            first.close();
+            if (second != null) {
+                second.close();
+            }
+            server.stop();
+            server.destroy();
+        }
+    }
+
+    private void waitConnectionCount(BoltServer server, int expect) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getConnectionCount() != expect; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(expect, server.getConnectionCount());
+    }
+}
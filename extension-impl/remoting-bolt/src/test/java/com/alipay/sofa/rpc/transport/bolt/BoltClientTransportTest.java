@@ -16,8 +16,14 @@
  */
 package com.alipay.sofa.rpc.transport.bolt;
 
+import com.alipay.remoting.Connection;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.server.bolt.BoltServer;
 import com.alipay.sofa.rpc.transport.ClientTransportConfig;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -38,4 +44,69 @@ public class BoltClientTransportTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void acceptCompress() throws Exception {
+        // 注册中心发布了可解压的算法
+        BoltClientTransport clientTransport = new BoltClientTransport(new ClientTransportConfig()
+            .setProviderInfo(ProviderInfo.valueOf("bolt://127.0.0.1:12224?acceptCompress=snappy,gzip")));
+        Assert.assertEquals(2, clientTransport.acceptCompress.size());
+        Assert.assertTrue(clientTransport.acceptCompress.contains("snappy"));
+
+        // 注册中心没有发布（老版本服务端），不压缩请求
+        clientTransport = new BoltClientTransport(new ClientTransportConfig()
+            .setProviderInfo(ProviderInfo.valueOf("bolt://127.0.0.1:12224"))
+            .setConsumerConfig(new ConsumerConfig<Object>()));
+        Assert.assertTrue(clientTransport.acceptCompress.isEmpty());
+
+        // 直连地址上没有声明，按调用方配置压缩请求
+        clientTransport = new BoltClientTransport(new ClientTransportConfig()
+            .setProviderInfo(ProviderInfo.valueOf("bolt://127.0.0.1:12224"))
+            .setConsumerConfig(new ConsumerConfig<Object>().setDirectUrl("bolt://127.0.0.1:12224")));
+        Assert.assertNull(clientTransport.acceptCompress);
+    }
+
+    @Test
+    public void healConnections() throws Exception {
+        ServerConfig serverConfig = new ServerConfig()
+            .setBoundHost("127.0.0.1")
+            .setPort(12223)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+        BoltServer server = new BoltServer();
+        server.init(serverConfig);
+        server.start();
+
+        ClientTransportConfig clientTransportConfig = new ClientTransportConfig()
+            .setProviderInfo(ProviderInfo.valueOf("bolt://127.0.0.1:12223"))
+            .setConnectionNum(3)
+            .setConnectionWarmup(true);
+        BoltClientTransport clientTransport = new BoltClientTransport(clientTransportConfig);
+        try {
+            clientTransport.connect();
+            Assert.assertEquals(3, clientTransport.connections.length);
+
+            // 断开的长连接不影响整体可用，选择时跳过并从快照中移除
+            Connection broken = clientTransport.connections[0];
+            broken.close();
+            Thread.sleep(200);
+            Assert.assertTrue(clientTransport.isAvailable());
+            for (int i = 0; i < 3; i++) {
+                Assert.assertNotSame(broken, clientTransport.selectConnection());
+            }
+
+            // 刷新快照后发现不足，由bolt补齐连接池
+            clientTransport.lastRefreshTime = 0;
+            clientTransport.selectConnection();
+            for (int i = 0; i < 30 && clientTransport.connections.length < 3; i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertEquals(3, clientTransport.connections.length);
+            for (Connection conn : clientTransport.connections) {
+                Assert.assertNotSame(broken, conn);
+                Assert.assertTrue(conn.isFine());
+            }
+        } finally {
+            clientTransport.disconnect();
+            server.destroy();
+        }
+    }
+}
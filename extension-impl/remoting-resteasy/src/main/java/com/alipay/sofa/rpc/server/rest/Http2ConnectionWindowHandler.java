@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2LocalFlowController;
+import io.netty.handler.codec.http2.Http2Stream;
+
+/**
+ * 连接升级到HTTP/2后，把连接级的流控窗口调整到配置的大小，调整完即从pipeline中移除。<br>
+ * 连接级窗口不能通过SETTINGS设置，只能在发送完连接前言后通过 WINDOW_UPDATE 扩大。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class Http2ConnectionWindowHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2ConnectionWindowHandler.class);
+
+    /**
+     * 连接级的流控窗口
+     */
+    private final int           windowSize;
+
+    Http2ConnectionWindowHandler(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent
+            || evt instanceof HttpServerUpgradeHandler.UpgradeEvent) {
+            Http2ConnectionHandler handler = ctx.pipeline().get(Http2ConnectionHandler.class);
+            if (handler != null) {
+                try {
+                    Http2Connection connection = handler.connection();
+                    Http2Stream connectionStream = connection.connectionStream();
+                    Http2LocalFlowController flowController = connection.local().flowController();
+                    int delta = windowSize - flowController.initialWindowSize(connectionStream);
+                    if (delta > 0) {
+                        flowController.incrementWindowSize(connectionStream, delta);
+                        ctx.channel().flush();
+                    }
+                } catch (Exception e) {
+                    LOGGER.warn("Failed to update connection window of http2: " + e.getMessage());
+                }
+            }
+            ctx.pipeline().remove(this);
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
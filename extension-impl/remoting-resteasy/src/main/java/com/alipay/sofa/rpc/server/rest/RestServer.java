@@ -16,6 +16,9 @@
  */
 package com.alipay.sofa.rpc.server.rest;
 
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.config.JAXRSProviderManager;
 import com.alipay.sofa.rpc.config.ProviderConfig;
@@ -84,8 +87,28 @@ public class RestServer implements Server {
         httpServer.setHostname(serverConfig.getBoundHost());
         httpServer.setPort(serverConfig.getPort());
         httpServer.setTelnet(serverConfig.isTelnet());
-        httpServer.setKeepAlive(true); // keepAlive TODO 可配置
+        httpServer.setKeepAlive(serverConfig.isKeepAlive());
+        httpServer.setMaxConnections(serverConfig.getAccepts());
+        httpServer.setIdleTimeout(serverConfig.getIdleTimeout());
         httpServer.setDaemon(serverConfig.isDaemon());
+        httpServer.setUseEpoll(serverConfig.isEpoll() || RpcConfigs.getBooleanValue(RpcOptions.TRANSPORT_USE_EPOLL));
+        httpServer.setEpollEdgeTriggered(RpcConfigs.getBooleanValue(RpcOptions.TRANSPORT_EPOLL_EDGE_TRIGGERED));
+        httpServer.setTcpQuickAck(RpcConfigs.getBooleanValue(RpcOptions.TRANSPORT_EPOLL_QUICKACK));
+        httpServer.setAcceptors(RpcConfigs.getIntValue(RpcOptions.TRANSPORT_EPOLL_ACCEPTORS));
+        httpServer.setH2c(CommonUtils.isTrue(serverConfig.getParameter(RpcConstants.SERVER_PARAM_REST_H2C)));
+        httpServer.setMaxConcurrentStreams(RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_MAX_STREAMS));
+        httpServer.setStreamWindowSize(RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_STREAM_WINDOW));
+        httpServer.setConnectionWindowSize(RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_CONNECTION_WINDOW));
+        httpServer
+            .setStreaming(CommonUtils.isTrue(serverConfig.getParameter(RpcConstants.SERVER_PARAM_REST_STREAMING)));
+        String threshold = serverConfig.getParameter(RpcConstants.SERVER_PARAM_REST_STREAMING_SIZE);
+        if (threshold != null) {
+            httpServer.setStreamingThreshold(Long.parseLong(threshold));
+        }
+        String chunkSize = serverConfig.getParameter(RpcConstants.SERVER_PARAM_REST_CHUNK_SIZE);
+        if (chunkSize != null) {
+            httpServer.setChunkSize(Integer.parseInt(chunkSize));
+        }
 
         ResteasyDeployment resteasyDeployment = httpServer.getDeployment();
         resteasyDeployment.start();
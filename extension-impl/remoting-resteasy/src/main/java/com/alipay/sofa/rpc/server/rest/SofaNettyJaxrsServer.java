@@ -19,19 +19,43 @@ package com.alipay.sofa.rpc.server.rest;
 import com.alipay.sofa.rpc.common.SystemInfo;
 import com.alipay.sofa.rpc.common.struct.NamedThreadFactory;
 import com.alipay.sofa.rpc.common.utils.StringUtils;
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2Codec;
+import io.netty.handler.codec.http2.Http2CodecBuilder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2ServerDowngrader;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
 import io.netty.util.concurrent.EventExecutor;
 import org.jboss.resteasy.core.SynchronousDispatcher;
 import org.jboss.resteasy.plugins.server.embedded.EmbeddedJaxrsServer;
@@ -47,6 +71,8 @@ import java.net.InetSocketAddress;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder.Protocol.HTTP;
 import static org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder.Protocol.HTTPS;
@@ -59,26 +85,42 @@ import static org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder
  */
 public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
 
-    protected ServerBootstrap          bootstrap           = new ServerBootstrap();
-    protected String                   hostname            = null;
-    protected int                      port                = 8080;
-    protected ResteasyDeployment       deployment          = new SofaResteasyDeployment(); // CHANGE: 使用sofa的类
-    protected String                   root                = "";
+    private static final Logger        LOGGER               = LoggerFactory.getLogger(SofaNettyJaxrsServer.class);
+
+    protected ServerBootstrap          bootstrap            = new ServerBootstrap();
+    protected String                   hostname             = null;
+    protected int                      port                 = 8080;
+    protected ResteasyDeployment       deployment           = new SofaResteasyDeployment();                       // CHANGE: 使用sofa的类
+    protected String                   root                 = "";
     protected SecurityDomain           domain;
     private EventLoopGroup             eventLoopGroup;
     private EventLoopGroup             eventExecutor;
-    private int                        ioWorkerCount       = SystemInfo.getCpuCores() * 2; // CHANGE:cpu计算修改
-    private int                        executorThreadCount = 16;
+    private int                        ioWorkerCount        = SystemInfo.getCpuCores() * 2;                       // CHANGE:cpu计算修改
+    private int                        executorThreadCount  = 16;
     private SSLContext                 sslContext;
-    private int                        maxRequestSize      = 1024 * 1024 * 10;
-    private int                        backlog             = 128;
-    private List<ChannelHandler>       channelHandlers     = Collections.emptyList();
-    private Map<ChannelOption, Object> channelOptions      = Collections.emptyMap();
-    private Map<ChannelOption, Object> childChannelOptions = Collections.emptyMap();
-    private List<ChannelHandler>       httpChannelHandlers = Collections.emptyList();
-    protected boolean                  keepAlive           = false;                       // CHANGE:是否长连接
-    protected boolean                  telnet              = true;                        // CHANGE:是否允许telnet
-    protected boolean                  daemon              = true;                        // CHANGE:是否守护线程
+    private int                        maxRequestSize       = 1024 * 1024 * 10;
+    private int                        backlog              = 128;
+    private List<ChannelHandler>       channelHandlers      = Collections.emptyList();
+    private Map<ChannelOption, Object> channelOptions       = Collections.emptyMap();
+    private Map<ChannelOption, Object> childChannelOptions  = Collections.emptyMap();
+    private List<ChannelHandler>       httpChannelHandlers  = Collections.emptyList();
+    protected boolean                  keepAlive            = false;                                              // CHANGE:是否长连接
+    protected boolean                  telnet               = true;                                               // CHANGE:是否允许telnet
+    protected boolean                  daemon               = true;                                               // CHANGE:是否守护线程
+    protected boolean                  useEpoll             = false;                                              // CHANGE:是否使用epoll
+    protected boolean                  epollEdgeTriggered   = true;                                               // CHANGE:epoll边缘触发
+    protected boolean                  tcpQuickAck          = false;                                              // CHANGE:epoll下TCP_QUICKACK
+    protected int                      acceptors            = 1;                                                  // CHANGE:epoll下SO_REUSEPORT的acceptor数
+    protected boolean                  streaming            = false;                                              // CHANGE:是否流式请求和响应
+    protected long                     streamingThreshold   = 64 * 1024;                                          // CHANGE:超过多少字节的请求体按流处理
+    protected int                      chunkSize            = 8 * 1024;                                           // CHANGE:流式响应的分块大小
+    protected int                      maxConnections       = 0;                                                  // CHANGE:最大连接数，小于等于0不限制
+    protected int                      idleTimeout          = 0;                                                  // CHANGE:空闲连接超时时间（毫秒），小于等于0不关闭
+    private final AtomicInteger        connections          = new AtomicInteger();                                // CHANGE:当前连接数
+    protected boolean                  h2c                  = false;                                              // CHANGE:是否支持h2c
+    protected int                      maxConcurrentStreams = 1024;                                               // CHANGE:HTTP/2每个连接的最大并发stream数
+    protected int                      streamWindowSize     = 1024 * 1024;                                        // CHANGE:HTTP/2每个stream的初始流控窗口
+    protected int                      connectionWindowSize = 4 * 1024 * 1024;                                    // CHANGE:HTTP/2每个连接的流控窗口
 
     public void setSSLContext(SSLContext sslContext) {
         this.sslContext = sslContext;
@@ -205,16 +247,33 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
 
     @Override
     public void start() {
-        // CHANGE: 增加线程名字
-        eventLoopGroup = new NioEventLoopGroup(ioWorkerCount, new NamedThreadFactory("SOFA-REST-IO-" + port, daemon));
+        // CHANGE: 增加线程名字，Linux下可以使用epoll，不可用时降级为nio
+        boolean epoll = useEpoll && isEpollAvailable();
+        NamedThreadFactory ioThreadFactory = new NamedThreadFactory("SOFA-REST-IO-" + port, daemon);
+        eventLoopGroup = epoll ? new EpollEventLoopGroup(ioWorkerCount, ioThreadFactory)
+            : new NioEventLoopGroup(ioWorkerCount, ioThreadFactory);
         eventExecutor = new NioEventLoopGroup(executorThreadCount, new NamedThreadFactory("SOFA-REST-BIZ-" + port,
             daemon));
         // Configure the server.
         bootstrap.group(eventLoopGroup)
-            .channel(NioServerSocketChannel.class)
+            .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
             .childHandler(createChannelInitializer())
             .option(ChannelOption.SO_BACKLOG, backlog)
             .childOption(ChannelOption.SO_KEEPALIVE, keepAlive); // CHANGE:
+        int binds = 1;
+        if (epoll) { // CHANGE: epoll特有参数
+            EpollMode mode = epollEdgeTriggered ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, mode)
+                .childOption(EpollChannelOption.EPOLL_MODE, mode);
+            if (tcpQuickAck) {
+                bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+            }
+            if (acceptors > 1) {
+                // 同一个端口绑定多次，由内核把新连接分散到不同的IO线程上accept
+                bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+                binds = acceptors;
+            }
+        }
 
         for (Map.Entry<ChannelOption, Object> entry : channelOptions.entrySet()) {
             bootstrap.option(entry.getKey(), entry.getValue());
@@ -231,7 +290,19 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
             socketAddress = new InetSocketAddress(hostname, port);
         }
 
-        bootstrap.bind(socketAddress).syncUninterruptibly();
+        for (int i = 0; i < binds; i++) {
+            bootstrap.bind(socketAddress).syncUninterruptibly();
+        }
+    }
+
+    private boolean isEpollAvailable() {
+        if (Epoll.isAvailable()) {
+            return true;
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Epoll is not available, use nio instead, cause: " + Epoll.unavailabilityCause());
+        }
+        return false;
     }
 
     private ChannelInitializer<SocketChannel> createChannelInitializer() {
@@ -240,6 +311,9 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
             return new ChannelInitializer<SocketChannel>() {
                 @Override
                 public void initChannel(SocketChannel ch) throws Exception {
+                    if (!acceptConnection(ch)) {
+                        return;
+                    }
                     setupHandlers(ch, dispatcher, HTTP);
                 }
             };
@@ -249,6 +323,9 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
             return new ChannelInitializer<SocketChannel>() {
                 @Override
                 public void initChannel(SocketChannel ch) throws Exception {
+                    if (!acceptConnection(ch)) {
+                        return;
+                    }
                     ch.pipeline().addFirst(new SslHandler(engine));
                     setupHandlers(ch, dispatcher, HTTPS);
                 }
@@ -256,17 +333,112 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
         }
     }
 
+    /**
+     * 连接建立时计数，超过最大连接数直接关闭，不再初始化后续的处理器
+     *
+     * @param ch 新连接
+     * @return 是否接受这个连接
+     */
+    private boolean acceptConnection(SocketChannel ch) {
+        int current = connections.incrementAndGet();
+        if (maxConnections > 0 && current > maxConnections) {
+            connections.decrementAndGet();
+            ch.close();
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Connection from " + ch.remoteAddress() + " is refused, the number of connections exceeds "
+                    + maxConnections);
+            }
+            return false;
+        }
+        ch.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                connections.decrementAndGet();
+            }
+        });
+        return true;
+    }
+
     private void setupHandlers(SocketChannel ch, RequestDispatcher dispatcher,
                                RestEasyHttpRequestDecoder.Protocol protocol) {
         ChannelPipeline channelPipeline = ch.pipeline();
+        if (idleTimeout > 0) {
+            // CHANGE: 一段时间内没有读写的连接主动关闭
+            channelPipeline.addLast(new IdleStateHandler(0, 0, idleTimeout, TimeUnit.MILLISECONDS));
+            channelPipeline.addLast(IdleConnectionHandler.INSTANCE);
+        }
         channelPipeline.addLast(channelHandlers.toArray(new ChannelHandler[channelHandlers.size()]));
+        if (h2c) {
+            // CHANGE: prior knowledge或者HTTP/1.1升级的连接按HTTP/2处理，每个stream一个子channel，其它连接仍按HTTP/1.1处理
+            final Http2Codec http2Codec = new Http2CodecBuilder(true,
+                createHttp2StreamInitializer(dispatcher, protocol))
+                .initialSettings(new Http2Settings()
+                    .maxConcurrentStreams(maxConcurrentStreams)
+                    .initialWindowSize(streamWindowSize))
+                .build();
+            HttpServerCodec serverCodec = new HttpServerCodec();
+            HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(serverCodec,
+                new HttpServerUpgradeHandler.UpgradeCodecFactory() {
+                    @Override
+                    public HttpServerUpgradeHandler.UpgradeCodec newUpgradeCodec(CharSequence protocol) {
+                        if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+                            return new Http2ServerUpgradeCodec(http2Codec);
+                        }
+                        return null;
+                    }
+                }, maxRequestSize);
+            channelPipeline.addLast(new CleartextHttp2ServerUpgradeHandler(serverCodec, upgradeHandler,
+                new Http2CodecHolder(http2Codec)));
+            channelPipeline.addLast(new Http2ConnectionWindowHandler(connectionWindowSize));
+            if (streaming) {
+                channelPipeline.addLast(new StreamingRequestDecoder(dispatcher.getDispatcher(), root,
+                    protocol == HTTP ? "http" : "https", streamingThreshold));
+            }
+            channelPipeline.addLast(new HttpObjectAggregator(maxRequestSize));
+            setupHttpHandlers(channelPipeline, dispatcher, protocol, streaming ? chunkSize : 0);
+            return;
+        }
         channelPipeline.addLast(new HttpRequestDecoder());
-        channelPipeline.addLast(new HttpObjectAggregator(maxRequestSize));
-        channelPipeline.addLast(new HttpResponseEncoder());
+        if (streaming) {
+            // CHANGE: 大请求体不经过聚合器，响应编码器放在前面，流式解码器写出的错误响应也能被编码
+            channelPipeline.addLast(new HttpResponseEncoder());
+            channelPipeline.addLast(new StreamingRequestDecoder(dispatcher.getDispatcher(), root,
+                protocol == HTTP ? "http" : "https", streamingThreshold));
+            channelPipeline.addLast(new HttpObjectAggregator(maxRequestSize));
+        } else {
+            channelPipeline.addLast(new HttpObjectAggregator(maxRequestSize));
+            channelPipeline.addLast(new HttpResponseEncoder());
+        }
+        setupHttpHandlers(channelPipeline, dispatcher, protocol, streaming ? chunkSize : 0);
+    }
+
+    private void setupHttpHandlers(ChannelPipeline channelPipeline, RequestDispatcher dispatcher,
+                                   RestEasyHttpRequestDecoder.Protocol protocol, int chunkSize) {
         channelPipeline.addLast(httpChannelHandlers.toArray(new ChannelHandler[httpChannelHandlers.size()]));
         channelPipeline.addLast(new RestEasyHttpRequestDecoder(dispatcher.getDispatcher(), root, protocol));
         channelPipeline.addLast(new RestEasyHttpResponseEncoder());
-        channelPipeline.addLast(eventExecutor, new SofaRestRequestHandler(dispatcher)); // CHANGE: 用sofa的处理类
+        channelPipeline.addLast(eventExecutor, new SofaRestRequestHandler(dispatcher, chunkSize)); // CHANGE: 用sofa的处理类
+    }
+
+    /**
+     * HTTP/2的每个stream是一个子channel，转换成HTTP/1.1的对象后复用同样的处理器，
+     * 不同stream的请求分到不同的业务线程上，响应也互不交叉
+     *
+     * @param dispatcher 请求分发器
+     * @param protocol   协议
+     * @return 子channel的初始化器
+     */
+    private ChannelInitializer<Channel> createHttp2StreamInitializer(final RequestDispatcher dispatcher,
+                                                                     final RestEasyHttpRequestDecoder.Protocol protocol) {
+        return new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                ChannelPipeline channelPipeline = ch.pipeline();
+                channelPipeline.addLast(new Http2ServerDowngrader());
+                channelPipeline.addLast(new HttpObjectAggregator(maxRequestSize));
+                setupHttpHandlers(channelPipeline, dispatcher, protocol, 0);
+            }
+        };
     }
 
     @Override
@@ -282,6 +454,39 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
         this.keepAlive = keepAlive;
     }
 
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public void setIdleTimeout(int idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public void setH2c(boolean h2c) {
+        this.h2c = h2c;
+    }
+
+    public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    public void setStreamWindowSize(int streamWindowSize) {
+        this.streamWindowSize = streamWindowSize;
+    }
+
+    public void setConnectionWindowSize(int connectionWindowSize) {
+        this.connectionWindowSize = connectionWindowSize;
+    }
+
+    /**
+     * 当前的连接数
+     *
+     * @return 连接数
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
     public void setTelnet(boolean telnet) {
         this.telnet = telnet;
     }
@@ -289,4 +494,71 @@ public class SofaNettyJaxrsServer implements EmbeddedJaxrsServer {
     public void setDaemon(boolean daemon) {
         this.daemon = daemon;
     }
-}
\ No newline at end of file
+
+    public void setUseEpoll(boolean useEpoll) {
+        this.useEpoll = useEpoll;
+    }
+
+    public void setEpollEdgeTriggered(boolean epollEdgeTriggered) {
+        this.epollEdgeTriggered = epollEdgeTriggered;
+    }
+
+    public void setTcpQuickAck(boolean tcpQuickAck) {
+        this.tcpQuickAck = tcpQuickAck;
+    }
+
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 空闲连接处理器，收到空闲事件后关闭连接
+     */
+    @ChannelHandler.Sharable
+    private static class IdleConnectionHandler extends ChannelInboundHandlerAdapter {
+
+        private static final IdleConnectionHandler INSTANCE = new IdleConnectionHandler();
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Close idle connection: " + ctx.channel().remoteAddress());
+                }
+                ctx.close();
+            } else {
+                super.userEventTriggered(ctx, evt);
+            }
+        }
+    }
+
+    /**
+     * Http2Codec加入pipeline后会把自己替换成多个处理器，prior knowledge检测时已经读到的字节
+     * 从被移除的处理器转发出去会跳过这些处理器，这里保留一个固定的前置节点，保证字节交给HTTP/2解码
+     */
+    private static class Http2CodecHolder extends ChannelInboundHandlerAdapter {
+
+        private final Http2Codec http2Codec;
+
+        Http2CodecHolder(Http2Codec http2Codec) {
+            this.http2Codec = http2Codec;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+            ctx.pipeline().addAfter(ctx.name(), null, http2Codec);
+        }
+    }
+}
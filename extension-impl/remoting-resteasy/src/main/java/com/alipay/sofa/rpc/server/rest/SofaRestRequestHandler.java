@@ -35,6 +35,7 @@ import org.jboss.resteasy.plugins.server.netty.RequestDispatcher;
 import org.jboss.resteasy.spi.Failure;
 
 import javax.ws.rs.core.HttpHeaders;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
@@ -52,8 +53,18 @@ public class SofaRestRequestHandler extends SimpleChannelInboundHandler {
     protected final RequestDispatcher dispatcher;
     private final static Logger       logger = Logger.getLogger(SofaRestRequestHandler.class);
 
+    /**
+     * 流式响应的分块大小，小于等于0表示使用resteasy默认的响应输出流
+     */
+    private final int                 chunkSize;
+
     public SofaRestRequestHandler(RequestDispatcher dispatcher) {
+        this(dispatcher, 0);
+    }
+
+    public SofaRestRequestHandler(RequestDispatcher dispatcher, int chunkSize) {
         this.dispatcher = dispatcher;
+        this.chunkSize = chunkSize;
     }
 
     @Override
@@ -82,6 +93,9 @@ public class SofaRestRequestHandler extends SimpleChannelInboundHandler {
                 }
 
                 NettyHttpResponse response = request.getResponse();
+                if (chunkSize > 0) {
+                    response.setOutputStream(new StreamingResponseOutputStream(response, ctx.channel(), chunkSize));
+                }
                 Exception exception = null;
                 try {
                     // 获取远程ip 兼容nignx转发和vip等
@@ -120,6 +134,11 @@ public class SofaRestRequestHandler extends SimpleChannelInboundHandler {
                     ctx.flush();
                 }
             } finally {
+                InputStream in = request.getInputStream();
+                if (in instanceof StreamingRequestInputStream) {
+                    // 业务没有读完的请求体直接丢弃，恢复读取连接
+                    in.close();
+                }
                 if (EventBus.isEnable(ServerEndHandleEvent.class)) {
                     EventBus.post(new ServerEndHandleEvent());
                 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.logging.Logger;
+import org.jboss.resteasy.plugins.server.netty.NettyHttpRequest;
+import org.jboss.resteasy.plugins.server.netty.NettyHttpResponse;
+import org.jboss.resteasy.plugins.server.netty.NettyUtil;
+import org.jboss.resteasy.specimpl.ResteasyHttpHeaders;
+import org.jboss.resteasy.spi.ResteasyUriInfo;
+
+import java.io.IOException;
+
+/**
+ * 流式请求解码，放在 HttpObjectAggregator 前面：请求体是chunked或者超过阈值的请求不再整体聚合，
+ * 收到请求头就直接转成 {@link NettyHttpRequest} 往后分发，请求体以流的形式边收边读；小请求仍然交给聚合器。<br>
+ * 每个连接一个实例。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder
+ */
+public class StreamingRequestDecoder extends ChannelInboundHandlerAdapter {
+
+    private final static Logger         logger = Logger.getLogger(StreamingRequestDecoder.class);
+
+    private final SynchronousDispatcher dispatcher;
+
+    private final String                servletMappingPrefix;
+
+    private final String                proto;
+
+    /**
+     * 超过多少字节的请求体按流处理
+     */
+    private final long                  threshold;
+
+    /**
+     * 当前正在接收的请求体
+     */
+    private StreamingRequestInputStream stream;
+
+    public StreamingRequestDecoder(SynchronousDispatcher dispatcher, String servletMappingPrefix, String proto,
+                                   long threshold) {
+        this.dispatcher = dispatcher;
+        this.servletMappingPrefix = servletMappingPrefix;
+        this.proto = proto;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (stream != null && msg instanceof HttpContent) {
+            stream.offer(((HttpContent) msg).content());
+            if (msg instanceof LastHttpContent) {
+                stream.end();
+                stream = null;
+            }
+            return;
+        }
+        if (msg instanceof HttpRequest && !(msg instanceof FullHttpRequest)) {
+            HttpRequest request = (HttpRequest) msg;
+            if (request.decoderResult().isSuccess() && isStreaming(request)) {
+                decode(ctx, request);
+                return;
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private boolean isStreaming(HttpRequest request) {
+        return HttpUtil.isTransferEncodingChunked(request) || HttpUtil.getContentLength(request, 0L) > threshold;
+    }
+
+    private void decode(ChannelHandlerContext ctx, HttpRequest request) throws IOException {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        NettyHttpResponse response = new NettyHttpResponse(ctx, keepAlive, dispatcher.getProviderFactory());
+        // 后续分块都属于这个请求，即使请求头解析失败也要接收并丢弃
+        stream = new StreamingRequestInputStream(ctx.channel());
+        try {
+            ResteasyHttpHeaders headers = NettyUtil.extractHttpHeaders(request);
+            ResteasyUriInfo uriInfo = NettyUtil.extractUriInfo(request, servletMappingPrefix, proto);
+            NettyHttpRequest nettyRequest = new NettyHttpRequest(ctx, headers, uriInfo, request.method().name(),
+                dispatcher, response, HttpUtil.is100ContinueExpected(request));
+            nettyRequest.setInputStream(stream);
+            ctx.fireChannelRead(nettyRequest);
+        } catch (Exception e) {
+            stream.close();
+            response.sendError(400);
+            logger.warn("Failed to parse request.", e);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (stream != null) {
+            stream.fail(new IOException("Connection closed before request body ends"));
+            stream = null;
+        }
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * 流式请求体：IO线程收到分块后放入，业务线程按顺序读取。<br>
+ * 缓存的数据超过高水位时暂停读取连接，被读到低水位以下再恢复，大请求体不会全部堆在内存里。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class StreamingRequestInputStream extends InputStream {
+
+    /**
+     * 缓存的字节数超过高水位时暂停读取
+     */
+    static final int                  HIGH_WATER_MARK = 256 * 1024;
+
+    /**
+     * 缓存的字节数低于低水位时恢复读取
+     */
+    static final int                  LOW_WATER_MARK  = 64 * 1024;
+
+    private final Channel             channel;
+
+    private final ArrayDeque<ByteBuf> buffers         = new ArrayDeque<ByteBuf>();
+
+    /**
+     * 已缓存还没被读取的字节数
+     */
+    private int                       bufferedBytes;
+
+    /**
+     * 是否已经收到最后一个分块
+     */
+    private boolean                   ended;
+
+    /**
+     * 是否已经被业务关闭，关闭后收到的分块直接丢弃
+     */
+    private boolean                   closed;
+
+    /**
+     * 是否已经暂停读取连接
+     */
+    private boolean                   paused;
+
+    /**
+     * 连接异常
+     */
+    private IOException               failure;
+
+    StreamingRequestInputStream(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 放入一个分块，IO线程调用
+     *
+     * @param buf 分块，调用后由本对象负责释放
+     */
+    synchronized void offer(ByteBuf buf) {
+        if (closed || failure != null || !buf.isReadable()) {
+            buf.release();
+            return;
+        }
+        buffers.add(buf);
+        bufferedBytes += buf.readableBytes();
+        if (!paused && bufferedBytes >= HIGH_WATER_MARK) {
+            paused = true;
+            channel.config().setAutoRead(false);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 请求体结束，IO线程调用
+     */
+    synchronized void end() {
+        ended = true;
+        notifyAll();
+    }
+
+    /**
+     * 连接异常，IO线程调用
+     *
+     * @param e 异常
+     */
+    synchronized void fail(IOException e) {
+        if (!ended && failure == null) {
+            failure = e;
+            releaseAll();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        for (;;) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            ByteBuf buf = buffers.peek();
+            if (buf != null) {
+                int n = Math.min(len, buf.readableBytes());
+                buf.readBytes(b, off, n);
+                if (!buf.isReadable()) {
+                    buffers.poll();
+                    buf.release();
+                }
+                bufferedBytes -= n;
+                resumeIfNeeded();
+                return n;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (ended) {
+                return -1;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading request body");
+            }
+        }
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        return bufferedBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseAll();
+        notifyAll();
+    }
+
+    private void releaseAll() {
+        ByteBuf buf;
+        while ((buf = buffers.poll()) != null) {
+            buf.release();
+        }
+        bufferedBytes = 0;
+        resumeIfNeeded();
+    }
+
+    private void resumeIfNeeded() {
+        if (paused && bufferedBytes <= LOW_WATER_MARK) {
+            paused = false;
+            channel.config().setAutoRead(true);
+        }
+    }
+}
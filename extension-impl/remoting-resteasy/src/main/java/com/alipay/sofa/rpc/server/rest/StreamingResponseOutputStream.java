@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import org.jboss.resteasy.plugins.server.netty.NettyHttpResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 流式响应体，替换resteasy默认的 ChunkOutputStream：分块大小可配，写出时不复制缓冲区，
+ * 连接不可写（对端读得慢）时阻塞业务线程直到之前的分块写出，避免响应体全部堆积在连接的发送缓冲里。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see org.jboss.resteasy.plugins.server.netty.ChunkOutputStream
+ */
+class StreamingResponseOutputStream extends OutputStream {
+
+    private final NettyHttpResponse response;
+
+    private final Channel           channel;
+
+    private final int               chunkSize;
+
+    private ByteBuf                 buffer;
+
+    StreamingResponseOutputStream(NettyHttpResponse response, Channel channel, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        this.response = response;
+        this.channel = channel;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer();
+        buffer.writeByte(b);
+        if (!buffer.isWritable()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensureBuffer();
+            int n = Math.min(len, buffer.writableBytes());
+            buffer.writeBytes(b, off, n);
+            off += n;
+            len -= n;
+            if (!buffer.isWritable()) {
+                flush();
+            }
+        }
+    }
+
+    private void ensureBuffer() {
+        if (buffer == null) {
+            buffer = channel.alloc().buffer(chunkSize, chunkSize);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer == null || !buffer.isReadable()) {
+            return;
+        }
+        if (!response.isCommitted()) {
+            response.prepareChunkStream();
+        }
+        ByteBuf chunk = buffer;
+        buffer = null;
+        // 从连接上写出，和响应头一样由IO线程按顺序处理
+        ChannelFuture future = channel.writeAndFlush(new DefaultHttpContent(chunk));
+        if (!channel.isWritable()) {
+            // 发送缓冲已满，等这一块写出去再继续
+            future.awaitUninterruptibly();
+            if (!future.isSuccess()) {
+                throw new IOException("Failed to write response chunk", future.cause());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        super.close();
+    }
+}
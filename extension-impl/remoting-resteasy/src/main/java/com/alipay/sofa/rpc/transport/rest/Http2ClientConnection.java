@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.transport.rest;
+
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http2.DefaultHttp2Connection;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2ConnectionAdapter;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2Exception;
+import io.netty.handler.codec.http2.Http2FrameListenerDecorator;
+import io.netty.handler.codec.http2.Http2LocalFlowController;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.handler.codec.http2.HttpToHttp2ConnectionHandler;
+import io.netty.handler.codec.http2.HttpToHttp2ConnectionHandlerBuilder;
+import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapter;
+import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapterBuilder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个h2c连接，每个请求一个stream。<br>
+ * stream id在IO线程上分配并立即写出，保证id递增；超过服务端 SETTINGS_MAX_CONCURRENT_STREAMS 的stream在本地排队，
+ * 响应按stream id找到对应的调用。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class Http2ClientConnection {
+
+    private static final Logger                        LOGGER    = LoggerFactory
+                                                                     .getLogger(Http2ClientConnection.class);
+
+    private static final String                        STREAM_ID = HttpConversionUtil.ExtensionHeaderNames.STREAM_ID
+                                                                     .text().toString();
+
+    private final EventLoopGroup                       group;
+
+    private final String                               host;
+
+    private final int                                  port;
+
+    private final int                                  maxContentLength;
+
+    private final int                                  streamWindowSize;
+
+    private final int                                  connectionWindowSize;
+
+    /**
+     * 等待响应的调用，stream id --> 调用
+     */
+    private final ConcurrentMap<Integer, StreamFuture> pending   = new ConcurrentHashMap<Integer, StreamFuture>();
+
+    /**
+     * 收到服务端的SETTINGS
+     */
+    private final CountDownLatch                       handshake = new CountDownLatch(1);
+
+    private volatile boolean                           handshaked;
+
+    private volatile Channel                           channel;
+
+    private HttpToHttp2ConnectionHandler               handler;
+
+    Http2ClientConnection(EventLoopGroup group, String host, int port, int maxContentLength,
+                          int streamWindowSize, int connectionWindowSize) {
+        this.group = group;
+        this.host = host;
+        this.port = port;
+        this.maxContentLength = maxContentLength;
+        this.streamWindowSize = streamWindowSize;
+        this.connectionWindowSize = connectionWindowSize;
+    }
+
+    /**
+     * 建立连接并等待服务端的SETTINGS
+     *
+     * @param connectTimeout 超时时间
+     * @return 是否完成了HTTP/2握手，false表示对端不支持h2c
+     * @throws IOException 连接失败或者握手超时
+     */
+    boolean connect(int connectTimeout) throws IOException {
+        final Http2Connection connection = new DefaultHttp2Connection(false);
+        connection.addListener(new Http2ConnectionAdapter() {
+            @Override
+            public void onStreamClosed(Http2Stream stream) {
+                // 正常结束的stream在这之前已经收到了完整的响应，这里只处理被重置等异常情况
+                StreamFuture future = pending.remove(stream.id());
+                if (future != null) {
+                    future.promise.tryFailure(new IOException("Http2 stream " + stream.id()
+                        + " closed before response"));
+                }
+            }
+        });
+        InboundHttp2ToHttpAdapter adapter = new InboundHttp2ToHttpAdapterBuilder(connection)
+            .maxContentLength(maxContentLength)
+            .propagateSettings(false)
+            .build();
+        handler = new HttpToHttp2ConnectionHandlerBuilder()
+            .connection(connection)
+            .frameListener(new Http2FrameListenerDecorator(adapter) {
+                @Override
+                public void onSettingsRead(ChannelHandlerContext ctx, Http2Settings settings) throws Http2Exception {
+                    super.onSettingsRead(ctx, settings);
+                    if (!handshaked) {
+                        updateConnectionWindow(ctx, connection);
+                        handshaked = true;
+                        handshake.countDown();
+                    }
+                }
+            })
+            .initialSettings(new Http2Settings().pushEnabled(false).initialWindowSize(streamWindowSize))
+            .encoderEnforceMaxConcurrentStreams(true)
+            .build();
+
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.group(group)
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel ch) throws Exception {
+                    ch.pipeline().addLast(new ProtocolDetector(), handler, new ResponseHandler());
+                }
+            });
+        ChannelFuture future = bootstrap.connect(host, port);
+        if (!future.awaitUninterruptibly(connectTimeout + 100L, TimeUnit.MILLISECONDS)) {
+            future.cancel(false);
+            throw new SocketTimeoutException("Connect to " + host + ":" + port + " timeout");
+        }
+        if (!future.isSuccess()) {
+            Throwable cause = future.cause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        channel = future.channel();
+        // 连接前言写出后不会自动flush，这里主动flush，否则要等到第一个请求才发出去
+        channel.flush();
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                handshake.countDown();
+                failAll(new ClosedChannelException());
+            }
+        });
+        try {
+            if (!handshake.await(connectTimeout, TimeUnit.MILLISECONDS)) {
+                channel.close();
+                throw new SocketTimeoutException("Waiting http2 settings from " + host + ":" + port + " timeout");
+            }
+        } catch (InterruptedException e) {
+            channel.close();
+            throw new InterruptedIOException("Interrupted while waiting http2 settings");
+        }
+        if (!handshaked) {
+            // 对端收到连接前言后直接断开或者按HTTP/1.1响应
+            channel.close();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 连接级的流控窗口不能通过SETTINGS设置，握手后通过WINDOW_UPDATE扩大
+     */
+    private void updateConnectionWindow(ChannelHandlerContext ctx, Http2Connection connection) {
+        try {
+            Http2Stream connectionStream = connection.connectionStream();
+            Http2LocalFlowController flowController = connection.local().flowController();
+            int delta = connectionWindowSize - flowController.initialWindowSize(connectionStream);
+            if (delta > 0) {
+                flowController.incrementWindowSize(connectionStream, delta);
+                ctx.flush();
+            }
+        } catch (Http2Exception e) {
+            LOGGER.warn("Failed to update connection window of http2: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 是否可用，收到GOAWAY后不能再新建stream
+     *
+     * @return 是否可用
+     */
+    boolean isAvailable() {
+        Channel ch = channel;
+        return ch != null && ch.isActive() && !handler.connection().goAwayReceived();
+    }
+
+    /**
+     * 发送请求并等待响应
+     *
+     * @param request 请求，发送后释放
+     * @param timeout 超时时间
+     * @return 响应，由调用方释放
+     * @throws IOException 发送失败、连接断开或者超时
+     */
+    FullHttpResponse send(final FullHttpRequest request, int timeout) throws IOException {
+        final Channel ch = channel;
+        final StreamFuture future = new StreamFuture(ch.eventLoop().<FullHttpResponse> newPromise());
+        try {
+            ch.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(ch, request, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ReferenceCountUtil.release(request);
+            throw new ClosedChannelException();
+        }
+        try {
+            if (!future.promise.await(timeout, TimeUnit.MILLISECONDS) && cancel(ch, future)) {
+                throw new SocketTimeoutException("Waiting http2 response from " + host + ":" + port
+                    + " timeout(" + timeout + "ms)");
+            }
+        } catch (InterruptedException e) {
+            if (cancel(ch, future)) {
+                throw new InterruptedIOException("Interrupted while waiting http2 response");
+            }
+        }
+        if (!future.promise.isSuccess()) {
+            Throwable cause = future.promise.cause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        return future.promise.getNow();
+    }
+
+    private void write(Channel ch, FullHttpRequest request, final StreamFuture future) {
+        final int streamId = handler.connection().local().incrementAndGetNextStreamId();
+        if (streamId < 0) {
+            // stream id用完了，关闭连接，下次调用重新建立
+            ReferenceCountUtil.release(request);
+            future.promise.tryFailure(new IOException("No more http2 stream ids"));
+            ch.close();
+            return;
+        }
+        request.headers().setInt(STREAM_ID, streamId);
+        future.streamId = streamId;
+        pending.put(streamId, future);
+        ch.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                if (!f.isSuccess()) {
+                    pending.remove(streamId);
+                    future.promise.tryFailure(f.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * 超时的调用，重置对应的stream
+     *
+     * @return 是否取消成功，false表示响应刚好已经回来
+     */
+    private boolean cancel(final Channel ch, final StreamFuture future) {
+        if (!future.promise.tryFailure(new SocketTimeoutException())) {
+            return false;
+        }
+        try {
+            ch.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    int streamId = future.streamId;
+                    if (streamId > 0 && pending.remove(streamId) != null) {
+                        ChannelHandlerContext ctx = ch.pipeline().context(handler);
+                        if (ctx != null) {
+                            handler.resetStream(ctx, streamId, Http2Error.CANCEL.code(), ctx.newPromise());
+                            ctx.flush();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ignore) { // NOPMD
+        }
+        return true;
+    }
+
+    private void failAll(Throwable cause) {
+        Iterator<StreamFuture> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            StreamFuture future = iterator.next();
+            iterator.remove();
+            future.promise.tryFailure(cause);
+        }
+    }
+
+    void close() {
+        Channel ch = channel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    /**
+     * 检查服务端返回的第一个字节，HTTP/1.1的服务端会把连接前言当成一个普通请求，返回"HTTP/1.1 ..."，
+     * 而HTTP/2服务端的第一个帧是SETTINGS，帧长度的第一个字节不可能是'H'，这种情况直接断开，不用等到握手超时
+     */
+    private class ProtocolDetector extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof ByteBuf) {
+                ByteBuf buf = (ByteBuf) msg;
+                if (!buf.isReadable()) {
+                    buf.release();
+                    return;
+                }
+                ctx.pipeline().remove(this);
+                if (buf.getByte(buf.readerIndex()) == 'H') {
+                    buf.release();
+                    ctx.close();
+                    return;
+                }
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /**
+     * 收到完整的响应后按stream id通知调用方
+     */
+    private class ResponseHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof FullHttpResponse) {
+                FullHttpResponse response = (FullHttpResponse) msg;
+                Integer streamId = response.headers().getInt(STREAM_ID);
+                StreamFuture future = streamId == null ? null : pending.remove(streamId);
+                if (future != null && future.promise.trySuccess(response)) {
+                    return;
+                }
+            }
+            ReferenceCountUtil.release(msg);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("Exception caught by http2 connection to " + host + ":" + port + ", "
+                    + cause.getMessage());
+            }
+            ctx.close();
+        }
+    }
+
+    /**
+     * 一次调用
+     */
+    private static class StreamFuture {
+
+        private final Promise<FullHttpResponse> promise;
+
+        /**
+         * 在IO线程上分配的stream id
+         */
+        private volatile int                    streamId;
+
+        StreamFuture(Promise<FullHttpResponse> promise) {
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.transport.rest;
+
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.common.SystemInfo;
+import com.alipay.sofa.rpc.common.struct.NamedThreadFactory;
+import com.alipay.sofa.rpc.common.struct.PositiveAtomicCounter;
+import com.alipay.sofa.rpc.log.Logger;
+import com.alipay.sofa.rpc.log.LoggerFactory;
+import com.alipay.sofa.rpc.transport.ClientTransportConfig;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpScheme;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于h2c（明文HTTP/2，prior knowledge）的Resteasy客户端引擎，多个并发调用复用少量连接，每个调用一个stream。<br>
+ * 连接数由 connectionNum 决定，第一次使用时建立；对端不支持HTTP/2时降级到HTTP/1.1的引擎，保证和老服务端的互通，
+ * 降级一段时间（transport.http2.reprobe.interval）后再探测一次，对端升级后可以重新使用h2c。
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class Http2ClientEngine implements ClientHttpEngine {
+
+    private static final Logger                               LOGGER     = LoggerFactory
+                                                                             .getLogger(Http2ClientEngine.class);
+
+    /**
+     * 所有h2c连接共用的IO线程，没有引擎在使用时关闭
+     */
+    private static EventLoopGroup                             ioGroup;
+
+    /**
+     * 使用IO线程的引擎数
+     */
+    private static int                                        ioGroupRefs;
+
+    /**
+     * HTTP/1.1的引擎，对端不支持h2c时使用
+     */
+    private final ClientHttpEngine                            fallback;
+
+    private final String                                      host;
+
+    private final int                                         port;
+
+    private final int                                         connectTimeout;
+
+    private final int                                         invokeTimeout;
+
+    private final int                                         maxContentLength;
+
+    private final int                                         streamWindowSize;
+
+    private final int                                         connectionWindowSize;
+
+    /**
+     * 对端不支持h2c后，多久再探测一次（毫秒）
+     */
+    private final int                                         reprobeInterval;
+
+    /**
+     * 连接，第一次使用时建立
+     */
+    private final AtomicReferenceArray<Http2ClientConnection> connections;
+
+    /**
+     * 每个连接一把锁，建立连接时只阻塞使用同一个连接的调用
+     */
+    private final ReentrantLock[]                             locks;
+
+    private final PositiveAtomicCounter                       index      = new PositiveAtomicCounter();
+
+    /**
+     * 对端不支持h2c时，在这个时间之前都使用HTTP/1.1，0表示使用h2c
+     */
+    private final AtomicLong                                  http1Until = new AtomicLong();
+
+    /**
+     * 是否持有IO线程的引用，受 Http2ClientEngine.class 保护
+     */
+    private boolean                                           ioGroupAcquired;
+
+    private volatile boolean                                  closed;
+
+    /**
+     * 构造函数
+     *
+     * @param fallback        HTTP/1.1的引擎
+     * @param transportConfig 客户端配置
+     */
+    public Http2ClientEngine(ClientHttpEngine fallback, ClientTransportConfig transportConfig) {
+        this.fallback = fallback;
+        ProviderInfo providerInfo = transportConfig.getProviderInfo();
+        this.host = providerInfo.getHost();
+        this.port = providerInfo.getPort();
+        this.connectTimeout = transportConfig.getConnectTimeout();
+        this.invokeTimeout = transportConfig.getInvokeTimeout();
+        this.maxContentLength = transportConfig.getPayload();
+        this.streamWindowSize = RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_STREAM_WINDOW);
+        this.connectionWindowSize = RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_CONNECTION_WINDOW);
+        this.reprobeInterval = RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_REPROBE_INTERVAL);
+        int connectionNum = Math.max(1, transportConfig.getConnectionNum());
+        this.connections = new AtomicReferenceArray<Http2ClientConnection>(connectionNum);
+        this.locks = new ReentrantLock[connectionNum];
+        for (int i = 0; i < connectionNum; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        if (closed) {
+            throw new ProcessingException("Http2 client engine is closed");
+        }
+        boolean probe = false;
+        long until = http1Until.get();
+        if (until != 0) {
+            long now = System.currentTimeMillis();
+            // 降级期间走HTTP/1.1，到期后只让一个调用去重新探测
+            if (now < until || !http1Until.compareAndSet(until, now + reprobeInterval)) {
+                return fallback.invoke(request);
+            }
+            probe = true;
+        }
+        Http2ClientConnection connection = getConnection(probe);
+        if (connection == null) {
+            return fallback.invoke(request);
+        }
+        final FullHttpResponse response;
+        try {
+            response = connection.send(buildRequest(request), invokeTimeout);
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to invoke request", e);
+        }
+        final byte[] body;
+        try {
+            body = ByteBufUtil.getBytes(response.content());
+        } finally {
+            response.release();
+        }
+        ClientResponse clientResponse = new ClientResponse(request.getClientConfiguration()) {
+            private InputStream stream = new ByteArrayInputStream(body);
+
+            @Override
+            protected InputStream getInputStream() {
+                return stream;
+            }
+
+            @Override
+            protected void setInputStream(InputStream is) {
+                stream = is;
+            }
+
+            @Override
+            public void releaseConnection() throws IOException {
+                // 响应已经读完，不占用连接
+            }
+        };
+        clientResponse.setStatus(response.status().code());
+        MultivaluedMap<String, String> headers = new CaseInsensitiveMap<String>();
+        for (Map.Entry<String, String> header : response.headers()) {
+            headers.add(header.getKey(), header.getValue());
+        }
+        clientResponse.setHeaders(headers);
+        return clientResponse;
+    }
+
+    /**
+     * 轮询选择一个连接，没有建立或者已经断开的重新建立。<br>
+     * 选中的连接正在被其它调用建立时，优先使用其它可用的连接，没有可用连接才等待。
+     *
+     * @param probe 是否是降级到期后的重新探测
+     * @return 连接，对端不支持h2c时返回null
+     */
+    private Http2ClientConnection getConnection(boolean probe) {
+        int i = index.getAndIncrement() % connections.length();
+        Http2ClientConnection connection = connections.get(i);
+        if (connection != null && connection.isAvailable()) {
+            return connection;
+        }
+        ReentrantLock lock = locks[i];
+        if (!lock.tryLock()) {
+            connection = getAvailableConnection();
+            if (connection != null) {
+                return connection;
+            }
+            lock.lock();
+        }
+        try {
+            connection = connections.get(i);
+            if (connection != null && connection.isAvailable()) {
+                return connection;
+            }
+            // 等锁期间其它调用发现对端不支持h2c，不再重复探测
+            if (closed || (!probe && http1Until.get() != 0)) {
+                return null;
+            }
+            return connect(i, probe);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 建立第i个连接，调用方持有第i个连接的锁
+     *
+     * @param i     序号
+     * @param probe 是否是降级到期后的重新探测
+     * @return 连接，对端不支持h2c时返回null
+     */
+    private Http2ClientConnection connect(int i, boolean probe) {
+        EventLoopGroup group = acquireIoGroup();
+        if (group == null) {
+            throw new ProcessingException("Http2 client engine is closed");
+        }
+        Http2ClientConnection connection = new Http2ClientConnection(group, host, port, maxContentLength,
+            streamWindowSize, connectionWindowSize);
+        try {
+            if (!connection.connect(connectTimeout)) {
+                http1Until.set(System.currentTimeMillis() + reprobeInterval);
+                if (!probe) {
+                    LOGGER.warn("Remote " + host + ":" + port + " does not support h2c, use http/1.1 instead, "
+                        + "re-probe after " + reprobeInterval + "ms.");
+                }
+                return null;
+            }
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to connect to " + host + ":" + port, e);
+        }
+        if (probe) {
+            http1Until.set(0);
+            LOGGER.info("Remote " + host + ":" + port + " supports h2c now, switch from http/1.1.");
+        }
+        Http2ClientConnection old = connections.getAndSet(i, connection);
+        if (old != null) {
+            old.close();
+        }
+        if (closed) {
+            // 建立连接期间引擎被关闭了
+            connections.compareAndSet(i, connection, null);
+            connection.close();
+            throw new ProcessingException("Http2 client engine is closed");
+        }
+        return connection;
+    }
+
+    /**
+     * 任意一个可用的连接
+     *
+     * @return 可用的连接，没有时返回null
+     */
+    private Http2ClientConnection getAvailableConnection() {
+        for (int i = 0; i < connections.length(); i++) {
+            Http2ClientConnection connection = connections.get(i);
+            if (connection != null && connection.isAvailable()) {
+                return connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把Resteasy的请求转换为完整的HTTP请求，请求体全部写入内存
+     *
+     * @param request Resteasy的请求
+     * @return HTTP请求
+     */
+    private FullHttpRequest buildRequest(ClientInvocation request) {
+        byte[] body = null;
+        if (request.getEntity() != null) {
+            if ("GET".equals(request.getMethod())) {
+                throw new ProcessingException("A GET request cannot have a body.");
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            request.getDelegatingOutputStream().setDelegate(baos);
+            try {
+                request.writeRequestBody(request.getEntityStream());
+            } catch (IOException e) {
+                throw new ProcessingException("Unable to write request body", e);
+            }
+            body = baos.toByteArray();
+        }
+        URI uri = request.getUri();
+        String path = uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path = path + "?" + uri.getRawQuery();
+        }
+        FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+            HttpMethod.valueOf(request.getMethod()), path,
+            body == null ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(body));
+        // 写完请求体再设置请求头，拦截器可能会修改请求头
+        for (Map.Entry<String, List<String>> header : request.getHeaders().asMap().entrySet()) {
+            for (String value : header.getValue()) {
+                httpRequest.headers().add(header.getKey(), value);
+            }
+        }
+        httpRequest.headers().set(HttpHeaderNames.HOST, host + ":" + port);
+        httpRequest.headers().set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), HttpScheme.HTTP.name());
+        if (body != null) {
+            httpRequest.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, body.length);
+        }
+        return httpRequest;
+    }
+
+    /**
+     * 引用IO线程，第一个引用时创建
+     *
+     * @return IO线程，引擎已经关闭时返回null
+     */
+    private EventLoopGroup acquireIoGroup() {
+        synchronized (Http2ClientEngine.class) {
+            if (closed) {
+                return null;
+            }
+            if (!ioGroupAcquired) {
+                ioGroupAcquired = true;
+                ioGroupRefs++;
+            }
+            if (ioGroup == null) {
+                ioGroup = new NioEventLoopGroup(SystemInfo.getCpuCores(),
+                    new NamedThreadFactory("SOFA-REST-H2C-CLIENT", true));
+            }
+            return ioGroup;
+        }
+    }
+
+    /**
+     * 释放IO线程的引用，最后一个引用释放时关闭
+     */
+    private void releaseIoGroup() {
+        synchronized (Http2ClientEngine.class) {
+            if (!ioGroupAcquired) {
+                return;
+            }
+            ioGroupAcquired = false;
+            if (--ioGroupRefs == 0 && ioGroup != null) {
+                ioGroup.shutdownGracefully();
+                ioGroup = null;
+            }
+        }
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return fallback.getSslContext();
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return fallback.getHostnameVerifier();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        // 不加锁，正在建立的连接建好后发现引擎已关闭会自己关闭
+        for (int i = 0; i < connections.length(); i++) {
+            Http2ClientConnection connection = connections.getAndSet(i, null);
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        releaseIoGroup();
+        fallback.close();
+    }
+}
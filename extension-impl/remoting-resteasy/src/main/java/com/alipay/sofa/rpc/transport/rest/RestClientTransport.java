@@ -18,7 +18,9 @@ package com.alipay.sofa.rpc.transport.rest;
 
 import com.alipay.sofa.rpc.client.ProviderInfo;
 import com.alipay.sofa.rpc.common.ReflectCache;
+import com.alipay.sofa.rpc.common.RpcConstants;
 import com.alipay.sofa.rpc.common.utils.ClassUtils;
+import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.common.utils.StringUtils;
 import com.alipay.sofa.rpc.context.RpcInternalContext;
 import com.alipay.sofa.rpc.core.exception.SofaRpcException;
@@ -41,6 +43,12 @@ import java.util.concurrent.TimeUnit;
  */
 @Extension("rest")
 public class RestClientTransport extends AbstractProxyClientTransport {
+
+    /**
+     * Resteasy客户端，在父类构造函数中初始化，不能有默认值
+     */
+    private ResteasyClient client;
+
     public RestClientTransport(ClientTransportConfig transportConfig) {
         super(transportConfig);
     }
@@ -49,12 +57,15 @@ public class RestClientTransport extends AbstractProxyClientTransport {
     protected Object buildProxy(ClientTransportConfig transportConfig) throws SofaRpcException {
         SofaResteasyClientBuilder builder = new SofaResteasyClientBuilder();
 
-        ResteasyClient client = builder
-            .registerProvider().logProviders()
+        builder.registerProvider().logProviders()
             .establishConnectionTimeout(transportConfig.getConnectTimeout(), TimeUnit.MILLISECONDS)
             .socketTimeout(transportConfig.getInvokeTimeout(), TimeUnit.MILLISECONDS)
-            .connectionPoolSize(transportConfig.getConnectionNum())// 连接池？
-            .build();
+            .connectionPoolSize(transportConfig.getConnectionNum());// 连接池？
+        if (CommonUtils.isTrue(transportConfig.getConsumerConfig().getParameter(RpcConstants.CONSUMER_PARAM_REST_H2C))) {
+            // h2c多路复用，服务端不支持时降级为HTTP/1.1
+            builder.httpEngine(new Http2ClientEngine(builder.buildDefaultEngine(), transportConfig));
+        }
+        client = builder.build();
 
         ProviderInfo provider = transportConfig.getProviderInfo();
         String url = "http://" + provider.getHost() + ":" + provider.getPort()
@@ -63,6 +74,14 @@ public class RestClientTransport extends AbstractProxyClientTransport {
         return target.proxy(ClassUtils.forName(transportConfig.getConsumerConfig().getInterfaceId()));
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (client != null) {
+            client.close();
+        }
+    }
+
     @Override
     protected Method getMethod(SofaRequest request) throws SofaRpcException {
         return ReflectCache.getOrInitServiceMethod(request.getTargetServiceUniqueName(), request.getMethodName(),
@@ -20,6 +20,7 @@ import com.alipay.sofa.rpc.common.utils.CommonUtils;
 import com.alipay.sofa.rpc.config.JAXRSProviderManager;
 import com.alipay.sofa.rpc.log.Logger;
 import com.alipay.sofa.rpc.log.LoggerFactory;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.jboss.resteasy.spi.PropertyInjector;
 import org.jboss.resteasy.spi.ResteasyProviderFactory;
@@ -68,6 +69,15 @@ public class SofaResteasyClientBuilder extends ResteasyClientBuilder {
         return this;
     }
 
+    /**
+     * 按当前配置构造默认的HTTP/1.1引擎
+     *
+     * @return HTTP/1.1引擎
+     */
+    public ClientHttpEngine buildDefaultEngine() {
+        return initDefaultEngine();
+    }
+
     public SofaResteasyClientBuilder logProviders() {
         if (LOGGER.isDebugEnabled()) {
             Set pcs = getProviderFactory().getProviderClasses();
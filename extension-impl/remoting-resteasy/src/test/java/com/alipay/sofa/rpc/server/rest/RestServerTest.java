@@ -22,6 +22,8 @@ import com.alipay.sofa.rpc.config.ServerConfig;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.Socket;
+
 /**
  *
  *
@@ -62,4 +64,69 @@ public class RestServerTest {
     public void stop() throws Exception {
     }
 
-}
\ No newline at end of file
+    @Test
+    public void epoll() throws Exception {
+        // 非Linux下自动降级为nio
+        String host = "127.0.0.1";
+        int port = 18802;
+        SofaNettyJaxrsServer server = new SofaNettyJaxrsServer();
+        server.setHostname(host);
+        server.setPort(port);
+        server.setUseEpoll(true);
+        server.setTcpQuickAck(true);
+        server.setAcceptors(2);
+        server.getDeployment().start();
+        server.start();
+        try {
+            Assert.assertTrue(NetUtils.canTelnet(host, port, 1000));
+        } finally {
+            server.stop();
+            server.getDeployment().stop();
+        }
+        Assert.assertFalse(NetUtils.canTelnet(host, port, 1000));
+    }
+
+    @Test
+    public void connectionLimitAndIdle() throws Exception {
+        String host = "127.0.0.1";
+        int port = 18803;
+        SofaNettyJaxrsServer server = new SofaNettyJaxrsServer();
+        server.setHostname(host);
+        server.setPort(port);
+        server.setMaxConnections(1);
+        server.setIdleTimeout(500);
+        server.getDeployment().start();
+        server.start();
+        Socket first = new Socket(host, port);
+        Socket second = null;
+        try {
+            first.setSoTimeout(5000);
+            waitConnectionCount(server, 1);
+            // 超过最大连接数直接关闭
+            second = new Socket(host, port);
+            second.setSoTimeout(3000);
+            Assert.assertEquals(-1, second.getInputStream().read());
+            waitConnectionCount(server, 1);
+
+            // 空闲超时后服务端关闭连接
+            long start = System.currentTimeMillis();
+            Assert.assertEquals(-1, first.getInputStream().read());
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            waitConnectionCount(server, 0);
+        } finally {
+            first.close();
+            if (second != null) {
+                second.close();
+            }
+            server.stop();
+            server.getDeployment().stop();
+        }
+    }
+
+    private void waitConnectionCount(SofaNettyJaxrsServer server, int expect) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getConnectionCount() != expect; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(expect, server.getConnectionCount());
+    }
+}
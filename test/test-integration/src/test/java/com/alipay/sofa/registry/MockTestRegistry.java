@@ -18,6 +18,7 @@ package com.alipay.sofa.registry;
 
 import com.alipay.sofa.rpc.client.ProviderGroup;
 import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.codec.CompressorFactory;
 import com.alipay.sofa.rpc.common.SystemInfo;
 import com.alipay.sofa.rpc.common.Version;
 import com.alipay.sofa.rpc.common.utils.CommonUtils;
@@ -229,6 +230,7 @@ public class MockTestRegistry extends Registry {
         sb.append(getKeyPairs(ATTR_APP_NAME, appName));
         sb.append(getKeyPairs(ATTR_WARMUP_TIME, providerConfig.getParameter(ATTR_WARMUP_TIME)));
         sb.append(getKeyPairs(ATTR_WARMUP_WEIGHT, providerConfig.getParameter(ATTR_WARMUP_WEIGHT)));
+        sb.append(getKeyPairs(ATTR_ACCEPT_COMPRESS, CompressorFactory.getAliases()));
 
         Map<String, MethodConfig> methodConfigs = providerConfig.getMethods();
         if (CommonUtils.isNotEmpty(methodConfigs)) {
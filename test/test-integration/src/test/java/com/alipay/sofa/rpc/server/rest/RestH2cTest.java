@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class RestH2cTest extends ActivelyDestroyTest {
+
+    @BeforeClass
+    public static void before() {
+        export(8805, true);
+        export(8806, false);
+        // 连接按地址复用，HTTP/1.1客户端单独用一个端口
+        export(8807, true);
+    }
+
+    private static void export(int port, boolean h2c) {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(port)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_REST);
+        if (h2c) {
+            serverConfig.setParameter(RpcConstants.SERVER_PARAM_REST_H2C, "true");
+        }
+
+        ProviderConfig<RestService> providerConfig = new ProviderConfig<RestService>()
+            .setInterfaceId(RestService.class.getName())
+            .setRef(new RestServiceImpl())
+            .setServer(serverConfig)
+            .setBootstrap("rest")
+            .setRegister(false);
+        providerConfig.export();
+    }
+
+    private RestService refer(int port, boolean h2c) {
+        ConsumerConfig<RestService> consumerConfig = new ConsumerConfig<RestService>()
+            .setInterfaceId(RestService.class.getName())
+            .setDirectUrl("rest://127.0.0.1:" + port)
+            .setProtocol("rest")
+            .setBootstrap("rest")
+            .setConnectionNum(1)
+            .setTimeout(5000)
+            .setRegister(false);
+        if (h2c) {
+            consumerConfig.setParameter(RpcConstants.CONSUMER_PARAM_REST_H2C, "true");
+        }
+        return consumerConfig.refer();
+    }
+
+    @Test
+    public void testMultiplex() throws Exception {
+        final RestService restService = refer(8805, true);
+        int threads = 8;
+        final int calls = 50;
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < calls; j++) {
+                            if (!call(restService, thread * calls + j)) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void testHttp1ClientToH2cServer() {
+        RestService restService = refer(8807, false);
+        Assert.assertTrue(call(restService, 1));
+    }
+
+    @Test
+    public void testH2cClientToHttp1Server() throws Exception {
+        int interval = RpcConfigs.getIntValue(RpcOptions.TRANSPORT_HTTP2_REPROBE_INTERVAL);
+        RpcConfigs.putValue(RpcOptions.TRANSPORT_HTTP2_REPROBE_INTERVAL, 100);
+        try {
+            // 服务端不支持h2c，客户端降级为HTTP/1.1
+            RestService restService = refer(8806, true);
+            Assert.assertTrue(call(restService, 1));
+            Assert.assertTrue(call(restService, 2));
+            // 降级到期后重新探测，仍然不支持时继续使用HTTP/1.1
+            Thread.sleep(200);
+            Assert.assertTrue(call(restService, 3));
+            Assert.assertTrue(call(restService, 4));
+        } finally {
+            RpcConfigs.putValue(RpcOptions.TRANSPORT_HTTP2_REPROBE_INTERVAL, interval);
+        }
+    }
+
+    private static boolean call(RestService restService, int id) {
+        ExampleObj obj = new ExampleObj();
+        obj.setId(id);
+        obj.setName("obj" + id);
+        ExampleObj result = restService.object(obj);
+        return result.getId() == id && ("obj" + id + " server").equals(result.getName());
+    }
+}
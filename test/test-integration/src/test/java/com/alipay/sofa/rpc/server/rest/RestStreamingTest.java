@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.server.rest;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class RestStreamingTest extends ActivelyDestroyTest {
+
+    private static final String BASE_URL = "http://127.0.0.1:8804/stream";
+
+    @BeforeClass
+    public static void before() {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(8804)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_REST)
+            .setPayload(1024 * 1024) // 大请求只有流式处理才能通过
+            .setParameter(RpcConstants.SERVER_PARAM_REST_STREAMING, "true")
+            .setParameter(RpcConstants.SERVER_PARAM_REST_STREAMING_SIZE, "1024")
+            .setParameter(RpcConstants.SERVER_PARAM_REST_CHUNK_SIZE, "4096");
+
+        ProviderConfig<RestStreamService> providerConfig = new ProviderConfig<RestStreamService>()
+            .setInterfaceId(RestStreamService.class.getName())
+            .setRef(new RestStreamService() {
+                @Override
+                public String upload(InputStream in) throws IOException {
+                    long count = 0;
+                    long sum = 0;
+                    byte[] buffer = new byte[1000];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        for (int i = 0; i < n; i++) {
+                            sum += buffer[i] & 0xff;
+                        }
+                        count += n;
+                    }
+                    return count + ":" + sum;
+                }
+
+                @Override
+                public StreamingOutput download(final int size) {
+                    return new StreamingOutput() {
+                        @Override
+                        public void write(OutputStream output) throws IOException, WebApplicationException {
+                            for (int i = 0; i < size; i++) {
+                                output.write(i % 251);
+                            }
+                        }
+                    };
+                }
+            })
+            .setServer(serverConfig)
+            .setBootstrap("rest")
+            .setRegister(false);
+        providerConfig.export();
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        // 小请求走聚合，大请求和chunked走流式
+        Assert.assertEquals(expected(100), upload(100, false));
+        Assert.assertEquals(expected(3 * 1024 * 1024), upload(3 * 1024 * 1024, false));
+        Assert.assertEquals(expected(3 * 1024 * 1024), upload(3 * 1024 * 1024, true));
+        // 连接复用后还能继续处理
+        Assert.assertEquals(expected(100), upload(100, true));
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        int size = 2 * 1024 * 1024 + 7;
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/download/" + size)
+            .openConnection();
+        try {
+            Assert.assertEquals(200, connection.getResponseCode());
+            InputStream in = connection.getInputStream();
+            int count = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                Assert.assertEquals(count % 251, b);
+                count++;
+            }
+            in.close();
+            Assert.assertEquals(size, count);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String upload(int size, boolean chunked) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(BASE_URL + "/upload").openConnection();
+        try {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            if (chunked) {
+                connection.setChunkedStreamingMode(8192);
+            } else {
+                connection.setFixedLengthStreamingMode(size);
+            }
+            OutputStream out = connection.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int written = 0;
+            while (written < size) {
+                int n = Math.min(buffer.length, size - written);
+                for (int i = 0; i < n; i++) {
+                    buffer[i] = (byte) ((written + i) % 256);
+                }
+                out.write(buffer, 0, n);
+                written += n;
+            }
+            out.close();
+            Assert.assertEquals(200, connection.getResponseCode());
+            InputStream in = connection.getInputStream();
+            StringBuilder result = new StringBuilder();
+            int b;
+            while ((b = in.read()) >= 0) {
+                result.append((char) b);
+            }
+            in.close();
+            return result.toString();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private String expected(int size) {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += i % 256;
+        }
+        return size + ":" + sum;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.client;
+
+import com.alipay.sofa.rpc.client.BatchResult;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.context.RpcInvokeContext;
+import com.alipay.sofa.rpc.context.RpcRuntimeContext;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.exception.SofaTimeOutException;
+import com.alipay.sofa.rpc.event.ClientEndInvokeEvent;
+import com.alipay.sofa.rpc.event.ClientStartInvokeEvent;
+import com.alipay.sofa.rpc.event.Event;
+import com.alipay.sofa.rpc.event.EventBus;
+import com.alipay.sofa.rpc.event.Subscriber;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import com.alipay.sofa.rpc.test.HelloService;
+import com.alipay.sofa.rpc.test.HelloServiceImpl;
+import com.alipay.sofa.rpc.test.exception.TestExceptionService;
+import com.alipay.sofa.rpc.test.exception.TestExceptionServiceImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class BroadcastClusterTest extends ActivelyDestroyTest {
+
+    private static final String DIRECT_URL = "bolt://127.0.0.1:22234;bolt://127.0.0.1:22235";
+
+    @Before
+    public void startServer() {
+        export(22234, new HelloServiceImpl("a"));
+        export(22235, new HelloServiceImpl(1500));
+    }
+
+    private void export(int port, HelloService ref) {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(port)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+        new ProviderConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setRef(ref)
+            .setServer(serverConfig)
+            .setRepeatedExportLimit(-1)
+            .setRegister(false)
+            .export();
+    }
+
+    @Test
+    public void testBroadcast() {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl(DIRECT_URL)
+            .setCluster("broadcast")
+            .setTimeout(3000)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+
+        String result = helloService.sayHello("xxx", 22);
+        Assert.assertTrue("a".equals(result) || "hello xxx from server! age: 22".equals(result));
+        BatchResult batchResult = (BatchResult) RpcInvokeContext.getContext().get(
+            RpcConstants.INVOKE_CTX_BATCH_RESULT);
+        Assert.assertNotNull(batchResult);
+        Assert.assertEquals(2, batchResult.size());
+        Assert.assertEquals(2, batchResult.getSuccessCount());
+        Set<Object> results = new HashSet<Object>(batchResult.getResults());
+        Assert.assertTrue(results.contains("a"));
+        Assert.assertTrue(results.contains("hello xxx from server! age: 22"));
+    }
+
+    @Test
+    public void testBroadcastPolicy() {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl(DIRECT_URL)
+            .setCluster("broadcast")
+            .setTimeout(500)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+        try {
+            helloService.sayHello("xxx", 22);
+            Assert.fail();
+        } catch (SofaTimeOutException e) {
+            // 慢的节点超时，默认全部成功才算成功
+        }
+
+        ConsumerConfig<HelloService> consumerConfig2 = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl(DIRECT_URL)
+            .setCluster("broadcast")
+            .setBatchPolicy(RpcConstants.BATCH_POLICY_ANY)
+            .setTimeout(500)
+            .setRegister(false);
+        HelloService helloService2 = consumerConfig2.refer();
+        Assert.assertEquals("a", helloService2.sayHello("xxx", 22));
+        BatchResult batchResult = (BatchResult) RpcInvokeContext.getContext().get(
+            RpcConstants.INVOKE_CTX_BATCH_RESULT);
+        Assert.assertEquals(1, batchResult.getSuccessCount());
+        Assert.assertEquals(1, batchResult.getFailureCount());
+    }
+
+    @Test
+    public void testInvokeBatch() {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22234")
+            .setTimeout(3000)
+            .setRegister(false);
+        consumerConfig.refer();
+
+        List<Object[]> argsList = new ArrayList<Object[]>();
+        for (int i = 0; i < 5; i++) {
+            argsList.add(new Object[] { "xxx", i });
+        }
+        BatchResult batchResult = consumerConfig.getConsumerBootstrap().invokeBatch("sayHello",
+            new String[] { "java.lang.String", "int" }, argsList);
+        Assert.assertEquals(5, batchResult.size());
+        Assert.assertEquals(5, batchResult.getSuccessCount());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("a", batchResult.getResult(i));
+        }
+
+        ConsumerConfig<HelloService> consumerConfig2 = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22235")
+            .setTimeout(500)
+            .setRegister(false);
+        consumerConfig2.refer();
+        try {
+            consumerConfig2.getConsumerBootstrap().invokeBatch("sayHello",
+                new String[] { "java.lang.String", "int" }, argsList);
+            Assert.fail();
+        } catch (SofaRpcException e) {
+            Assert.assertTrue(e instanceof SofaTimeOutException);
+        }
+    }
+
+    @Test
+    public void testInvokeBatchBizException() {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(22236)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+        new ProviderConfig<TestExceptionService>()
+            .setInterfaceId(TestExceptionService.class.getName())
+            .setRef(new TestExceptionServiceImpl())
+            .setServer(serverConfig)
+            .setRegister(false)
+            .export();
+
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger starts = new AtomicInteger();
+        final AtomicInteger bizExceptions = new AtomicInteger();
+        Subscriber subscriber = new Subscriber() {
+            @Override
+            public void onEvent(Event event) {
+                if (Thread.currentThread() != caller) {
+                    // 传输层异步回调也会产生调用结束事件，这里只统计调用方线程上的
+                    return;
+                }
+                if (event instanceof ClientStartInvokeEvent) {
+                    starts.incrementAndGet();
+                } else if (event instanceof ClientEndInvokeEvent) {
+                    ClientEndInvokeEvent endEvent = (ClientEndInvokeEvent) event;
+                    if (endEvent.getThrowable() == null
+                        && endEvent.getResponse().getAppResponse() instanceof RuntimeException) {
+                        bizExceptions.incrementAndGet();
+                    }
+                }
+            }
+        };
+        EventBus.register(ClientStartInvokeEvent.class, subscriber);
+        EventBus.register(ClientEndInvokeEvent.class, subscriber);
+        try {
+            ConsumerConfig<TestExceptionService> consumerConfig = new ConsumerConfig<TestExceptionService>()
+                .setInterfaceId(TestExceptionService.class.getName())
+                .setDirectUrl("bolt://127.0.0.1:22236")
+                .setBatchPolicy(RpcConstants.BATCH_POLICY_IGNORE) // 等全部返回，不因第一个失败提前结束
+                .setTimeout(3000)
+                .setRegister(false);
+            consumerConfig.refer();
+
+            List<Object[]> argsList = new ArrayList<Object[]>();
+            argsList.add(new Object[0]);
+            argsList.add(new Object[0]);
+            // 业务异常和广播调用一样算调用结果，不包装成RPC异常抛出
+            BatchResult batchResult = consumerConfig.getConsumerBootstrap().invokeBatch("throwRuntimeException",
+                new String[0], argsList);
+            Assert.assertEquals(2, batchResult.getFailureCount());
+            for (int i = 0; i < 2; i++) {
+                Assert.assertFalse(batchResult.getException(i) instanceof SofaRpcException);
+                Assert.assertEquals("RuntimeException", batchResult.getException(i).getMessage());
+            }
+            Assert.assertEquals(2, starts.get());
+            Assert.assertEquals(2, bizExceptions.get());
+        } finally {
+            EventBus.unRegister(ClientStartInvokeEvent.class, subscriber);
+            EventBus.unRegister(ClientEndInvokeEvent.class, subscriber);
+        }
+    }
+
+    @After
+    public void stopServer() {
+        RpcInvokeContext.removeContext();
+        RpcRuntimeContext.destroy();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.client;
+
+import com.alipay.sofa.rpc.client.ProviderGroup;
+import com.alipay.sofa.rpc.client.ProviderInfo;
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import com.alipay.sofa.rpc.test.HelloService;
+import com.alipay.sofa.rpc.test.HelloServiceImpl;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class InvokeStatsTest extends ActivelyDestroyTest {
+
+    @BeforeClass
+    public static void startServer() {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(22233)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+
+        ProviderConfig<HelloService> providerConfig = new ProviderConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setRef(new HelloServiceImpl())
+            .setServer(serverConfig)
+            .setRegister(false);
+        providerConfig.export();
+    }
+
+    @Test
+    public void testStatsWithLoadAwareLoadBalancer() {
+        ProviderInfo providerInfo = invoke("leastActive");
+        Assert.assertEquals(0, providerInfo.getInvokeStats().getActive());
+        Assert.assertTrue(providerInfo.getInvokeStats().getEwma() > 0);
+    }
+
+    @Test
+    public void testNoStatsWithRandomLoadBalancer() {
+        // 负载均衡不需要调用统计时不统计
+        ProviderInfo providerInfo = invoke("random");
+        Assert.assertEquals(0, providerInfo.getInvokeStats().getActive());
+        Assert.assertTrue(providerInfo.getInvokeStats().getEwma() == 0);
+    }
+
+    private ProviderInfo invoke(String loadBalancer) {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22233")
+            .setLoadBalancer(loadBalancer)
+            .setTimeout(3000)
+            .setRepeatedReferLimit(-1)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals("hello xxx from server! age: " + i, helloService.sayHello("xxx", i));
+        }
+        ProviderGroup group = consumerConfig.getConsumerBootstrap().getCluster().getAddressHolder()
+            .getProviderGroup(RpcConstants.ADDRESS_DIRECT_GROUP);
+        return group.getProviderInfos().get(0);
+    }
+}
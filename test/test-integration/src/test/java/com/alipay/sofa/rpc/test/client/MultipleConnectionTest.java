@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.client;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.context.RpcInvokeContext;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.filter.Filter;
+import com.alipay.sofa.rpc.filter.FilterInvoker;
+import com.alipay.sofa.rpc.message.ResponseFuture;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import com.alipay.sofa.rpc.test.HelloService;
+import com.alipay.sofa.rpc.test.HelloServiceImpl;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class MultipleConnectionTest extends ActivelyDestroyTest {
+
+    private static ServerConfig       serverConfig;
+
+    /**
+     * 服务端收到请求的客户端端口，一个端口对应一个长连接
+     */
+    private static final Set<Integer> REMOTE_PORTS = Collections
+                                                       .newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    @BeforeClass
+    public static void startServer() {
+        serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(22229)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT)
+            .setQueues(100).setCoreThreads(5).setMaxThreads(5);
+
+        ProviderConfig<HelloService> providerConfig = new ProviderConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setRef(new HelloServiceImpl())
+            .setServer(serverConfig)
+            .setFilterRef(Collections.<Filter> singletonList(new Filter() {
+                @Override
+                public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+                    REMOTE_PORTS.add(RpcInternalContext.getContext().getRemoteAddress().getPort());
+                    return invoker.invoke(request);
+                }
+            }))
+            .setRepeatedExportLimit(-1)
+            .setRegister(false);
+        providerConfig.export();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        serverConfig.destroy();
+    }
+
+    @Before
+    public void clearPorts() {
+        REMOTE_PORTS.clear();
+    }
+
+    @Test
+    public void testRoundRobin() {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22229")
+            .setConnectionNum(3)
+            .setConnectionWarmup(true)
+            .setConnectionSelector(RpcConstants.CONNECTION_SELECTOR_ROUND_ROBIN)
+            .setRepeatedReferLimit(-1)
+            .setTimeout(3000)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("hello xxx from server! age: " + i, helloService.sayHello("xxx", i));
+        }
+        // 预热时全部长连接同步建立，轮询到每一个长连接
+        Assert.assertEquals(3, REMOTE_PORTS.size());
+        consumerConfig.unRefer();
+    }
+
+    @Test
+    public void testLeastActive() throws Exception {
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22229")
+            .setConnectionNum(2)
+            .setConnectionWarmup(true)
+            .setConnectionSelector(RpcConstants.CONNECTION_SELECTOR_LEAST_ACTIVE)
+            .setInvokeType(RpcConstants.INVOKER_TYPE_FUTURE)
+            .setRepeatedReferLimit(-1)
+            .setTimeout(3000)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+        for (int i = 0; i < 10; i++) {
+            helloService.sayHello("xxx", i);
+            ResponseFuture future = RpcInvokeContext.getContext().getFuture();
+            Assert.assertEquals("hello xxx from server! age: " + i, future.get());
+        }
+        // 在途请求数相同时从轮询位置开始找，两个长连接都有请求
+        Assert.assertEquals(2, REMOTE_PORTS.size());
+        consumerConfig.unRefer();
+    }
+}
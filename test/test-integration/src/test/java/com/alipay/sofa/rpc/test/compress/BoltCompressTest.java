@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.compress;
+
+import com.alipay.sofa.rpc.common.RpcConstants;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.context.RpcInternalContext;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.core.request.SofaRequest;
+import com.alipay.sofa.rpc.core.response.SofaResponse;
+import com.alipay.sofa.rpc.filter.Filter;
+import com.alipay.sofa.rpc.filter.FilterInvoker;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import com.alipay.sofa.rpc.test.HelloService;
+import com.alipay.sofa.rpc.test.HelloServiceImpl;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class BoltCompressTest extends ActivelyDestroyTest {
+
+    private static final Map<String, Object> SERVER_ATTACHMENTS = new HashMap<String, Object>();
+
+    @BeforeClass
+    public static void startServer() {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(22231)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+        // 直连地址上没有声明可解压算法的服务端
+        ServerConfig oldServerConfig = new ServerConfig()
+            .setStopTimeout(0)
+            .setPort(22232)
+            .setProtocol(RpcConstants.PROTOCOL_TYPE_BOLT);
+
+        ProviderConfig<HelloService> providerConfig = new ProviderConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setRef(new HelloServiceImpl())
+            .setServer(Arrays.asList(serverConfig, oldServerConfig))
+            .setCompress("snappy")
+            .setFilterRef(Collections.<Filter> singletonList(new Filter() {
+                @Override
+                public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+                    SERVER_ATTACHMENTS.clear();
+                    SERVER_ATTACHMENTS.putAll(RpcInternalContext.getContext().getAttachments());
+                    return invoker.invoke(request);
+                }
+            }))
+            .setRegister(false);
+        providerConfig.export();
+    }
+
+    @Test
+    public void testCompress() {
+        final Map<String, Object> clientAttachments = new HashMap<String, Object>();
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22231?acceptCompress=snappy")
+            .setCompress("snappy")
+            .setFilterRef(Collections.<Filter> singletonList(new Filter() {
+                @Override
+                public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+                    SofaResponse response = invoker.invoke(request);
+                    clientAttachments.clear();
+                    clientAttachments.putAll(RpcInternalContext.getContext().getAttachments());
+                    return response;
+                }
+            }))
+            .setTimeout(3000)
+            .setRepeatedReferLimit(-1)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+
+        // 超过压缩基线，请求和响应都压缩
+        String name = buildName(10000);
+        Assert.assertEquals("hello " + name + " from server! age: 1", helloService.sayHello(name, 1));
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO) < 100);
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_RATIO) < 100);
+        Assert.assertTrue((Integer) SERVER_ATTACHMENTS.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO) < 100);
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_SIZE) < 10000);
+
+        // 没有超过压缩基线，不压缩
+        Assert.assertEquals("hello xxx from server! age: 2", helloService.sayHello("xxx", 2));
+        Assert.assertNull(clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO));
+        Assert.assertNull(clientAttachments.get(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_RATIO));
+        Assert.assertNull(SERVER_ATTACHMENTS.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO));
+    }
+
+    @Test
+    public void testNotCompress() {
+        final Map<String, Object> clientAttachments = new HashMap<String, Object>();
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22231?acceptCompress=snappy")
+            .setFilterRef(Collections.<Filter> singletonList(new Filter() {
+                @Override
+                public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+                    SofaResponse response = invoker.invoke(request);
+                    clientAttachments.clear();
+                    clientAttachments.putAll(RpcInternalContext.getContext().getAttachments());
+                    return response;
+                }
+            }))
+            .setTimeout(3000)
+            .setRepeatedReferLimit(-1)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+
+        // 客户端没有开启压缩，服务端也不会压缩响应
+        String name = buildName(10000);
+        Assert.assertEquals("hello " + name + " from server! age: 1", helloService.sayHello(name, 1));
+        Assert.assertNull(clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO));
+        Assert.assertNull(clientAttachments.get(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_RATIO));
+        Assert.assertNull(SERVER_ATTACHMENTS.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO));
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_SIZE) > 10000);
+    }
+
+    @Test
+    public void testCompressRequestForDirectUrlWithoutAccept() {
+        final Map<String, Object> clientAttachments = new HashMap<String, Object>();
+        ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22232")
+            .setCompress("snappy")
+            .setFilterRef(Collections.<Filter> singletonList(new Filter() {
+                @Override
+                public SofaResponse invoke(FilterInvoker invoker, SofaRequest request) throws SofaRpcException {
+                    SofaResponse response = invoker.invoke(request);
+                    clientAttachments.clear();
+                    clientAttachments.putAll(RpcInternalContext.getContext().getAttachments());
+                    return response;
+                }
+            }))
+            .setTimeout(3000)
+            .setRepeatedReferLimit(-1)
+            .setRegister(false);
+        HelloService helloService = consumerConfig.refer();
+
+        // 直连地址上没有声明可以解压，调用方显式配置了压缩，请求和响应都压缩
+        String name = buildName(10000);
+        Assert.assertEquals("hello " + name + " from server! age: 1", helloService.sayHello(name, 1));
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO) < 100);
+        Assert.assertTrue((Integer) SERVER_ATTACHMENTS.get(RpcConstants.INTERNAL_KEY_REQ_COMPRESS_RATIO) < 100);
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_REQ_SIZE) < 10000);
+        Assert.assertTrue((Integer) clientAttachments.get(RpcConstants.INTERNAL_KEY_RESP_COMPRESS_RATIO) < 100);
+    }
+
+    private String buildName(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+}
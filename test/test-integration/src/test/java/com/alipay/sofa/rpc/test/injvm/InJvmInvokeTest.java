@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.injvm;
+
+import com.alipay.sofa.rpc.config.ConfigUniqueNameGenerator;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.server.InJvmInvokerRegistry;
+import com.alipay.sofa.rpc.server.ProviderProxyInvoker;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class InJvmInvokeTest extends ActivelyDestroyTest {
+
+    @Test
+    public void testInJvm() {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0).setPort(22233);
+
+        InJvmServiceImpl impl = new InJvmServiceImpl();
+        ProviderConfig<InJvmService> providerConfig = new ProviderConfig<InJvmService>()
+            .setInterfaceId(InJvmService.class.getName())
+            .setRef(impl)
+            .setServer(serverConfig)
+            .setRegister(false);
+        providerConfig.export();
+        String serviceName = ConfigUniqueNameGenerator.getUniqueName(providerConfig);
+        ProviderProxyInvoker invoker = InJvmInvokerRegistry.getInvoker(serviceName);
+        Assert.assertNotNull(invoker);
+
+        // 直接传引用
+        ConsumerConfig<InJvmService> consumerConfig = new ConsumerConfig<InJvmService>()
+            .setInterfaceId(InJvmService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22233")
+            .setInJVM(true)
+            .setTimeout(3000)
+            .setRegister(false);
+        InJvmService service = consumerConfig.refer();
+        List<String> arg = new ArrayList<String>();
+        arg.add("xxx");
+        List<String> result = service.echo(arg);
+        Assert.assertSame(arg, result);
+        Assert.assertSame(Thread.currentThread(), impl.thread);
+
+        // 深拷贝
+        ConsumerConfig<InJvmService> copyConsumerConfig = new ConsumerConfig<InJvmService>()
+            .setInterfaceId(InJvmService.class.getName())
+            .setDirectUrl("bolt://127.0.0.1:22233")
+            .setInJVM(true)
+            .setInJVMCopy(true)
+            .setTimeout(3000)
+            .setRegister(false);
+        InJvmService copyService = copyConsumerConfig.refer();
+        impl.thread = null;
+        result = copyService.echo(arg);
+        Assert.assertEquals(arg, result);
+        Assert.assertNotSame(arg, result);
+        Assert.assertSame(Thread.currentThread(), impl.thread);
+
+        // 本地服务不在了，走远程调用
+        InJvmInvokerRegistry.unRegister(serviceName, invoker);
+        try {
+            impl.thread = null;
+            result = service.echo(arg);
+            Assert.assertEquals(arg, result);
+            Assert.assertNotSame(arg, result);
+            Assert.assertNotNull(impl.thread);
+            Assert.assertNotSame(Thread.currentThread(), impl.thread);
+        } finally {
+            InJvmInvokerRegistry.register(serviceName, invoker);
+        }
+
+        // 取消发布后从本地服务中删除
+        providerConfig.unExport();
+        Assert.assertNull(InJvmInvokerRegistry.getInvoker(serviceName));
+    }
+
+    public interface InJvmService {
+
+        List<String> echo(List<String> list);
+    }
+
+    public static class InJvmServiceImpl implements InJvmService {
+
+        private volatile Thread thread;
+
+        @Override
+        public List<String> echo(List<String> list) {
+            thread = Thread.currentThread();
+            return list;
+        }
+    }
+}
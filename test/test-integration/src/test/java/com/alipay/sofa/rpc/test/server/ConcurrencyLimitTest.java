@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alipay.sofa.rpc.test.server;
+
+import com.alipay.sofa.rpc.common.RpcConfigs;
+import com.alipay.sofa.rpc.common.RpcOptions;
+import com.alipay.sofa.rpc.config.ConfigUniqueNameGenerator;
+import com.alipay.sofa.rpc.config.ConsumerConfig;
+import com.alipay.sofa.rpc.config.ProviderConfig;
+import com.alipay.sofa.rpc.config.ServerConfig;
+import com.alipay.sofa.rpc.core.exception.RpcErrorType;
+import com.alipay.sofa.rpc.core.exception.SofaRpcException;
+import com.alipay.sofa.rpc.event.Event;
+import com.alipay.sofa.rpc.event.EventBus;
+import com.alipay.sofa.rpc.event.ServerReceiveEvent;
+import com.alipay.sofa.rpc.event.Subscriber;
+import com.alipay.sofa.rpc.filter.AbstractConcurrentsFilter;
+import com.alipay.sofa.rpc.filter.MethodConcurrents;
+import com.alipay.sofa.rpc.server.ConcurrencyLimiter;
+import com.alipay.sofa.rpc.server.bolt.BoltServer;
+import com.alipay.sofa.rpc.test.ActivelyDestroyTest;
+import com.alipay.sofa.rpc.test.HelloService;
+import com.alipay.sofa.rpc.test.HelloServiceImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConcurrencyLimitTest extends ActivelyDestroyTest {
+
+    @Test
+    public void testLimit() throws Exception {
+        String limiter = RpcConfigs.getStringValue(RpcOptions.SERVER_LIMITER);
+        int initial = RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_INITIAL);
+        int min = RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_MIN);
+        int max = RpcConfigs.getIntValue(RpcOptions.SERVER_LIMITER_MAX);
+        // 固定只允许一个请求在处理
+        RpcConfigs.putValue(RpcOptions.SERVER_LIMITER, "gradient");
+        RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_INITIAL, 1);
+        RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_MIN, 1);
+        RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_MAX, 1);
+        try {
+            ServerConfig serverConfig = new ServerConfig()
+                .setStopTimeout(0).setPort(22232);
+
+            // 发布一个服务，每个请求要执行1秒
+            ProviderConfig<HelloService> providerConfig = new ProviderConfig<HelloService>()
+                .setInterfaceId(HelloService.class.getName())
+                .setRef(new HelloServiceImpl(1000))
+                .setServer(serverConfig)
+                .setRegister(false);
+            providerConfig.export();
+
+            ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+                .setInterfaceId(HelloService.class.getName())
+                .setTimeout(3000)
+                .setDirectUrl("bolt://127.0.0.1:22232")
+                .setRegister(false);
+            final HelloService helloService = consumerConfig.refer();
+
+            final AtomicInteger success = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(1);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        helloService.sayHello("xxx", 22);
+                        success.incrementAndGet();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }, "T1");
+            thread.start();
+
+            BoltServer server = (BoltServer) serverConfig.getServer();
+            String serviceName = ConfigUniqueNameGenerator.getUniqueName(providerConfig);
+            long deadline = System.currentTimeMillis() + 3000;
+            while (server.getConcurrencyLimiter(serviceName).getInflight() == 0
+                && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            try {
+                helloService.sayHello("xxx", 22);
+                Assert.fail();
+            } catch (SofaRpcException e) {
+                Assert.assertEquals(RpcErrorType.SERVER_BUSY, e.getErrorType());
+            }
+
+            Assert.assertTrue(latch.await(5000, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, success.get());
+            ConcurrencyLimiter concurrencyLimiter = server.getConcurrencyLimiter(serviceName);
+            Assert.assertEquals(1, concurrencyLimiter.getLimit());
+            Assert.assertEquals(1, concurrencyLimiter.getRejected());
+            Assert.assertEquals(0, concurrencyLimiter.getInflight());
+        } finally {
+            RpcConfigs.putValue(RpcOptions.SERVER_LIMITER, limiter);
+            RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_INITIAL, initial);
+            RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_MIN, min);
+            RpcConfigs.putValue(RpcOptions.SERVER_LIMITER_MAX, max);
+        }
+    }
+
+    @Test
+    public void testMethodConcurrents() throws Exception {
+        ServerConfig serverConfig = new ServerConfig()
+            .setStopTimeout(0).setPort(22237);
+
+        // 每个方法只允许一个请求在处理，每个请求要执行1秒
+        final ProviderConfig<HelloService> providerConfig = new ProviderConfig<HelloService>()
+            .setInterfaceId(HelloService.class.getName())
+            .setRef(new HelloServiceImpl(1000))
+            .setServer(serverConfig)
+            .setConcurrents(1)
+            .setRegister(false);
+        providerConfig.export();
+
+        final AtomicInteger received = new AtomicInteger();
+        Subscriber subscriber = new Subscriber() {
+            @Override
+            public void onEvent(Event event) {
+                received.incrementAndGet();
+            }
+        };
+        EventBus.register(ServerReceiveEvent.class, subscriber);
+        try {
+            ConsumerConfig<HelloService> consumerConfig = new ConsumerConfig<HelloService>()
+                .setInterfaceId(HelloService.class.getName())
+                .setTimeout(3000)
+                .setDirectUrl("bolt://127.0.0.1:22237")
+                .setRegister(false);
+            final HelloService helloService = consumerConfig.refer();
+
+            final CountDownLatch latch = new CountDownLatch(1);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        helloService.sayHello("xxx", 22);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }, "T1");
+            thread.start();
+
+            long deadline = System.currentTimeMillis() + 3000;
+            while ((AbstractConcurrentsFilter.getConcurrents(providerConfig).get("sayHello") == null
+                || AbstractConcurrentsFilter.getConcurrents(providerConfig).get("sayHello").getActive() == 0)
+                && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            try {
+                helloService.sayHello("xxx", 22);
+                Assert.fail();
+            } catch (SofaRpcException e) {
+                Assert.assertEquals(RpcErrorType.SERVER_BUSY, e.getErrorType());
+            }
+            // 在进入业务线程池之前就拒绝了，不会开始处理
+            Assert.assertEquals(1, received.get());
+
+            Assert.assertTrue(latch.await(5000, TimeUnit.MILLISECONDS));
+            MethodConcurrents concurrents = AbstractConcurrentsFilter.getConcurrents(providerConfig).get("sayHello");
+            Assert.assertEquals(1, concurrents.getRejected());
+            Assert.assertEquals(0, concurrents.getActive());
+        } finally {
+            EventBus.unRegister(ServerReceiveEvent.class, subscriber);
+        }
+    }
+}